@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.cache;
+
+import com.google.common.util.concurrent.ListenableFutureTask;
+import solutions.trsoftware.commons.shared.util.CachedValue;
+import solutions.trsoftware.commons.shared.util.CachedValue.ValueLoader;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link ValueLoader} for a {@link CachedValue}, which performs the {@linkplain #reload(Object) reloads}
+ * asynchronously, by invoking {@link #load()} on the given {@link Executor}.  This allows implementing the
+ * "refresh-ahead" strategy: after the value expires, {@link CachedValue#get()} will keep returning the stale value
+ * without blocking until the background task produces a new value.
+ * <p>
+ * If a reload fails or times out, the stale value will be {@linkplain FailedReloadAction#ignore() kept} until it
+ * expires again; subclasses can override {@link #onReloadFailure} and {@link #onReloadTimeout} to change this.
+ *
+ * @see com.google.common.cache.CacheLoader#asyncReloading
+ * @author Alex
+ * @since 10/16/2026
+ */
+public abstract class AsyncValueLoader<V> implements ValueLoader<V> {
+  private final Executor executor;
+
+  /**
+   * @param executor will be used to invoke {@link #load()} for each {@linkplain #reload(Object) reload}
+   */
+  protected AsyncValueLoader(@Nonnull Executor executor) {
+    this.executor = requireNonNull(executor, "executor");
+  }
+
+  @Nonnull
+  @Override
+  public Future<V> reload(V oldValue) {
+    ListenableFutureTask<V> task = ListenableFutureTask.create(this::load);
+    executor.execute(task);
+    return task;
+  }
+
+  @Nonnull
+  @Override
+  public FailedReloadAction<V> onReloadFailure(Throwable cause, long valueAge, int failCount) {
+    return FailedReloadAction.ignore();
+  }
+
+  @Nonnull
+  @Override
+  public FailedReloadAction<V> onReloadTimeout(long valueAge, int failCount) {
+    return FailedReloadAction.ignore();
+  }
+
+  public Executor getExecutor() {
+    return executor;
+  }
+}
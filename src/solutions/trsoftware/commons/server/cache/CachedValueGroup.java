@@ -0,0 +1,363 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.SettableFuture;
+import solutions.trsoftware.commons.shared.util.CachedValue;
+import solutions.trsoftware.commons.shared.util.CachedValue.ValueLoader;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Maintains a {@link CachedValue} for each key, whose reloads are coalesced into batches: instead of reloading each
+ * expired value separately, the keys are queued up and passed to a single invocation of
+ * {@link BatchLoader#loadAll(Collection)}.
+ * <p>
+ * The batches are loaded in the background using the given {@link Executor}, and only one batch is loaded at a time:
+ * any keys that expire while a batch is being loaded will be included in the next batch.  In the meantime,
+ * {@link #get(Object)} keeps returning the stale values without blocking (see {@link CachedValue}).
+ * If a batch fails, or doesn't return a value for some key, the stale values will be kept until they expire again.
+ * <p>
+ * The expiration of each value is randomized with the given {@linkplain CachedValue#setExpiryJitter(double) jitter},
+ * so that values that were loaded together don't all expire at the same time.
+ * <p>
+ * Values are never evicted from this group automatically; use {@link #invalidate(Object)} to remove a key.
+ * <p>
+ * The values of this group and its own metrics use the same clock, which unit tests can mock by overriding
+ * {@link #currentTimeMillis()}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class CachedValueGroup<K, V> {
+
+  private final long maxAgeMillis;
+  private final long reloadTimeoutMillis;
+  private final double expiryJitter;
+  private final Executor executor;
+  private final BatchLoader<K, V> batchLoader;
+
+  private final ConcurrentHashMap<K, CachedValue<V>> values = new ConcurrentHashMap<>();
+  /** The keys queued for the next batch, with the futures to be completed when their new values are loaded */
+  private final ConcurrentHashMap<K, SettableFuture<V>> pendingReloads = new ConcurrentHashMap<>();
+  /** Indicates that a batch is scheduled or running */
+  private final AtomicBoolean batchInProgress = new AtomicBoolean();
+
+  // metrics:
+  private final LongAdder batchCount = new LongAdder();
+  private final LongAdder batchedKeyCount = new LongAdder();
+  private final LongAdder batchFailureCount = new LongAdder();
+  private final LongAdder totalBatchTimeMillis = new LongAdder();
+
+  /**
+   * @param maxAgeMillis how long to keep returning each cached value before reloading it
+   * @param reloadTimeoutMillis how long to wait for a value to be reloaded before giving up
+   *     (in which case the stale value will be kept until it expires again)
+   * @param expiryJitter the max fraction of {@code maxAgeMillis} by which the expiration of each value will be
+   *     randomly shortened (see {@link CachedValue#setExpiryJitter(double)})
+   * @param executor will be used to load the batches
+   * @param batchLoader will be used to load the values
+   */
+  public CachedValueGroup(long maxAgeMillis, long reloadTimeoutMillis, double expiryJitter,
+                          @Nonnull Executor executor, @Nonnull BatchLoader<K, V> batchLoader) {
+    Preconditions.checkArgument(expiryJitter >= 0 && expiryJitter <= 1, "expiryJitter must be in the range [0, 1], given: %s", expiryJitter);
+    this.maxAgeMillis = maxAgeMillis;
+    this.reloadTimeoutMillis = reloadTimeoutMillis;
+    this.expiryJitter = expiryJitter;
+    this.executor = requireNonNull(executor, "executor");
+    this.batchLoader = requireNonNull(batchLoader, "batchLoader");
+  }
+
+  /**
+   * Returns the cached value for the given key.  If the key isn't present, its value will be loaded synchronously
+   * (in a batch containing just this key).
+   *
+   * @see CachedValue#get()
+   */
+  @Nonnull
+  public V get(@Nonnull K key) {
+    return getCachedValue(key).get();
+  }
+
+  /**
+   * Returns the cached values for the given keys, loading all the missing values synchronously in a single batch.
+   *
+   * @return the values of the given keys (in the same iteration order)
+   */
+  public Map<K, V> getAll(@Nonnull Collection<? extends K> keys) {
+    Set<K> missing = new LinkedHashSet<>();
+    for (K key : keys) {
+      if (!getCachedValue(key).hasValue())
+        missing.add(key);
+    }
+    if (!missing.isEmpty()) {
+      Map<K, V> loaded = loadBatch(missing);
+      for (K key : missing) {
+        V value = loaded.get(key);
+        if (value != null) {
+          CachedValue<V> cachedValue = getCachedValue(key);
+          synchronized (cachedValue) {
+            if (!cachedValue.hasValue())
+              cachedValue.set(value);
+          }
+        }
+      }
+    }
+    Map<K, V> ret = new LinkedHashMap<>();
+    for (K key : keys)
+      ret.put(key, get(key));
+    return ret;
+  }
+
+  /**
+   * @return the {@link CachedValue} for the given key (creating a new empty instance if needed)
+   */
+  public CachedValue<V> getCachedValue(@Nonnull K key) {
+    return values.computeIfAbsent(key, k -> createCachedValue(maxAgeMillis, reloadTimeoutMillis, new KeyLoader(k))
+        .setExpiryJitter(expiryJitter));
+  }
+
+  /**
+   * Factory method for the {@link CachedValue} instances of this group.  The default implementation returns
+   * instances that use this group's {@linkplain #currentTimeMillis() clock}.
+   */
+  protected CachedValue<V> createCachedValue(long maxAgeMillis, long reloadTimeoutMillis, ValueLoader<V> valueLoader) {
+    return new CachedValue<V>(maxAgeMillis, reloadTimeoutMillis, valueLoader) {
+      @Override
+      protected long currentTimeMillis() {
+        return CachedValueGroup.this.currentTimeMillis();
+      }
+    };
+  }
+
+  /**
+   * Returns {@link System#currentTimeMillis()}, but unit tests can override to provide a mocked time.
+   *
+   * @see CachedValue#currentTimeMillis()
+   */
+  @VisibleForTesting
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Removes the given key from this group.
+   * @return the removed value, or {@code null} if not present
+   */
+  public V invalidate(@Nonnull K key) {
+    CachedValue<V> cachedValue = values.remove(key);
+    return cachedValue != null ? cachedValue.remove() : null;
+  }
+
+  /**
+   * Removes all the keys from this group.
+   */
+  public void invalidateAll() {
+    for (Iterator<CachedValue<V>> it = values.values().iterator(); it.hasNext(); ) {
+      it.next().remove();
+      it.remove();
+    }
+  }
+
+  /**
+   * @return the number of keys in this group
+   */
+  public int size() {
+    return values.size();
+  }
+
+  /**
+   * Loads the given keys synchronously.
+   */
+  private Map<K, V> loadBatch(Collection<K> keys) {
+    long start = currentTimeMillis();
+    batchCount.increment();
+    batchedKeyCount.add(keys.size());
+    try {
+      return requireNonNull(batchLoader.loadAll(Collections.unmodifiableCollection(keys)), "loadAll result");
+    }
+    catch (RuntimeException | Error e) {
+      batchFailureCount.increment();
+      throw e;
+    }
+    finally {
+      totalBatchTimeMillis.add(currentTimeMillis() - start);
+    }
+  }
+
+  /**
+   * Adds the given key to the next batch.
+   * @return a future that will be completed when the key's value is reloaded
+   */
+  private Future<V> scheduleReload(K key) {
+    SettableFuture<V> future = pendingReloads.computeIfAbsent(key, k -> SettableFuture.create());
+    maybeStartBatch();
+    return future;
+  }
+
+  private void maybeStartBatch() {
+    if (!pendingReloads.isEmpty() && batchInProgress.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::runBatch);
+      }
+      catch (RuntimeException e) {
+        // the executor rejected the task: fail the pending reloads, so that they can be rescheduled later
+        batchInProgress.set(false);
+        completeBatch(drainPendingReloads(), null, e);
+      }
+    }
+  }
+
+  private void runBatch() {
+    try {
+      Map<K, SettableFuture<V>> batch = drainPendingReloads();
+      if (!batch.isEmpty()) {
+        try {
+          completeBatch(batch, loadBatch(batch.keySet()), null);
+        }
+        catch (Throwable e) {
+          completeBatch(batch, null, e);
+        }
+      }
+    }
+    finally {
+      batchInProgress.set(false);
+      // include any keys that expired while this batch was loading in the next batch
+      maybeStartBatch();
+    }
+  }
+
+  private Map<K, SettableFuture<V>> drainPendingReloads() {
+    Map<K, SettableFuture<V>> batch = new LinkedHashMap<>();
+    for (K key : pendingReloads.keySet()) {
+      SettableFuture<V> future = pendingReloads.remove(key);
+      if (future != null)
+        batch.put(key, future);
+    }
+    return batch;
+  }
+
+  private void completeBatch(Map<K, SettableFuture<V>> batch, Map<K, V> result, Throwable failure) {
+    for (Map.Entry<K, SettableFuture<V>> entry : batch.entrySet()) {
+      SettableFuture<V> future = entry.getValue();
+      if (failure != null)
+        future.setException(failure);
+      else {
+        V value = result.get(entry.getKey());
+        if (value != null)
+          future.set(value);
+        else
+          future.setException(new NoSuchElementException("No value loaded for key " + entry.getKey()));
+      }
+    }
+  }
+
+  /**
+   * @return the number of {@link BatchLoader#loadAll(Collection)} invocations so far
+   */
+  public long getBatchCount() {
+    return batchCount.sum();
+  }
+
+  /**
+   * @return the average number of keys passed to {@link BatchLoader#loadAll(Collection)}
+   */
+  public double getAverageBatchSize() {
+    long n = batchCount.sum();
+    return n == 0 ? 0 : (double)batchedKeyCount.sum() / n;
+  }
+
+  /**
+   * @return the average duration (in millis) of the {@link BatchLoader#loadAll(Collection)} invocations
+   */
+  public double getAverageBatchTimeMillis() {
+    long n = batchCount.sum();
+    return n == 0 ? 0 : (double)totalBatchTimeMillis.sum() / n;
+  }
+
+  /**
+   * @return the number of {@link BatchLoader#loadAll(Collection)} invocations that threw an exception
+   */
+  public long getBatchFailureCount() {
+    return batchFailureCount.sum();
+  }
+
+  /**
+   * Delegates the loading of a particular key to the {@link BatchLoader}.
+   */
+  private class KeyLoader implements ValueLoader<V> {
+    private final K key;
+
+    private KeyLoader(K key) {
+      this.key = key;
+    }
+
+    @Nonnull
+    @Override
+    public V load() {
+      V value = loadBatch(Collections.singletonList(key)).get(key);
+      if (value == null)
+        throw new NoSuchElementException("No value loaded for key " + key);
+      return value;
+    }
+
+    @Nonnull
+    @Override
+    public Future<V> reload(V oldValue) {
+      return scheduleReload(key);
+    }
+
+    @Nonnull
+    @Override
+    public FailedReloadAction<V> onReloadFailure(Throwable cause, long valueAge, int failCount) {
+      return FailedReloadAction.ignore();
+    }
+
+    @Nonnull
+    @Override
+    public FailedReloadAction<V> onReloadTimeout(long valueAge, int failCount) {
+      return FailedReloadAction.ignore();
+    }
+  }
+
+  /**
+   * Loads the values for multiple keys at once.
+   *
+   * @see com.google.common.cache.CacheLoader#loadAll(Iterable)
+   */
+  public interface BatchLoader<K, V> {
+    /**
+     * @param keys the keys to load
+     * @return the values of the given keys; any keys missing from the result will keep their current values
+     * (or will fail to load, if they don't have a value yet)
+     */
+    @Nonnull
+    Map<K, V> loadAll(Collection<K> keys);
+  }
+}
@@ -0,0 +1,524 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import solutions.trsoftware.commons.shared.util.time.Clock;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe alternative to {@link FixedTimeCache}, with the same expiration semantics: entries are evicted
+ * after a fixed amount of time has elapsed since they were added (regardless of whether they were accessed or updated
+ * in the meantime), or when the cache exceeds its maximum capacity (in which case the oldest entries are evicted first).
+ * <p>
+ * The entries are stored in a {@link ConcurrentHashMap}, so reads are lock-free and don't require any external
+ * synchronization.  Since all entries have the same max age, their expiration order is the same as their insertion
+ * order, so the expiry queue is simply a FIFO queue of the entries (a degenerate timer wheel, which doesn't need
+ * more than one bucket).  The expired entries are purged from the head of the queue as part of each write operation
+ * and {@link #size()}, so the cost of expiration is amortized O(1) per entry.
+ * An expired entry that hasn't been purged yet is never returned by any of the read operations.
+ * <p>
+ * An entry that's removed explicitly stays in the expiry queue (without its value) until it reaches the head of
+ * the queue, unless the queue grows much larger than the map (e.g. if most entries are removed before they expire),
+ * in which case all such entries are purged from the queue.
+ * <p>
+ * Only one thread at a time purges the expired entries: other threads skip this step if the purge lock is
+ * held by another thread, rather than waiting for it.
+ * <p>
+ * The time is read from the given {@link Ticker} (which is {@link Clock#ticker()} by default), so that it can be
+ * controlled in unit tests.
+ * <p>
+ * Like {@link ConcurrentHashMap}, this class does not allow {@code null} keys or values, and its views and iterators
+ * are weakly consistent.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Alex
+ * @since 10/16/2026
+ * @see FixedTimeCache
+ * @see com.google.common.cache.CacheBuilder#expireAfterWrite
+ */
+public class ConcurrentExpiringMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+  /**
+   * The expiry queue will be compacted when the number of entries that have been removed from the map
+   * (but not from the queue) exceeds the size of the map plus this number.
+   */
+  private static final int COMPACTION_THRESHOLD = 16;
+
+  private final long maxAgeNanos;
+  private final int maxCapacity;
+  private final Ticker ticker;
+
+  private final ConcurrentHashMap<K, Node<K, V>> map;
+  /**
+   * The entries in order of insertion (which is also their order of expiration).
+   * Might contain entries that have already been removed from the {@link #map}; these are discarded when they
+   * reach the head of the queue (or when the queue is {@linkplain #compact() compacted}).
+   */
+  private final ConcurrentLinkedQueue<Node<K, V>> expiryQueue = new ConcurrentLinkedQueue<>();
+  /**
+   * The number of nodes in the {@link #expiryQueue} (because {@link ConcurrentLinkedQueue#size()} is not
+   * a constant-time operation).
+   */
+  private final AtomicInteger queueSize = new AtomicInteger();
+  /**
+   * Guards the removal of entries from the head of the {@link #expiryQueue}.
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /**
+   * @param maxAge entries will be evicted after this amount of time has elapsed since they were added
+   * @param unit the unit of {@code maxAge}
+   * @param maxCapacity the oldest entries will be evicted when the size exceeds this limit
+   * @param ticker the time source
+   */
+  public ConcurrentExpiringMap(long maxAge, TimeUnit unit, int maxCapacity, Ticker ticker) {
+    Preconditions.checkArgument(maxAge > 0, "maxAge must be positive, given: %s", maxAge);
+    Preconditions.checkArgument(maxCapacity > 0, "maxCapacity must be positive, given: %s", maxCapacity);
+    this.maxAgeNanos = unit.toNanos(maxAge);
+    this.maxCapacity = maxCapacity;
+    this.ticker = Preconditions.checkNotNull(ticker);
+    map = new ConcurrentHashMap<>(Math.min(maxCapacity, 16));
+  }
+
+  /**
+   * @param maxAge entries will be evicted after this amount of time has elapsed since they were added
+   * @param unit the unit of {@code maxAge}
+   * @param maxCapacity the oldest entries will be evicted when the size exceeds this limit
+   */
+  public ConcurrentExpiringMap(long maxAge, TimeUnit unit, int maxCapacity) {
+    this(maxAge, unit, maxCapacity, Clock.ticker());
+  }
+
+  /**
+   * Creates a map with unlimited capacity.
+   * @param maxAge entries will be evicted after this amount of time has elapsed since they were added
+   * @param unit the unit of {@code maxAge}
+   */
+  public ConcurrentExpiringMap(long maxAge, TimeUnit unit) {
+    this(maxAge, unit, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return the amount of time after which an entry expires, in the given unit
+   */
+  public long getMaxAge(TimeUnit unit) {
+    return unit.convert(maxAgeNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public int getMaxCapacity() {
+    return maxCapacity;
+  }
+
+  /**
+   * An entry of the map, which retains its original expiration time when its value is replaced.
+   * The value is cleared when the entry is removed, so that it won't be retained by the {@link #expiryQueue}.
+   */
+  private static class Node<K, V> {
+    private final K key;
+    private volatile V value;
+    private final long expirationTime;
+
+    private Node(K key, V value, long expirationTime) {
+      this.key = key;
+      this.value = value;
+      this.expirationTime = expirationTime;
+    }
+
+    private boolean isExpired(long now) {
+      return now - expirationTime >= 0;
+    }
+  }
+
+  /**
+   * @return the node mapped to the given key, or {@code null} if not found or expired
+   */
+  private Node<K, V> getLiveNode(Object key, long now) {
+    Node<K, V> node = map.get(key);
+    if (node != null && node.isExpired(now)) {
+      removeNode(node);
+      return null;
+    }
+    return node;
+  }
+
+  /**
+   * Removes the given node from the map (if it's still mapped) and clears its value.
+   * @return {@code true} if the node was removed
+   */
+  private boolean removeNode(Node<K, V> node) {
+    if (map.remove(node.key, node)) {
+      node.value = null;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes the expired entries from the head of the {@link #expiryQueue}, unless another thread is already doing it.
+   * Also compacts the queue if it contains too many entries that have already been removed from the map.
+   */
+  private void purgeExpired() {
+    if (evictionLock.tryLock()) {
+      try {
+        long now = ticker.read();
+        for (Node<K, V> head; (head = expiryQueue.peek()) != null && (head.isExpired(now) || map.get(head.key) != head); ) {
+          expiryQueue.poll();
+          queueSize.decrementAndGet();
+          removeNode(head);
+        }
+        if (queueSize.get() - map.size() > map.size() + COMPACTION_THRESHOLD)
+          compact();
+      }
+      finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Removes the entries that are no longer mapped from anywhere in the {@link #expiryQueue}.
+   * Since this takes time linear in the size of the queue, it's only done when at least half the queue consists
+   * of such entries, so the cost is amortized O(1) per removed entry.
+   * Assumes that the caller holds the {@link #evictionLock}.
+   */
+  private void compact() {
+    for (Iterator<Node<K, V>> it = expiryQueue.iterator(); it.hasNext(); ) {
+      Node<K, V> node = it.next();
+      if (map.get(node.key) != node) {
+        it.remove();
+        queueSize.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Evicts the oldest entries until the size doesn't exceed {@link #maxCapacity}.
+   * Unlike {@link #purgeExpired()}, this method waits for the lock, to make sure the capacity limit is enforced.
+   */
+  private void evictOverflow() {
+    evictionLock.lock();
+    try {
+      Node<K, V> head;
+      while (map.size() > maxCapacity && (head = expiryQueue.poll()) != null) {
+        queueSize.decrementAndGet();
+        removeNode(head);
+      }
+    }
+    finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Adds a new entry to the expiry queue, and then performs the amortized eviction steps.
+   */
+  private void afterInsert(Node<K, V> node) {
+    expiryQueue.add(node);
+    queueSize.incrementAndGet();
+    if (map.size() > maxCapacity)
+      evictOverflow();
+    purgeExpired();
+  }
+
+  @Override
+  public V get(Object key) {
+    Node<K, V> node = getLiveNode(key, ticker.read());
+    return node != null ? node.value : null;  // NOTE: the value will be null if the node was removed concurrently
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return getLiveNode(key, ticker.read()) != null;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    Preconditions.checkNotNull(value);
+    long now = ticker.read();
+    for (Node<K, V> node : map.values()) {
+      if (!node.isExpired(now) && value.equals(node.value))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * If the map already contains a mapping for this key, the old mapping's expiration time will be retained
+   * for the new value (same as {@link FixedTimeCache#put(Object, Object)}).
+   */
+  @Override
+  public V put(@Nonnull K key, @Nonnull V value) {
+    return put(key, value, false);
+  }
+
+  @Override
+  public V putIfAbsent(@Nonnull K key, @Nonnull V value) {
+    return put(key, value, true);
+  }
+
+  private V put(K key, V value, boolean onlyIfAbsent) {
+    Preconditions.checkNotNull(value);
+    long now = ticker.read();
+    Object[] oldValue = new Object[1];
+    Node<K, V> newNode = new Node<>(key, value, now + maxAgeNanos);
+    Node<K, V> result = map.compute(key, (k, node) -> {
+      if (node == null)
+        return newNode;
+      if (node.isExpired(now)) {
+        node.value = null;
+        return newNode;
+      }
+      oldValue[0] = node.value;
+      if (!onlyIfAbsent)
+        node.value = value;
+      return node;
+    });
+    if (result == newNode)
+      afterInsert(newNode);
+    else
+      purgeExpired();
+    @SuppressWarnings("unchecked")
+    V ret = (V)oldValue[0];
+    return ret;
+  }
+
+  @Override
+  public V remove(Object key) {
+    Node<K, V> node = map.remove(key);
+    if (node == null)
+      return null;
+    V value = node.value;
+    node.value = null;
+    // NOTE: the node will be discarded when it reaches the head of the expiry queue (or when the queue is compacted)
+    purgeExpired();
+    return !node.isExpired(ticker.read()) ? value : null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean remove(@Nonnull Object key, Object value) {
+    if (value == null)
+      return false;
+    long now = ticker.read();
+    boolean[] removed = new boolean[1];
+    map.computeIfPresent((K)key, (k, node) -> {
+      if (node.isExpired(now)) {
+        node.value = null;
+        return null;
+      }
+      if (value.equals(node.value)) {
+        removed[0] = true;
+        node.value = null;
+        return null;
+      }
+      return node;
+    });
+    purgeExpired();
+    return removed[0];
+  }
+
+  @Override
+  public boolean replace(@Nonnull K key, @Nonnull V oldValue, @Nonnull V newValue) {
+    Preconditions.checkNotNull(oldValue);
+    Preconditions.checkNotNull(newValue);
+    long now = ticker.read();
+    boolean[] replaced = new boolean[1];
+    map.computeIfPresent(key, (k, node) -> {
+      if (node.isExpired(now)) {
+        node.value = null;
+        return null;
+      }
+      if (oldValue.equals(node.value)) {
+        node.value = newValue;
+        replaced[0] = true;
+      }
+      return node;
+    });
+    return replaced[0];
+  }
+
+  @Override
+  public V replace(@Nonnull K key, @Nonnull V value) {
+    Preconditions.checkNotNull(value);
+    long now = ticker.read();
+    Object[] oldValue = new Object[1];
+    map.computeIfPresent(key, (k, node) -> {
+      if (node.isExpired(now)) {
+        node.value = null;
+        return null;
+      }
+      oldValue[0] = node.value;
+      node.value = value;
+      return node;
+    });
+    @SuppressWarnings("unchecked")
+    V ret = (V)oldValue[0];
+    return ret;
+  }
+
+  /**
+   * Resets the expiration time of the given mapping, as if it had just been added (unlike {@link #put(Object, Object)},
+   * which retains the original expiration time).  This is done atomically, so other threads will never find the key
+   * missing while it's being renewed.
+   *
+   * @return {@code true} if the map contained the given mapping (which has been renewed), or {@code false} if the key
+   * is missing, expired, or mapped to a different value
+   */
+  public boolean renew(@Nonnull K key, @Nonnull V value) {
+    Preconditions.checkNotNull(value);
+    long now = ticker.read();
+    Node<K, V> newNode = new Node<>(key, value, now + maxAgeNanos);
+    boolean[] renewed = new boolean[1];
+    map.computeIfPresent(key, (k, node) -> {
+      if (node.isExpired(now)) {
+        node.value = null;
+        return null;
+      }
+      if (value.equals(node.value)) {
+        // NOTE: the old node will be discarded when it reaches the head of the expiry queue
+        renewed[0] = true;
+        return newNode;
+      }
+      return node;
+    });
+    if (renewed[0])
+      afterInsert(newNode);
+    else
+      purgeExpired();
+    return renewed[0];
+  }
+
+  /**
+   * @return the number of entries in the map, after purging the expired entries
+   * (the result might include entries that expire concurrently with this call)
+   */
+  @Override
+  public int size() {
+    purgeExpired();
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      map.clear();
+      while (expiryQueue.poll() != null)
+        queueSize.decrementAndGet();
+    }
+    finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Method provided for unit testing.
+   * @return the number of entries in the expiry queue, including those that have already been removed from the map
+   */
+  int getQueueSize() {
+    return queueSize.get();
+  }
+
+  /**
+   * @return the time remaining until the given key expires (in the given unit),
+   * or {@code -1} if the map doesn't contain the key
+   */
+  public long getTimeToLive(Object key, TimeUnit unit) {
+    long now = ticker.read();
+    Node<K, V> node = getLiveNode(key, now);
+    return node != null ? unit.convert(node.expirationTime - now, TimeUnit.NANOSECONDS) : -1;
+  }
+
+  /**
+   * @return a weakly-consistent view of the unexpired entries in this map.  The entries returned by its iterator
+   * are immutable snapshots, but the iterator supports {@link Iterator#remove()}.
+   */
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return ConcurrentExpiringMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        ConcurrentExpiringMap.this.clear();
+      }
+    };
+  }
+
+  private class EntryIterator implements Iterator<Entry<K, V>> {
+    private final Iterator<Node<K, V>> delegate = map.values().iterator();
+    private final long now = ticker.read();
+    private Node<K, V> next;
+    /** The value of {@link #next} (read only once, since it might be cleared by a concurrent removal) */
+    private V nextValue;
+    private Node<K, V> lastReturned;
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && delegate.hasNext()) {
+        Node<K, V> node = delegate.next();
+        V value = node.value;
+        if (!node.isExpired(now) && value != null) {
+          next = node;
+          nextValue = value;
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      lastReturned = next;
+      next = null;
+      return new SimpleImmutableEntry<>(lastReturned.key, nextValue);
+    }
+
+    @Override
+    public void remove() {
+      Preconditions.checkState(lastReturned != null);
+      removeNode(lastReturned);
+      lastReturned = null;
+    }
+  }
+}
@@ -32,9 +32,11 @@ import java.util.*;
  * This class decorates {@link LinkedHashMap} with fixed-time logic.
  * <p>
  * <strong>This class must be synchronized externally.</strong>
- * For a concurrent cache implementation, see {@link com.google.common.cache.CacheBuilder}.
+ * For a concurrent implementation with the same semantics, see {@link ConcurrentExpiringMap}
+ * (or {@link com.google.common.cache.CacheBuilder} for a general-purpose concurrent cache).
  *
  * @author Alex
+ * @see ConcurrentExpiringMap
  * @see <a href="https://github.com/google/guava/wiki/CachesExplained">Guava Caches</a>
  */
 public class FixedTimeCache<K,V> implements Map<K,V> {
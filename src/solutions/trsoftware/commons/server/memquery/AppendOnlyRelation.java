@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A relation whose rows can only be appended (via {@link #append(Row)} and {@link #appendAll(Collection)}),
+ * which notifies its {@linkplain Listener listeners} about every batch of new rows.
+ * This allows subscribing a {@link ContinuousQuery} to it, rather than re-running the query over the entire
+ * relation whenever it grows.
+ * <p>
+ * The appending methods are synchronized, and the listeners are notified in the thread that appended the rows
+ * (while holding the lock of this relation, so that they receive the rows in the same order as they were appended).
+ * However, the list returned by {@link #getRows()} should not be modified directly, and should not be iterated while
+ * other threads might be appending to it (unless synchronizing on this relation).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class AppendOnlyRelation extends ArrayListRelation {
+
+  /**
+   * Receives the rows appended to a relation.
+   */
+  public interface Listener {
+    /**
+     * @param newRows the rows that were just appended (in the same order)
+     */
+    void rowsAppended(AppendOnlyRelation relation, List<Row> newRows);
+  }
+
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  public AppendOnlyRelation(RelationSchema schema) {
+    super(schema, new ArrayList<>());
+  }
+
+  public AppendOnlyRelation(RelationSchema schema, Iterator<Row> rowIter) {
+    super(schema, rowIter);
+  }
+
+  /**
+   * Creates an empty relation whose rows represent instances of the given class.
+   * @see QueryBuilder#createORMSchema(Class, java.lang.reflect.Method...)
+   * @see #appendObjects(Collection)
+   */
+  public static AppendOnlyRelation forClass(Class cls) {
+    return new AppendOnlyRelation(QueryBuilder.createORMSchema(cls));
+  }
+
+  public void append(Row row) {
+    appendAll(Collections.singletonList(row));
+  }
+
+  public synchronized void appendAll(Collection<Row> newRows) {
+    if (newRows.isEmpty())
+      return;
+    List<Row> added = Collections.unmodifiableList(new ArrayList<>(newRows));
+    rows.addAll(added);
+    for (Listener listener : listeners)
+      listener.rowsAppended(this, added);
+  }
+
+  /**
+   * Appends the given objects as {@link ObjectRow}s (which requires the schema of this relation to be an
+   * O-R mapping of their class, as created by {@link #forClass(Class)}).
+   */
+  public void appendObjects(Collection<?> objects) {
+    List<Row> newRows = new ArrayList<>(objects.size());
+    for (Object obj : objects)
+      newRows.add(new ObjectRow(schema, obj));
+    appendAll(newRows);
+  }
+
+  /**
+   * Registers a listener for the rows that will be appended to this relation.
+   *
+   * @param replay whether the listener should first receive all the rows that are currently in this relation
+   * (this guarantees that the listener will receive each row exactly once, even if other threads are appending
+   * rows at the same time)
+   */
+  public synchronized void addListener(Listener listener, boolean replay) {
+    if (replay && !rows.isEmpty())
+      listener.rowsAppended(this, Collections.unmodifiableList(new ArrayList<>(rows)));
+    listeners.add(listener);
+  }
+
+  public synchronized boolean removeListener(Listener listener) {
+    return listeners.remove(listener);
+  }
+}
@@ -16,28 +16,37 @@
 
 package solutions.trsoftware.commons.server.memquery;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+import solutions.trsoftware.commons.shared.util.LogicUtils;
 
-import static solutions.trsoftware.commons.shared.util.CollectionUtils.asList;
+import java.util.*;
 
 /**
  * A relation that is materialized as an ArrayList of rows.
+ * <p>
+ * Can have secondary indexes on some of its columns (see {@link #createIndex(String, RelationIndex.Type)}).
+ * The indexes are rebuilt lazily (on the next call to {@link #getIndex(String, RelationIndex.Type)}) after any modification
+ * of the list returned by {@link #getRows()}.  However, if the values of a {@link MutableRow} change, the indexes have to be
+ * rebuilt explicitly, by calling {@link #rebuildIndexes()}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
  *
  * @author Alex, 1/15/14
  */
-public class ArrayListRelation extends AbstractRelation implements MaterializedRelation {
+public class ArrayListRelation extends AbstractRelation implements IndexedRelation {
 
   protected final ArrayList<Row> rows;
 
+  /** The secondary indexes of this relation, keyed by column name (lazy init) */
+  private Map<String, EnumMap<RelationIndex.Type, IndexHolder>> indexes;
+
   protected ArrayListRelation(RelationSchema schema, ArrayList<Row> rows) {
     super(schema);
     rows.trimToSize();
-    this.rows = rows;
+    this.rows = rows instanceof RowList ? rows : new RowList(rows);
   }
 
   public ArrayListRelation(RelationSchema schema, Iterator<Row> rowIter) {
-    this(schema, asList(rowIter));
+    this(schema, new RowList(rowIter));
   }
 
   public ArrayListRelation(Relation relation) {
@@ -58,4 +67,140 @@ public class ArrayListRelation extends AbstractRelation implements MaterializedR
   public int size() {
     return rows.size();
   }
+
+  /**
+   * Creates a secondary index on the given column (if it doesn't already exist), which will be used for evaluating
+   * any subsequent queries on this relation.
+   *
+   * @return this relation, for chaining
+   * @throws IllegalArgumentException if the column doesn't exist, or its values can't be indexed with the given
+   * type of index
+   */
+  public ArrayListRelation createIndex(String colName, RelationIndex.Type type) {
+    schema.getColIndex(colName);  // make sure the column exists
+    if (indexes == null)
+      indexes = new LinkedHashMap<>();
+    EnumMap<RelationIndex.Type, IndexHolder> colIndexes = indexes.computeIfAbsent(colName, name -> new EnumMap<>(RelationIndex.Type.class));
+    if (!colIndexes.containsKey(type)) {
+      IndexHolder holder = new IndexHolder(RelationIndex.create(type, colName));
+      holder.build();  // build the index right away, to surface any errors
+      colIndexes.put(type, holder);
+    }
+    return this;
+  }
+
+  /**
+   * @return {@code true} if the index existed
+   */
+  public boolean dropIndex(String colName, RelationIndex.Type type) {
+    if (indexes != null) {
+      EnumMap<RelationIndex.Type, IndexHolder> colIndexes = indexes.get(colName);
+      if (colIndexes != null && colIndexes.remove(type) != null) {
+        if (colIndexes.isEmpty())
+          indexes.remove(colName);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public RelationIndex getIndex(String colName, RelationIndex.Type type) {
+    if (indexes != null) {
+      EnumMap<RelationIndex.Type, IndexHolder> colIndexes = indexes.get(colName);
+      if (colIndexes != null) {
+        IndexHolder holder = colIndexes.get(type);
+        if (holder != null) {
+          if (holder.version != getVersion())
+            holder.build();
+          return holder.index;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Rebuilds all the indexes of this relation.  This method has to be called if the values of any rows have been
+   * modified (changes to the list of rows returned by {@link #getRows()} are detected automatically).
+   */
+  public void rebuildIndexes() {
+    if (indexes != null) {
+      for (EnumMap<RelationIndex.Type, IndexHolder> colIndexes : indexes.values())
+        for (IndexHolder holder : colIndexes.values())
+          holder.build();
+    }
+  }
+
+  /**
+   * Finds the rows containing the given value in the given column, using an index if this relation has one
+   * on that column, or a linear scan otherwise.
+   *
+   * @return the matching rows, in the same order as they appear in this relation
+   */
+  public List<Row> findRows(String colName, Object value) {
+    RelationIndex index = getIndex(colName, RelationIndex.Type.HASH);
+    if (index == null)
+      index = getIndex(colName, RelationIndex.Type.SORTED);
+    List<Row> ret = new ArrayList<>();
+    if (index != null) {
+      for (int i : index.find(value))
+        ret.add(rows.get(i));
+    }
+    else {
+      int colIndex = schema.getColIndex(colName);
+      for (Row row : rows) {
+        if (LogicUtils.eq(row.getValue(colIndex), value))
+          ret.add(row);
+      }
+    }
+    return ret;
+  }
+
+  private int getVersion() {
+    return ((RowList)rows).getVersion();
+  }
+
+  private class IndexHolder {
+    private final RelationIndex index;
+    /** The {@linkplain RowList#getVersion() version} of the rows when the index was last built */
+    private int version;
+
+    private IndexHolder(RelationIndex index) {
+      this.index = index;
+    }
+
+    private void build() {
+      index.build(rows);
+      version = getVersion();
+    }
+  }
+
+  /**
+   * Keeps track of the modifications of the list, so that the indexes can be rebuilt when the rows change.
+   */
+  private static class RowList extends ArrayList<Row> {
+    /** The number of calls to {@link #set(int, Row)}, which (unlike the structural modifications) isn't reflected by {@link #modCount} */
+    private int nSets;
+
+    private RowList(Collection<Row> rows) {
+      super(rows);
+    }
+
+    private RowList(Iterator<Row> rowIter) {
+      while (rowIter.hasNext())
+        add(rowIter.next());
+      trimToSize();
+    }
+
+    @Override
+    public Row set(int index, Row element) {
+      nSets++;
+      return super.set(index, element);
+    }
+
+    private int getVersion() {
+      return modCount + nSets;
+    }
+  }
 }
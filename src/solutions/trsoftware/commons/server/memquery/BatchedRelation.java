@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import java.util.Iterator;
+
+/**
+ * A relation that can be consumed in {@linkplain RowBatch batches} of rows, rather than one row at a time.
+ * This reduces the per-row overhead (virtual calls and iterator state) between the evaluators of a long pipeline,
+ * and allows filtering with selection vectors instead of copying rows.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public interface BatchedRelation extends Relation {
+
+  /**
+   * Returns the rows of this relation in batches.  The returned batches might be reused by the iterator,
+   * so a batch should not be retained after calling {@link Iterator#next()} again.
+   * <p>
+   * <strong>NOTE:</strong> for a streaming relation, this method and {@link #iterator()} consume the same
+   * underlying data, so only one of them can be used (see {@link BatchedStreamingRelation}).
+   */
+  Iterator<RowBatch> batchIterator();
+
+}
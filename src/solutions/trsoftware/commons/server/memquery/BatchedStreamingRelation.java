@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import java.util.Iterator;
+
+/**
+ * A {@link StreamingRelation} whose rows are produced in {@linkplain RowBatch batches}.
+ * Its {@link #iterator()} simply iterates the selected rows of each batch.
+ * <p>
+ * <strong>NOTE:</strong> {@link #iterator()} and {@link #batchIterator()} are two views of the same stream, so
+ * consuming either one would steal rows from the other.  Therefore, this relation has a single consumer, which must
+ * choose one of these views: invoking the other method afterwards will throw an {@link IllegalStateException}.
+ * Also note that the producer might reuse the same {@link RowBatch} instance for all the batches, so a consumer
+ * of the batches must not retain a batch after advancing the iterator (but it can retain the rows).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class BatchedStreamingRelation extends StreamingRelation implements BatchedRelation {
+
+  private final Iterator<RowBatch> batchIterator;
+
+  /** The view chosen by the consumer of this relation ({@code null} if it hasn't been consumed yet) */
+  private View consumedView;
+
+  private enum View {ROWS, BATCHES}
+
+  public BatchedStreamingRelation(RelationSchema schema, Iterator<RowBatch> batchIterator) {
+    super(schema, RowBatch.rows(batchIterator));
+    this.batchIterator = batchIterator;
+  }
+
+  /**
+   * @return the rows of this relation
+   * @throws IllegalStateException if {@link #batchIterator()} has already been invoked
+   */
+  @Override
+  public Iterator<Row> iterator() {
+    checkView(View.ROWS);
+    return rowIterator;
+  }
+
+  /**
+   * @throws IllegalStateException if {@link #iterator()} has already been invoked
+   */
+  @Override
+  public Iterator<RowBatch> batchIterator() {
+    checkView(View.BATCHES);
+    return batchIterator;
+  }
+
+  private synchronized void checkView(View view) {
+    if (consumedView == null)
+      consumedView = view;
+    else if (consumedView != view)
+      throw new IllegalStateException("This relation has already been consumed as " + consumedView.name().toLowerCase()
+          + " (a " + getClass().getSimpleName() + " can't be consumed as both rows and batches)");
+  }
+}
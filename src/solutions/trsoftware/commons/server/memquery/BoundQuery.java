@@ -16,6 +16,8 @@
 
 package solutions.trsoftware.commons.server.memquery;
 
+import solutions.trsoftware.commons.server.memquery.eval.QueryProfile;
+
 import java.io.PrintStream;
 import java.util.Map;
 
@@ -57,14 +59,35 @@ public class BoundQuery {
     return query.evalAsUnsortedStream(inputBindings);
   }
 
+  /**
+   * Subscribes the encapsulated query to its inputs, so that its results will be updated incrementally as rows
+   * are appended to them.
+   * @see ContinuousQuery
+   * @see AppendOnlyRelation
+   */
+  public ContinuousQuery subscribe() {
+    return new ContinuousQuery(query, inputBindings);
+  }
+
+  /**
+   * Runs the encapsulated query over the encapsulated inputs with profiling enabled.
+   * @see MemQuery#explainAnalyze(Map)
+   */
+  public QueryProfile explainAnalyze() {
+    return query.explainAnalyze(inputBindings);
+  }
+
   /** Runs the encapsulated query and prints the results to the given stream using the default print format */
   public void evalPrint(PrintStream out) {
     evalPrint(out, FIXED_WIDTH);
   }
 
-  /** Runs the encapsulated query and prints the results to the given stream using the given format */
+  /**
+   * Runs the encapsulated query and prints the results to the given stream using the given format
+   * (without materializing the results).
+   */
   public void evalPrint(PrintStream out, PrintFormat printFormat) {
-    MemQuery.printResultSet(eval(), out, printFormat);
+    query.evalPrint(inputBindings, out, printFormat);
   }
 
   @Override
@@ -0,0 +1,628 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation.*;
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.server.util.reflect.ReflectionUtils;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reads and writes relations in a compact binary columnar file format, which can be loaded much faster than
+ * re-parsing a text format (e.g. CSV) or re-creating the relation from a list of objects.
+ * <p>
+ * The file contains the schema of the relation (its name, and the name and type of each column), followed by the
+ * data of each column in a separate section, encoded like the corresponding {@link ColumnarRelation.Column}:
+ * values of type {@code int}, {@code long}, {@code double}, {@code float}, {@code short}, {@code byte}, {@code char},
+ * and {@code boolean} (and their wrappers) are stored as little-endian primitive arrays, with an optional bitmap of
+ * the {@code null} values; strings are dictionary-encoded (the distinct values followed by an {@code int} code for
+ * each row), and enums are stored as their ordinals.  Other types of columns are not supported.
+ * <p>
+ * The {@link #read(Path)} method memory-maps the column sections of the file, and returns a {@link ColumnarRelation}
+ * whose columns read their values directly from the mapped buffers, so the data isn't copied into the heap
+ * (except the string dictionaries and null bitmaps, which are decoded when the file is opened).
+ *
+ * <h3>File layout</h3>
+ * <pre>
+ *   int magic, int version, int headerLength
+ *   header (DataOutput format): UTF relationName, int nRows, int nCols, and for each column:
+ *     UTF colName, UTF typeName, byte encoding, long dataOffset, long nullsOffset, long dictOffset, long dictLength
+ *   column sections (each aligned to 8 bytes)
+ * </pre>
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ColumnarFile {
+
+  private static final int MAGIC = 0x4D514346;  // "MQCF"
+  private static final int VERSION = 1;
+  private static final int PREAMBLE_LENGTH = 12;
+  private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /**
+   * The encodings of the column values.
+   */
+  private enum Encoding {
+    INT(4), LONG(8), DOUBLE(8), FLOAT(4), SHORT(2), BYTE(1), CHAR(2), BOOLEAN(1),
+    /** Dictionary-encoded strings: an {@code int} code for each row ({@code -1} for null) */
+    STRING(4),
+    /** Enum ordinals ({@code -1} for null) */
+    ENUM(4);
+
+    /** The number of bytes per value */
+    private final int width;
+
+    Encoding(int width) {
+      this.width = width;
+    }
+
+    /**
+     * @return {@code true} if the null values of this encoding are stored in a separate bitmap
+     */
+    private boolean hasNullBitmap() {
+      return this != STRING && this != ENUM;
+    }
+
+    private static Encoding forType(Class<?> type) {
+      type = ReflectionUtils.unwrap(type);
+      if (type == int.class)
+        return INT;
+      if (type == long.class)
+        return LONG;
+      if (type == double.class)
+        return DOUBLE;
+      if (type == float.class)
+        return FLOAT;
+      if (type == short.class)
+        return SHORT;
+      if (type == byte.class)
+        return BYTE;
+      if (type == char.class)
+        return CHAR;
+      if (type == boolean.class)
+        return BOOLEAN;
+      if (type == String.class)
+        return STRING;
+      if (type.isEnum())
+        return ENUM;
+      throw new IllegalArgumentException("Unsupported column type: " + type.getName());
+    }
+  }
+
+  private ColumnarFile() {
+  }
+
+  /**
+   * Writes the given relation to a file.
+   * @throws IllegalArgumentException if any of its columns has an unsupported type
+   */
+  public static void write(Relation relation, Path path) throws IOException {
+    RelationSchema schema = relation.getSchema();
+    int nCols = schema.size();
+    Encoding[] encodings = new Encoding[nCols];
+    for (int i = 0; i < nCols; i++)
+      encodings[i] = Encoding.forType(schema.get(i).getType());
+    ColumnarRelation columnar = relation instanceof ColumnarRelation ? (ColumnarRelation)relation : new ColumnarRelation(relation);
+    int nRows = columnar.size();
+
+    // 1) lay out the sections
+    long[] dataOffsets = new long[nCols];
+    long[] nullsOffsets = new long[nCols];
+    long[] dictOffsets = new long[nCols];
+    byte[][] dicts = new byte[nCols][];
+    BitSet[] nulls = new BitSet[nCols];
+    for (int i = 0; i < nCols; i++) {
+      Column col = columnar.getColumn(i);
+      if (encodings[i] == Encoding.STRING)
+        dicts[i] = encodeDictionary(((StringColumn)col).getDictionary());
+      else if (encodings[i].hasNullBitmap()) {
+        BitSet colNulls = new BitSet(nRows);
+        for (int r = 0; r < nRows; r++) {
+          if (col.isNull(columnar.getPosition(r)))
+            colNulls.set(r);
+        }
+        if (!colNulls.isEmpty())
+          nulls[i] = colNulls;
+      }
+    }
+    byte[] header = encodeHeader(schema, nRows, encodings, dataOffsets, nullsOffsets, dictOffsets, dicts);  // to compute its length
+    long offset = align(PREAMBLE_LENGTH + header.length);
+    for (int i = 0; i < nCols; i++) {
+      dataOffsets[i] = offset;
+      offset = align(offset + (long)nRows * encodings[i].width);
+      if (nulls[i] != null) {
+        nullsOffsets[i] = offset;
+        offset = align(offset + nullBitmapLength(nRows));
+      }
+      else
+        nullsOffsets[i] = -1;
+      if (dicts[i] != null) {
+        dictOffsets[i] = offset;
+        offset = align(offset + dicts[i].length);
+      }
+      else
+        dictOffsets[i] = -1;
+    }
+    header = encodeHeader(schema, nRows, encodings, dataOffsets, nullsOffsets, dictOffsets, dicts);
+
+    // 2) write the file
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      SectionWriter out = new SectionWriter(channel);
+      out.putInt(MAGIC);
+      out.putInt(VERSION);
+      out.putInt(header.length);
+      out.put(header);
+      for (int i = 0; i < nCols; i++) {
+        out.align();
+        writeValues(out, columnar, i, encodings[i]);
+        if (nulls[i] != null) {
+          out.align();
+          long[] words = nulls[i].toLongArray();
+          int nWords = (int)(nullBitmapLength(nRows) / 8);
+          for (int w = 0; w < nWords; w++)
+            out.putLong(w < words.length ? words[w] : 0);
+        }
+        if (dicts[i] != null) {
+          out.align();
+          out.put(dicts[i]);
+        }
+      }
+      out.flush();
+    }
+  }
+
+  private static void writeValues(SectionWriter out, ColumnarRelation columnar, int colIndex, Encoding encoding) throws IOException {
+    Column col = columnar.getColumn(colIndex);
+    int nRows = columnar.size();
+    for (int r = 0; r < nRows; r++) {
+      int pos = columnar.getPosition(r);
+      if (encoding == Encoding.STRING) {
+        out.putInt(((StringColumn)col).getCode(pos));
+        continue;
+      }
+      Object value = col.get(pos);
+      switch (encoding) {
+        case INT:
+          out.putInt(value == null ? 0 : ((Number)value).intValue());
+          break;
+        case LONG:
+          out.putLong(value == null ? 0 : ((Number)value).longValue());
+          break;
+        case DOUBLE:
+          out.putDouble(value == null ? 0 : ((Number)value).doubleValue());
+          break;
+        case FLOAT:
+          out.putInt(Float.floatToRawIntBits(value == null ? 0 : ((Number)value).floatValue()));
+          break;
+        case SHORT:
+          out.putShort(value == null ? 0 : ((Number)value).shortValue());
+          break;
+        case BYTE:
+          out.putByte(value == null ? 0 : ((Number)value).byteValue());
+          break;
+        case CHAR:
+          out.putShort((short)(value == null ? 0 : (Character)value));
+          break;
+        case BOOLEAN:
+          out.putByte((byte)(value != null && (Boolean)value ? 1 : 0));
+          break;
+        case ENUM:
+          out.putInt(value == null ? -1 : ((Enum)value).ordinal());
+          break;
+        default:
+          throw new IllegalStateException(encoding.name());
+      }
+    }
+  }
+
+  private static byte[] encodeHeader(RelationSchema schema, int nRows, Encoding[] encodings,
+                                     long[] dataOffsets, long[] nullsOffsets, long[] dictOffsets, byte[][] dicts) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeUTF(schema.getName());
+    out.writeInt(nRows);
+    out.writeInt(schema.size());
+    for (int i = 0; i < encodings.length; i++) {
+      ColSpec colSpec = schema.get(i);
+      out.writeUTF(colSpec.getName());
+      out.writeUTF(colSpec.getType().getName());
+      out.writeByte(encodings[i].ordinal());
+      out.writeLong(dataOffsets[i]);
+      out.writeLong(nullsOffsets[i]);
+      out.writeLong(dictOffsets[i]);
+      out.writeLong(dicts[i] != null ? dicts[i].length : 0);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Encodes a string dictionary as the number of entries followed by the length and UTF-8 bytes of each entry.
+   */
+  private static byte[] encodeDictionary(List<String> dictionary) {
+    byte[][] entries = new byte[dictionary.size()][];
+    int length = 4;
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+      length += 4 + entries[i].length;
+    }
+    ByteBuffer buf = ByteBuffer.allocate(length).order(BYTE_ORDER);
+    buf.putInt(entries.length);
+    for (byte[] entry : entries) {
+      buf.putInt(entry.length);
+      buf.put(entry);
+    }
+    return buf.array();
+  }
+
+  private static ArrayList<String> decodeDictionary(ByteBuffer buf) {
+    int n = buf.getInt();
+    ArrayList<String> dictionary = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      byte[] entry = new byte[buf.getInt()];
+      buf.get(entry);
+      dictionary.add(new String(entry, StandardCharsets.UTF_8));
+    }
+    return dictionary;
+  }
+
+  private static long nullBitmapLength(int nRows) {
+    return ((nRows + 63L) >>> 6) * 8;
+  }
+
+  /**
+   * @return the given offset rounded up to a multiple of 8
+   */
+  private static long align(long offset) {
+    return (offset + 7) & ~7L;
+  }
+
+  /**
+   * Memory-maps the given file, which must have been created with {@link #write(Relation, Path)}.
+   * The file should not be modified while the returned relation is in use.
+   *
+   * @return a relation that reads its values from the mapped file
+   * @throws IOException if the file can't be read or isn't in the expected format
+   */
+  public static ColumnarRelation read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer preamble = readFully(channel, 0, PREAMBLE_LENGTH);
+      if (preamble.getInt() != MAGIC)
+        throw new IOException("Not a columnar relation file: " + path);
+      int version = preamble.getInt();
+      if (version != VERSION)
+        throw new IOException("Unsupported file version: " + version);
+      int headerLength = preamble.getInt();
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(readFully(channel, PREAMBLE_LENGTH, headerLength).array()));
+      String relationName = in.readUTF();
+      int nRows = in.readInt();
+      int nCols = in.readInt();
+      List<ColSpec> colSpecs = new ArrayList<>(nCols);
+      Column[] columns = new Column[nCols];
+      for (int i = 0; i < nCols; i++) {
+        String colName = in.readUTF();
+        Class<?> type = classForName(in.readUTF());
+        Encoding encoding = Encoding.values()[in.readByte()];
+        long dataOffset = in.readLong();
+        long nullsOffset = in.readLong();
+        long dictOffset = in.readLong();
+        long dictLength = in.readLong();
+        colSpecs.add(new NameAccessorColSpec<>(colName, type));
+        ByteBuffer data = map(channel, dataOffset, (long)nRows * encoding.width);
+        BitSet nulls = null;
+        if (nullsOffset >= 0)
+          nulls = BitSet.valueOf(map(channel, nullsOffset, nullBitmapLength(nRows)).asLongBuffer());
+        switch (encoding) {
+          case INT:
+            columns[i] = new MappedIntColumn(data.asIntBuffer(), nRows, nulls);
+            break;
+          case LONG:
+            columns[i] = new MappedLongColumn(data.asLongBuffer(), nRows, nulls);
+            break;
+          case DOUBLE:
+            columns[i] = new MappedDoubleColumn(data.asDoubleBuffer(), nRows, nulls);
+            break;
+          case STRING:
+            columns[i] = new MappedStringColumn(data.asIntBuffer(), nRows, decodeDictionary(map(channel, dictOffset, dictLength)));
+            break;
+          default:
+            columns[i] = new MappedObjectColumn(data, nRows, encoding, nulls, type.getEnumConstants());
+        }
+      }
+      // NOTE: the mapped buffers remain valid after the channel is closed
+      return new ColumnarRelation(new RelationSchema(relationName, colSpecs), columns, nRows);
+    }
+  }
+
+  private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+    if (length == 0)
+      return ByteBuffer.allocate(0).order(BYTE_ORDER);
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(BYTE_ORDER);
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long offset, int length) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(length).order(BYTE_ORDER);
+    while (buf.hasRemaining()) {
+      if (channel.read(buf, offset + buf.position()) < 0)
+        throw new EOFException();
+    }
+    buf.flip();
+    return buf;
+  }
+
+  private static Class<?> classForName(String name) throws IOException {
+    for (Object primitive : ReflectionUtils.WRAPPER_TYPES.values()) {
+      if (((Class)primitive).getName().equals(name))
+        return (Class<?>)primitive;
+    }
+    try {
+      return Class.forName(name);
+    }
+    catch (ClassNotFoundException e) {
+      throw new IOException("Unknown column type: " + name, e);
+    }
+  }
+
+  /**
+   * Writes little-endian values to a channel through a buffer, keeping track of the position for alignment.
+   */
+  private static class SectionWriter {
+    private final FileChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(BYTE_ORDER);
+    private long position;
+
+    private SectionWriter(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private void ensureRemaining(int n) throws IOException {
+      if (buf.remaining() < n)
+        flush();
+    }
+
+    void putByte(byte value) throws IOException {
+      ensureRemaining(1);
+      buf.put(value);
+      position++;
+    }
+
+    void putShort(short value) throws IOException {
+      ensureRemaining(2);
+      buf.putShort(value);
+      position += 2;
+    }
+
+    void putInt(int value) throws IOException {
+      ensureRemaining(4);
+      buf.putInt(value);
+      position += 4;
+    }
+
+    void putLong(long value) throws IOException {
+      ensureRemaining(8);
+      buf.putLong(value);
+      position += 8;
+    }
+
+    void putDouble(double value) throws IOException {
+      ensureRemaining(8);
+      buf.putDouble(value);
+      position += 8;
+    }
+
+    void put(byte[] bytes) throws IOException {
+      flush();
+      ByteBuffer src = ByteBuffer.wrap(bytes);
+      while (src.hasRemaining())
+        channel.write(src);
+      position += bytes.length;
+    }
+
+    /** Pads the output with zeros up to the next multiple of 8 */
+    void align() throws IOException {
+      while ((position & 7) != 0)
+        putByte((byte)0);
+    }
+
+    void flush() throws IOException {
+      buf.flip();
+      while (buf.hasRemaining())
+        channel.write(buf);
+      buf.clear();
+    }
+  }
+
+  // the columns backed by mapped buffers:
+
+  private static class MappedIntColumn extends NumericColumn {
+    private final IntBuffer values;
+
+    private MappedIntColumn(IntBuffer values, int size, BitSet nulls) {
+      this.values = values;
+      this.size = size;
+      setNulls(nulls);
+    }
+
+    @Override
+    public double getDouble(int pos) {
+      return values.get(pos);
+    }
+
+    @Override
+    public Object get(int pos) {
+      return isNull(pos) ? null : values.get(pos);
+    }
+
+    @Override
+    void add(Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void trimToSize() {
+    }
+  }
+
+  private static class MappedLongColumn extends NumericColumn {
+    private final LongBuffer values;
+
+    private MappedLongColumn(LongBuffer values, int size, BitSet nulls) {
+      this.values = values;
+      this.size = size;
+      setNulls(nulls);
+    }
+
+    @Override
+    public double getDouble(int pos) {
+      return values.get(pos);
+    }
+
+    @Override
+    public Object get(int pos) {
+      return isNull(pos) ? null : values.get(pos);
+    }
+
+    @Override
+    void add(Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void trimToSize() {
+    }
+  }
+
+  private static class MappedDoubleColumn extends NumericColumn {
+    private final DoubleBuffer values;
+
+    private MappedDoubleColumn(DoubleBuffer values, int size, BitSet nulls) {
+      this.values = values;
+      this.size = size;
+      setNulls(nulls);
+    }
+
+    @Override
+    public double getDouble(int pos) {
+      return values.get(pos);
+    }
+
+    @Override
+    public Object get(int pos) {
+      return isNull(pos) ? null : values.get(pos);
+    }
+
+    @Override
+    void add(Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void trimToSize() {
+    }
+  }
+
+  private static class MappedStringColumn extends StringColumn {
+    private final IntBuffer codes;
+
+    private MappedStringColumn(IntBuffer codes, int size, ArrayList<String> dictionary) {
+      super(dictionary, size);
+      this.codes = codes;
+    }
+
+    @Override
+    public int getCode(int pos) {
+      return codes.get(pos);
+    }
+
+    @Override
+    void add(Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void trimToSize() {
+    }
+  }
+
+  /**
+   * Decodes the values of the less common types on demand.
+   */
+  private static class MappedObjectColumn extends Column {
+    private final ByteBuffer data;
+    private final Encoding encoding;
+    private final BitSet nulls;
+    /** The values of the enum type (only for {@link Encoding#ENUM}) */
+    private final Object[] enumConstants;
+
+    private MappedObjectColumn(ByteBuffer data, int size, Encoding encoding, BitSet nulls, Object[] enumConstants) {
+      this.data = data;
+      this.size = size;
+      this.encoding = encoding;
+      this.nulls = nulls;
+      this.enumConstants = enumConstants;
+    }
+
+    @Override
+    public Object get(int pos) {
+      if (isNull(pos))
+        return null;
+      switch (encoding) {
+        case FLOAT:
+          return data.getFloat(pos * 4);
+        case SHORT:
+          return data.getShort(pos * 2);
+        case BYTE:
+          return data.get(pos);
+        case CHAR:
+          return data.getChar(pos * 2);
+        case BOOLEAN:
+          return data.get(pos) != 0;
+        case ENUM:
+          return enumConstants[data.getInt(pos * 4)];
+        default:
+          throw new IllegalStateException(encoding.name());
+      }
+    }
+
+    @Override
+    public boolean isNull(int pos) {
+      if (encoding == Encoding.ENUM)
+        return data.getInt(pos * 4) < 0;
+      return nulls != null && nulls.get(pos);
+    }
+
+    @Override
+    void add(Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void trimToSize() {
+    }
+  }
+}
@@ -0,0 +1,609 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.util.*;
+
+/**
+ * A materialized relation that stores the values of each column in a separate array, instead of allocating
+ * an object for every row.  Values of type {@code int}, {@code long}, and {@code double} (and their wrappers) are
+ * stored in primitive arrays, strings are dictionary-encoded (as an {@code int[]} of codes into a list of distinct values),
+ * and any other values are stored in an {@code Object[]}.
+ * <p>
+ * The rows of this relation are lightweight flyweights that read their values from the column arrays.
+ * They are instantiated on demand (e.g. by {@link #iterator()}), and hold only a reference to the relation and the
+ * position of the row in the column arrays.
+ * <p>
+ * Instances of this class are immutable.  The {@link #select}, {@link #project} and {@link #withSchema} methods
+ * return views that share the column arrays of this instance, which allows the evaluators of those operations to
+ * produce their results without copying any values.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ColumnarRelation extends AbstractRelation implements MaterializedRelation {
+
+  /** The columns of this relation, in schema order */
+  private final Column[] columns;
+
+  /**
+   * The positions (in the column arrays) of the rows contained in this relation (if this is a view produced by
+   * {@link #select}), or {@code null} if this relation contains all the rows in the column arrays.
+   */
+  private final int[] positions;
+
+  private final int size;
+
+  /**
+   * Copies the rows of the given relation into a new columnar relation with the same name and column types.
+   */
+  public ColumnarRelation(Relation input) {
+    this(input.getSchema(), input.iterator());
+  }
+
+  /**
+   * Copies the given rows into a new columnar relation with the same name and column types as the given schema.
+   */
+  public ColumnarRelation(RelationSchema schema, Iterator<Row> rows) {
+    super(createSchema(schema));
+    columns = new Column[schema.size()];
+    for (int i = 0; i < columns.length; i++)
+      columns[i] = Column.create(schema.get(i).getType());
+    int n = 0;
+    while (rows.hasNext()) {
+      Row row = rows.next();
+      for (int i = 0; i < columns.length; i++)
+        columns[i].add(row.getValue(i));
+      n++;
+    }
+    for (Column col : columns)
+      col.trimToSize();
+    positions = null;
+    size = n;
+  }
+
+  /**
+   * Creates a relation from the given pre-built columns (e.g. those read by {@link ColumnarFile}).
+   */
+  ColumnarRelation(RelationSchema schema, Column[] columns, int size) {
+    this(createSchema(schema), columns, null, size);
+  }
+
+  /**
+   * Creates a view of the given columns.
+   */
+  private ColumnarRelation(RelationSchema schema, Column[] columns, int[] positions, int size) {
+    super(schema);
+    this.columns = columns;
+    this.positions = positions;
+    this.size = size;
+  }
+
+  /**
+   * @return a schema with the same name and columns as the given schema, with accessors that are compatible with
+   * the rows of this relation (the columns of the given schema might use accessors that require a particular type of row)
+   */
+  private static RelationSchema createSchema(RelationSchema schema) {
+    List<ColSpec> colSpecs = new ArrayList<>();
+    for (ColSpec colSpec : schema)
+      colSpecs.add(new NameAccessorColSpec(colSpec));
+    return new RelationSchema(schema.getName(), colSpecs);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the position (in the column arrays) of the i-th row of this relation
+   */
+  public int getPosition(int i) {
+    return positions == null ? i : positions[i];
+  }
+
+  public Column getColumn(int colIndex) {
+    return columns[colIndex];
+  }
+
+  public Column getColumn(String colName) {
+    return columns[schema.getColIndex(colName)];
+  }
+
+  /**
+   * @return a new flyweight for the i-th row of this relation
+   */
+  public Row getRow(int i) {
+    return new ColumnarRow(getPosition(i));
+  }
+
+  @Override
+  public Iterator<Row> iterator() {
+    return getRows().iterator();
+  }
+
+  /**
+   * @return a view of the rows of this relation, which instantiates a new flyweight for each call to {@link List#get(int)}
+   */
+  @Override
+  public List<Row> getRows() {
+    return new RowList();
+  }
+
+  /**
+   * Evaluates the given filter column-by-column, for the types of predicates whose column names are known
+   * (i.e. {@link ColValuePredicate}, {@link CompoundRowPredicate}, and {@link ConstantPredicate}), and
+   * row-by-row (using flyweights) for all other expressions.
+   * A {@link ColValuePredicate} on a string column is evaluated only once for each distinct value of the column.
+   *
+   * @param outputSchema the schema of the returned view (should have the same columns as this relation)
+   * @return a view containing only the rows of this relation that satisfy the given filter
+   */
+  public ColumnarRelation select(Expression<Row, Boolean> filter, RelationSchema outputSchema) {
+    BitSet matches = evalFilter(filter);
+    int[] selected = new int[matches.cardinality()];
+    for (int i = matches.nextSetBit(0), j = 0; i >= 0; i = matches.nextSetBit(i + 1))
+      selected[j++] = getPosition(i);
+    return new ColumnarRelation(outputSchema, columns, selected, selected.length);
+  }
+
+  /**
+   * @return the indices of the rows of this relation that satisfy the given filter
+   */
+  private BitSet evalFilter(Expression<Row, Boolean> filter) {
+    BitSet ret;
+    if (filter instanceof ConstantPredicate) {
+      ret = new BitSet(size);
+      if (((ConstantPredicate)filter).getValue())
+        ret.set(0, size);
+    }
+    else if (filter instanceof CompoundRowPredicate && (filter.getClass() == And.class || filter.getClass() == Or.class
+        || filter.getClass() == CompoundRowPredicate.class)) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)filter;
+      ret = evalFilter(compound.getLHS());
+      BitSet rhs = evalFilter(compound.getRHS());
+      if (compound.getOperator() == BooleanBinaryOperator.AND)
+        ret.and(rhs);
+      else
+        ret.or(rhs);
+    }
+    else if (filter instanceof ColValuePredicate && schema.contains(((ColValuePredicate)filter).getColName())) {
+      ColValuePredicate predicate = (ColValuePredicate)filter;
+      ret = getColumn(predicate.getColName()).evalPredicate(predicate, this);
+    }
+    else {
+      ret = new BitSet(size);
+      CompiledRowPredicate compiledFilter = CompiledRowPredicate.compile(filter);
+      for (int i = 0; i < size; i++) {
+        if (compiledFilter.test(new ColumnarRow(getPosition(i))))
+          ret.set(i);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @param outputSchema the schema of the returned view
+   * @param inputColNames the names of the columns of this relation that correspond to the columns of the given schema
+   * @return a view containing the given columns of this relation, under the given schema
+   */
+  public ColumnarRelation project(RelationSchema outputSchema, List<String> inputColNames) {
+    Column[] projected = new Column[inputColNames.size()];
+    for (int i = 0; i < projected.length; i++)
+      projected[i] = getColumn(inputColNames.get(i));
+    return new ColumnarRelation(outputSchema, projected, positions, size);
+  }
+
+  /**
+   * @param outputSchema a schema with the same column types as this relation, which could have different names
+   * (e.g. the output of a {@link solutions.trsoftware.commons.server.memquery.algebra.Rename})
+   * @return a view containing the same rows as this relation, under the given schema
+   */
+  public ColumnarRelation withSchema(RelationSchema outputSchema) {
+    return new ColumnarRelation(outputSchema, columns, positions, size);
+  }
+
+  /**
+   * A flyweight row, which reads its values from the column arrays.
+   */
+  private class ColumnarRow extends AbstractRow {
+    /** The position of this row in the column arrays */
+    private final int pos;
+
+    private ColumnarRow(int pos) {
+      super(ColumnarRelation.this.schema);
+      this.pos = pos;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V getValue(int colIndex) {
+      return (V)columns[colIndex].get(pos);
+    }
+
+    @Override
+    public <V> V getValue(String colName) {
+      return getValue(getColIndex(colName));
+    }
+
+    @Override
+    public String toString() {
+      Object[] values = new Object[columns.length];
+      for (int i = 0; i < values.length; i++)
+        values[i] = columns[i].get(pos);
+      return Arrays.deepToString(values);
+    }
+  }
+
+  private class RowList extends AbstractList<Row> implements RandomAccess {
+    @Override
+    public Row get(int index) {
+      if (index < 0 || index >= size)
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      return new ColumnarRow(getPosition(index));
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Stores the values of a single column.  The values are accessed by their position in the column array,
+   * which for a view could differ from the index of the row in the relation (see {@link #getPosition(int)}).
+   */
+  public static abstract class Column {
+    /** The initial capacity of the column arrays (they will be trimmed to size after all the rows have been added) */
+    static final int INITIAL_CAPACITY = 16;
+
+    /** The number of values in this column */
+    protected int size;
+
+    /**
+     * Factory method.
+     * @return a new empty column suitable for storing values of the given type
+     */
+    static Column create(Class type) {
+      if (type == int.class || type == Integer.class)
+        return new IntColumn();
+      if (type == long.class || type == Long.class)
+        return new LongColumn();
+      if (type == double.class || type == Double.class)
+        return new DoubleColumn();
+      if (type == String.class)
+        return new StringColumn();
+      return new ObjectColumn();
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * @return the value at the given position (possibly boxed)
+     */
+    public abstract Object get(int pos);
+
+    public abstract boolean isNull(int pos);
+
+    /**
+     * Appends a value to this column
+     */
+    abstract void add(Object value);
+
+    /**
+     * Releases the unused capacity of the column arrays, after all the values have been added.
+     */
+    abstract void trimToSize();
+
+    /**
+     * @return the capacity for a column array that has to be expanded to fit another element
+     */
+    static int grow(int capacity) {
+      return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+    }
+
+    /**
+     * Evaluates the given predicate on the values of this column.
+     * @param relation a relation containing this column
+     * @return the indices of the rows of the given relation whose value in this column satisfies the predicate
+     */
+    @SuppressWarnings("unchecked")
+    BitSet evalPredicate(ColValuePredicate predicate, ColumnarRelation relation) {
+      int n = relation.size();
+      BitSet ret = new BitSet(n);
+      for (int i = 0; i < n; i++) {
+        if (predicate.eval(get(relation.getPosition(i))))
+          ret.set(i);
+      }
+      return ret;
+    }
+  }
+
+  /**
+   * Base class for the columns whose values can be converted to {@code double}.
+   * The {@code null} values are tracked in a separate bit set (which is only allocated if there are any nulls).
+   */
+  public static abstract class NumericColumn extends Column {
+    private BitSet nulls;
+
+    @Override
+    public boolean isNull(int pos) {
+      return nulls != null && nulls.get(pos);
+    }
+
+    void setNull(int pos) {
+      if (nulls == null)
+        nulls = new BitSet();
+      nulls.set(pos);
+    }
+
+    /**
+     * @return the positions of the null values, or {@code null} if there aren't any
+     */
+    BitSet getNulls() {
+      return nulls;
+    }
+
+    void setNulls(BitSet nulls) {
+      this.nulls = nulls;
+    }
+
+    /**
+     * @return the value at the given position as a {@code double} (undefined if {@link #isNull(int)})
+     */
+    public abstract double getDouble(int pos);
+  }
+
+  public static class IntColumn extends NumericColumn {
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    /**
+     * @return the value at the given position (undefined if {@link #isNull(int)})
+     */
+    public int getInt(int pos) {
+      return values[pos];
+    }
+
+    @Override
+    public double getDouble(int pos) {
+      return values[pos];
+    }
+
+    @Override
+    public Object get(int pos) {
+      return isNull(pos) ? null : values[pos];
+    }
+
+    @Override
+    void add(Object value) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, grow(size));
+      if (value == null)
+        setNull(size);
+      else
+        values[size] = ((Number)value).intValue();
+      size++;
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  public static class LongColumn extends NumericColumn {
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    /**
+     * @return the value at the given position (undefined if {@link #isNull(int)})
+     */
+    public long getLong(int pos) {
+      return values[pos];
+    }
+
+    @Override
+    public double getDouble(int pos) {
+      return values[pos];
+    }
+
+    @Override
+    public Object get(int pos) {
+      return isNull(pos) ? null : values[pos];
+    }
+
+    @Override
+    void add(Object value) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, grow(size));
+      if (value == null)
+        setNull(size);
+      else
+        values[size] = ((Number)value).longValue();
+      size++;
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  public static class DoubleColumn extends NumericColumn {
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    @Override
+    public double getDouble(int pos) {
+      return values[pos];
+    }
+
+    @Override
+    public Object get(int pos) {
+      return isNull(pos) ? null : values[pos];
+    }
+
+    @Override
+    void add(Object value) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, grow(size));
+      if (value == null)
+        setNull(size);
+      else
+        values[size] = ((Number)value).doubleValue();
+      size++;
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  /**
+   * A dictionary-encoded string column: stores the distinct values in a list, and the index of each row's value
+   * in that list (its "code") in an {@code int[]} (with {@code -1} representing {@code null}).
+   */
+  public static class StringColumn extends Column {
+    private int[] codes;
+    private final ArrayList<String> dictionary;
+    /** Maps the distinct values to their codes while the column is being built */
+    private Map<String, Integer> codesByValue;
+
+    public StringColumn() {
+      codes = new int[INITIAL_CAPACITY];
+      dictionary = new ArrayList<>();
+      codesByValue = new HashMap<>();
+    }
+
+    /**
+     * Constructor for subclasses that store the codes elsewhere (they must override {@link #getCode(int)}).
+     */
+    StringColumn(ArrayList<String> dictionary, int size) {
+      this.dictionary = dictionary;
+      this.size = size;
+    }
+
+    /**
+     * @return the index of the value at the given position in {@link #getDictionary()}, or {@code -1} if the value is null
+     */
+    public int getCode(int pos) {
+      return codes[pos];
+    }
+
+    /**
+     * @return the distinct non-null values of this column, indexed by their codes
+     */
+    public List<String> getDictionary() {
+      return Collections.unmodifiableList(dictionary);
+    }
+
+    @Override
+    public Object get(int pos) {
+      int code = getCode(pos);
+      return code < 0 ? null : dictionary.get(code);
+    }
+
+    @Override
+    public boolean isNull(int pos) {
+      return getCode(pos) < 0;
+    }
+
+    @Override
+    void add(Object value) {
+      if (size == codes.length)
+        codes = Arrays.copyOf(codes, grow(size));
+      if (value == null)
+        codes[size] = -1;
+      else {
+        codes[size] = codesByValue.computeIfAbsent((String)value, k -> {
+          dictionary.add(k);
+          return dictionary.size() - 1;
+        });
+      }
+      size++;
+    }
+
+    @Override
+    void trimToSize() {
+      codes = Arrays.copyOf(codes, size);
+      dictionary.trimToSize();
+      codesByValue = null;  // not needed after the column has been built
+    }
+
+    /**
+     * Evaluates the predicate only once for each distinct value.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    BitSet evalPredicate(ColValuePredicate predicate, ColumnarRelation relation) {
+      boolean[] matchesByCode = new boolean[dictionary.size()];
+      for (int code = 0; code < matchesByCode.length; code++)
+        matchesByCode[code] = predicate.eval(dictionary.get(code));
+      Boolean nullMatches = null;  // lazy init, because some predicates might not be able to handle nulls
+      int n = relation.size();
+      BitSet ret = new BitSet(n);
+      for (int i = 0; i < n; i++) {
+        int code = getCode(relation.getPosition(i));
+        boolean match;
+        if (code >= 0)
+          match = matchesByCode[code];
+        else {
+          if (nullMatches == null)
+            nullMatches = predicate.eval(null);
+          match = nullMatches;
+        }
+        if (match)
+          ret.set(i);
+      }
+      return ret;
+    }
+  }
+
+  /**
+   * Stores values of any type in an {@code Object[]}.
+   */
+  public static class ObjectColumn extends Column {
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    @Override
+    public Object get(int pos) {
+      return values[pos];
+    }
+
+    @Override
+    public boolean isNull(int pos) {
+      return values[pos] == null;
+    }
+
+    @Override
+    void add(Object value) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, grow(size));
+      values[size++] = value;
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.memquery.eval.IncrementalPipeline;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query that is subscribed to its input relations, and keeps its results up to date as rows are appended to them,
+ * without re-scanning the previous rows (see {@link IncrementalPipeline}).
+ * <p>
+ * Every {@link AppendOnlyRelation} input is followed via a {@link AppendOnlyRelation.Listener}, whereas any other
+ * input is assumed to be static, and is consumed once, when the query is subscribed.
+ * <p>
+ * The results can be read at any time, from any thread, with {@link #getResults()}, which applies the sort orders
+ * and limit of the query to the current output.
+ * <p>
+ * If the pipeline is append-only, only the output rows that can still appear in the results are kept, and they're
+ * kept in their final order, so reading the results doesn't require re-sorting the output history:
+ * <ul>
+ *   <li>a query with sort orders and a limit keeps only the top rows in a bounded heap (see {@link RowSorter.TopK});</li>
+ *   <li>a query with a limit but no sort orders keeps only the first rows (up to the limit);</li>
+ *   <li>a query with sort orders but no limit keeps all the rows, in sorted order (each batch of new rows is sorted
+ *   and merged into the existing rows).</li>
+ * </ul>
+ * NOTE: the rows of an unsorted result set might not be listed in the same order as when the query is evaluated
+ * with {@link MemQuery#eval}.
+ * <p>
+ * Call {@link #close()} to unsubscribe the query from its inputs.
+ *
+ * @see BoundQuery#subscribe()
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ContinuousQuery implements Closeable {
+
+  private final MemQuery query;
+  private final IncrementalPipeline pipeline;
+  /**
+   * The output rows accumulated so far, already sorted and limited according to the query (only used if the pipeline
+   * is append-only, and the query doesn't have both sort orders and a limit)
+   */
+  private final ArrayList<Row> results;
+  /** The top output rows so far (only used if the pipeline is append-only, and the query has sort orders and a limit) */
+  private final RowSorter.TopK<Row> topRows;
+  /** Defines the sort order of the {@link #results} ({@code null} if the query doesn't have any sort orders) */
+  private final Comparator<Row> comparator;
+  private final List<Subscription> subscriptions = new ArrayList<>();
+  /** Incremented with every batch of new input rows */
+  private long version;
+
+  public ContinuousQuery(MemQuery query, Map<String, Relation> inputBindings) {
+    this.query = query;
+    pipeline = new IncrementalPipeline(query, inputBindings);
+    boolean limited = query.getLimit() != Integer.MAX_VALUE;
+    comparator = query.hasSortOrders()
+        ? new RowSorter(pipeline.getOutputSchema(), query.getSortOrders()).getComparator()
+        : null;
+    if (pipeline.isAppendOnly() && comparator != null && limited) {
+      topRows = query.getLimit() > 0 ? new RowSorter.TopK<>(comparator, query.getLimit()) : null;
+      results = topRows == null ? new ArrayList<>() : null;  // a zero limit produces an empty result set
+    }
+    else {
+      topRows = null;
+      results = pipeline.isAppendOnly() ? new ArrayList<>() : null;
+    }
+    for (IncrementalPipeline.Input input : pipeline.getInputs()) {
+      Relation relation = input.getRelation();
+      if (relation instanceof AppendOnlyRelation) {
+        Subscription subscription = new Subscription(input);
+        subscriptions.add(subscription);
+        ((AppendOnlyRelation)relation).addListener(subscription, true);
+      }
+      else {
+        List<Row> rows = new ArrayList<>();
+        for (Row row : relation)
+          rows.add(row);
+        update(input, rows);
+      }
+    }
+  }
+
+  public MemQuery getQuery() {
+    return query;
+  }
+
+  /**
+   * @return the number of times the inputs have been updated since this query was subscribed
+   * (can be used to check whether the results might have changed)
+   */
+  public synchronized long getVersion() {
+    return version;
+  }
+
+  private synchronized void update(IncrementalPipeline.Input input, List<Row> newRows) {
+    List<Row> newResults = pipeline.push(input, newRows);
+    if (topRows != null)
+      topRows.addAll(newResults);
+    else if (results != null && !newResults.isEmpty()) {
+      if (comparator != null) {
+        // the existing rows are already sorted, so this merely sorts the new rows and merges them into the existing
+        // run (TimSort is stable, and detects the existing run in linear time)
+        results.addAll(newResults);
+        results.sort(comparator);
+      }
+      else {
+        int remaining = query.getLimit() - results.size();
+        if (remaining > 0)
+          results.addAll(newResults.size() <= remaining ? newResults : newResults.subList(0, remaining));
+      }
+    }
+    version++;
+  }
+
+  /**
+   * @return the current results of the query
+   */
+  public synchronized ResultSet getResults() {
+    // the results have already been sorted and limited by update
+    if (topRows != null)
+      return query.new SortedResultSet(pipeline.getOutputSchema(), topRows.toSortedList().iterator());
+    if (results != null)
+      return query.new SortedResultSet(pipeline.getOutputSchema(), results.iterator());
+    Relation output;
+    try {
+      output = pipeline.getSnapshot();
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Unable to evaluate MemQuery " + query, e);
+    }
+    // the result set has to be materialized while holding the lock, since the output could be a view of the pipeline's state
+    return query.new SortedResultSet(output);
+  }
+
+  /**
+   * Unsubscribes this query from its inputs.  The results will no longer be updated.
+   */
+  @Override
+  public void close() {
+    for (Subscription subscription : subscriptions)
+      ((AppendOnlyRelation)subscription.input.getRelation()).removeListener(subscription);
+  }
+
+  @Override
+  public String toString() {
+    return query.toString();
+  }
+
+  /**
+   * Passes the rows appended to an input relation to the corresponding leaf of the pipeline.
+   */
+  private class Subscription implements AppendOnlyRelation.Listener {
+    private final IncrementalPipeline.Input input;
+
+    private Subscription(IncrementalPipeline.Input input) {
+      this.input = input;
+    }
+
+    @Override
+    public void rowsAppended(AppendOnlyRelation relation, List<Row> newRows) {
+      update(input, newRows);
+    }
+  }
+}
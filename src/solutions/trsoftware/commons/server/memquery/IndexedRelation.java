@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+/**
+ * A materialized relation that can have {@linkplain RelationIndex secondary indexes} on some of its columns.
+ * The query evaluators use these indexes to answer selections and equi-joins without scanning the entire relation.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public interface IndexedRelation extends MaterializedRelation {
+
+  /**
+   * @return an up-to-date index of the given type on the given column, or {@code null} if this relation
+   * doesn't have such an index
+   */
+  RelationIndex getIndex(String colName, RelationIndex.Type type);
+
+}
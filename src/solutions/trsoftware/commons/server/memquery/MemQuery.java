@@ -16,15 +16,21 @@
 
 package solutions.trsoftware.commons.server.memquery;
 
+import solutions.trsoftware.commons.server.memquery.algebra.QueryOptimizer;
 import solutions.trsoftware.commons.server.memquery.algebra.RelationalExpression;
+import solutions.trsoftware.commons.server.memquery.eval.AggregationEvaluator;
 import solutions.trsoftware.commons.server.memquery.eval.EvalPipelineBuilder;
+import solutions.trsoftware.commons.server.memquery.eval.QueryProfile;
+import solutions.trsoftware.commons.server.memquery.eval.QueryProfiler;
 import solutions.trsoftware.commons.server.memquery.eval.RelationalEvaluator;
 import solutions.trsoftware.commons.server.memquery.output.FixedWidthPrinter;
 import solutions.trsoftware.commons.server.memquery.output.HtmlTablePrinter;
+import solutions.trsoftware.commons.server.memquery.output.ResultSetPrinter;
 import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
 import solutions.trsoftware.commons.shared.util.compare.CompositeComparator;
 import solutions.trsoftware.commons.shared.util.iterators.CountingIterator;
 
+import java.io.Closeable;
 import java.io.PrintStream;
 import java.util.*;
 
@@ -55,8 +61,10 @@ public class MemQuery {
 
   // configuration fields
 
-  /** The relational algebra expression representing this query */
+  /** The relational algebra expression representing this query (as given to the constructor) */
   private final RelationalExpression expr;
+  /** The result of applying the optimizations that don't depend on the inputs to {@link #expr} */
+  private final RelationalExpression optimizedExpr;
   /** The max number of results to return */
   private final int limit;
   /** Describes what this query does for human consumption */
@@ -64,15 +72,55 @@ public class MemQuery {
   /** A SQL-like representation of this query */
   private final String sql;
   private final List<SortOrder> sortOrders;
+  /** The max number of rows to hold in memory while sorting the results (see {@link RowSorter}) */
+  private final int sortMemoryBudget;
+  /** The number of rows per {@link RowBatch} exchanged by the evaluators ({@code 0} means one row at a time) */
+  private final int batchSize;
+  /** The min number of input rows for aggregating them in parallel ({@link Integer#MAX_VALUE} means never) */
+  private final int parallelThreshold;
 
 
   public MemQuery(RelationalExpression queryExpression, List<SortOrder> sortOrders, int limit, String sql, String description) {
+    this(queryExpression, sortOrders, limit, RowSorter.DEFAULT_MEMORY_BUDGET, sql, description);
+  }
+
+  /**
+   * @param sortMemoryBudget the max number of rows to hold in memory while sorting the results; if there are more,
+   * they will be sorted externally, by spilling them to disk (see {@link RowSorter#setMemoryBudget(int)})
+   */
+  public MemQuery(RelationalExpression queryExpression, List<SortOrder> sortOrders, int limit, int sortMemoryBudget, String sql, String description) {
+    this(queryExpression, sortOrders, limit, sortMemoryBudget, 0, sql, description);
+  }
+
+  /**
+   * @param sortMemoryBudget the max number of rows to hold in memory while sorting the results; if there are more,
+   * they will be sorted externally, by spilling them to disk (see {@link RowSorter#setMemoryBudget(int)})
+   * @param batchSize the number of rows per {@link RowBatch} exchanged by the evaluators, or {@code 0} to evaluate
+   * the query one row at a time (see {@link BatchedRelation})
+   */
+  public MemQuery(RelationalExpression queryExpression, List<SortOrder> sortOrders, int limit, int sortMemoryBudget, int batchSize, String sql, String description) {
+    this(queryExpression, sortOrders, limit, sortMemoryBudget, batchSize, AggregationEvaluator.DEFAULT_PARALLEL_THRESHOLD, sql, description);
+  }
+
+  /**
+   * @param sortMemoryBudget the max number of rows to hold in memory while sorting the results; if there are more,
+   * they will be sorted externally, by spilling them to disk (see {@link RowSorter#setMemoryBudget(int)})
+   * @param batchSize the number of rows per {@link RowBatch} exchanged by the evaluators, or {@code 0} to evaluate
+   * the query one row at a time (see {@link BatchedRelation})
+   * @param parallelThreshold aggregations with at least this many input rows will be evaluated in parallel,
+   * or {@link Integer#MAX_VALUE} to always aggregate sequentially
+   * (see {@link AggregationEvaluator#setParallelThreshold(int)})
+   */
+  public MemQuery(RelationalExpression queryExpression, List<SortOrder> sortOrders, int limit, int sortMemoryBudget, int batchSize, int parallelThreshold, String sql, String description) {
     this.sql = sql;
     this.limit = limit;
+    this.sortMemoryBudget = sortMemoryBudget;
+    this.batchSize = batchSize;
+    this.parallelThreshold = parallelThreshold;
     this.description = description;
     this.sortOrders = sortOrders;
-    // TODO: optimize the expression
     this.expr = queryExpression;
+    this.optimizedExpr = new QueryOptimizer().optimize(queryExpression);
   }
 
   public static CompositeComparator<Row> makeComparator(List<SortOrder> sortOrders, RelationSchema schema) {
@@ -126,10 +174,47 @@ public class MemQuery {
     return description;
   }
 
+  /**
+   * @return the ORDER BY clause of this query (empty or {@code null} if the results are not sorted)
+   */
+  public List<SortOrder> getSortOrders() {
+    return sortOrders;
+  }
+
   public int getLimit() {
     return limit;
   }
 
+  public int getSortMemoryBudget() {
+    return sortMemoryBudget;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  /**
+   * @return the relational algebra expression representing this query, before any optimizations
+   * @see #getPlan(Map)
+   */
+  public RelationalExpression getExpression() {
+    return expr;
+  }
+
+  /**
+   * @param inputs the input relations that will be used to evaluate this query (their sizes drive the cost-based
+   * optimizations)
+   * @return the optimized expression that will be evaluated for the given inputs
+   * @see QueryOptimizer
+   */
+  public RelationalExpression getPlan(Map<String, Relation> inputs) {
+    return new QueryOptimizer(inputs).optimize(optimizedExpr);
+  }
+
   public boolean hasSortOrders() {
     return sortOrders != null && !sortOrders.isEmpty();
   }
@@ -168,7 +253,7 @@ public class MemQuery {
    */
   public Relation evalAsUnsortedStream(Map<String, Relation> inputs) {
     // create the evaluator pipeline tree
-    RelationalEvaluator<Relation> evaluator = new EvalPipelineBuilder(this, inputs).visit(expr);
+    RelationalEvaluator<Relation> evaluator = new EvalPipelineBuilder(this, inputs).visit(getPlan(inputs));
 
     // now run the pipeline
     // TODO: use a thread pool to run the pipeline (pass the pool to each evaluator so it may schedule itself
@@ -182,8 +267,110 @@ public class MemQuery {
     return evaluationResult;
   }
 
+  /**
+   * Evaluates the query over the given input relations, resolved by their schema names.
+   * @see #evalAsStream(Map)
+   */
+  public StreamingRelation evalAsStream(Relation... inputs) {
+    return evalAsStream(mapByName(asList(inputs)));
+  }
+
+  /**
+   * Evaluates the query over the given input relations, resolved by the keys of the given map, and returns
+   * the results in the same order as {@link #eval}, but without materializing them.
+   * <p>
+   * This is useful for exporting large results (see {@link ResultSetPrinter#print(MemQuery, Relation, PrintStream)}),
+   * because the rows are produced on demand while iterating the returned relation, which can be done only once.
+   * If the query has sort orders, the rows still have to be sorted before the first one can be returned,
+   * but the sorting is subject to the {@link #getSortMemoryBudget() memory budget}.
+   */
+  public StreamingRelation evalAsStream(Map<String, Relation> inputs) {
+    Relation evaluatedRelation = evalAsUnsortedStream(inputs);
+    return new StreamingRelation(evaluatedRelation.getSchema(), sortAndLimit(evaluatedRelation));
+  }
+
+  /**
+   * Evaluates the query over the given input relations, resolved by their schema names, with profiling enabled.
+   * @see #explainAnalyze(Map)
+   */
+  public QueryProfile explainAnalyze(Relation... inputs) {
+    return explainAnalyze(mapByName(asList(inputs)));
+  }
+
+  /**
+   * Fully evaluates the query (like "EXPLAIN ANALYZE" in SQL) over the given input relations,
+   * resolved by the keys of the given map, collecting the runtime metrics of each operation in its plan
+   * (rows in/out, elapsed time, CPU time, allocated bytes, and the peak sizes of grouping and hash join tables).
+   * <p>
+   * The returned profile is also recorded by {@link QueryProfiler}, which makes it accessible over JMX.
+   *
+   * @return the collected metrics, which can be printed with {@link QueryProfile#print(PrintStream)}
+   */
+  public QueryProfile explainAnalyze(Map<String, Relation> inputs) {
+    RelationalEvaluator<Relation> evaluator = new EvalPipelineBuilder(this, inputs).setProfilingEnabled(true).visit(getPlan(inputs));
+    String outputOperation = hasSortOrders() ? "Sort(" + sortOrders + ")" : "Output";
+    if (limit != Integer.MAX_VALUE)
+      outputOperation += " LIMIT " + limit;
+    QueryProfile profile;
+    try {
+      profile = QueryProfile.run(this, outputOperation, evaluator, this::sortAndLimit);
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Unable to evaluate MemQuery " + this, e);
+    }
+    QueryProfiler.getInstance().add(profile);
+    return profile;
+  }
+
+  /**
+   * Applies the sort orders and limit of this query to the given relation.
+   * @return the sorted and limited rows; the returned iterator is {@link Closeable}, and closing it
+   * releases the resources held by the input (e.g. the temp files of a {@link RowSorter})
+   * @see RowSorter
+   */
+  private Iterator<Row> sortAndLimit(Relation evaluatedRelation) {
+    if (hasSortOrders()) {
+      // we need to sort the results first
+      return new RowSorter(evaluatedRelation.getSchema(), sortOrders).setMemoryBudget(sortMemoryBudget)
+          .sort(evaluatedRelation.iterator(), limit);
+    }
+    return new LimitIterator(evaluatedRelation.iterator(), limit);
+  }
+
+  /**
+   * Returns the first {@code limit} rows of the input, and closes the input as soon as the limit has been reached,
+   * since the remaining input rows will never be consumed.
+   */
+  private static class LimitIterator extends CountingIterator<Row> implements Closeable {
+    private final Iterator<Row> input;
+    private final int limit;
+
+    private LimitIterator(Iterator<Row> input, int limit) {
+      super(input, limit);
+      this.input = input;
+      this.limit = limit;
+    }
 
-  /* Represents an iterable of this query's results. The constructor performs the sorting and limiting. */
+    @Override
+    public boolean hasNext() {
+      if (getCount() >= limit) {
+        close();
+        return false;
+      }
+      return super.hasNext();
+    }
+
+    @Override
+    public void close() {
+      StreamingRelation.close(input);
+    }
+  }
+
+
+  /**
+   * Represents an iterable of this query's results. The constructor performs the sorting and limiting.
+   * @see RowSorter
+   */
   public class SortedResultSet implements ResultSet {
 
     // TODO: try to extend SortedArrayListRelation here (and use a different subclass for result sets that don't need sorting)
@@ -191,12 +378,15 @@ public class MemQuery {
     private ArrayListRelation results;
 
     public SortedResultSet(Relation evaluatedRelation) {
-      Iterable<Row> rows = evaluatedRelation;
-      if (sortOrders != null && !sortOrders.isEmpty()) {
-        // we need to sort the results first
-        rows = new SortedArrayListRelation(evaluatedRelation, sortOrders);
-      }
-      results = new ArrayListRelation(evaluatedRelation.getSchema(), new CountingIterator<Row>(rows.iterator(), limit));
+      results = new ArrayListRelation(evaluatedRelation.getSchema(), sortAndLimit(evaluatedRelation));
+    }
+
+    /**
+     * Creates a result set from rows that have already been sorted and limited according to this query
+     * (e.g. by a {@link ContinuousQuery}).
+     */
+    SortedResultSet(RelationSchema schema, Iterator<Row> sortedRows) {
+      results = new ArrayListRelation(schema, sortedRows);
     }
 
     @Override
@@ -242,14 +432,26 @@ public class MemQuery {
   // shortcut methods
 
   public void evalPrint(Map<String, Relation> inputs, PrintStream out) {
-    printResultSet(eval(inputs), out, FIXED_WIDTH);
+    evalPrint(inputs, out, FIXED_WIDTH);
+  }
+
+  /**
+   * Evaluates the query and prints the results as they're being produced, without materializing them.
+   * @see #evalAsStream(Map)
+   */
+  public void evalPrint(Map<String, Relation> inputs, PrintStream out, PrintFormat printFormat) {
+    createPrinter(printFormat).print(this, evalAsStream(inputs), out);
   }
 
   public static void printResultSet(ResultSet rs, PrintStream out, PrintFormat printFormat) {
+    createPrinter(printFormat).print(rs, out);
+  }
+
+  private static ResultSetPrinter createPrinter(PrintFormat printFormat) {
     if (printFormat == HTML)
-      new HtmlTablePrinter().print(rs, out);
+      return new HtmlTablePrinter();
     else
-      new FixedWidthPrinter().print(rs, out);
+      return new FixedWidthPrinter();
   }
 
 }
@@ -20,10 +20,13 @@ import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import solutions.trsoftware.commons.server.memquery.aggregations.Aggregation;
 import solutions.trsoftware.commons.server.memquery.algebra.*;
+import solutions.trsoftware.commons.server.memquery.eval.AggregationEvaluator;
 import solutions.trsoftware.commons.server.memquery.expressions.Expression;
 import solutions.trsoftware.commons.server.memquery.schema.FieldAccessorColSpec;
 import solutions.trsoftware.commons.server.memquery.schema.MethodAccessorColSpec;
 import solutions.trsoftware.commons.server.memquery.schema.ReflectionAccessorColSpec;
+import solutions.trsoftware.commons.server.memquery.window.WindowFunction;
+import solutions.trsoftware.commons.server.memquery.window.WindowSpec;
 import solutions.trsoftware.commons.shared.util.ArrayUtils;
 import solutions.trsoftware.commons.shared.util.iterators.TransformingIterator;
 
@@ -143,6 +146,9 @@ public class QueryBuilder {
   /** Aggregations listed by their output attr names */
   private List<AggregationSpec> aggregations = new ArrayList<AggregationSpec>();
 
+  /** Window functions listed by their output attr names, grouped by their window spec (the OVER clause) */
+  private Map<WindowSpec, Map<String, WindowFunction<?>>> windowFunctions = new LinkedHashMap<WindowSpec, Map<String, WindowFunction<?>>>();
+
   /** The GROUP BY clause */
   private Set<String> groupingAttrs = new LinkedHashSet<String>();
 
@@ -158,6 +164,13 @@ public class QueryBuilder {
   /** The LIMIT clause */
   private int limit = Integer.MAX_VALUE;
 
+  /** The max number of rows to hold in memory while sorting the results (see {@link RowSorter}) */
+  private int sortMemoryBudget = RowSorter.DEFAULT_MEMORY_BUDGET;
+  /** The number of rows per batch exchanged by the evaluators ({@code 0} means one row at a time) */
+  private int batchSize;
+  /** The min number of input rows for aggregating them in parallel ({@link Integer#MAX_VALUE} means never) */
+  private int parallelThreshold = AggregationEvaluator.DEFAULT_PARALLEL_THRESHOLD;
+
   /** Describes what this query does for human consumption */
   private String description;
 
@@ -317,6 +330,43 @@ public class QueryBuilder {
     return addAggregation(new AggregationSpec(aggType, inputName, outputName));
   }
 
+  /**
+   * Adds a column computed by a window function.  The output attribute will have the default name for this function.
+   *
+   * @param function the window function
+   * @param over specifies the partitions and the order of rows within each partition
+   */
+  public QueryBuilder selectWindowFunction(WindowFunction<?> function, WindowSpec over) {
+    return selectWindowFunctionAs(function, over, function.toString());
+  }
+
+  /**
+   * Adds a column computed by a window function, aliased by the given output name.  The functions are evaluated
+   * after the aggregations (if any), so they can reference the aggregated columns.
+   *
+   * @param function the window function
+   * @param over specifies the partitions and the order of rows within each partition
+   */
+  public QueryBuilder selectWindowFunctionAs(WindowFunction<?> function, WindowSpec over, String name) {
+    Map<String, WindowFunction<?>> functions = windowFunctions.get(over);
+    if (functions == null)
+      windowFunctions.put(over, functions = new LinkedHashMap<String, WindowFunction<?>>());
+    functions.put(name, function);
+    return select(name);
+  }
+
+  /**
+   * @return the window spec of the window function with the given output attr name, or {@code null} if it's not a
+   * window function
+   */
+  private WindowSpec getWindowSpecByName(String name) {
+    for (Map.Entry<WindowSpec, Map<String, WindowFunction<?>>> entry : windowFunctions.entrySet()) {
+      if (entry.getValue().containsKey(name))
+        return entry.getKey();
+    }
+    return null;
+  }
+
   /** Adds an extended projection aliased by the given output name */
   public QueryBuilder selectExprAs(Expression<Row, ?> expr, String name) {
     addProjection(new ExtendedProjectionSpec(name, expr));
@@ -364,6 +414,38 @@ public class QueryBuilder {
     return this;
   }
 
+  /**
+   * @param sortMemoryBudget the max number of rows to hold in memory while sorting the results; if there are more,
+   * they will be sorted externally, by spilling them to disk (the default is {@link RowSorter#DEFAULT_MEMORY_BUDGET},
+   * which never spills)
+   * @see RowSorter#setMemoryBudget(int)
+   */
+  public QueryBuilder setSortMemoryBudget(int sortMemoryBudget) {
+    this.sortMemoryBudget = sortMemoryBudget;
+    return this;
+  }
+
+  /**
+   * @param batchSize the number of rows per batch exchanged by the evaluators (e.g. {@link RowBatch#DEFAULT_SIZE}),
+   * or {@code 0} (the default) to evaluate the query one row at a time
+   * @see BatchedRelation
+   */
+  public QueryBuilder setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * @param parallelThreshold aggregations with at least this many input rows will be evaluated in parallel
+   * (e.g. {@code 100_000}); the default is {@link AggregationEvaluator#DEFAULT_PARALLEL_THRESHOLD}, which
+   * always aggregates sequentially
+   * @see AggregationEvaluator#setParallelThreshold(int)
+   */
+  public QueryBuilder setParallelThreshold(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+    return this;
+  }
+
   public QueryBuilder setDescription(String description) {
     this.description = description;
     return this;
@@ -436,6 +518,9 @@ public class QueryBuilder {
     // 4) now prepend the aggregations, if any
     if (!groupingAttrs.isEmpty() || !aggregations.isEmpty())
       expr = new AggregationOperation(expr, new AggregationOperation.Params(groupingAttrs, aggregations));
+    // 4b) now prepend the window functions (one operation for each distinct window spec)
+    for (Map.Entry<WindowSpec, Map<String, WindowFunction<?>>> entry : windowFunctions.entrySet())
+      expr = new Window(expr, new Window.Params(entry.getKey(), entry.getValue()));
     // 5) now prepend the projections
     // we have the projections split into two buckets: simple and extended, so we'll add the corresponding op for each type
 //    if (projections.containsKey(SimpleProjectionSpec.class))
@@ -444,7 +529,7 @@ public class QueryBuilder {
 //      expr = new ExtendedProjection(expr, mapNamesToValues((Collection)projections.get(ExtendedProjectionSpec.class)));
     // TODO: get rid of the above commented-out code if the following works:
     expr = new ExtendedProjection(expr, mapNamesToValues(projections.values()));
-    return new MemQuery(expr, makeSortOrders(), limit, toSql(), description);
+    return new MemQuery(expr, makeSortOrders(), limit, sortMemoryBudget, batchSize, parallelThreshold, toSql(), description);
   }
 
 
@@ -531,9 +616,14 @@ public class QueryBuilder {
         ProjectionSpec projection = it.next();
         String name = projection.getName();
         AggregationSpec aggSpec = getAggregationByName(name);
+        WindowSpec windowSpec = getWindowSpecByName(name);
         if (aggSpec != null) {
           sql.append(aggSpec).append(" AS ").append("'").append(aggSpec.getName()).append("'");
         }
+        else if (windowSpec != null) {
+          sql.append(windowFunctions.get(windowSpec).get(name)).append(" OVER (").append(windowSpec).append(")")
+              .append(" AS ").append("'").append(name).append("'");
+        }
         else if (projection instanceof ExtendedProjectionSpec) {
           sql.append("`").append(projection.toString()).append("`").append(" AS ").append("'").append(projection.getName()).append("'");
         }
@@ -580,10 +670,14 @@ public class QueryBuilder {
     sb.append(", projections=").append(projections);
     sb.append(", attrRenamings=").append(attrRenamings);
     sb.append(", aggregations=").append(aggregations);
+    sb.append(", windowFunctions=").append(windowFunctions);
     sb.append(", groupingAttrs=").append(groupingAttrs);
     sb.append(", filter=").append(filter);
     sb.append(", sortOrders=").append(sortOrders);
     sb.append(", limit=").append(limit);
+    sb.append(", sortMemoryBudget=").append(sortMemoryBudget);
+    sb.append(", batchSize=").append(batchSize);
+    sb.append(", parallelThreshold=").append(parallelThreshold);
     sb.append(", description='").append(description).append('\'');
     sb.append('}');
     return sb.toString();
@@ -649,17 +743,10 @@ public class QueryBuilder {
     if (sortOrders.isEmpty())
       return null;
     List<SortOrder> ret = new ArrayList<SortOrder>();
-    for (String sortSpec : sortOrders) {
-      ret.add(sortSpec.charAt(0) == '-'
-          ? makeSortOrder(sortSpec.substring(1), true)
-          : makeSortOrder(sortSpec, false));
-    }
+    for (String sortSpec : sortOrders)
+      ret.add(SortOrder.parse(sortSpec));
     return ret;
   }
 
-  private static SortOrder makeSortOrder(String colName, boolean reversed) {
-    return new SortOrder(colName, reversed);
-  }
-
 
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import java.util.*;
+
+/**
+ * A secondary index on a column of a {@link MaterializedRelation}, which maps the values of the column to the
+ * ordinals of the rows (i.e. their positions in {@link MaterializedRelation#getRows()}) containing those values.
+ * <p>
+ * All the lookup methods return the matching ordinals in ascending order, so that the rows can be emitted
+ * in the same order as with a full scan.
+ * <p>
+ * The index entries are computed only when the index is {@linkplain #build(List) built}, so the index has to be
+ * rebuilt whenever the relation changes (this is done automatically by {@link ArrayListRelation}).
+ *
+ * @see IndexedRelation
+ * @see solutions.trsoftware.commons.shared.util.collections.IndexingMap
+ * @author Alex
+ * @since 10/16/2026
+ */
+public abstract class RelationIndex {
+
+  public enum Type {
+    /** Supports equality lookups, based on {@link Object#equals(Object)} */
+    HASH,
+    /** Supports equality and range lookups, based on the natural ordering of the values (which must be {@link Comparable}) */
+    SORTED
+  }
+
+  private static final int[] EMPTY = new int[0];
+
+  private final String colName;
+  /** Set to {@code true} if the column contains any {@code null} values */
+  protected boolean containsNulls;
+
+  protected RelationIndex(String colName) {
+    this.colName = colName;
+  }
+
+  /**
+   * Factory method.
+   * @return a new index of the given type, which must be {@linkplain #build(List) built} before it can be used.
+   */
+  public static RelationIndex create(Type type, String colName) {
+    switch (type) {
+      case HASH:
+        return new HashIndex(colName);
+      case SORTED:
+        return new SortedIndex(colName);
+      default:
+        throw new IllegalArgumentException(String.valueOf(type));
+    }
+  }
+
+  public String getColName() {
+    return colName;
+  }
+
+  public abstract Type getType();
+
+  /**
+   * @return {@code true} iff the indexed column contains any {@code null} values
+   */
+  public boolean containsNulls() {
+    return containsNulls;
+  }
+
+  /**
+   * (Re)computes the index entries for the given rows, discarding the previous entries.
+   *
+   * @param rows the rows of the relation, all of which must have the same schema
+   * @throws IllegalArgumentException if the values of the column can't be indexed (e.g. if they're not
+   * mutually {@link Comparable} for a {@link SortedIndex})
+   */
+  public void build(List<Row> rows) {
+    Object[] values = new Object[rows.size()];
+    containsNulls = false;
+    if (!rows.isEmpty()) {
+      int colIndex = rows.get(0).getSchema().getColIndex(colName);
+      for (int i = 0; i < values.length; i++) {
+        Object value = rows.get(i).getValue(colIndex);
+        if (value == null)
+          containsNulls = true;
+        values[i] = value;
+      }
+    }
+    build(values);
+  }
+
+  /**
+   * @param values the values of the column, indexed by row ordinal
+   */
+  protected abstract void build(Object[] values);
+
+  /**
+   * @return the ordinals of the rows whose value is equal to the given value (which could be {@code null})
+   */
+  public abstract int[] find(Object value);
+
+  /**
+   * @return the ordinals of the rows whose value is equal to any of the given values
+   */
+  public int[] findAll(Collection<?> values) {
+    if (values.size() == 1)
+      return find(values.iterator().next());
+    int[][] results = new int[values.size()][];
+    int i = 0;
+    for (Object value : new LinkedHashSet<>(values))
+      results[i++] = find(value);
+    return union(Arrays.copyOf(results, i));
+  }
+
+  /**
+   * @return the sorted union of the given sorted arrays of ordinals
+   */
+  public static int[] union(int[]... ordinals) {
+    int n = 0;
+    for (int[] arr : ordinals)
+      n += arr.length;
+    int[] ret = new int[n];
+    int pos = 0;
+    for (int[] arr : ordinals) {
+      System.arraycopy(arr, 0, ret, pos, arr.length);
+      pos += arr.length;
+    }
+    Arrays.sort(ret);
+    // remove the duplicates
+    int nDistinct = 0;
+    for (int i = 0; i < ret.length; i++) {
+      if (i == 0 || ret[i] != ret[i - 1])
+        ret[nDistinct++] = ret[i];
+    }
+    return nDistinct == ret.length ? ret : Arrays.copyOf(ret, nDistinct);
+  }
+
+  /**
+   * @return the sorted intersection of the given sorted arrays of ordinals
+   */
+  public static int[] intersection(int[] a, int[] b) {
+    int[] ret = new int[Math.min(a.length, b.length)];
+    int n = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+      if (a[i] < b[j])
+        i++;
+      else if (a[i] > b[j])
+        j++;
+      else {
+        ret[n++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(ret, n);
+  }
+
+  @Override
+  public String toString() {
+    return getType() + " INDEX ON " + colName;
+  }
+
+  /**
+   * Maps each distinct value to an array of ordinals.
+   */
+  public static class HashIndex extends RelationIndex {
+    private Map<Object, int[]> entries = Collections.emptyMap();
+
+    public HashIndex(String colName) {
+      super(colName);
+    }
+
+    @Override
+    public Type getType() {
+      return Type.HASH;
+    }
+
+    @Override
+    protected void build(Object[] values) {
+      // first pass: count the occurrences of each value
+      Map<Object, int[]> counts = new HashMap<>();
+      for (Object value : values) {
+        int[] count = counts.get(value);
+        if (count == null)
+          counts.put(value, count = new int[1]);
+        count[0]++;
+      }
+      // second pass: fill in the ordinals
+      Map<Object, int[]> ordinals = new HashMap<>(counts.size() * 4 / 3 + 1);
+      for (Map.Entry<Object, int[]> entry : counts.entrySet()) {
+        ordinals.put(entry.getKey(), new int[entry.getValue()[0]]);
+        entry.getValue()[0] = 0;  // reuse the counter as the insertion cursor
+      }
+      for (int i = 0; i < values.length; i++) {
+        int[] cursor = counts.get(values[i]);
+        ordinals.get(values[i])[cursor[0]++] = i;
+      }
+      entries = ordinals;
+    }
+
+    @Override
+    public int[] find(Object value) {
+      int[] ret = entries.get(value);
+      return ret != null ? ret : EMPTY;
+    }
+
+    /**
+     * @return the number of distinct values in the column (including {@code null})
+     */
+    public int getCardinality() {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Stores the ordinals of the rows sorted by value, which allows finding the rows in any range of values with
+   * a binary search.  The {@code null} values are stored separately.
+   */
+  public static class SortedIndex extends RelationIndex {
+    /** The non-null values, in ascending order */
+    private Comparable[] sortedValues = new Comparable[0];
+    /** The ordinals of the rows containing {@link #sortedValues} (ascending within each run of equal values) */
+    private int[] sortedOrdinals = EMPTY;
+    private int[] nullOrdinals = EMPTY;
+
+    public SortedIndex(String colName) {
+      super(colName);
+    }
+
+    @Override
+    public Type getType() {
+      return Type.SORTED;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void build(Object[] values) {
+      Integer[] order = new Integer[values.length];
+      int n = 0, nNulls = 0;
+      int[] nulls = new int[values.length];
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == null)
+          nulls[nNulls++] = i;
+        else if (values[i] instanceof Comparable)
+          order[n++] = i;
+        else
+          throw new IllegalArgumentException(String.format("Can't create a %s because %s is not Comparable", this, values[i].getClass()));
+      }
+      order = Arrays.copyOf(order, n);
+      try {
+        // this is a stable sort, so the ordinals of equal values will remain in ascending order
+        Arrays.sort(order, (a, b) -> ((Comparable)values[a]).compareTo(values[b]));
+      }
+      catch (ClassCastException ex) {
+        throw new IllegalArgumentException(String.format("Can't create a %s because its values are not mutually Comparable", this), ex);
+      }
+      Comparable[] sortedValues = new Comparable[n];
+      int[] sortedOrdinals = new int[n];
+      for (int i = 0; i < n; i++) {
+        sortedOrdinals[i] = order[i];
+        sortedValues[i] = (Comparable)values[order[i]];
+      }
+      this.sortedValues = sortedValues;
+      this.sortedOrdinals = sortedOrdinals;
+      this.nullOrdinals = Arrays.copyOf(nulls, nNulls);
+    }
+
+    @Override
+    public int[] find(Object value) {
+      if (value == null)
+        return nullOrdinals;
+      return findRange(value, true, value, true);
+    }
+
+    /**
+     * Finds the rows whose values lie in the given range (the {@code null} values are never included).
+     *
+     * @param lower the lower bound of the range, or {@code null} if the range is unbounded below
+     * @param lowerInclusive whether the range includes the lower bound
+     * @param upper the upper bound of the range, or {@code null} if the range is unbounded above
+     * @param upperInclusive whether the range includes the upper bound
+     * @return the ordinals of the rows whose value is in the given range
+     */
+    public int[] findRange(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+      int from = lower == null ? 0 : boundary(lower, !lowerInclusive);
+      int to = upper == null ? sortedValues.length : boundary(upper, upperInclusive);
+      if (from >= to)
+        return EMPTY;
+      int[] ret = Arrays.copyOfRange(sortedOrdinals, from, to);
+      Arrays.sort(ret);
+      return ret;
+    }
+
+    /**
+     * @param after if {@code true}, returns the index of the first value greater than the given value;
+     * otherwise, returns the index of the first value that's greater than or equal to it
+     */
+    @SuppressWarnings("unchecked")
+    private int boundary(Object value, boolean after) {
+      int lo = 0, hi = sortedValues.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        int cmp = sortedValues[mid].compareTo(value);
+        if (cmp < 0 || (after && cmp == 0))
+          lo = mid + 1;
+        else
+          hi = mid;
+      }
+      return lo;
+    }
+  }
+}
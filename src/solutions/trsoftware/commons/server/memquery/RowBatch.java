@@ -0,0 +1,242 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import com.google.common.collect.AbstractIterator;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * A fixed-capacity batch of rows, which is the unit of data exchanged by the evaluators in batch mode
+ * (see {@link BatchedRelation}).
+ * <p>
+ * A batch may have a <i>selection vector</i>, which lists the positions of the rows that are still "alive" after
+ * a filter has been applied to it (see {@link #select(Predicate)}).  This allows filtering a batch in place,
+ * without copying any rows.  The methods {@link #count()} and {@link #get(int)} take the selection vector
+ * into account, whereas {@link #size()} returns the total number of rows in the batch.
+ * <p>
+ * Batches are meant to be reused by their producers: a consumer must not hold on to a batch after requesting
+ * the next one (but it's free to keep references to the rows themselves).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class RowBatch {
+
+  /** The number of rows per batch used by the evaluators, unless specified otherwise */
+  public static final int DEFAULT_SIZE = 1024;
+
+  private final Row[] rows;
+  /** The number of rows in {@link #rows} */
+  private int size;
+  /** The positions of the selected rows (only valid if {@link #hasSelection} is {@code true}) */
+  private final int[] selection;
+  /** The number of positions in {@link #selection} */
+  private int selectedCount;
+  /** Whether a selection vector has been applied to this batch (otherwise, all the rows are selected) */
+  private boolean hasSelection;
+
+  public RowBatch(int capacity) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("Invalid batch capacity: " + capacity);
+    rows = new Row[capacity];
+    selection = new int[capacity];
+  }
+
+  public int capacity() {
+    return rows.length;
+  }
+
+  /**
+   * @return the total number of rows in this batch (including those that have been filtered out by the selection vector)
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return size == rows.length;
+  }
+
+  /**
+   * @return the number of selected rows in this batch
+   */
+  public int count() {
+    return hasSelection ? selectedCount : size;
+  }
+
+  public boolean isEmpty() {
+    return count() == 0;
+  }
+
+  /**
+   * @param i the index of a selected row (in the range {@code [0, count())})
+   * @return the {@code i}-th selected row
+   */
+  public Row get(int i) {
+    return hasSelection ? rows[selection[i]] : rows[i];
+  }
+
+  /**
+   * Appends a row to this batch, which must not be {@linkplain #isFull() full} or have a selection vector.
+   */
+  public void add(Row row) {
+    assert !hasSelection;
+    rows[size++] = row;
+  }
+
+  /**
+   * Removes all rows and the selection vector.
+   */
+  public void clear() {
+    // clear the references to allow garbage collection of the previous rows
+    for (int i = 0; i < size; i++)
+      rows[i] = null;
+    size = 0;
+    selectedCount = 0;
+    hasSelection = false;
+  }
+
+  /**
+   * Narrows down the selection vector of this batch to the rows that satisfy the given predicate.
+   * @return the number of rows that remain selected
+   */
+  public int select(Predicate<? super Row> predicate) {
+    int n = 0;
+    if (hasSelection) {
+      for (int i = 0; i < selectedCount; i++) {
+        int pos = selection[i];
+        if (predicate.test(rows[pos]))
+          selection[n++] = pos;
+      }
+    }
+    else {
+      for (int pos = 0; pos < size; pos++) {
+        if (predicate.test(rows[pos]))
+          selection[n++] = pos;
+      }
+      hasSelection = true;
+    }
+    return selectedCount = n;
+  }
+
+  /**
+   * Fills this batch with the next rows of the given iterator.
+   * @return {@code true} if at least one row was added
+   */
+  public boolean fill(Iterator<Row> rowIterator) {
+    clear();
+    while (size < rows.length && rowIterator.hasNext())
+      rows[size++] = rowIterator.next();
+    return size > 0;
+  }
+
+  /**
+   * Fills this batch with the elements of the given list in the index range {@code [from, min(to, from+capacity))}.
+   * @return the number of rows that were added
+   */
+  public int fill(List<Row> rowList, int from, int to) {
+    clear();
+    int end = Math.min(to, from + rows.length);
+    for (int i = from; i < end; i++)
+      rows[size++] = rowList.get(i);
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(" + count() + "/" + size + ")";
+  }
+
+  // static utility methods
+
+  /**
+   * @return the batches of the given relation: its own {@link BatchedRelation#batchIterator()} if it
+   * supports batching, otherwise batches of the given size assembled from its rows
+   */
+  public static Iterator<RowBatch> batches(Relation relation, int batchSize) {
+    if (relation instanceof BatchedRelation)
+      return ((BatchedRelation)relation).batchIterator();
+    if (relation instanceof MaterializedRelation) {
+      List<Row> rows = ((MaterializedRelation)relation).getRows();
+      if (rows instanceof RandomAccess)
+        return batches(rows, batchSize);
+    }
+    return batches(relation.iterator(), batchSize);
+  }
+
+  /**
+   * @return an iterator that assembles the given rows into batches of the given size (reusing the same instance
+   * of {@link RowBatch} for all the batches)
+   */
+  public static Iterator<RowBatch> batches(Iterator<Row> rowIterator, int batchSize) {
+    RowBatch batch = new RowBatch(batchSize);
+    return new AbstractIterator<RowBatch>() {
+      @Override
+      protected RowBatch computeNext() {
+        if (batch.fill(rowIterator))
+          return batch;
+        return endOfData();
+      }
+    };
+  }
+
+  /**
+   * @return an iterator over the given random-access list, in batches of the given size (reusing the same instance
+   * of {@link RowBatch} for all the batches)
+   */
+  public static Iterator<RowBatch> batches(List<Row> rowList, int batchSize) {
+    RowBatch batch = new RowBatch(batchSize);
+    return new AbstractIterator<RowBatch>() {
+      private int next;
+
+      @Override
+      protected RowBatch computeNext() {
+        int n = batch.fill(rowList, next, rowList.size());
+        if (n > 0) {
+          next += n;
+          return batch;
+        }
+        return endOfData();
+      }
+    };
+  }
+
+  /**
+   * @return an iterator over the selected rows of the given batches
+   */
+  public static Iterator<Row> rows(Iterator<RowBatch> batchIterator) {
+    return new AbstractIterator<Row>() {
+      private RowBatch batch;
+      private int next;
+
+      @Override
+      protected Row computeNext() {
+        while (batch == null || next >= batch.count()) {
+          if (!batchIterator.hasNext())
+            return endOfData();
+          batch = batchIterator.next();
+          next = 0;
+        }
+        return batch.get(next++);
+      }
+    };
+  }
+}
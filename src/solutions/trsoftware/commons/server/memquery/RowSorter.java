@@ -0,0 +1,498 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import com.google.common.collect.AbstractIterator;
+import solutions.trsoftware.commons.server.io.file.TempFileRegistry;
+import solutions.trsoftware.commons.shared.util.iterators.CountingIterator;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sorts the rows of a relation according to a list of {@link SortOrder}s, choosing the algorithm based on
+ * the limit and the size of the input:
+ * <ol>
+ *   <li>
+ *     If the number of rows to return is limited (e.g. {@code ORDER BY x LIMIT 100}) to fewer than the
+ *     {@linkplain #setMemoryBudget(int) memory budget}, it keeps only the top rows
+ *     in a bounded heap, which takes {@code O(n*log(limit))} time and {@code O(limit)} memory
+ *     (see {@link #topK(Iterator, Comparator, int)})
+ *   </li>
+ *   <li>
+ *     Otherwise, if the input fits in the {@linkplain #setMemoryBudget(int) memory budget}, it's sorted in memory.
+ *   </li>
+ *   <li>
+ *     Otherwise, it does an external merge sort: the input is split into sorted runs (each within the memory budget),
+ *     which are spilled to temp files, and then merged.  This requires all the column values to be {@link Serializable}.
+ *   </li>
+ * </ol>
+ * The memory budget is unlimited by default, so the input is never spilled to disk unless a budget is
+ * {@linkplain #setMemoryBudget(int) specified}.
+ * All these algorithms are stable: rows that compare as equal are returned in the same order as the input.
+ * <p>
+ * The temp files of an external sort are deleted as soon as the returned {@link SortedIterator} is either exhausted
+ * or {@linkplain SortedIterator#close() closed}.  They are also registered with the {@link TempFileRegistry}
+ * (until they're deleted), so the files of an iterator that was abandoned without being closed will be deleted
+ * when the JVM exits.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class RowSorter {
+
+  private static final Logger LOGGER = Logger.getLogger(RowSorter.class.getName());
+
+  /** The default value of {@link #memoryBudget} (unlimited, i.e. external sorting is disabled) */
+  public static final int DEFAULT_MEMORY_BUDGET = Integer.MAX_VALUE;
+
+  /** Resets the back-reference table of the {@link ObjectOutputStream} after this many rows, to limit its memory usage */
+  private static final int RESET_INTERVAL = 1000;
+
+  /**
+   * The max number of runs to merge at once (to limit the number of open files); if there are more runs,
+   * they will be merged in multiple passes.
+   */
+  static final int MAX_MERGE_FAN_IN = 64;
+
+  private final RelationSchema schema;
+  private final Comparator<Row> comparator;
+  /** The max number of rows to hold in memory while sorting */
+  private int memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+  /**
+   * @param schema the schema of the rows to be sorted
+   * @param sortOrders the sort orders (must refer to columns of the given schema)
+   */
+  public RowSorter(RelationSchema schema, List<SortOrder> sortOrders) {
+    this.schema = schema;
+    comparator = MemQuery.makeComparator(sortOrders, schema);
+  }
+
+  public int getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * @param memoryBudget the max number of rows to hold in memory while sorting; a larger input will be sorted
+   * externally (by spilling sorted runs to disk).  The default is {@link #DEFAULT_MEMORY_BUDGET}.
+   * @return this instance, for chaining
+   */
+  public RowSorter setMemoryBudget(int memoryBudget) {
+    if (memoryBudget < 1)
+      throw new IllegalArgumentException("memoryBudget: " + memoryBudget);
+    this.memoryBudget = memoryBudget;
+    return this;
+  }
+
+  public Comparator<Row> getComparator() {
+    return comparator;
+  }
+
+  /**
+   * @param rows the input rows
+   * @param limit the max number of rows to return ({@link Integer#MAX_VALUE} for no limit)
+   * @return an iterator over the first {@code limit} rows of the sorted input, which should be
+   * {@linkplain SortedIterator#close() closed} if it's abandoned before being exhausted
+   * @throws UncheckedIOException if an I/O error occurs while spilling the rows to disk (or if some values are not
+   * {@link Serializable})
+   */
+  public SortedIterator sort(Iterator<Row> rows, int limit) {
+    if (limit < memoryBudget)
+      return new BufferIterator(topK(rows, comparator, limit).iterator());
+    ArrayList<Row> buffer = readChunk(rows);
+    buffer.sort(comparator);
+    if (!rows.hasNext())
+      return limit(buffer.iterator(), limit);  // the input fits in memory
+    // external sort
+    List<Path> runs = new ArrayList<>();
+    List<Path> mergedRuns = new ArrayList<>();
+    try {
+      while (true) {
+        runs.add(writeRun(buffer.iterator()));
+        if (!rows.hasNext())
+          break;
+        buffer = readChunk(rows);
+        buffer.sort(comparator);
+      }
+      // merge groups of consecutive runs (which preserves the stability of the sort) until there are few enough to merge at once
+      while (runs.size() > MAX_MERGE_FAN_IN) {
+        mergedRuns = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += MAX_MERGE_FAN_IN) {
+          List<Path> group = runs.subList(i, Math.min(i + MAX_MERGE_FAN_IN, runs.size()));
+          if (group.size() == 1)
+            mergedRuns.add(group.get(0));
+          else {
+            MergeIterator merge = new MergeIterator(group, Integer.MAX_VALUE);
+            try {
+              mergedRuns.add(writeRun(merge));
+            }
+            finally {
+              merge.close();  // deletes the merged runs
+            }
+          }
+        }
+        runs = mergedRuns;
+      }
+      return new MergeIterator(runs, limit);
+    }
+    catch (IOException e) {
+      deleteRuns(runs);
+      deleteRuns(mergedRuns);
+      throw new UncheckedIOException("Unable to spill the sort buffer to disk", e);
+    }
+    catch (UncheckedIOException e) {
+      deleteRuns(runs);
+      deleteRuns(mergedRuns);
+      throw e;
+    }
+  }
+
+  private ArrayList<Row> readChunk(Iterator<Row> rows) {
+    ArrayList<Row> ret = new ArrayList<>();
+    while (ret.size() < memoryBudget && rows.hasNext())
+      ret.add(rows.next());
+    return ret;
+  }
+
+  private static SortedIterator limit(Iterator<Row> it, int limit) {
+    if (limit == Integer.MAX_VALUE)
+      return new BufferIterator(it);
+    return new BufferIterator(new CountingIterator<>(it, limit));
+  }
+
+  /**
+   * An iterator over the sorted rows.  If the rows were spilled to disk, the temp files are deleted when the
+   * iterator is exhausted, so it should be {@linkplain #close() closed} if it's abandoned before then.
+   */
+  public interface SortedIterator extends Iterator<Row>, Closeable {
+    /**
+     * Deletes the temp files (if any) holding the rows that haven't been returned yet, after which
+     * the iterator shouldn't be used anymore.
+     */
+    @Override
+    void close();
+  }
+
+  /**
+   * Returns rows that are already in memory, so there's nothing to release when it's closed.
+   */
+  private static class BufferIterator implements SortedIterator {
+    private Iterator<Row> delegate;
+
+    private BufferIterator(Iterator<Row> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return delegate.hasNext();
+    }
+
+    @Override
+    public Row next() {
+      return delegate.next();
+    }
+
+    @Override
+    public void close() {
+      delegate = Collections.emptyIterator();
+    }
+  }
+
+  /**
+   * Finds the smallest {@code k} elements of the input using a bounded max-heap.
+   *
+   * @return the smallest {@code k} elements of the input, sorted with the given comparator (ties are broken
+   * by the order of the input elements, as in a stable sort)
+   * @see TopK
+   */
+  public static <T> List<T> topK(Iterator<T> input, Comparator<? super T> comparator, int k) {
+    if (k <= 0)
+      return Collections.emptyList();
+    TopK<T> topK = new TopK<>(comparator, k);
+    while (input.hasNext())
+      topK.add(input.next());
+    return topK.toSortedList();
+  }
+
+  /**
+   * Keeps the smallest {@code k} elements added so far in a bounded max-heap, so it can be updated incrementally
+   * (e.g. as new rows arrive) in {@code O(log(k))} time per element and {@code O(k)} memory.
+   * <p>
+   * Ties are broken by the order in which the elements were added, as in a stable sort.
+   * Instances of this class are not thread-safe.
+   *
+   * @see #topK(Iterator, Comparator, int)
+   */
+  public static class TopK<T> {
+    private final Comparator<? super T> comparator;
+    private final int k;
+    /** Orders the entries by the comparator, then by their ordinal in the input, which makes them all distinct */
+    private final Comparator<HeapEntry<T>> entryComparator;
+    private final PriorityQueue<HeapEntry<T>> heap;
+    /** The number of elements added so far */
+    private long count;
+
+    /**
+     * @param comparator defines the order of the elements
+     * @param k the max number of elements to keep (must be positive)
+     */
+    public TopK(Comparator<? super T> comparator, int k) {
+      if (k <= 0)
+        throw new IllegalArgumentException("Invalid k: " + k);
+      this.comparator = comparator;
+      this.k = k;
+      entryComparator = (a, b) -> {
+        int cmp = comparator.compare(a.value, b.value);
+        return cmp != 0 ? cmp : Long.compare(a.ordinal, b.ordinal);
+      };
+      heap = new PriorityQueue<>(Math.min(k, 1024), entryComparator.reversed());
+    }
+
+    /**
+     * Adds an element, which will be retained only if it's among the smallest {@code k} elements added so far.
+     */
+    public void add(T next) {
+      long i = count++;
+      if (heap.size() < k)
+        heap.add(new HeapEntry<>(next, i));
+      else if (comparator.compare(next, heap.peek().value) < 0) {
+        // the new element displaces the largest element in the heap (if they're equal, the older one wins)
+        HeapEntry<T> entry = heap.poll();
+        entry.value = next;
+        entry.ordinal = i;
+        heap.add(entry);
+      }
+    }
+
+    public void addAll(Iterable<? extends T> elements) {
+      for (T element : elements)
+        add(element);
+    }
+
+    /**
+     * @return the number of elements currently retained (at most {@code k})
+     */
+    public int size() {
+      return heap.size();
+    }
+
+    /**
+     * @return the retained elements, in sorted order
+     */
+    public List<T> toSortedList() {
+      List<HeapEntry<T>> entries = new ArrayList<>(heap);
+      entries.sort(entryComparator);
+      List<T> ret = new ArrayList<>(entries.size());
+      for (HeapEntry<T> entry : entries)
+        ret.add(entry.value);
+      return ret;
+    }
+  }
+
+  private static class HeapEntry<T> {
+    private T value;
+    private long ordinal;
+
+    private HeapEntry(T value, long ordinal) {
+      this.value = value;
+      this.ordinal = ordinal;
+    }
+  }
+
+  /**
+   * Writes the given sorted rows to a new temp file.  Each row is preceded by a {@code true} marker, and the
+   * end of the file is marked by {@code false}.
+   * The file is registered with the {@link TempFileRegistry} until it's {@linkplain #deleteRun(Path) deleted}.
+   * @return the path of the file
+   */
+  private Path writeRun(Iterator<Row> rows) throws IOException {
+    // NOTE: not using File.deleteOnExit, because its registry of paths would keep growing until the JVM exits
+    Path file = Files.createTempFile(getClass().getSimpleName(), ".run");
+    TempFileRegistry.getInstance().add(file);
+    int nCols = schema.size();
+    try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      for (int i = 1; rows.hasNext(); i++) {
+        Row row = rows.next();
+        out.writeBoolean(true);
+        for (int j = 0; j < nCols; j++)
+          out.writeObject(row.getValue(j));
+        if (i % RESET_INTERVAL == 0)
+          out.reset();
+      }
+      out.writeBoolean(false);
+    }
+    catch (IOException e) {
+      deleteRun(file);
+      throw e;
+    }
+    return file;
+  }
+
+  /**
+   * Deletes the given run file and removes it from the {@link TempFileRegistry}.
+   */
+  private static void deleteRun(Path run) throws IOException {
+    Files.deleteIfExists(run);
+    TempFileRegistry.getInstance().remove(run);
+  }
+
+  private static void deleteRuns(List<Path> runs) {
+    for (Path run : runs) {
+      try {
+        deleteRun(run);
+      }
+      catch (IOException e) {
+        // not fatal, but the temp file will be left behind
+        LOGGER.log(Level.WARNING, e, () -> "Unable to delete the sort run " + run);
+      }
+    }
+  }
+
+  /**
+   * Reads the rows of a run file.
+   */
+  private class RunReader implements Closeable {
+    private final Path file;
+    private final ObjectInputStream in;
+
+    private RunReader(Path file) throws IOException {
+      this.file = file;
+      in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    }
+
+    /**
+     * @return the next row, or {@code null} if the end of the file has been reached
+     */
+    private Row read() throws IOException {
+      if (!in.readBoolean())
+        return null;
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      try {
+        for (int j = 0; j < schema.size(); j++)
+          row.setValue(j, in.readObject());
+      }
+      catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+      return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        in.close();
+      }
+      finally {
+        deleteRun(file);
+      }
+    }
+  }
+
+  /**
+   * Does a k-way merge of the sorted runs, deleting the files after the merge is finished (or the iterator is closed).
+   */
+  private class MergeIterator extends AbstractIterator<Row> implements SortedIterator {
+    /** The runs that haven't been exhausted yet, ordered by their current row (ties broken by run index, for stability) */
+    private final PriorityQueue<RunCursor> queue;
+    private final List<RunReader> readers = new ArrayList<>();
+    /** The number of rows remaining until the limit is reached */
+    private int remaining;
+
+    private MergeIterator(List<Path> runs, int limit) throws IOException {
+      remaining = limit;
+      queue = new PriorityQueue<>(runs.size(), (a, b) -> {
+        int cmp = comparator.compare(a.row, b.row);
+        return cmp != 0 ? cmp : Integer.compare(a.runIndex, b.runIndex);
+      });
+      try {
+        for (int i = 0; i < runs.size(); i++) {
+          RunReader reader = new RunReader(runs.get(i));
+          readers.add(reader);
+          RunCursor cursor = new RunCursor(reader, i);
+          if (cursor.advance())
+            queue.add(cursor);
+        }
+      }
+      catch (IOException e) {
+        close();
+        deleteRuns(runs);
+        throw e;
+      }
+    }
+
+    @Override
+    protected Row computeNext() {
+      RunCursor cursor = remaining > 0 ? queue.poll() : null;
+      if (cursor == null) {
+        close();
+        return endOfData();
+      }
+      Row ret = cursor.row;
+      remaining--;
+      try {
+        if (cursor.advance())
+          queue.add(cursor);
+      }
+      catch (IOException e) {
+        close();
+        throw new UncheckedIOException("Unable to read the spilled sort run " + cursor.reader.file, e);
+      }
+      return ret;
+    }
+
+    @Override
+    public void close() {
+      for (RunReader reader : readers) {
+        try {
+          reader.close();
+        }
+        catch (IOException e) {
+          // not fatal, but the temp file might be left behind
+          LOGGER.log(Level.WARNING, e, () -> "Unable to close the sort run " + reader.file);
+        }
+      }
+      readers.clear();
+      queue.clear();
+    }
+  }
+
+  private static class RunCursor {
+    private final RunReader reader;
+    private final int runIndex;
+    private Row row;
+
+    private RunCursor(RunReader reader, int runIndex) {
+      this.reader = reader;
+      this.runIndex = runIndex;
+    }
+
+    /**
+     * Reads the next row from the run.
+     * @return {@code false} if the run has been exhausted
+     */
+    private boolean advance() throws IOException {
+      row = reader.read();
+      return row != null;
+    }
+  }
+}
@@ -37,6 +37,16 @@ public class SortOrder implements HasName {
     this(name, false);
   }
 
+  /**
+   * @param shorthand a col-name-based sort order in shorthand notation (e.g. "foo" means sort by column "foo" in
+   * ascending order and "-foo" means sort by column "foo" in descending order)
+   */
+  public static SortOrder parse(String shorthand) {
+    if (shorthand.charAt(0) == '-')
+      return new SortOrder(shorthand.substring(1), true);
+    return new SortOrder(shorthand);
+  }
+
   public String getName() {
     return name;
   }
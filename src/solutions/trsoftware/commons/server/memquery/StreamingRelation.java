@@ -16,6 +16,9 @@
 
 package solutions.trsoftware.commons.server.memquery;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
 
 /**
@@ -23,10 +26,13 @@ import java.util.Iterator;
  * {@link #iterator()} method, which always returns the same iterator object for the stream of rows.
  * This is a good alternative to {@link ArrayListRelation} for representing the results of an operation
  * that can be pipelined.
+ * <p>
+ * If the stream is abandoned before all its rows have been consumed, it should be {@linkplain #close() closed},
+ * to release any resources held by the iterator (e.g. the temp files of a {@link RowSorter}).
  *
  * @author Alex, 1/15/14
  */
-public class StreamingRelation extends AbstractRelation {
+public class StreamingRelation extends AbstractRelation implements Closeable {
 
   protected final Iterator<Row> rowIterator;
 
@@ -39,4 +45,28 @@ public class StreamingRelation extends AbstractRelation {
   public Iterator<Row> iterator() {
     return rowIterator;
   }
+
+  /**
+   * Closes the {@link #iterator()} if it's {@link Closeable}.
+   * @throws UncheckedIOException if the iterator throws an {@link IOException}
+   */
+  @Override
+  public void close() {
+    close(rowIterator);
+  }
+
+  /**
+   * Closes the given iterator if it's {@link Closeable} (e.g. a {@link RowSorter.SortedIterator}).
+   * @throws UncheckedIOException if the iterator throws an {@link IOException}
+   */
+  public static void close(Iterator<?> it) {
+    if (it instanceof Closeable) {
+      try {
+        ((Closeable)it).close();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
 }
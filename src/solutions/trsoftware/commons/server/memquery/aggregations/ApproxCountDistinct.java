@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.aggregations;
+
+import solutions.trsoftware.commons.shared.util.stats.HyperLogLog;
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
+
+/**
+ * Estimates the number of distinct non-null values of a column in bounded memory, using a {@link HyperLogLog}
+ * sketch with precision {@value #PRECISION} (which takes 4 KB per group and has a standard error of about 1.6%,
+ * although small counts are nearly exact).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ApproxCountDistinct extends ColAggregation<Long, Object> implements Mergeable<ApproxCountDistinct> {
+
+  public static final int PRECISION = 12;
+
+  private final HyperLogLog sketch = new HyperLogLog(PRECISION);
+
+  @Override
+  public Long get() {
+    return sketch.cardinality();
+  }
+
+  @Override
+  public void update(Object x) {
+    sketch.update(x);
+  }
+
+  @Override
+  public void merge(ApproxCountDistinct other) {
+    sketch.merge(other.sketch);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.aggregations;
+
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
+import solutions.trsoftware.commons.shared.util.stats.TDigest;
+
+/**
+ * Estimates a percentile of a numeric column in bounded memory, using a {@link TDigest}.
+ * Unlike computing the exact percentile, this doesn't require keeping all the values of each group,
+ * and the partial results can be {@linkplain #merge(ApproxPercentile) merged}.
+ * <p>
+ * Since aggregations are instantiated reflectively, each percentile is defined by a subclass
+ * (e.g. {@link P50}, {@link P95}, {@link P99}).  The {@code null} values are ignored, and the result is
+ * {@code null} if there are no other values.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public abstract class ApproxPercentile extends ColAggregation<Double, Number> implements Mergeable<ApproxPercentile> {
+
+  private final double quantile;
+  private final TDigest digest = new TDigest();
+
+  /**
+   * @param quantile the quantile to estimate, in the range {@code [0, 1]}
+   */
+  protected ApproxPercentile(double quantile) {
+    if (quantile < 0 || quantile > 1)
+      throw new IllegalArgumentException("quantile must be in the range [0, 1]: " + quantile);
+    this.quantile = quantile;
+  }
+
+  public double getQuantile() {
+    return quantile;
+  }
+
+  @Override
+  public Double get() {
+    return digest.size() > 0 ? digest.quantile(quantile) : null;
+  }
+
+  @Override
+  public void update(Number x) {
+    if (x != null)
+      digest.update(x.doubleValue());
+  }
+
+  /**
+   * Same as {@link #update(Number)}, but avoids boxing the value.
+   */
+  public void update(double x) {
+    digest.update(x);
+  }
+
+  @Override
+  public void merge(ApproxPercentile other) {
+    digest.merge(other.digest);
+  }
+}
@@ -16,12 +16,13 @@
 
 package solutions.trsoftware.commons.server.memquery.aggregations;
 
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
 import solutions.trsoftware.commons.shared.util.stats.NumberSampleOnlineDouble;
 
 /**
  * @author Alex, 6/4/2014
  */
-public abstract class ColStats extends ColAggregation<Double, Number> {
+public abstract class ColStats extends ColAggregation<Double, Number> implements Mergeable<ColStats> {
 
   protected NumberSampleOnlineDouble numberSample = new NumberSampleOnlineDouble();
 
@@ -29,4 +30,16 @@ public abstract class ColStats extends ColAggregation<Double, Number> {
   public void update(Number x) {
     numberSample.update(x.doubleValue());
   }
+
+  /**
+   * Same as {@link #update(Number)}, but avoids boxing the value.
+   */
+  public void update(double x) {
+    numberSample.update(x);
+  }
+
+  @Override
+  public void merge(ColStats other) {
+    numberSample.merge(other.numberSample);
+  }
 }
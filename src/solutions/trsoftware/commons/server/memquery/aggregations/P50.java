@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.aggregations;
+
+/**
+ * Estimates the median (50th percentile) of a numeric column.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class P50 extends ApproxPercentile {
+
+  public P50() {
+    super(.50);
+  }
+}
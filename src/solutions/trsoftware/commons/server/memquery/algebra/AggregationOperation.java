@@ -96,6 +96,15 @@ public class AggregationOperation extends UnaryOperation<AggregationOperation.Pa
     public Map<String, AggregationSpec> getAggregationsByName() {
       return aggregationsByName;
     }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append(aggregationsByName.values());
+      if (!groupingAttrs.isEmpty())
+        sb.append(" GROUP BY ").append(groupingAttrs);
+      return sb.toString();
+    }
   }
 
 }
@@ -0,0 +1,746 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.algebra;
+
+import com.google.common.collect.ImmutableSet;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+import solutions.trsoftware.commons.server.memquery.aggregations.RowAggregation;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.server.memquery.window.WindowFunction;
+import solutions.trsoftware.commons.server.memquery.window.WindowSpec;
+
+import java.util.*;
+
+/**
+ * Rewrites a relational algebra expression tree into an equivalent tree that's cheaper to evaluate.
+ * <p>
+ * The following rewrites are applied (in this order) by {@link #optimize(RelationalExpression)}:
+ * <ol>
+ *   <li>{@linkplain #foldConstants Constant folding}: simplifies {@link And} / {@link Or} predicates that have a
+ *   {@link ConstantPredicate} operand, and removes any {@link Selection} whose filter is always {@code true}</li>
+ *   <li>{@linkplain #pushDownSelections Selection push-down}: moves the conjuncts of a {@link Selection} filter
+ *   below any {@link Rename} and {@link Join} operations, as close as possible to the input relations they reference</li>
+ *   <li>{@linkplain #reorderJoins Join reordering}: swaps the inputs of inner equi-joins to make the smaller one the RHS,
+ *   which is the "build" side of the hash table used by {@link solutions.trsoftware.commons.server.memquery.eval.HashJoinEvaluator}</li>
+ *   <li>{@linkplain #pruneColumns Column pruning}: inserts a {@link Projection} between a {@link Join} and each of its
+ *   inputs that has columns not needed anywhere above the join</li>
+ * </ol>
+ * The cost-based decisions are driven by the {@linkplain #estimateSize estimated sizes} of the subexpressions,
+ * which are derived from the sizes of the {@link MaterializedRelation} inputs.  When the inputs are not known,
+ * joins are never reordered.
+ * <p>
+ * Since the column names referenced by an arbitrary {@link Expression} can't be determined, the rewrites that depend
+ * on them will only be performed for the expression types defined in the
+ * {@link solutions.trsoftware.commons.server.memquery.expressions} package (e.g. {@link ColValuePredicate}),
+ * and subtrees containing operation subclasses not defined in this package are left as-is.
+ *
+ * @see solutions.trsoftware.commons.server.memquery.eval.EvalPipelinePrinter#printPlans
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QueryOptimizer {
+
+  /** Return value of {@link #estimateSize(RelationalExpression)} when the size can't be estimated */
+  public static final long UNKNOWN_SIZE = -1;
+
+  /** The fraction of the input rows assumed to satisfy a {@link Selection} filter */
+  private static final double SELECTIVITY = 1d/3;
+
+  /** The max number of rows sampled by {@link #estimateGroupCount(AggregationOperation)} */
+  private static final int DISTINCT_SAMPLE_SIZE = 1000;
+
+  /** The input relations, by name (used for size estimates) */
+  private final Map<String, Relation> inputs;
+
+  /**
+   * Creates an optimizer that doesn't know anything about the input relations, and therefore will only apply
+   * the rewrites that don't require size estimates.
+   */
+  public QueryOptimizer() {
+    this(Collections.<String, Relation>emptyMap());
+  }
+
+  /**
+   * @param inputs the input relations, by name (the sizes of the {@link MaterializedRelation} inputs will be used
+   * to estimate the cost of the subexpressions)
+   */
+  public QueryOptimizer(Map<String, Relation> inputs) {
+    this.inputs = inputs;
+  }
+
+  /**
+   * Applies all the available rewrites to the given expression.
+   * @return an expression that produces the same output schema and the same multiset of rows as the given expression
+   * (but the order of the rows is not guaranteed to be the same)
+   */
+  public RelationalExpression optimize(RelationalExpression expr) {
+    expr = foldConstants(expr);
+    expr = pushDownSelections(expr);
+    expr = reorderJoins(expr, true);
+    expr = pruneColumns(expr, null);
+    return expr;
+  }
+
+  // 1) constant folding
+
+  /**
+   * Simplifies the {@link Selection} filters in the given expression tree, and removes the selections
+   * that will always be {@code true}.
+   */
+  public RelationalExpression foldConstants(RelationalExpression expr) {
+    if (isSelection(expr)) {
+      Selection selection = (Selection)expr;
+      RelationalExpression input = foldConstants(selection.getInput());
+      Expression<Row, Boolean> filter = foldConstants(selection.getParams());
+      if (filter == ConstantPredicate.TRUE)
+        return input;
+      return withInput(selection, input, filter);
+    }
+    return withChildren(expr, this::foldConstants);
+  }
+
+  /**
+   * Evaluates the constant subexpressions of the given predicate.
+   * @return the simplified predicate, or the same instance if it can't be simplified
+   */
+  public static Expression<Row, Boolean> foldConstants(Expression<Row, Boolean> expr) {
+    if (expr instanceof CompoundRowPredicate) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)expr;
+      RowPredicate lhs = (RowPredicate)foldConstants(compound.getLHS());
+      RowPredicate rhs = (RowPredicate)foldConstants(compound.getRHS());
+      boolean isAnd = compound.getOperator() == BooleanBinaryOperator.AND;
+      // x AND TRUE = x; x AND FALSE = FALSE; x OR TRUE = TRUE; x OR FALSE = x
+      if (lhs instanceof ConstantPredicate)
+        return ((ConstantPredicate)lhs).getValue() == isAnd ? rhs : lhs;
+      if (rhs instanceof ConstantPredicate)
+        return ((ConstantPredicate)rhs).getValue() == isAnd ? lhs : rhs;
+      if (lhs == compound.getLHS() && rhs == compound.getRHS())
+        return compound;
+      if (compound.getClass() == And.class)
+        return new And(lhs, rhs);
+      if (compound.getClass() == Or.class)
+        return new Or(lhs, rhs);
+      if (compound.getClass() == CompoundRowPredicate.class)
+        return new CompoundRowPredicate(lhs, compound.getOperator(), rhs);
+      return compound;  // can't re-create an instance of an unknown subclass
+    }
+    if (expr instanceof ColValueIn && ((ColValueIn)expr).getChoices().isEmpty())
+      return ConstantPredicate.FALSE;
+    return expr;
+  }
+
+  // 2) selection push-down
+
+  /**
+   * Moves each {@link Selection} in the given expression tree as close as possible to the leaves.
+   * If a selection filter is a conjunction of predicates, each conjunct will be pushed down independently.
+   */
+  public RelationalExpression pushDownSelections(RelationalExpression expr) {
+    if (isSelection(expr)) {
+      Selection selection = (Selection)expr;
+      return pushDown(selection.getParams(), pushDownSelections(selection.getInput()));
+    }
+    return withChildren(expr, this::pushDownSelections);
+  }
+
+  /**
+   * @return an expression equivalent to a {@link Selection} of the given input using the given filter,
+   * where the filter has been pushed down as far as possible into the input expression tree.
+   */
+  private RelationalExpression pushDown(Expression<Row, Boolean> filter, RelationalExpression input) {
+    if (isSelection(input)) {
+      // commute with the other selection, to see if it can be pushed down further
+      Selection selection = (Selection)input;
+      return withInput(selection, pushDown(filter, selection.getInput()), selection.getParams());
+    }
+    else if (input.getClass() == Rename.class) {
+      Rename rename = (Rename)input;
+      Set<String> colNames = getReferencedColNames(filter);
+      if (colNames != null && !isAnyRenamed(rename, colNames))
+        return withInput(rename, pushDown(filter, rename.getInput()));
+    }
+    else if (isRebuildableJoin(input)) {
+      Join<?> join = (Join<?>)input;
+      List<Expression<Row, Boolean>> leftFilters = new ArrayList<>();
+      List<Expression<Row, Boolean>> rightFilters = new ArrayList<>();
+      List<Expression<Row, Boolean>> remainingFilters = new ArrayList<>();
+      for (Expression<Row, Boolean> conjunct : getConjuncts(filter)) {
+        Set<String> colNames = getReferencedColNames(conjunct);
+        boolean pushLeft = colNames != null && canPushToLHS(join, colNames);
+        boolean pushRight = colNames != null && canPushToRHS(join, colNames);
+        if (pushLeft)
+          leftFilters.add(conjunct);
+        if (pushRight)
+          rightFilters.add(conjunct);  // for inner joins, a predicate on a join column can go to both sides
+        if (!pushLeft && !pushRight)
+          remainingFilters.add(conjunct);
+      }
+      if (!leftFilters.isEmpty() || !rightFilters.isEmpty()) {
+        RelationalExpression lhs = join.getLHS();
+        RelationalExpression rhs = join.getRHS();
+        if (!leftFilters.isEmpty())
+          lhs = pushDown(conjunction(leftFilters), lhs);
+        if (!rightFilters.isEmpty())
+          rhs = pushDown(conjunction(rightFilters), rhs);
+        RelationalExpression ret = withInputs(join, lhs, rhs);
+        if (!remainingFilters.isEmpty())
+          ret = new Selection(ret, conjunction(remainingFilters));
+        return ret;
+      }
+    }
+    return new Selection(input, filter);
+  }
+
+  /**
+   * @return {@code true} iff the rows of the join's LHS not satisfying a predicate on the given columns
+   * can be filtered out before the join without changing its result.
+   */
+  private static boolean canPushToLHS(Join<?> join, Set<String> colNames) {
+    Join.Type type = join.getParams().getType();
+    if (type != Join.Type.INNER && type != Join.Type.LEFT_OUTER)
+      return false;  // the LHS rows must be preserved
+    RelationSchema lhSchema = join.getLHSchema();
+    for (String name : colNames) {
+      // NOTE: a join output column that's present in both inputs is taken from the LHS (unless it's a right outer join)
+      if (!lhSchema.contains(name))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} iff the rows of the join's RHS not satisfying a predicate on the given columns
+   * can be filtered out before the join without changing its result.
+   */
+  private static boolean canPushToRHS(Join<?> join, Set<String> colNames) {
+    Join.Type type = join.getParams().getType();
+    if (type != Join.Type.INNER && type != Join.Type.RIGHT_OUTER)
+      return false;  // the RHS rows must be preserved
+    RelationSchema lhSchema = join.getLHSchema();
+    RelationSchema rhSchema = join.getRHSchema();
+    for (String name : colNames) {
+      if (!rhSchema.contains(name))
+        return false;
+      if (type == Join.Type.INNER && lhSchema.contains(name)) {
+        // the output column is taken from the LHS, but it's OK if it's a join column, since both values will be equal
+        if (!(join instanceof EquiJoin) || !name.equals(((EquiJoin)join).getParams().getColNameCorrespondence().get(name)))
+          return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAnyRenamed(Rename rename, Set<String> colNames) {
+    Rename.Params params = rename.getParams();
+    for (String name : colNames) {
+      if (!name.equals(params.getOldAttributeName(name)) || !name.equals(params.getNewAttributeName(name)))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the operands of the given filter if it's a conjunction, otherwise a singleton list containing the filter
+   */
+  private static List<Expression<Row, Boolean>> getConjuncts(Expression<Row, Boolean> filter) {
+    List<Expression<Row, Boolean>> ret = new ArrayList<>();
+    addConjuncts(filter, ret);
+    return ret;
+  }
+
+  private static void addConjuncts(Expression<Row, Boolean> filter, List<Expression<Row, Boolean>> conjuncts) {
+    if (filter instanceof CompoundRowPredicate && ((CompoundRowPredicate)filter).getOperator() == BooleanBinaryOperator.AND) {
+      CompoundRowPredicate and = (CompoundRowPredicate)filter;
+      addConjuncts(and.getLHS(), conjuncts);
+      addConjuncts(and.getRHS(), conjuncts);
+    }
+    else
+      conjuncts.add(filter);
+  }
+
+  /**
+   * Combines the given conjuncts (obtained from {@link #getConjuncts(Expression)}) with {@link And}.
+   */
+  private static Expression<Row, Boolean> conjunction(List<Expression<Row, Boolean>> conjuncts) {
+    Iterator<Expression<Row, Boolean>> it = conjuncts.iterator();
+    Expression<Row, Boolean> ret = it.next();
+    while (it.hasNext()) {
+      // if there are multiple conjuncts, they must have come from a CompoundRowPredicate, so all of them are RowPredicates
+      ret = new And((RowPredicate)ret, (RowPredicate)it.next());
+    }
+    return ret;
+  }
+
+  /**
+   * @return the names of the columns used by the given expression to compute its value, or {@code null}
+   * if they can't be determined for this type of expression.
+   */
+  public static Set<String> getReferencedColNames(Expression<Row, ?> expr) {
+    if (expr instanceof ColValuePredicate)
+      return Collections.singleton(((ColValuePredicate)expr).getColName());
+    if (expr instanceof ColRef)
+      return Collections.singleton(((ColRef)expr).getColSpec().getName());
+    if (expr instanceof ConstantPredicate)
+      return Collections.emptySet();
+    if (expr instanceof CompoundRowPredicate) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)expr;
+      Set<String> lhsNames = getReferencedColNames(compound.getLHS());
+      Set<String> rhsNames = getReferencedColNames(compound.getRHS());
+      if (lhsNames == null || rhsNames == null)
+        return null;
+      return ImmutableSet.<String>builder().addAll(lhsNames).addAll(rhsNames).build();
+    }
+    return null;
+  }
+
+  // 3) join reordering
+
+  /**
+   * Swaps the inputs of the inner equi-joins in the given expression tree whose LHS is estimated to be smaller
+   * than the RHS, in order to minimize the size of the hash tables built for the join.
+   * <p>
+   * Swapping the inputs of a join changes the order of the columns in its output schema, so this will only be
+   * done for joins whose output column order doesn't affect the final output of the query (e.g. joins under a
+   * {@link Projection}).  It also changes the order of the join's output rows, so the rows of a query that doesn't
+   * specify a sort order might be produced in a different order than without this rewrite.
+   * <p>
+   * A join is also left as-is if its inputs have a column of the same name that isn't matched to itself by the
+   * join condition, because the value of such a column is taken from the LHS of the join
+   * (see {@link Join#createColSpec(String)}), so it would change if the inputs were swapped.
+   *
+   * @param preserveColOrder whether the order of the columns output by the given expression affects the final
+   * result of the query (should be {@code true} for the root of the query expression tree)
+   */
+  public RelationalExpression reorderJoins(RelationalExpression expr, boolean preserveColOrder) {
+    if (isRebuildableJoin(expr)) {
+      Join<?> join = (Join<?>)expr;
+      RelationalExpression lhs = reorderJoins(join.getLHS(), preserveColOrder);
+      RelationalExpression rhs = reorderJoins(join.getRHS(), preserveColOrder);
+      if (!preserveColOrder && join instanceof EquiJoin && join.getParams().getType() == Join.Type.INNER
+          && isSymmetric((EquiJoin)join)) {
+        long lhsSize = estimateSize(lhs);
+        long rhsSize = estimateSize(rhs);
+        if (lhsSize != UNKNOWN_SIZE && rhsSize != UNKNOWN_SIZE && lhsSize < rhsSize) {
+          if (join.getClass() == NaturalJoin.class)
+            return new NaturalJoin(rhs, lhs, Join.Type.INNER);
+          EquiJoin.Params params = ((EquiJoin)join).getParams();
+          return new EquiJoin(rhs, lhs, new EquiJoin.Params(Join.Type.INNER, params.getColNameCorrespondence().inverse()));
+        }
+      }
+      return withInputs(join, lhs, rhs);
+    }
+    if (expr instanceof UnaryOperation) {
+      boolean inputColOrderMatters;
+      if (expr instanceof Projection || expr instanceof AggregationOperation)
+        inputColOrderMatters = false;  // these operations access their input columns by name
+      else if (expr instanceof ExtendedProjection)
+        inputColOrderMatters = preserveColOrder && getRequiredColNames((ExtendedProjection)expr) == null;
+      else
+        inputColOrderMatters = preserveColOrder;
+      return withChildren(expr, input -> reorderJoins(input, inputColOrderMatters));
+    }
+    return withChildren(expr, input -> reorderJoins(input, preserveColOrder));
+  }
+
+  /**
+   * @return {@code true} iff every column name shared by both inputs of the given join is matched to itself
+   * by the join condition (which is always the case for a {@link NaturalJoin}), i.e. the output values of an inner
+   * join don't depend on which input is the LHS.
+   */
+  private static boolean isSymmetric(EquiJoin join) {
+    if (join instanceof NaturalJoin)
+      return true;
+    Map<String, String> colNameCorrespondence = join.getParams().getColNameCorrespondence();
+    RelationSchema rhSchema = join.getRHSchema();
+    for (String name : join.getLHSchema().getColNames()) {
+      if (rhSchema.contains(name) && !name.equals(colNameCorrespondence.get(name)))
+        return false;
+    }
+    return true;
+  }
+
+  // 4) column pruning
+
+  /**
+   * Removes the columns that aren't used by the rest of the query from the inputs of the joins in the given
+   * expression tree, when the cost of the added {@link Projection} is estimated to be lower than the cost of
+   * copying the unused columns into every output row of the join.
+   *
+   * @param requiredColNames the output columns of the given expression that are used by the rest of the query,
+   * or {@code null} if all of them are needed.
+   */
+  public RelationalExpression pruneColumns(RelationalExpression expr, Set<String> requiredColNames) {
+    if (expr instanceof RelationalValue)
+      return expr;
+    if (isRebuildableJoin(expr)) {
+      Join<?> join = (Join<?>)expr;
+      Set<String> joinColNames = getJoinColNames(join);
+      RelationalExpression lhs = pruneJoinInput(join, join.getLHS(), requiredColNames, joinColNames);
+      RelationalExpression rhs = pruneJoinInput(join, join.getRHS(), requiredColNames, joinColNames);
+      return withInputs(join, lhs, rhs);
+    }
+    if (expr instanceof UnaryOperation) {
+      Set<String> inputColNames = getRequiredInputColNames((UnaryOperation)expr, requiredColNames);
+      return withChildren(expr, input -> pruneColumns(input, inputColNames));
+    }
+    return withChildren(expr, input -> pruneColumns(input, null));
+  }
+
+  private RelationalExpression pruneJoinInput(Join<?> join, RelationalExpression input,
+                                              Set<String> requiredColNames, Set<String> joinColNames) {
+    RelationSchema inputSchema = input.getOutputSchema();
+    List<String> keptColNames = new ArrayList<>();
+    for (String name : inputSchema.getColNames()) {
+      if (requiredColNames == null || requiredColNames.contains(name) || joinColNames.contains(name))
+        keptColNames.add(name);
+    }
+    input = pruneColumns(input, new LinkedHashSet<>(keptColNames));
+    int nPruned = inputSchema.size() - keptColNames.size();
+    if (nPruned > 0) {
+      // the projection copies the kept columns of each input row, whereas the join copies every column of its input rows into each output row
+      long inputSize = estimateSize(input);
+      long outputSize = estimateSize(join);
+      if (inputSize == UNKNOWN_SIZE || outputSize == UNKNOWN_SIZE)
+        inputSize = outputSize = 1;  // assume that the join produces about as many rows as its input
+      if ((double)nPruned * outputSize > (double)keptColNames.size() * inputSize)
+        return new Projection(input, keptColNames);
+    }
+    return input;
+  }
+
+  /**
+   * @return the names of the columns used by the join condition (in both inputs)
+   */
+  private static Set<String> getJoinColNames(Join<?> join) {
+    if (join instanceof EquiJoin) {
+      Map<String, String> colNameCorrespondence = ((EquiJoin)join).getParams().getColNameCorrespondence();
+      return ImmutableSet.<String>builder().addAll(colNameCorrespondence.keySet()).addAll(colNameCorrespondence.values()).build();
+    }
+    return Collections.emptySet();
+  }
+
+  /**
+   * @param requiredColNames the output columns of the given operation used by the rest of the query,
+   * or {@code null} if all of them are needed.
+   * @return the input columns needed by the given operation to produce the required output columns,
+   * or {@code null} if all of them are needed.
+   */
+  private static Set<String> getRequiredInputColNames(UnaryOperation op, Set<String> requiredColNames) {
+    if (op instanceof Projection)
+      return new LinkedHashSet<>(((Projection)op).getParams());
+    if (op instanceof ExtendedProjection)
+      return getRequiredColNames((ExtendedProjection)op);
+    if (op instanceof AggregationOperation)
+      return getRequiredColNames((AggregationOperation)op);
+    if (requiredColNames == null)
+      return null;
+    if (op instanceof Selection) {
+      Set<String> filterColNames = getReferencedColNames(((Selection)op).getParams());
+      if (filterColNames == null)
+        return null;
+      return ImmutableSet.<String>builder().addAll(requiredColNames).addAll(filterColNames).build();
+    }
+    if (op instanceof Rename) {
+      Rename.Params params = ((Rename)op).getParams();
+      Set<String> ret = new LinkedHashSet<>();
+      for (String name : requiredColNames)
+        ret.add(params.getOldAttributeName(name));
+      return ret;
+    }
+    if (op instanceof Window)
+      return getRequiredInputColNames((Window)op, requiredColNames);
+    return null;
+  }
+
+  /**
+   * @return the input columns needed by the given window operation to produce the required output columns
+   */
+  private static Set<String> getRequiredInputColNames(Window op, Set<String> requiredColNames) {
+    Window.Params params = op.getParams();
+    Map<String, WindowFunction<?>> functionsByName = params.getFunctionsByName();
+    Set<String> ret = new LinkedHashSet<>();
+    for (String name : requiredColNames) {
+      if (!functionsByName.containsKey(name))
+        ret.add(name);
+    }
+    WindowSpec windowSpec = params.getWindowSpec();
+    ret.addAll(windowSpec.getPartitionBy());
+    for (SortOrder sortOrder : windowSpec.getOrderBy())
+      ret.add(sortOrder.getName());
+    for (WindowFunction<?> function : functionsByName.values())
+      ret.addAll(function.getInputColNames());
+    return ret;
+  }
+
+  /**
+   * @return the names of the input columns used by the given operation,
+   * or {@code null} if they can't be determined or if the operation uses all of its input columns
+   */
+  private static Set<String> getRequiredColNames(ExtendedProjection op) {
+    Set<String> ret = new LinkedHashSet<>();
+    for (Map.Entry<String, Expression<Row, ?>> entry : op.getParams().entrySet()) {
+      String name = entry.getKey();
+      Expression<Row, ?> expr = entry.getValue();
+      if ("*".equals(name))
+        return null;
+      if (expr == null)
+        ret.add(name);
+      else {
+        Set<String> exprColNames = getReferencedColNames(expr);
+        if (exprColNames == null)
+          return null;  // the expression might access any of the columns, perhaps even by index
+        ret.addAll(exprColNames);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return the names of the input columns used by the given operation,
+   * or {@code null} if they can't be determined
+   */
+  public static Set<String> getRequiredColNames(AggregationOperation op) {
+    AggregationOperation.Params params = op.getParams();
+    Set<String> ret = new LinkedHashSet<>(params.getGroupingAttrs());
+    for (AggregationSpec aggSpec : params.getAggregationsByName().values()) {
+      if (RowAggregation.class.isAssignableFrom(aggSpec.getType())) {
+        if (aggSpec.getType() != Count.class)
+          return null;  // might use any of the columns
+      }
+      else
+        ret.add(aggSpec.getInputAttrName());
+    }
+    return ret;
+  }
+
+  // cost estimates
+
+  /**
+   * Estimates the number of rows that will be produced by the given expression.
+   * @return the estimated number of rows, or {@link #UNKNOWN_SIZE} if it can't be estimated because the size
+   * of one of the input relations is unknown.
+   */
+  public long estimateSize(RelationalExpression expr) {
+    if (expr instanceof RelationalValue) {
+      Relation relation = inputs.get(expr.getOutputSchema().getName());
+      if (relation instanceof MaterializedRelation)
+        return ((MaterializedRelation)relation).size();
+      return UNKNOWN_SIZE;
+    }
+    if (expr instanceof UnaryOperation) {
+      long inputSize = estimateSize(((UnaryOperation)expr).getInput());
+      if (inputSize == UNKNOWN_SIZE)
+        return UNKNOWN_SIZE;
+      if (expr instanceof Selection) {
+        if (((Selection)expr).getParams() == ConstantPredicate.FALSE)
+          return 0;
+        return (long)Math.ceil(inputSize * SELECTIVITY);
+      }
+      if (expr instanceof AggregationOperation && ((AggregationOperation)expr).getParams().getGroupingAttrs().isEmpty())
+        return 1;
+      return inputSize;
+    }
+    if (expr instanceof Join) {
+      Join<?> join = (Join<?>)expr;
+      long lhsSize = estimateSize(join.getLHS());
+      long rhsSize = estimateSize(join.getRHS());
+      if (lhsSize == UNKNOWN_SIZE || rhsSize == UNKNOWN_SIZE)
+        return UNKNOWN_SIZE;
+      if (!(join instanceof EquiJoin))
+        return lhsSize * rhsSize;
+      if (join.getParams().getType() == Join.Type.FULL_OUTER)
+        return lhsSize + rhsSize;
+      // assume that the join columns are a key in the smaller input (i.e. a foreign key in the larger one)
+      return Math.max(lhsSize, rhsSize);
+    }
+    return UNKNOWN_SIZE;
+  }
+
+  /**
+   * Estimates the number of distinct grouping keys (i.e. the number of output rows) of the given aggregation.
+   * <p>
+   * If the grouping columns can be traced (through any selections, projections, and joins) to a
+   * {@link MaterializedRelation} input, the estimate is derived from a sample of that relation's rows using
+   * the "Duj1" estimator of Haas and Stokes (the same one used by PostgreSQL's {@code ANALYZE}).
+   * Otherwise it's assumed that every input row is a separate group.
+   *
+   * @return the estimated number of groups, or {@link #UNKNOWN_SIZE} if the size of the input can't be estimated
+   */
+  public long estimateGroupCount(AggregationOperation op) {
+    Set<String> groupingAttrs = op.getParams().getGroupingAttrs();
+    if (groupingAttrs.isEmpty())
+      return 1;
+    long inputSize = estimateSize(op.getInput());
+    if (inputSize == UNKNOWN_SIZE)
+      return UNKNOWN_SIZE;
+    MaterializedRelation source = findSource(op.getInput(), groupingAttrs);
+    if (source == null)
+      return inputSize;
+    return Math.min(inputSize, estimateDistinct(source, groupingAttrs));
+  }
+
+  /**
+   * @return the input relation that contains the given columns of the given expression's output
+   * (with the same names and values), or {@code null} if it can't be determined or it's not a {@link MaterializedRelation}
+   */
+  private MaterializedRelation findSource(RelationalExpression expr, Set<String> colNames) {
+    if (expr instanceof RelationalValue) {
+      Relation relation = inputs.get(expr.getOutputSchema().getName());
+      return relation instanceof MaterializedRelation ? (MaterializedRelation)relation : null;
+    }
+    if (expr instanceof Selection || expr instanceof Projection
+        || (expr instanceof Rename && !isAnyRenamed((Rename)expr, colNames))
+        || (expr instanceof Window && Collections.disjoint(((Window)expr).getParams().getFunctionsByName().keySet(), colNames)))
+      return findSource(((UnaryOperation)expr).getInput(), colNames);
+    if (expr instanceof Join) {
+      // the values of these columns in the join's output are a subset of their values in the input that has all of them
+      for (RelationalExpression input : Arrays.asList(((Join<?>)expr).getLHS(), ((Join<?>)expr).getRHS())) {
+        if (input.getOutputSchema().getColNames().containsAll(colNames))
+          return findSource(input, colNames);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Estimates the number of distinct values of the given columns in the given relation from a sample of
+   * at most {@link #DISTINCT_SAMPLE_SIZE} rows.
+   * <p>
+   * If the relation is an {@link AppendOnlyRelation}, the sample is taken while holding its lock, so that it can't
+   * be modified by a concurrent append.
+   */
+  static long estimateDistinct(MaterializedRelation relation, Set<String> colNames) {
+    if (relation instanceof AppendOnlyRelation) {
+      synchronized (relation) {
+        return estimateDistinct(relation.getRows(), colNames);
+      }
+    }
+    return estimateDistinct(relation.getRows(), colNames);
+  }
+
+  private static long estimateDistinct(List<Row> rows, Set<String> colNames) {
+    List<String> keyColNames = new ArrayList<>(colNames);
+    int n = rows.size();
+    int stride = Math.max(1, n / DISTINCT_SAMPLE_SIZE);
+    Map<List<Object>, Integer> sampleCounts = new HashMap<>();
+    int sampleSize = 0;
+    // the rows of a materialized relation support random access, so the sample can be taken without scanning all of them
+    for (int i = 0; i < n; i += stride) {
+      sampleCounts.merge(rows.get(i).getValues(keyColNames), 1, Integer::sum);
+      sampleSize++;
+    }
+    if (sampleSize == n)
+      return sampleCounts.size();  // exact
+    // Duj1: n*d / (n - f1 + f1*n/N), where n is the sample size, N is the total number of rows, d is the number
+    // of distinct values in the sample, and f1 is the number of values that occurred only once in the sample
+    int f1 = 0;
+    for (int count : sampleCounts.values()) {
+      if (count == 1)
+        f1++;
+    }
+    double d = sampleCounts.size();
+    return Math.round(sampleSize * d / (sampleSize - f1 + (double)f1 * sampleSize / n));
+  }
+
+  // helper methods for rebuilding the expression tree
+
+  private static boolean isSelection(RelationalExpression expr) {
+    return expr.getClass() == Selection.class;
+  }
+
+  private static boolean isRebuildableJoin(RelationalExpression expr) {
+    Class<? extends RelationalExpression> cls = expr.getClass();
+    return cls == EquiJoin.class || cls == NaturalJoin.class || cls == CrossJoin.class;
+  }
+
+  /**
+   * Applies the given function to each input of the given operation, and creates a new instance of the operation
+   * with the transformed inputs (if any of them changed).  Operation subclasses that can't be re-instantiated
+   * are returned as-is.
+   */
+  private static RelationalExpression withChildren(RelationalExpression expr, java.util.function.Function<RelationalExpression, RelationalExpression> transform) {
+    if (expr instanceof UnaryOperation) {
+      UnaryOperation op = (UnaryOperation)expr;
+      if (!isRebuildable(op))
+        return op;
+      return withInput(op, transform.apply(op.getInput()));
+    }
+    if (isRebuildableJoin(expr)) {
+      Join<?> join = (Join<?>)expr;
+      return withInputs(join, transform.apply(join.getLHS()), transform.apply(join.getRHS()));
+    }
+    return expr;
+  }
+
+  private static boolean isRebuildable(UnaryOperation op) {
+    Class<? extends UnaryOperation> cls = op.getClass();
+    return cls == Selection.class || cls == Projection.class || cls == ExtendedProjection.class
+        || cls == Rename.class || cls == AggregationOperation.class || cls == Window.class;
+  }
+
+  /**
+   * @return a copy of the given {@link Selection} with the given input and filter (or the same instance if they
+   * haven't changed)
+   */
+  private static RelationalExpression withInput(Selection selection, RelationalExpression input, Expression<Row, Boolean> filter) {
+    if (input == selection.getInput() && filter == selection.getParams())
+      return selection;
+    return new Selection(input, filter);
+  }
+
+  /**
+   * @return a copy of the given operation with the given input (or the same instance if the input hasn't changed)
+   */
+  @SuppressWarnings("unchecked")
+  private static RelationalExpression withInput(UnaryOperation op, RelationalExpression input) {
+    if (input == op.getInput())
+      return op;
+    if (op instanceof Selection)
+      return new Selection(input, ((Selection)op).getParams());
+    if (op instanceof Projection)
+      return new Projection(input, ((Projection)op).getParams());
+    if (op instanceof ExtendedProjection)
+      return new ExtendedProjection(input, ((ExtendedProjection)op).getParams());
+    if (op instanceof Rename) {
+      // the output name of a Rename is inherited from its input unless specified, so we have to make sure that it doesn't change
+      Rename rename = (Rename)op;
+      return new Rename(input, rename.getOutputSchema().getName(), rename.getParams().getOldToNewAttrMap());
+    }
+    if (op instanceof AggregationOperation)
+      return new AggregationOperation(input, ((AggregationOperation)op).getParams());
+    if (op instanceof Window)
+      return new Window(input, ((Window)op).getParams());
+    throw new IllegalArgumentException(op.getClass().getName());
+  }
+
+  /**
+   * @return a copy of the given join with the given inputs (or the same instance if the inputs haven't changed)
+   */
+  private static RelationalExpression withInputs(Join<?> join, RelationalExpression lhs, RelationalExpression rhs) {
+    if (lhs == join.getLHS() && rhs == join.getRHS())
+      return join;
+    if (join instanceof NaturalJoin)
+      return new NaturalJoin(lhs, rhs, join.getParams().getType());
+    if (join instanceof EquiJoin)
+      return new EquiJoin(lhs, rhs, ((EquiJoin)join).getParams());
+    if (join instanceof CrossJoin)
+      return new CrossJoin(lhs, rhs);
+    throw new IllegalArgumentException(join.getClass().getName());
+  }
+
+}
@@ -122,5 +122,21 @@ public class Rename extends StreamableUnaryOperation<Rename.Params> {
       return name;
     }
 
+    /**
+     * @return the mapping of original attribute names to their new names (contains only the renamed attributes)
+     */
+    public BiMap<String, String> getOldToNewAttrMap() {
+      return oldToNewAttrMap;
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder();
+      if (newRelationName != null)
+        sb.append(newRelationName).append(' ');
+      sb.append(oldToNewAttrMap);
+      return sb.toString();
+    }
+
   }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.algebra;
+
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.server.memquery.window.WindowFunction;
+import solutions.trsoftware.commons.server.memquery.window.WindowSpec;
+import solutions.trsoftware.commons.shared.util.CollectionUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The window operation: appends a column to each input row for each of a set of {@link WindowFunction}s,
+ * which are evaluated over the partition containing that row (as defined by a common {@link WindowSpec}).
+ * <p>
+ * The output has the same rows as the input, but ordered by the partitioning columns and the window's sort orders.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class Window extends UnaryOperation<Window.Params> {
+
+  public Window(RelationalExpression input, Params params) {
+    super(input, params);
+  }
+
+  @Override
+  protected Iterable<String> getOutputColNames() {
+    return CollectionUtils.concat(getInputSchema().getColNames(), params.functionsByName.keySet());
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected ColSpec createColSpec(String name) {
+    WindowFunction<?> function = params.functionsByName.get(name);
+    if (function != null)
+      return new NameAccessorColSpec(name, function.getValueType(getInputSchema()));
+    return new NameAccessorColSpec(getInputSchema().get(name));
+  }
+
+  /**
+   * The parameters of the window operation: the window spec and the functions evaluated over it,
+   * mapped by their output column names.
+   */
+  public static class Params {
+
+    private final WindowSpec windowSpec;
+
+    private final Map<String, WindowFunction<?>> functionsByName;
+
+    public Params(WindowSpec windowSpec, Map<String, WindowFunction<?>> functionsByName) {
+      this.windowSpec = windowSpec;
+      this.functionsByName = Collections.unmodifiableMap(new LinkedHashMap<>(functionsByName));
+    }
+
+    public WindowSpec getWindowSpec() {
+      return windowSpec;
+    }
+
+    public Map<String, WindowFunction<?>> getFunctionsByName() {
+      return functionsByName;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      for (Map.Entry<String, WindowFunction<?>> entry : functionsByName.entrySet()) {
+        if (sb.length() > 0)
+          sb.append(", ");
+        sb.append(entry.getValue());
+        if (!entry.getKey().equals(entry.getValue().toString()))
+          sb.append(" AS ").append(entry.getKey());
+      }
+      return sb.append(" OVER (").append(windowSpec).append(')').toString();
+    }
+  }
+
+}
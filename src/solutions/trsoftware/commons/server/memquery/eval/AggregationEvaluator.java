@@ -16,90 +16,673 @@
 
 package solutions.trsoftware.commons.server.memquery.eval;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation.Column;
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation.NumericColumn;
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation.StringColumn;
 import solutions.trsoftware.commons.server.memquery.aggregations.Aggregation;
+import solutions.trsoftware.commons.server.memquery.aggregations.ApproxPercentile;
+import solutions.trsoftware.commons.server.memquery.aggregations.ColStats;
 import solutions.trsoftware.commons.server.memquery.aggregations.RowAggregation;
 import solutions.trsoftware.commons.server.memquery.algebra.AggregationOperation;
-import solutions.trsoftware.commons.server.util.Duration;
+import solutions.trsoftware.commons.server.memquery.algebra.Projection;
+import solutions.trsoftware.commons.server.memquery.algebra.QueryOptimizer;
+import solutions.trsoftware.commons.server.memquery.algebra.RelationalValue;
 import solutions.trsoftware.commons.shared.util.iterators.MapEntryTransformingIterator;
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
 
+import java.io.Closeable;
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * An evaluator for the aggregation operation.  Needs to process the entire input relation prior to emitting
  * any rows of the output relation.
+ * <p>
+ * If {@linkplain #setParallelThreshold(int) enabled}, all the aggregations implement {@link Mergeable}, and the input
+ * has at least {@link #getParallelThreshold()} rows, the input will be split into chunks that are aggregated in parallel (using a {@link ForkJoinPool}) into
+ * separate groups, which are then merged.  A {@link MaterializedRelation} input is split recursively, while a
+ * streaming input is consumed by the calling thread and handed off to the pool in fixed-size batches.
+ * In either case, the output groups are listed in the same order as they would be with sequential evaluation
+ * (i.e. by the first occurrence of each grouping key in the input).
+ * <p>
+ * A {@link ColumnarRelation} input is aggregated directly from its column arrays, without instantiating its rows,
+ * and a sequential aggregation of a {@link BatchedRelation} input consumes it a {@link RowBatch} at a time.
+ * <p>
+ * All of the above applies to the default {@link GroupingStrategy#HASH} strategy; for groupings with a very
+ * large number of distinct keys, the {@link GroupingStrategy#SORT} strategy can be used instead, to limit
+ * the memory usage.
  *
  * @author Alex, 1/15/14
  */
 public class AggregationEvaluator extends UnaryOperationEvaluator<AggregationOperation, Relation, StreamingRelation> {
 
+  /** The default value of {@link #getParallelThreshold()} (unlimited, i.e. parallel evaluation is disabled) */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = Integer.MAX_VALUE;
+
+  /** The smallest number of rows that will be aggregated by a single task when running in parallel */
+  private static final int MIN_CHUNK_SIZE = 10_000;
+
+  private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+  private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+  private GroupingStrategy groupingStrategy = GroupingStrategy.HASH;
+
+  private int sortMemoryBudget = RowSorter.DEFAULT_MEMORY_BUDGET;
+
+  /**
+   * The algorithms for grouping the input rows.
+   */
+  public enum GroupingStrategy {
+    /**
+     * Looks up the group of each input row in a hash table, which has to hold all the groups in memory until the input
+     * has been fully consumed.  The output groups are listed in the order of the first occurrence of each grouping key
+     * in the input.
+     */
+    HASH,
+    /**
+     * Sorts the input by the grouping columns with a {@link RowSorter} (which spills sorted runs to temp files
+     * if the input exceeds the {@linkplain #setSortMemoryBudget(int) memory budget}), and then aggregates the runs of
+     * adjacent rows that have the same grouping key, one group at a time.  The output groups are listed in the
+     * order of their grouping keys.
+     * <p>
+     * This is slower than {@link #HASH}, but uses bounded memory, so it's better suited for groupings with
+     * a very large number of distinct keys.  Requires all the grouping columns to be {@link Comparable}, and
+     * all the input columns used by the aggregation to be {@link Serializable} (otherwise falls back to {@link #HASH}).
+     * Only the columns used by the aggregation are spilled to disk.
+     */
+    SORT
+  }
 
   public AggregationEvaluator(AggregationOperation op, RelationalEvaluator<Relation> inputEvaluator) {
     super(op, inputEvaluator);
   }
 
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+
+  /**
+   * @param pool will be used for parallel evaluation (the default is {@link ForkJoinPool#commonPool()})
+   * @return this instance, for method chaining
+   */
+  public AggregationEvaluator setPool(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  /**
+   * @param parallelThreshold inputs with fewer rows than this will be aggregated sequentially by the calling thread
+   * (e.g. {@code 100_000}); the default is {@link #DEFAULT_PARALLEL_THRESHOLD}, which disables parallel evaluation
+   * @return this instance, for method chaining
+   */
+  public AggregationEvaluator setParallelThreshold(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+    return this;
+  }
+
+  public GroupingStrategy getGroupingStrategy() {
+    return groupingStrategy;
+  }
+
+  /**
+   * @param groupingStrategy the algorithm to use for grouping the input rows (the default is {@link GroupingStrategy#HASH})
+   * @return this instance, for method chaining
+   */
+  public AggregationEvaluator setGroupingStrategy(GroupingStrategy groupingStrategy) {
+    this.groupingStrategy = Objects.requireNonNull(groupingStrategy);
+    return this;
+  }
+
+  public int getSortMemoryBudget() {
+    return sortMemoryBudget;
+  }
+
+  /**
+   * @param sortMemoryBudget the max number of rows to hold in memory while sorting the input for the
+   * {@link GroupingStrategy#SORT} strategy
+   * @return this instance, for method chaining
+   * @see RowSorter#setMemoryBudget(int)
+   */
+  public AggregationEvaluator setSortMemoryBudget(int sortMemoryBudget) {
+    this.sortMemoryBudget = sortMemoryBudget;
+    return this;
+  }
+
   @Override
   public StreamingRelation call(Relation input) {
+    if (groupingStrategy == GroupingStrategy.SORT && !op.getParams().getGroupingAttrs().isEmpty()
+        && canGroupBySorting(input.getSchema()))
+      return aggregateSorted(input);
     // 1) process the input rows, grouping and aggregating accordingly
-    List<String> groupingAttrs = new ArrayList<String>(op.getParams().getGroupingAttrs());
+    GroupingMap groups;
+    boolean parallel = isMergeable() && pool.getParallelism() > 1 && parallelThreshold != Integer.MAX_VALUE;
+    if (input instanceof ColumnarRelation) {
+      // fast path: read the values directly from the column arrays
+      ColumnarRelation columnarInput = (ColumnarRelation)input;
+      RangeAggregator aggregator = (from, to) -> new ColumnarAggregator(columnarInput).aggregate(from, to);
+      if (parallel && columnarInput.size() >= parallelThreshold)
+        groups = aggregateInParallel(aggregator, columnarInput.size());
+      else
+        groups = aggregator.aggregate(0, columnarInput.size());
+    }
+    else if (parallel) {
+      if (input instanceof MaterializedRelation) {
+        List<Row> rows = ((MaterializedRelation)input).getRows();
+        if (rows.size() >= parallelThreshold)
+          groups = aggregateInParallel(rows);
+        else
+          groups = aggregate(rows.iterator());
+      }
+      else
+        groups = aggregateInBatches(input.iterator());
+    }
+    else if (input instanceof BatchedRelation)
+      groups = aggregateBatches(((BatchedRelation)input).batchIterator());
+    else
+      groups = aggregate(input.iterator());
+
+    if (stats != null)
+      stats.updatePeakTableSize(groups.size());
+    // 2) produce the output relation
+    return createOutput(groups);
+  }
+
+  /**
+   * @return the output relation, which has a row for each of the given groups
+   */
+  private StreamingRelation createOutput(GroupingMap groups) {
+    return toOutputRelation(op.getOutputSchema(),
+        new MapEntryTransformingIterator<List<Object>, Aggregation[], Row>(groups) {
+          @Override
+          public Row transformEntry(List<Object> key, Aggregation[] value) {
+            return createOutputRow(key, value);
+          }
+        }
+    );
+  }
+
+  /**
+   * @return the output row for a group
+   */
+  private Row createOutputRow(List<Object> groupingKey, Aggregation[] aggs) {
+    MutableRow ret = RowFactory.getInstance().newRow(op.getOutputSchema());
+    int i = 0;
+    for (Object val : groupingKey)
+      ret.setValue(i++, val);
+    for (Aggregation agg : aggs)
+      ret.setValue(i++, agg.get());
+    return ret;
+  }
+
+  /**
+   * Instantiates the aggregations for a new group.
+   */
+  private Aggregation[] newAggregations() {
+    return op.createAggregations().values().toArray(new Aggregation[0]);
+  }
+
+  /**
+   * @return {@code true} iff all the grouping columns of the given input schema have comparable values,
+   * and all the columns that might be spilled to disk have serializable values
+   * (which is required by the {@link GroupingStrategy#SORT} strategy)
+   */
+  private boolean canGroupBySorting(RelationSchema inputSchema) {
+    for (String attr : op.getParams().getGroupingAttrs()) {
+      Class type = inputSchema.get(attr).getType();
+      if (!(type.isPrimitive() || Comparable.class.isAssignableFrom(type)))
+        return false;
+    }
+    Set<String> spilledColNames = QueryOptimizer.getRequiredColNames(op);
+    for (String name : spilledColNames != null ? spilledColNames : inputSchema.getColNames()) {
+      Class type = inputSchema.get(name).getType();
+      if (!(type.isPrimitive() || Serializable.class.isAssignableFrom(type)))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Implements the {@link GroupingStrategy#SORT} strategy: sorts the input by the grouping columns, and then
+   * aggregates each run of adjacent rows that have the same grouping key.
+   * @return the output relation, whose rows are ordered by their grouping key; it should be
+   * {@linkplain StreamingRelation#close() closed} if it's abandoned before all its rows have been consumed,
+   * to delete the sorted runs that might have been spilled to disk
+   */
+  private StreamingRelation aggregateSorted(Relation input) {
+    List<SortOrder> sortOrders = new ArrayList<>();
+    for (String attr : op.getParams().getGroupingAttrs())
+      sortOrders.add(new SortOrder(attr));
+    RelationSchema schema = input.getSchema();
+    Iterator<Row> rows = input.iterator();
+    Set<String> usedColNames = QueryOptimizer.getRequiredColNames(op);
+    if (usedColNames != null && usedColNames.size() < schema.size()) {
+      // drop the columns not used by the aggregation, so they don't have to be spilled to disk
+      Projection projection = new Projection(new RelationalValue(schema), new ArrayList<>(usedColNames));
+      schema = projection.getOutputSchema();
+      rows = Iterators.transform(rows, projection::call);
+    }
+    RowSorter.SortedIterator sortedRows = new RowSorter(schema, sortOrders).setMemoryBudget(sortMemoryBudget)
+        .sort(rows, Integer.MAX_VALUE);
+    return toOutputRelation(op.getOutputSchema(), new SortedGroupIterator(sortedRows));
+  }
+
+  /**
+   * Emits an output row for each run of adjacent input rows that have the same grouping key, so only one group
+   * has to be kept in memory at any given time.
+   * Closing this iterator closes the underlying {@link RowSorter.SortedIterator}.
+   */
+  private class SortedGroupIterator extends AbstractIterator<Row> implements Closeable {
+    private final RowSorter.SortedIterator sorter;
+    private final PeekingIterator<Row> sortedRows;
+    private final Aggregator aggregator = new Aggregator();
+
+    private SortedGroupIterator(RowSorter.SortedIterator sortedRows) {
+      sorter = sortedRows;
+      this.sortedRows = Iterators.peekingIterator(sortedRows);
+    }
+
+    @Override
+    public void close() {
+      sorter.close();
+    }
+
+    @Override
+    protected Row computeNext() {
+      if (!sortedRows.hasNext())
+        return endOfData();
+      Row first = sortedRows.next();
+      List<Object> groupingKey = aggregator.getGroupingKey(first);
+      Aggregation[] aggs = newAggregations();
+      aggregator.update(aggs, first);
+      while (sortedRows.hasNext() && aggregator.hasGroupingKey(sortedRows.peek(), groupingKey))
+        aggregator.update(aggs, sortedRows.next());
+      return createOutputRow(groupingKey, aggs);
+    }
+  }
+
+  /**
+   * @return {@code true} iff the aggregations produced by {@link AggregationOperation#createAggregations()}
+   * can be computed in parallel.
+   */
+  private boolean isMergeable() {
+    for (AggregationSpec aggSpec : op.getParams().getAggregationsByName().values()) {
+      if (!Mergeable.class.isAssignableFrom(aggSpec.getType()))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Aggregates the given rows sequentially, in the calling thread.
+   */
+  private GroupingMap aggregate(Iterator<Row> rows) {
     GroupingMap groups = new GroupingMap();
+    Aggregator aggregator = new Aggregator();
+    while (rows.hasNext())
+      aggregator.update(groups, rows.next());
+    return groups;
+  }
 
-    // TODO: extract these two variables to superclass (where the "verbose" variable resides)
-    int rowCount = 0;
-    Duration processingDuration = null;
-
-    for (Row inputRow : input) {
-      if (verbose) {
-        if (processingDuration == null)
-          processingDuration = new Duration(getClass().getSimpleName(), "");
-        rowCount++;
-        if (rowCount % 100000 == 0)
-          System.out.printf("      %s: %,d LHS rows processed, time elapsed: %s %n",
-              getClass().getSimpleName(), rowCount, processingDuration.formatAsClockTime(false));
-      }
-      List<Object> groupingKey;
-      if (groupingAttrs.size() == 1) {
-        // memory optimization - use the more compact SingletonList if possible
-        groupingKey = Collections.singletonList(inputRow.getValue(groupingAttrs.get(0)));
+  /**
+   * Aggregates the given batches sequentially, in the calling thread.
+   */
+  private GroupingMap aggregateBatches(Iterator<RowBatch> batches) {
+    GroupingMap groups = new GroupingMap();
+    Aggregator aggregator = new Aggregator();
+    while (batches.hasNext()) {
+      RowBatch batch = batches.next();
+      for (int i = 0, n = batch.count(); i < n; i++)
+        aggregator.update(groups, batch.get(i));
+    }
+    return groups;
+  }
+
+  /**
+   * Splits the given rows into chunks to be aggregated in parallel.
+   */
+  private GroupingMap aggregateInParallel(List<Row> rows) {
+    if (!(rows instanceof RandomAccess))
+      rows = new ArrayList<>(rows);
+    return aggregateInParallel(rowAggregator(rows), rows.size());
+  }
+
+  /**
+   * Splits the range {@code [0, size)} into chunks to be aggregated in parallel by the given function.
+   */
+  private GroupingMap aggregateInParallel(RangeAggregator aggregator, int size) {
+    int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * 4));
+    return pool.invoke(new AggregationTask(aggregator, 0, size, chunkSize));
+  }
+
+  /**
+   * @return a function that aggregates a range of the given rows
+   */
+  private RangeAggregator rowAggregator(List<Row> rows) {
+    return (from, to) -> {
+      GroupingMap groups = new GroupingMap();
+      Aggregator aggregator = new Aggregator();
+      for (int i = from; i < to; i++)
+        aggregator.update(groups, rows.get(i));
+      return groups;
+    };
+  }
+
+  /**
+   * Consumes the given rows in the calling thread, and submits them in batches to be aggregated in parallel.
+   * The number of pending batches is limited, to avoid buffering too much of the input if the pool
+   * can't keep up with it.
+   */
+  private GroupingMap aggregateInBatches(Iterator<Row> rows) {
+    // we don't know the size of a streaming input, so we buffer it until the parallel threshold has been reached
+    List<Row> head = new ArrayList<>();
+    while (rows.hasNext() && head.size() < parallelThreshold)
+      head.add(rows.next());
+    if (!rows.hasNext())
+      return aggregate(head.iterator());
+    int maxPending = pool.getParallelism() * 2;
+    ArrayDeque<ForkJoinTask<GroupingMap>> pending = new ArrayDeque<>(maxPending);
+    pending.addLast(pool.submit(new AggregationTask(rowAggregator(head), 0, head.size(), MIN_CHUNK_SIZE)));
+    GroupingMap groups = null;
+    while (rows.hasNext()) {
+      List<Row> batch = new ArrayList<>(MIN_CHUNK_SIZE);
+      while (rows.hasNext() && batch.size() < MIN_CHUNK_SIZE)
+        batch.add(rows.next());
+      if (pending.size() == maxPending)
+        groups = merge(groups, pending.removeFirst().join());
+      pending.addLast(pool.submit(new AggregationTask(rowAggregator(batch), 0, batch.size(), MIN_CHUNK_SIZE)));
+    }
+    // merge the results in submission order, to preserve the order of the groups
+    while (!pending.isEmpty())
+      groups = merge(groups, pending.removeFirst().join());
+    return groups;
+  }
+
+  /**
+   * Merges the groups of the second arg into the first (either arg can be {@code null}).
+   * The groups that exist only in the second arg will be appended to the first.
+   * @return the result of the merge
+   */
+  @SuppressWarnings("unchecked")
+  private static GroupingMap merge(GroupingMap a, GroupingMap b) {
+    if (a == null)
+      return b;
+    for (Map.Entry<List<Object>, Aggregation[]> entry : b.entrySet()) {
+      Aggregation[] bAggs = entry.getValue();
+      Aggregation[] aAggs = a.putIfAbsent(entry.getKey(), bAggs);
+      if (aAggs != null) {
+        for (int i = 0; i < aAggs.length; i++)
+          ((Mergeable)aAggs[i]).merge(bAggs[i]);
       }
-      else {
-        groupingKey = inputRow.getValues(groupingAttrs);
+    }
+    return a;
+  }
+
+  /**
+   * Maintains the state of this aggregation over an input that grows over time: each new input row
+   * is added to its group with {@link Aggregation#update}, without reprocessing the previous rows.
+   * <p>
+   * Instances of this class are not thread-safe.
+   *
+   * @see IncrementalPipeline
+   */
+  class IncrementalAggregation {
+    private final GroupingMap groups = new GroupingMap();
+    private final Aggregator aggregator = new Aggregator();
+
+    void update(Row inputRow) {
+      aggregator.update(groups, inputRow);
+    }
+
+    /**
+     * @return a view of the current groups, which should be consumed before the next call to {@link #update(Row)}
+     */
+    StreamingRelation getOutput() {
+      return createOutput(groups);
+    }
+  }
+
+  /**
+   * Aggregates the rows in the index range {@code [from, to)} of the input.
+   */
+  private interface RangeAggregator {
+    GroupingMap aggregate(int from, int to);
+  }
+
+  /**
+   * Aggregates a range of rows, recursively splitting it into subtasks until its size doesn't exceed the chunk size.
+   */
+  private static class AggregationTask extends RecursiveTask<GroupingMap> {
+    private final RangeAggregator aggregator;
+    private final int from, to;
+    private final int chunkSize;
+
+    private AggregationTask(RangeAggregator aggregator, int from, int to, int chunkSize) {
+      this.aggregator = aggregator;
+      this.from = from;
+      this.to = to;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected GroupingMap compute() {
+      if (to - from <= chunkSize)
+        return aggregator.aggregate(from, to);
+      int mid = (from + to) >>> 1;
+      AggregationTask left = new AggregationTask(aggregator, from, mid, chunkSize);
+      left.fork();
+      GroupingMap rightGroups = new AggregationTask(aggregator, mid, to, chunkSize).compute();
+      return merge(left.join(), rightGroups);
+    }
+  }
+
+  /**
+   * Updates the groups with input rows.  The ordinals of the columns used for grouping and aggregation are resolved
+   * once per input schema, instead of looking up every value by name.
+   * <p>
+   * Instances of this class are not thread-safe.
+   */
+  private class Aggregator {
+    private final String[] groupingAttrs;
+    private final AggregationSpec[] aggSpecs;
+    private RelationSchema schema;
+    private int[] groupingColIndices;
+    /** The input column ordinal for each aggregation ({@code -1} for {@link RowAggregation}) */
+    private int[] aggColIndices;
+
+    private Aggregator() {
+      AggregationOperation.Params params = op.getParams();
+      groupingAttrs = params.getGroupingAttrs().toArray(new String[0]);
+      aggSpecs = params.getAggregationsByName().values().toArray(new AggregationSpec[0]);
+    }
+
+    private void resolveColIndices(RelationSchema rowSchema) {
+      groupingColIndices = new int[groupingAttrs.length];
+      for (int i = 0; i < groupingAttrs.length; i++)
+        groupingColIndices[i] = rowSchema.getColIndex(groupingAttrs[i]);
+      aggColIndices = new int[aggSpecs.length];
+      for (int i = 0; i < aggSpecs.length; i++) {
+        if (RowAggregation.class.isAssignableFrom(aggSpecs[i].getType()))
+          aggColIndices[i] = -1;
+        else
+          aggColIndices[i] = rowSchema.getColIndex(aggSpecs[i].getInputAttrName());
       }
-      Map<AggregationSpec, Aggregation> aggs = groups.get(groupingKey);  // TODO: optimization: it might be faster to group via sorting instead of hashing lists
+      schema = rowSchema;
+    }
+
+    private void update(GroupingMap groups, Row inputRow) {
+      List<Object> groupingKey = getGroupingKey(inputRow);
+      Aggregation[] aggs = groups.get(groupingKey);
       if (aggs == null) {
         // instantiate the aggregations for a new group
-        aggs = op.createAggregations();
+        aggs = newAggregations();
         groups.put(groupingKey, aggs);
       }
-      for (Map.Entry<AggregationSpec, Aggregation> ae : aggs.entrySet()) {
-        Aggregation agg = ae.getValue();
-        if (agg instanceof RowAggregation)
-          agg.update(inputRow);
+      update(aggs, inputRow);
+    }
+
+    private List<Object> getGroupingKey(Row inputRow) {
+      if (inputRow.getSchema() != schema)
+        resolveColIndices(inputRow.getSchema());
+      if (groupingColIndices.length == 1) {
+        // memory optimization - use the more compact SingletonList if possible
+        return Collections.singletonList(inputRow.getValue(groupingColIndices[0]));
+      }
+      Object[] values = new Object[groupingColIndices.length];
+      for (int i = 0; i < values.length; i++)
+        values[i] = inputRow.getValue(groupingColIndices[i]);
+      return Arrays.asList(values);
+    }
+
+    /**
+     * @return {@code true} iff the given row belongs to the group with the given key
+     */
+    private boolean hasGroupingKey(Row inputRow, List<Object> groupingKey) {
+      if (inputRow.getSchema() != schema)
+        resolveColIndices(inputRow.getSchema());
+      for (int i = 0; i < groupingColIndices.length; i++) {
+        if (!Objects.equals(inputRow.getValue(groupingColIndices[i]), groupingKey.get(i)))
+          return false;
+      }
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void update(Aggregation[] aggs, Row inputRow) {
+      if (inputRow.getSchema() != schema)
+        resolveColIndices(inputRow.getSchema());
+      for (int i = 0; i < aggs.length; i++) {
+        int colIndex = aggColIndices[i];
+        if (colIndex < 0)
+          aggs[i].update(inputRow);
         else
-          agg.update(inputRow.getValue(ae.getKey().getInputAttrName()));
+          aggs[i].update(inputRow.getValue(colIndex));
       }
     }
-    // 2) produce the output relation
-    final RelationSchema outputSchema = op.getOutputSchema();
-    return new StreamingRelation(outputSchema,
-        new MapEntryTransformingIterator<List<Object>, Map<AggregationSpec, Aggregation>, Row>(groups) {
-          @Override
-          public Row transformEntry(List<Object> key, Map<AggregationSpec, Aggregation> value) {
-            MutableRow ret = RowFactory.getInstance().newRow(outputSchema);
-            int i = 0;
-            for (Object val : key)
-              ret.setValue(i++, val);
-            for (Map.Entry<AggregationSpec, Aggregation> ae : value.entrySet())
-              ret.setValue(i++, ae.getValue().get());
-            return ret;
-          }
+  }
+
+  /**
+   * Aggregates a {@link ColumnarRelation} by reading the values directly from its columns.
+   * If there's only one grouping column and it's a {@link StringColumn}, the groups are looked up by dictionary code
+   * (instead of hashing the grouping keys), and the {@link ColStats} and {@link ApproxPercentile} aggregations of numeric columns are updated
+   * without boxing their values.
+   */
+  private class ColumnarAggregator {
+    private final ColumnarRelation relation;
+    private final Column[] groupingCols;
+    /** The input column of each aggregation ({@code null} for {@link RowAggregation}) */
+    private final Column[] aggCols;
+
+    private ColumnarAggregator(ColumnarRelation relation) {
+      this.relation = relation;
+      AggregationOperation.Params params = op.getParams();
+      groupingCols = new Column[params.getGroupingAttrs().size()];
+      int i = 0;
+      for (String name : params.getGroupingAttrs())
+        groupingCols[i++] = relation.getColumn(name);
+      Collection<AggregationSpec> aggSpecs = params.getAggregationsByName().values();
+      aggCols = new Column[aggSpecs.size()];
+      i = 0;
+      for (AggregationSpec aggSpec : aggSpecs) {
+        if (!RowAggregation.class.isAssignableFrom(aggSpec.getType()))
+          aggCols[i] = relation.getColumn(aggSpec.getInputAttrName());
+        i++;
+      }
+    }
+
+    private GroupingMap aggregate(int from, int to) {
+      if (groupingCols.length == 1 && groupingCols[0] instanceof StringColumn)
+        return aggregateByCode((StringColumn)groupingCols[0], from, to);
+      GroupingMap groups = new GroupingMap();
+      for (int i = from; i < to; i++) {
+        int pos = relation.getPosition(i);
+        List<Object> groupingKey;
+        if (groupingCols.length == 1)
+          groupingKey = Collections.singletonList(groupingCols[0].get(pos));
+        else {
+          Object[] values = new Object[groupingCols.length];
+          for (int j = 0; j < values.length; j++)
+            values[j] = groupingCols[j].get(pos);
+          groupingKey = Arrays.asList(values);
         }
-    );
+        Aggregation[] aggs = groups.get(groupingKey);
+        if (aggs == null) {
+          aggs = createAggregations();
+          groups.put(groupingKey, aggs);
+        }
+        update(aggs, i, pos);
+      }
+      return groups;
+    }
+
+    private GroupingMap aggregateByCode(StringColumn groupingCol, int from, int to) {
+      List<String> dictionary = groupingCol.getDictionary();
+      int nullCode = dictionary.size();  // the groups are indexed by code, with the null group at the end
+      Aggregation[][] groupsByCode = new Aggregation[nullCode + 1][];
+      int[] codesInOrder = new int[groupsByCode.length];  // in order of first occurrence
+      int nGroups = 0;
+      for (int i = from; i < to; i++) {
+        int pos = relation.getPosition(i);
+        int code = groupingCol.getCode(pos);
+        if (code < 0)
+          code = nullCode;
+        Aggregation[] aggs = groupsByCode[code];
+        if (aggs == null) {
+          aggs = groupsByCode[code] = createAggregations();
+          codesInOrder[nGroups++] = code;
+        }
+        update(aggs, i, pos);
+      }
+      GroupingMap groups = new GroupingMap();
+      for (int i = 0; i < nGroups; i++) {
+        int code = codesInOrder[i];
+        groups.put(Collections.singletonList(code == nullCode ? null : dictionary.get(code)), groupsByCode[code]);
+      }
+      return groups;
+    }
+
+    private Aggregation[] createAggregations() {
+      return op.createAggregations().values().toArray(new Aggregation[0]);
+    }
+
+    /**
+     * Updates the given aggregations with the i-th row of the relation, which is stored at the given position
+     * of the column arrays
+     */
+    @SuppressWarnings("unchecked")
+    private void update(Aggregation[] aggs, int i, int pos) {
+      Row row = null;  // lazy init
+      for (int j = 0; j < aggs.length; j++) {
+        Column col = aggCols[j];
+        Aggregation agg = aggs[j];
+        if (col == null) {
+          if (row == null)
+            row = relation.getRow(i);
+          agg.update(row);
+        }
+        else if (agg instanceof ColStats && col instanceof NumericColumn && !col.isNull(pos))
+          ((ColStats)agg).update(((NumericColumn)col).getDouble(pos));
+        else if (agg instanceof ApproxPercentile && col instanceof NumericColumn && !col.isNull(pos))
+          ((ApproxPercentile)agg).update(((NumericColumn)col).getDouble(pos));
+        else
+          agg.update(col.get(pos));
+      }
+    }
   }
 
-  private static class GroupingMap extends LinkedHashMap<List<Object>, Map<AggregationSpec, Aggregation>> {
+  private static class GroupingMap extends LinkedHashMap<List<Object>, Aggregation[]> {
     // this class is just syntactic sugar to avoid writing out the type args every time
-    // TODO: can do the same for its key and value types
   }
 
 
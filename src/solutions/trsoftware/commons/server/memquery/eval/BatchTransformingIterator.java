@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.AbstractIterator;
+import solutions.trsoftware.commons.server.memquery.RowBatch;
+
+import java.util.Iterator;
+
+/**
+ * Transforms each batch of the input into an output batch, skipping those that end up empty.
+ * The same output batch instance is reused for all the batches.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+abstract class BatchTransformingIterator extends AbstractIterator<RowBatch> {
+
+  private final Iterator<RowBatch> input;
+  private final int batchSize;
+  private RowBatch output;
+
+  BatchTransformingIterator(Iterator<RowBatch> input, int batchSize) {
+    this.input = input;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  protected RowBatch computeNext() {
+    while (input.hasNext()) {
+      RowBatch inputBatch = input.next();
+      if (output == null || output.capacity() < inputBatch.count())
+        output = new RowBatch(Math.max(batchSize, inputBatch.capacity()));
+      else
+        output.clear();
+      transform(inputBatch, output);
+      if (!output.isEmpty())
+        return output;
+    }
+    return endOfData();
+  }
+
+  /**
+   * Adds the rows derived from the given input batch to the given output batch (which has been cleared, and whose
+   * capacity is at least that of the input batch)
+   */
+  protected abstract void transform(RowBatch inputBatch, RowBatch outputBatch);
+}
@@ -43,8 +43,21 @@ public abstract class BinaryOperationEvaluator<O extends RelationalExpression, L
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public T call() throws Exception {
-    return call(lhsEvaluator.call(), rhsEvaluator.call());
+    if (stats == null)
+      return call(lhsEvaluator.call(), rhsEvaluator.call());
+    stats.start();
+    try {
+      L lhs = lhsEvaluator.call();
+      profileInput(lhsEvaluator, lhs);
+      R rhs = rhsEvaluator.call();
+      profileInput(rhsEvaluator, rhs);
+      return (T)stats.wrapOutput(call(lhs, rhs));
+    }
+    finally {
+      stats.stop();
+    }
   }
 
   @Override
@@ -28,39 +28,98 @@ import java.util.Map;
 public class EvalPipelineBuilder {  // TODO: rewrite using a proper Visitor pattern
   private MemQuery query;
   private final Map<String, Relation> inputRelations;
+  /** Whether to collect the {@link EvaluatorStats} of each evaluator */
+  private boolean profilingEnabled;
 
   public EvalPipelineBuilder(MemQuery query, Map<String, Relation> inputRelations) {
     this.query = query;
     this.inputRelations = inputRelations;
   }
 
+  public boolean isProfilingEnabled() {
+    return profilingEnabled;
+  }
+
+  /**
+   * @param profilingEnabled whether the evaluators should collect their runtime metrics
+   * (which can be obtained with {@link OperationEvaluator#getStats()})
+   * @return this instance, for method chaining
+   */
+  public EvalPipelineBuilder setProfilingEnabled(boolean profilingEnabled) {
+    this.profilingEnabled = profilingEnabled;
+    return this;
+  }
+
   public RelationalEvaluator visit(RelationalExpression expr) {
-    if (expr instanceof RelationalOperation) {
-      RelationalOperation op = (RelationalOperation)expr;
-      if (expr instanceof UnaryOperation) {
-        UnaryOperation unOp = (UnaryOperation)expr;
-        RelationalEvaluator inputEvaluator = visit(unOp.getInput());
-        if (op instanceof Selection)
-          return new StreamingSelectionEvaluator(((Selection)op), inputEvaluator);
-        else if (op instanceof StreamableUnaryOperation) {
-          if (op instanceof Rename) {
-            // make sure the output schema always has a name
-            Rename.Params renameParams = ((Rename)op).getParams();
-            if (renameParams.getNewRelationName() == null)
-              renameParams.setNewRelationName(String.format("ResultSetOf{%s}", query));
-          }
-          return new StreamingUnaryEvaluator(((StreamableUnaryOperation)op), inputEvaluator);
+    if (expr instanceof UnaryOperation)
+      return createEvaluator((UnaryOperation)expr, visit(((UnaryOperation)expr).getInput()));
+    else if (expr instanceof BinaryOperation) {
+      BinaryOperation binExpr = (BinaryOperation)expr;
+      return createEvaluator(binExpr, visit(binExpr.getLHS()), visit(binExpr.getRHS()));
+    }
+    else
+      return new ValueEvaluator(inputRelations.get(expr.getOutputSchema().getName()));
+  }
+
+  /**
+   * Creates the evaluator for a single operation, given the evaluators of its inputs.
+   *
+   * @param inputEvaluators the evaluator of the input, for a {@link UnaryOperation}, or the evaluators of the
+   * LHS and RHS inputs, for a {@link BinaryOperation}
+   */
+  public RelationalEvaluator createEvaluator(RelationalOperation op, RelationalEvaluator... inputEvaluators) {
+    OperationEvaluator evaluator;
+    if (op instanceof UnaryOperation) {
+      RelationalEvaluator inputEvaluator = inputEvaluators[0];
+      if (op instanceof Selection)
+        evaluator = new StreamingSelectionEvaluator(((Selection)op), inputEvaluator);
+      else if (op instanceof StreamableUnaryOperation) {
+        if (op instanceof Rename) {
+          // make sure the output schema always has a name
+          Rename.Params renameParams = ((Rename)op).getParams();
+          if (renameParams.getNewRelationName() == null)
+            renameParams.setNewRelationName(String.format("ResultSetOf{%s}", query));
         }
-        else
-          return new AggregationEvaluator((AggregationOperation)op, inputEvaluator);
-      }
-      else {
-        BinaryOperation binExpr = (BinaryOperation)expr;
-        return new StreamingJoinEvaluator((Join)op, visit(binExpr.getLHS()), visit(binExpr.getRHS()));
+        evaluator = new StreamingUnaryEvaluator(((StreamableUnaryOperation)op), inputEvaluator);
       }
+      else if (op instanceof Window)
+        evaluator = new WindowEvaluator((Window)op, inputEvaluator).setSortMemoryBudget(query.getSortMemoryBudget());
+      else
+        evaluator = createAggregationEvaluator((AggregationOperation)op, inputEvaluator);
     }
     else {
-      return new ValueEvaluator(inputRelations.get(expr.getOutputSchema().getName()));
+      if (op instanceof EquiJoin)
+        evaluator = new HashJoinEvaluator((EquiJoin)op, inputEvaluators[0], inputEvaluators[1]);
+      else
+        evaluator = new StreamingJoinEvaluator((Join)op, inputEvaluators[0], inputEvaluators[1]);
     }
+    evaluator.setBatchSize(query.getBatchSize());
+    if (profilingEnabled) {
+      EvaluatorStats stats = new EvaluatorStats(op);
+      for (RelationalEvaluator inputEvaluator : inputEvaluators) {
+        EvaluatorStats inputStats = OperationEvaluator.getStats(inputEvaluator);
+        if (inputStats != null)
+          stats.addInput(inputStats);
+      }
+      evaluator.setStats(stats);
+    }
+    return evaluator;
+  }
+
+  /**
+   * Chooses the {@link AggregationEvaluator.GroupingStrategy} based on the estimated number of groups: if the
+   * hash table would have more entries than the query's {@linkplain MemQuery#getSortMemoryBudget() sort memory budget},
+   * uses the sort-based strategy instead, which is subject to that budget.
+   * <p>
+   * The number of groups is not estimated if the budget is unlimited ({@link Integer#MAX_VALUE}), since the hash-based
+   * strategy is always used in that case.
+   */
+  private AggregationEvaluator createAggregationEvaluator(AggregationOperation op, RelationalEvaluator inputEvaluator) {
+    AggregationEvaluator evaluator = new AggregationEvaluator(op, inputEvaluator).setParallelThreshold(query.getParallelThreshold());
+    int memoryBudget = query.getSortMemoryBudget();
+    evaluator.setSortMemoryBudget(memoryBudget);
+    if (memoryBudget != Integer.MAX_VALUE && new QueryOptimizer(inputRelations).estimateGroupCount(op) > memoryBudget)
+      evaluator.setGroupingStrategy(AggregationEvaluator.GroupingStrategy.SORT);
+    return evaluator;
   }
 }
@@ -16,34 +16,134 @@
 
 package solutions.trsoftware.commons.server.memquery.eval;
 
-import solutions.trsoftware.commons.server.memquery.algebra.BinaryOperation;
-import solutions.trsoftware.commons.server.memquery.algebra.RelationalExpressionVisitor;
-import solutions.trsoftware.commons.server.memquery.algebra.RelationalValue;
-import solutions.trsoftware.commons.server.memquery.algebra.UnaryOperation;
+import solutions.trsoftware.commons.server.memquery.MemQuery;
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.algebra.*;
+import solutions.trsoftware.commons.shared.util.MemoryUnit;
 import solutions.trsoftware.commons.shared.util.StringUtils;
 
+import java.io.PrintStream;
+import java.util.Map;
+
 /**
 * @author Alex, 10/10/2016
 */
 public class EvalPipelinePrinter implements RelationalEvaluatorVisitor, RelationalExpressionVisitor {
 
   private int indentLevel;
+  private final PrintStream out;
 
   public EvalPipelinePrinter(int indentLevel) {
+    this(indentLevel, System.out);
+  }
+
+  public EvalPipelinePrinter(int indentLevel, PrintStream out) {
     this.indentLevel = indentLevel;
+    this.out = out;
   }
 
   private String indent() {
     return StringUtils.indent(indentLevel * 2);
   }
 
+  /**
+   * Prints the expression tree of the given query before and after it's optimized for the given inputs.
+   * @param out the stream to print to
+   * @see MemQuery#getPlan(Map)
+   */
+  public static void printPlans(MemQuery query, Map<String, Relation> inputs, PrintStream out) {
+    QueryOptimizer optimizer = new QueryOptimizer(inputs);
+    out.printf("Plan for %s%n", query);
+    out.println("  Before optimization:");
+    new EvalPipelinePrinter(2, out).printPlan(query.getExpression(), optimizer);
+    out.println("  After optimization:");
+    new EvalPipelinePrinter(2, out).printPlan(query.getPlan(inputs), optimizer);
+  }
+
+  /**
+   * Prints the given expression tree, one operation per line, with the inputs of each operation indented below it.
+   * @param optimizer will be used to annotate each node with its estimated number of rows (optional)
+   */
+  public void printPlan(RelationalExpression expr, QueryOptimizer optimizer) {
+    String description = describe(expr);
+    if (optimizer != null) {
+      long size = optimizer.estimateSize(expr);
+      if (size != QueryOptimizer.UNKNOWN_SIZE)
+        description += String.format(" [~%,d rows]", size);
+    }
+    out.printf("%s%s%n", indent(), description);
+    indentLevel++;
+    {
+      if (expr instanceof UnaryOperation)
+        printPlan(((UnaryOperation)expr).getInput(), optimizer);
+      else if (expr instanceof BinaryOperation) {
+        printPlan(((BinaryOperation)expr).getLHS(), optimizer);
+        printPlan(((BinaryOperation)expr).getRHS(), optimizer);
+      }
+    }
+    indentLevel--;
+  }
+
+  /**
+   * Prints the given operator stats tree (as collected by {@link MemQuery#explainAnalyze(Map)}),
+   * one operation per line, annotated with its metrics.
+   */
+  public void printProfile(EvaluatorStats stats) {
+    out.printf("%s%s %s%n", indent(), stats.getOperation(), formatStats(stats));
+    indentLevel++;
+    {
+      for (EvaluatorStats input : stats.inputs())
+        printProfile(input);
+    }
+    indentLevel--;
+  }
+
+  /**
+   * @return a one-line description of the given expression (without its inputs)
+   */
+  public static String describe(RelationalExpression expr) {
+    if (expr instanceof RelationalOperation) {
+      Object params = ((RelationalOperation)expr).getParams();
+      if (expr instanceof ExtendedProjection)
+        params = expr.getOutputSchema().getColNames();  // the expressions don't necessarily have a readable toString
+      return String.format("%s(%s)", expr.getClass().getSimpleName(), params);
+    }
+    else
+      return String.format("%s(%s)", expr.getClass().getSimpleName(), expr.getOutputSchema().getName());
+  }
+
+  /**
+   * @return a one-line summary of the given metrics
+   */
+  public static String formatStats(EvaluatorStats stats) {
+    StringBuilder str = new StringBuilder(128);
+    str.append(String.format("[rows in: %,d, out: %,d; time: %s (self %s)",
+        stats.getRowsIn(), stats.getRowsOut(), formatNanos(stats.getWallTimeNanos()), formatNanos(stats.getSelfWallTimeNanos())));
+    if (stats.getCpuTimeNanos() > 0)
+      str.append(String.format("; cpu: %s (self %s)", formatNanos(stats.getCpuTimeNanos()), formatNanos(stats.getSelfCpuTimeNanos())));
+    if (stats.getAllocatedBytes() > 0)
+      str.append(String.format("; alloc: %s (self %s)", formatBytes(stats.getAllocatedBytes()), formatBytes(stats.getSelfAllocatedBytes())));
+    if (stats.getPeakTableSize() >= 0)
+      str.append(String.format("; peak table size: %,d", stats.getPeakTableSize()));
+    return str.append(']').toString();
+  }
+
+  private static String formatNanos(long nanos) {
+    return String.format("%,.3f ms", nanos / 1_000_000d);
+  }
+
+  private static String formatBytes(long bytes) {
+    MemoryUnit unit = MemoryUnit.bestForHuman(bytes);
+    return String.format("%,.1f %s", unit.fromBytes(bytes), unit.abbreviation);
+  }
+
   // methods inherited from RelationalEvaluatorVisitor
 
   @Override
   public void visit(ValueEvaluator evaluator) {
     indentLevel++;
     {
-      System.out.printf("%s%s(%s)%n", indent(), evaluator.getClass().getSimpleName(), evaluator.getValue());
+      out.printf("%s%s(%s)%n", indent(), evaluator.getClass().getSimpleName(), evaluator.getValue());
     }
     indentLevel--;
   }
@@ -52,9 +152,9 @@ public class EvalPipelinePrinter implements RelationalEvaluatorVisitor, Relation
   public void visit(BinaryOperationEvaluator evaluator) {
     indentLevel++;
     {
-      System.out.printf("%s%s(%n", indent(), evaluator.getClass().getSimpleName());
+      out.printf("%s%s(%n", indent(), evaluator.getClass().getSimpleName());
       evaluator.op.accept(this);
-      System.out.printf("%s)%n", indent());
+      out.printf("%s)%n", indent());
     }
     indentLevel--;
   }
@@ -63,9 +163,9 @@ public class EvalPipelinePrinter implements RelationalEvaluatorVisitor, Relation
   public void visit(UnaryOperationEvaluator evaluator) {
     indentLevel++;
     {
-      System.out.printf("%s%s(%n", indent(), evaluator.getClass().getSimpleName());
+      out.printf("%s%s(%n", indent(), evaluator.getClass().getSimpleName());
       evaluator.op.accept(this);
-      System.out.printf("%s)%n", indent());
+      out.printf("%s)%n", indent());
     }
     indentLevel--;
   }
@@ -76,7 +176,7 @@ public class EvalPipelinePrinter implements RelationalEvaluatorVisitor, Relation
   public void visit(RelationalValue val) {
     indentLevel++;
     {
-      System.out.printf("%s%s%n", indent(), val);
+      out.printf("%s%s%n", indent(), val);
     }
     indentLevel--;
   }
@@ -85,7 +185,7 @@ public class EvalPipelinePrinter implements RelationalEvaluatorVisitor, Relation
   public void visit(BinaryOperation op) {
     indentLevel++;
     {
-      System.out.printf("%s%s%n", indent(), op);
+      out.printf("%s%s%n", indent(), op);
     }
     indentLevel--;
   }
@@ -94,7 +194,7 @@ public class EvalPipelinePrinter implements RelationalEvaluatorVisitor, Relation
   public void visit(UnaryOperation op) {
     indentLevel++;
     {
-      System.out.printf("%s%s%n", indent(), op);
+      out.printf("%s%s%n", indent(), op);
     }
     indentLevel--;
   }
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.UnmodifiableIterator;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.RelationalExpression;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The runtime metrics of an {@link OperationEvaluator}, which are collected when the evaluator pipeline is built
+ * with profiling enabled (see {@link MemQuery#explainAnalyze(java.util.Map)}).
+ * <p>
+ * The time and memory metrics are measured around the evaluator's {@link RelationalEvaluator#call() call} method
+ * and around each step of iterating its output relation, using the current thread's {@link ThreadMXBean} counters.
+ * Since the inputs of an operation are evaluated while it's running, these measurements include the
+ * metrics of the inputs, and the "self" metrics (e.g. {@link #getSelfWallTimeNanos()}) subtract them.
+ * <p>
+ * <strong>NOTE:</strong> the CPU time and allocated bytes include only the work done by the thread that runs
+ * the query, and not the work of any worker threads (e.g. for a parallel aggregation).  Instances of this class
+ * are not thread-safe.
+ * <p>
+ * The getters of this class follow the JMX open type conventions, so instances can be exposed over JMX
+ * (see {@link QueryProfilerMXBean}).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class EvaluatorStats {
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private static final boolean cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+  private static final boolean allocationSupported = threadBean instanceof com.sun.management.ThreadMXBean
+      && ((com.sun.management.ThreadMXBean)threadBean).isThreadAllocatedMemorySupported();
+
+  private final String operation;
+  private final List<EvaluatorStats> inputs = new ArrayList<>();
+  /** The number of rows in the input relations that aren't produced by other operations (i.e. the base relations) */
+  private long baseRowsIn;
+  private long rowsOut;
+  private long wallTimeNanos;
+  private long cpuTimeNanos;
+  private long allocatedBytes;
+  private long peakTableSize = -1;
+
+  // the counters at the start of the current measurement
+  private long startWallTime, startCpuTime, startAllocatedBytes;
+
+  public EvaluatorStats(RelationalExpression op) {
+    this(EvalPipelinePrinter.describe(op));
+  }
+
+  EvaluatorStats(String operation) {
+    this.operation = operation;
+  }
+
+  // methods used by the evaluators:
+
+  /**
+   * Starts measuring an interval that will be added to this operation's metrics.
+   * @see #stop()
+   */
+  void start() {
+    startWallTime = System.nanoTime();
+    startCpuTime = cpuTime();
+    startAllocatedBytes = allocatedBytes();
+  }
+
+  /**
+   * Stops measuring the interval started with {@link #start()}.
+   */
+  void stop() {
+    wallTimeNanos += System.nanoTime() - startWallTime;
+    cpuTimeNanos += cpuTime() - startCpuTime;
+    allocatedBytes += allocatedBytes() - startAllocatedBytes;
+  }
+
+  private static long cpuTime() {
+    return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+  }
+
+  @SuppressWarnings("deprecation")
+  private static long allocatedBytes() {
+    return allocationSupported ? ((com.sun.management.ThreadMXBean)threadBean).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+  }
+
+  /**
+   * Records the current size of a data structure built by the operation (e.g. the number of groups of an aggregation
+   * or the number of rows in the hash table of a join).
+   */
+  public void updatePeakTableSize(long size) {
+    peakTableSize = Math.max(peakTableSize, size);
+  }
+
+  /**
+   * Adds the metrics of an input of the operation.
+   */
+  void addInput(EvaluatorStats input) {
+    inputs.add(input);
+  }
+
+  /**
+   * Records the size of an input relation that isn't produced by another operation.
+   */
+  void addBaseInput(Relation input) {
+    if (input instanceof MaterializedRelation)
+      baseRowsIn += ((MaterializedRelation)input).size();
+  }
+
+  /**
+   * Adds to the number of rows produced by the operation (for outputs that aren't {@linkplain #wrapOutput(Relation) wrapped}).
+   */
+  void addRowsOut(long n) {
+    rowsOut += n;
+  }
+
+  /**
+   * Measures the evaluation of the output relation produced by the operation, and counts its rows.
+   * @return a relation of the same type as the given one (if possible) that updates these stats as it's iterated
+   */
+  Relation wrapOutput(Relation output) {
+    if (output instanceof MaterializedRelation) {
+      // nothing left to evaluate
+      rowsOut += ((MaterializedRelation)output).size();
+      return output;
+    }
+    if (output instanceof BatchedStreamingRelation) {
+      Iterator<RowBatch> batches = ((BatchedStreamingRelation)output).batchIterator();
+      return new BatchedStreamingRelation(output.getSchema(), new ProfilingIterator<RowBatch>(batches) {
+        @Override
+        protected void count(RowBatch batch) {
+          rowsOut += batch.count();
+        }
+      });
+    }
+    if (output instanceof StreamingRelation) {
+      return new StreamingRelation(output.getSchema(), new ProfilingIterator<Row>(output.iterator()) {
+        @Override
+        protected void count(Row row) {
+          rowsOut++;
+        }
+      });
+    }
+    return output;
+  }
+
+  /**
+   * Measures each step of iterating the output of the operation.  Closing this iterator closes the delegate
+   * (if it's {@link Closeable}).
+   */
+  private abstract class ProfilingIterator<T> extends UnmodifiableIterator<T> implements Closeable {
+    private final Iterator<T> delegate;
+
+    private ProfilingIterator(Iterator<T> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean hasNext() {
+      start();
+      try {
+        return delegate.hasNext();
+      }
+      finally {
+        stop();
+      }
+    }
+
+    @Override
+    public T next() {
+      start();
+      T next;
+      try {
+        next = delegate.next();
+      }
+      finally {
+        stop();
+      }
+      count(next);
+      return next;
+    }
+
+    protected abstract void count(T next);
+
+    @Override
+    public void close() {
+      StreamingRelation.close(delegate);
+    }
+  }
+
+  // the metrics:
+
+  /**
+   * @return a description of the operation
+   */
+  public String getOperation() {
+    return operation;
+  }
+
+  /**
+   * @return the metrics of the inputs of the operation that are produced by other operations
+   */
+  List<EvaluatorStats> inputs() {
+    return Collections.unmodifiableList(inputs);
+  }
+
+  /**
+   * @return the number of rows in all the inputs of this operation (not counting the rows of a streaming base
+   * relation, which can't be counted without iterating it)
+   */
+  public long getRowsIn() {
+    long ret = baseRowsIn;
+    for (EvaluatorStats input : inputs)
+      ret += input.rowsOut;
+    return ret;
+  }
+
+  /**
+   * @return the number of rows produced by this operation
+   */
+  public long getRowsOut() {
+    return rowsOut;
+  }
+
+  /**
+   * @return the elapsed time of this operation, including the time spent evaluating its inputs
+   */
+  public long getWallTimeNanos() {
+    return wallTimeNanos;
+  }
+
+  /**
+   * @return the elapsed time of this operation, excluding the time spent evaluating its inputs
+   */
+  public long getSelfWallTimeNanos() {
+    long ret = wallTimeNanos;
+    for (EvaluatorStats input : inputs)
+      ret -= input.wallTimeNanos;
+    return Math.max(0, ret);
+  }
+
+  /**
+   * @return the CPU time used by this operation (in the thread that runs the query), including its inputs;
+   * {@code 0} if the JVM doesn't support measuring the CPU time of the current thread
+   */
+  public long getCpuTimeNanos() {
+    return cpuTimeNanos;
+  }
+
+  public long getSelfCpuTimeNanos() {
+    long ret = cpuTimeNanos;
+    for (EvaluatorStats input : inputs)
+      ret -= input.cpuTimeNanos;
+    return Math.max(0, ret);
+  }
+
+  /**
+   * @return the number of bytes allocated by this operation (in the thread that runs the query), including its inputs;
+   * {@code 0} if the JVM doesn't support measuring thread allocations
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public long getSelfAllocatedBytes() {
+    long ret = allocatedBytes;
+    for (EvaluatorStats input : inputs)
+      ret -= input.allocatedBytes;
+    return Math.max(0, ret);
+  }
+
+  /**
+   * @return the largest number of entries in a grouping map or hash table built by this operation,
+   * or {@code -1} if not applicable
+   */
+  public long getPeakTableSize() {
+    return peakTableSize;
+  }
+
+  @Override
+  public String toString() {
+    return operation + " " + EvalPipelinePrinter.formatStats(this);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.StreamingRelation;
+import solutions.trsoftware.commons.server.memquery.algebra.EquiJoin;
+
+/**
+ * Evaluates an equi-join (including natural joins of any {@link solutions.trsoftware.commons.server.memquery.algebra.Join.Type})
+ * in a streaming fashion, using a hash table built over the RHS input relation.
+ * <p>
+ * The RHS input will be fully consumed (hashed) before the first output row is emitted,
+ * whereas the LHS will be iterated only once, and its rows will be emitted as soon as they're matched.
+ * Hence it's better to place the smaller relation on the RHS.
+ *
+ * @see HashJoinIterator
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class HashJoinEvaluator extends BinaryOperationEvaluator<EquiJoin, Relation, Relation, StreamingRelation> {
+
+  public HashJoinEvaluator(EquiJoin op, RelationalEvaluator<Relation> lhsEvaluator, RelationalEvaluator<Relation> rhsEvaluator) {
+    super(op, lhsEvaluator, rhsEvaluator);
+  }
+
+  @Override
+  public StreamingRelation call(Relation leftInputRelation, Relation rightInputRelation) {
+    HashJoinIterator joinIterator = new HashJoinIterator(op, leftInputRelation, rightInputRelation);
+    if (stats != null)
+      stats.updatePeakTableSize(joinIterator.getBuildSize());
+    return toOutputRelation(op.getOutputSchema(), joinIterator);
+  }
+
+}
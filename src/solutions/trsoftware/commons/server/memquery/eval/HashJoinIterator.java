@@ -0,0 +1,330 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.AbstractIterator;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.EquiJoin;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+import solutions.trsoftware.commons.shared.util.LogicUtils;
+
+import java.util.*;
+
+/**
+ * Evaluates an equi-join with the classic build/probe hash join algorithm: first builds a hash table over
+ * the RHS input relation (keyed on its join columns), and then streams the LHS, probing the table with each row.
+ * This takes O(n+m) time, instead of the O(n*log(n)) of {@link NestedLoopEquiJoinIterator}
+ * (which has to sort the RHS and then binary-search it for every LHS row).
+ * <p>
+ * The output rows are emitted in the same order as with {@link NestedLoopEquiJoinIterator}: for each LHS row (in
+ * input order), all of its RHS matches (in input order), followed by the unmatched RHS rows (for right and full outer joins),
+ * which are sorted by their join columns (ties broken by input order), since that's the order in which
+ * {@link NestedLoopEquiJoinIterator} finds them in its sorted copy of the RHS.  Only the unmatched rows are sorted,
+ * and only if all the join columns are {@link Comparable} (otherwise they're emitted in input order).
+ * <p>
+ * The hash table doesn't allocate a key object for any row: it's laid out in parallel arrays indexed by the
+ * ordinal of the RHS row, and the join columns are compared directly on the rows when probing.
+ * The same ordinals are used to track the matched RHS rows with a {@link BitSet} (for right and full outer joins).
+ * <p>
+ * If the RHS is an {@link IndexedRelation} that has a {@linkplain RelationIndex.Type#HASH hash index} on one of the
+ * join columns, the build phase is skipped, and the LHS rows are looked up in that index instead.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+class HashJoinIterator extends AbstractIterator<Row> {
+
+  private final EquiJoin joinOp;
+  private final Join.Type joinType;
+  private final Iterator<Row> leftIter;
+  private final RelationSchema rightSchema;
+  /** Accessor for the LHS join columns */
+  private final JoinKey leftKey;
+  /** Accessor for the RHS join columns (listed in the same order as {@link #leftKey}) */
+  private final JoinKey rightKey;
+
+  // the hash table (all arrays except buckets are indexed by the ordinal of the RHS row):
+  private final Row[] rightRows;
+  /**
+   * A pre-existing index of the RHS, which can be used instead of the hash table (in which case
+   * {@link #hashes}, {@link #chain}, and {@link #buckets} will be {@code null}).
+   */
+  private final RelationIndex rightIndex;
+  /** The position of the {@link #rightIndex} column in the join key */
+  private int rightIndexKeyPos;
+  /** The cached hash codes of {@link #rightRows} */
+  private final int[] hashes;
+  /** Links each entry to the next entry in the same bucket ({@code -1} terminates the chain) */
+  private final int[] chain;
+  /** The index of the first entry in each bucket ({@code -1} if empty) */
+  private final int[] buckets;
+
+  /**
+   * Tracks the RHS rows that have been matched at least once, so we can later emit those that weren't
+   * (only used for joins that have to return all RHS rows).
+   */
+  private BitSet matchedRightRows;
+
+  // the probe state:
+  private Row nextLeft;
+  private int nextLeftHash;
+  /** The next candidate entry in the bucket chain for {@link #nextLeft} */
+  private int nextCandidate = -1;
+  /** The candidate RHS ordinals found in {@link #rightIndex} for {@link #nextLeft} */
+  private int[] indexCandidates;
+  /** The cursor for {@link #indexCandidates} */
+  private int nextIndexCandidate;
+  private boolean nextLeftMatched;
+  /** Emits the unmatched RHS rows after the LHS has been exhausted (lazy init) */
+  private Iterator<Row> unmatchedRightIter;
+
+  // all-null rows to use as the missing side for outer joins (lazy init)
+  private Row nullLeftRow, nullRightRow;
+
+  HashJoinIterator(EquiJoin joinOp, Relation leftInputRelation, Relation rightInputRelation) {
+    this.joinOp = joinOp;
+    this.joinType = joinOp.getParams().getType();
+    this.leftIter = leftInputRelation.iterator();
+    this.rightSchema = rightInputRelation.getSchema();
+    Map<String, String> colNameCorrespondence = joinOp.getParams().getColNameCorrespondence();
+    leftKey = new JoinKey(colNameCorrespondence.keySet());
+    rightKey = new JoinKey(colNameCorrespondence.values());
+    rightRows = toArray(rightInputRelation);
+    int n = rightRows.length;
+    rightIndex = findRightIndex(rightInputRelation, rightKey);
+    if (rightIndex != null) {
+      hashes = chain = buckets = null;
+    }
+    else {
+      // the build phase
+      hashes = new int[n];
+      chain = new int[n];
+      buckets = new int[tableSizeFor(n)];
+      Arrays.fill(buckets, -1);
+      int mask = buckets.length - 1;
+      // insert in reverse order, so that each bucket chain lists its rows in their original order
+      for (int i = n - 1; i >= 0; i--) {
+        int h = rightKey.hash(rightRows[i]);
+        int b = h & mask;
+        hashes[i] = h;
+        chain[i] = buckets[b];
+        buckets[b] = i;
+      }
+    }
+    // for joins that need to return all RHS tuples, we have to keep track of which ones have been returned so we can later add those that never got matched
+    if (joinType == Join.Type.RIGHT_OUTER || joinType == Join.Type.FULL_OUTER)
+      matchedRightRows = new BitSet(n);
+  }
+
+  /**
+   * @return the number of RHS rows in the hash table
+   */
+  int getBuildSize() {
+    return rightRows.length;
+  }
+
+  /**
+   * @return a hash index of the given relation on any of the given join columns, or {@code null} if it doesn't have one
+   */
+  private RelationIndex findRightIndex(Relation rightInputRelation, JoinKey rightKey) {
+    if (rightInputRelation instanceof IndexedRelation) {
+      for (int i = 0; i < rightKey.colNames.length; i++) {
+        RelationIndex index = ((IndexedRelation)rightInputRelation).getIndex(rightKey.colNames[i], RelationIndex.Type.HASH);
+        if (index != null) {
+          rightIndexKeyPos = i;
+          return index;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static Row[] toArray(Relation relation) {
+    Collection<Row> rows;
+    if (relation instanceof MaterializedRelation)
+      rows = ((MaterializedRelation)relation).getRows();
+    else {
+      rows = new ArrayList<>();
+      for (Row row : relation)
+        rows.add(row);
+    }
+    return rows.toArray(new Row[rows.size()]);
+  }
+
+  /**
+   * @return the smallest power of 2 that gives a load factor not exceeding 0.75 for the given number of entries
+   */
+  private static int tableSizeFor(int n) {
+    int minSize = (int)Math.min(Math.max(2, (n * 4L + 2) / 3), 1 << 30);
+    return Integer.highestOneBit(minSize - 1) << 1;
+  }
+
+  @Override
+  protected Row computeNext() {
+    while (true) {
+      if (nextLeft != null) {
+        // continue scanning the bucket chain for the current LHS row
+        int i = nextMatch();
+        if (i >= 0) {
+          nextLeftMatched = true;
+          if (matchedRightRows != null)
+            matchedRightRows.set(i);
+          return joinOp.call(nextLeft, rightRows[i]);
+        }
+        Row left = nextLeft;
+        nextLeft = null;
+        // if there were no matches on the right, and this is left or full outer join, we pair it with a row of nulls
+        if (!nextLeftMatched && (joinType == Join.Type.LEFT_OUTER || joinType == Join.Type.FULL_OUTER))
+          return joinOp.call(left, getNullRightRow());
+      }
+      if (!leftIter.hasNext())
+        break;
+      // advance the LHS cursor and start probing with the new row
+      nextLeft = leftIter.next();
+      if (rightIndex != null) {
+        indexCandidates = rightIndex.find(leftKey.getValue(nextLeft, rightIndexKeyPos));
+        nextIndexCandidate = 0;
+      }
+      else {
+        nextLeftHash = leftKey.hash(nextLeft);
+        nextCandidate = buckets[nextLeftHash & (buckets.length - 1)];
+      }
+      nextLeftMatched = false;
+    }
+    // we have finished emitting all the matches, and now we just have to emit all the unmatched RHS rows
+    if (matchedRightRows != null) {
+      if (unmatchedRightIter == null)
+        unmatchedRightIter = getUnmatchedRightRows().iterator();
+      if (unmatchedRightIter.hasNext())
+        return joinOp.call(getNullLeftRow(), unmatchedRightIter.next());
+    }
+    return endOfData();
+  }
+
+  /**
+   * @return the RHS rows that haven't been matched by any LHS row, sorted by their join columns
+   * (if they're all comparable), like in the sorted RHS of {@link NestedLoopEquiJoinIterator}
+   */
+  private List<Row> getUnmatchedRightRows() {
+    List<Row> ret = new ArrayList<>(rightRows.length - matchedRightRows.cardinality());
+    for (int i = matchedRightRows.nextClearBit(0); i < rightRows.length; i = matchedRightRows.nextClearBit(i + 1))
+      ret.add(rightRows[i]);
+    List<SortOrder> sortOrders = new ArrayList<>(rightKey.colNames.length);
+    for (String colName : rightKey.colNames) {
+      Class type = rightSchema.get(colName).getType();
+      if (!(type.isPrimitive() || Comparable.class.isAssignableFrom(type)))
+        return ret;
+      sortOrders.add(new SortOrder(colName));
+    }
+    ret.sort(MemQuery.makeComparator(sortOrders, rightSchema));  // NOTE: this is a stable sort
+    return ret;
+  }
+
+  /**
+   * Advances {@link #nextCandidate} along its bucket chain (or {@link #nextIndexCandidate} through the candidates
+   * found in the index) until a row matching {@link #nextLeft} is found.
+   * @return the index of the matching RHS row, or {@code -1} if there are no more matches
+   */
+  private int nextMatch() {
+    if (rightIndex != null) {
+      while (nextIndexCandidate < indexCandidates.length) {
+        int i = indexCandidates[nextIndexCandidate++];
+        if (JoinKey.equal(leftKey, nextLeft, rightKey, rightRows[i]))
+          return i;
+      }
+      return -1;
+    }
+    for (int i = nextCandidate; i >= 0; i = chain[i]) {
+      if (hashes[i] == nextLeftHash && JoinKey.equal(leftKey, nextLeft, rightKey, rightRows[i])) {
+        nextCandidate = chain[i];
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private Row getNullLeftRow() {
+    if (nullLeftRow == null)
+      nullLeftRow = RowFactory.getInstance().newRow(joinOp.getLHSchema());
+    return nullLeftRow;
+  }
+
+  private Row getNullRightRow() {
+    if (nullRightRow == null)
+      nullRightRow = RowFactory.getInstance().newRow(rightSchema);
+    return nullRightRow;
+  }
+
+  /**
+   * Reads the values of the join columns from a row by their ordinals, which are resolved once per schema
+   * (instead of looking up every value by name).
+   */
+  private static class JoinKey {
+    private final String[] colNames;
+    private RelationSchema schema;
+    private int[] colIndices;
+
+    private JoinKey(Collection<String> colNames) {
+      this.colNames = colNames.toArray(new String[0]);
+    }
+
+    /**
+     * Resolves the column ordinals if the given row doesn't have the same schema as the previous one
+     * (which normally happens only for the first row of the input)
+     */
+    private int[] getColIndices(Row row) {
+      RelationSchema rowSchema = row.getSchema();
+      if (rowSchema != schema) {
+        int[] indices = new int[colNames.length];
+        for (int i = 0; i < colNames.length; i++)
+          indices[i] = rowSchema.getColIndex(colNames[i]);
+        colIndices = indices;
+        schema = rowSchema;
+      }
+      return colIndices;
+    }
+
+    /**
+     * @return the value of the join column at the given position in this key
+     */
+    private Object getValue(Row row, int keyPos) {
+      return row.getValue(getColIndices(row)[keyPos]);
+    }
+
+    private int hash(Row row) {
+      int[] indices = getColIndices(row);
+      int h = 1;
+      for (int idx : indices)
+        h = 31 * h + Objects.hashCode(row.getValue(idx));
+      return h ^ (h >>> 16);  // spread the higher bits downward, because the table size is a power of 2
+    }
+
+    /**
+     * @return {@code true} iff the join columns of the given rows have pairwise-equal values
+     * (with the same semantics as {@link EquiJoin#match(Row, Row)})
+     */
+    private static boolean equal(JoinKey leftKey, Row leftRow, JoinKey rightKey, Row rightRow) {
+      int[] leftIndices = leftKey.getColIndices(leftRow);
+      int[] rightIndices = rightKey.getColIndices(rightRow);
+      for (int i = 0; i < leftIndices.length; i++) {
+        if (!LogicUtils.eq(leftRow.getValue(leftIndices[i]), rightRow.getValue(rightIndices[i])))
+          return false;
+      }
+      return true;
+    }
+  }
+}
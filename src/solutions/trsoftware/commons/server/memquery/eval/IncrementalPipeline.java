@@ -0,0 +1,441 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.*;
+import solutions.trsoftware.commons.server.memquery.expressions.CompiledRowPredicate;
+
+import java.util.*;
+
+/**
+ * Evaluates a query incrementally, over input relations that grow by having rows appended to them
+ * (see {@link AppendOnlyRelation}).  The new rows of an input are {@linkplain #push(Input, List) pushed} through
+ * the operations of the query plan, and each operation updates its state (if any) and passes its new output rows
+ * on to the next operation:
+ * <ul>
+ *   <li>{@link Selection}s and other {@link StreamableUnaryOperation}s are simply applied to each new row;</li>
+ *   <li>inner {@link Join}s keep all the rows received from either side (hashed on the join columns, in the case of
+ *   an {@link EquiJoin}), and join each new row with the rows received so far from the other side;</li>
+ *   <li>{@link AggregationOperation}s keep the aggregations of each group, and update them in place with each new row
+ *   (see {@link AggregationEvaluator.IncrementalAggregation}).</li>
+ * </ul>
+ * The output of an aggregation isn't append-only (its rows change with every update), so the operations that
+ * depend on it (as well as outer joins, whose null-padded rows can be invalidated by later rows) are evaluated
+ * from scratch over the current state of their inputs whenever the {@linkplain #getSnapshot() results} are requested.
+ * This is cheap when it happens above an aggregation, since it only involves the groups.
+ * <p>
+ * The results of an append-only pipeline aren't kept by this class: {@link #push(Input, List)} returns the new output
+ * rows to the caller instead (see {@link ContinuousQuery}).
+ * <p>
+ * Instances of this class are not thread-safe.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class IncrementalPipeline {
+
+  private final EvalPipelineBuilder evaluatorFactory;
+  private final Map<String, Relation> inputRelations;
+  private final List<Input> inputs = new ArrayList<>();
+  private final Node root;
+
+  public IncrementalPipeline(MemQuery query, Map<String, Relation> inputRelations) {
+    this.inputRelations = inputRelations;
+    evaluatorFactory = new EvalPipelineBuilder(query, inputRelations);
+    root = createNode(query.getPlan(inputRelations));
+    if (!root.isAppendOnly())
+      root.retainSnapshot();
+  }
+
+  private Node createNode(RelationalExpression expr) {
+    Node node;
+    if (expr instanceof StreamableUnaryOperation) {
+      StreamableUnaryOperation op = (StreamableUnaryOperation)expr;
+      node = new UnaryNode(op, createNode(op.getInput()));
+    }
+    else if (expr instanceof AggregationOperation) {
+      AggregationOperation op = (AggregationOperation)expr;
+      node = new AggregationNode(op, createNode(op.getInput()));
+    }
+    else if (expr instanceof Join) {
+      Join op = (Join)expr;
+      node = new JoinNode(op, createNode(op.getLHS()), createNode(op.getRHS()));
+    }
+    else {
+      String name = expr.getOutputSchema().getName();
+      Relation relation = inputRelations.get(name);
+      if (relation == null)
+        throw new IllegalArgumentException("No input relation bound to " + name);
+      Input input = new Input(expr, relation);
+      inputs.add(input);
+      node = input;
+    }
+    return node;
+  }
+
+  /**
+   * @return the leaves of the query plan, in the order they appear in the plan (the same relation will be listed
+   * more than once if the query refers to it more than once, e.g. a self-join)
+   */
+  public List<Input> getInputs() {
+    return Collections.unmodifiableList(inputs);
+  }
+
+  public RelationSchema getOutputSchema() {
+    return root.expr.getOutputSchema();
+  }
+
+  /**
+   * @return {@code true} iff the output of this pipeline only ever grows, in which case all the output rows
+   * are returned by {@link #push(Input, List)}.  Otherwise, the output has to be obtained with {@link #getSnapshot()}.
+   */
+  public boolean isAppendOnly() {
+    return root.isAppendOnly();
+  }
+
+  /**
+   * Propagates the given rows through the pipeline.
+   *
+   * @param input the leaf that received the new rows
+   * @param newRows the rows appended to the input relation
+   * @return the new output rows, if this pipeline {@linkplain #isAppendOnly() is append-only}; otherwise an empty list
+   */
+  public List<Row> push(Input input, List<Row> newRows) {
+    input.append(newRows);
+    Node node = input;
+    List<Row> delta = newRows;
+    while (node.parent != null && !delta.isEmpty()) {
+      delta = node.parent.update(node, delta);
+      node = node.parent;
+    }
+    return node == root ? delta : Collections.emptyList();
+  }
+
+  /**
+   * Computes the current output of the pipeline.  The returned relation might be a view of the pipeline's state,
+   * so it should be fully consumed before any more rows are {@linkplain #push(Input, List) pushed}.
+   */
+  public Relation getSnapshot() throws Exception {
+    return root.getSnapshot();
+  }
+
+  /**
+   * Evaluates the given operation from scratch over the given input relations.
+   */
+  private Relation evaluate(RelationalOperation op, Relation... inputs) throws Exception {
+    RelationalEvaluator[] inputEvaluators = new RelationalEvaluator[inputs.length];
+    for (int i = 0; i < inputs.length; i++)
+      inputEvaluators[i] = new ValueEvaluator<>(inputs[i]);
+    return (Relation)evaluatorFactory.createEvaluator(op, inputEvaluators).call();
+  }
+
+  /**
+   * A node of the incremental evaluation tree, corresponding to a node of the query plan.
+   */
+  private static abstract class Node {
+    protected final RelationalExpression expr;
+    private Node parent;
+
+    Node(RelationalExpression expr, Node... children) {
+      this.expr = expr;
+      for (Node child : children)
+        child.parent = this;
+    }
+
+    /**
+     * @return {@code true} if the rows previously emitted by this node will never be changed or invalidated by the
+     * new input rows
+     */
+    abstract boolean isAppendOnly();
+
+    /**
+     * Processes the rows that were added to the output of the given child node.
+     * @return the rows that should be added to the output of this node (always empty if this node isn't append-only)
+     */
+    abstract List<Row> update(Node child, List<Row> childDelta);
+
+    /**
+     * @return the current output of this node (should be consumed before the next update)
+     */
+    abstract Relation getSnapshot() throws Exception;
+
+    /**
+     * Notifies this node that {@link #getSnapshot()} will be called, so that it (or its descendants) should keep
+     * any input rows needed to compute it.
+     */
+    abstract void retainSnapshot();
+  }
+
+  /**
+   * A leaf of the query plan, which receives the new rows of an input relation.
+   */
+  public static class Input extends Node {
+    private final Relation relation;
+    /** The rows received so far (only kept if the snapshot might be needed, and can't be obtained from the relation itself) */
+    private ArrayList<Row> rows;
+
+    private Input(RelationalExpression expr, Relation relation) {
+      super(expr);
+      this.relation = relation;
+    }
+
+    public Relation getRelation() {
+      return relation;
+    }
+
+    private void append(List<Row> newRows) {
+      if (rows != null)
+        rows.addAll(newRows);
+    }
+
+    @Override
+    boolean isAppendOnly() {
+      return true;
+    }
+
+    @Override
+    List<Row> update(Node child, List<Row> childDelta) {
+      throw new UnsupportedOperationException();  // a leaf doesn't have any children
+    }
+
+    @Override
+    Relation getSnapshot() {
+      if (rows == null)
+        return relation;
+      return new StreamingRelation(relation.getSchema(), rows.iterator());
+    }
+
+    @Override
+    void retainSnapshot() {
+      // a static materialized relation can serve as its own snapshot, but we can't safely iterate a relation
+      // that's being appended by another thread (or a streaming relation, which can only be iterated once)
+      if (rows == null && (relation instanceof AppendOnlyRelation || !(relation instanceof MaterializedRelation)))
+        rows = new ArrayList<>();
+    }
+  }
+
+  private class UnaryNode extends Node {
+    private final StreamableUnaryOperation op;
+    private final Node input;
+    /** The filter predicate, if {@link #op} is a {@link Selection} */
+    private final CompiledRowPredicate filter;
+
+    private UnaryNode(StreamableUnaryOperation op, Node input) {
+      super(op, input);
+      this.op = op;
+      this.input = input;
+      filter = op instanceof Selection ? CompiledRowPredicate.compile(((Selection)op).getParams()) : null;
+    }
+
+    @Override
+    boolean isAppendOnly() {
+      return input.isAppendOnly();
+    }
+
+    @Override
+    List<Row> update(Node child, List<Row> childDelta) {
+      List<Row> ret = new ArrayList<>(childDelta.size());
+      for (Row row : childDelta) {
+        if (filter == null || filter.test(row))
+          ret.add(op.call(row));
+      }
+      return ret;
+    }
+
+    @Override
+    Relation getSnapshot() throws Exception {
+      return evaluate(op, input.getSnapshot());
+    }
+
+    @Override
+    void retainSnapshot() {
+      input.retainSnapshot();
+    }
+  }
+
+  private class AggregationNode extends Node {
+    private final AggregationOperation op;
+    private final Node input;
+    /** The incrementally-updated groups ({@code null} if the input isn't append-only) */
+    private final AggregationEvaluator.IncrementalAggregation aggregation;
+
+    private AggregationNode(AggregationOperation op, Node input) {
+      super(op, input);
+      this.op = op;
+      this.input = input;
+      aggregation = input.isAppendOnly() ? new AggregationEvaluator(op, null).new IncrementalAggregation() : null;
+    }
+
+    @Override
+    boolean isAppendOnly() {
+      return false;
+    }
+
+    @Override
+    List<Row> update(Node child, List<Row> childDelta) {
+      for (Row row : childDelta)
+        aggregation.update(row);
+      return Collections.emptyList();
+    }
+
+    @Override
+    Relation getSnapshot() throws Exception {
+      if (aggregation != null)
+        return aggregation.getOutput();
+      return evaluate(op, input.getSnapshot());
+    }
+
+    @Override
+    void retainSnapshot() {
+      if (aggregation == null)
+        input.retainSnapshot();
+    }
+  }
+
+  private class JoinNode extends Node {
+    private final Join op;
+    private final Node lhs, rhs;
+    /**
+     * Whether this join is evaluated incrementally (otherwise, it's evaluated from scratch for every snapshot).
+     * Only inner joins of append-only inputs can be evaluated incrementally.
+     */
+    private final boolean incremental;
+    // the state of an incremental join:
+    /**
+     * All the rows received from each side, in the order received.  These lists are needed to match the new rows
+     * of a theta join, but an {@link EquiJoin} only keeps them if a parent node {@linkplain #retainSnapshot() needs}
+     * its snapshot (otherwise every row would be held twice: here and in the hash tables).
+     */
+    private List<Row> leftRows, rightRows;
+    /** The rows received from each side, hashed on the join columns (only for an {@link EquiJoin}) */
+    private Map<List<Object>, List<Row>> leftTable, rightTable;
+    private JoinKey leftKey, rightKey;
+
+    private JoinNode(Join op, Node lhs, Node rhs) {
+      super(op, lhs, rhs);
+      this.op = op;
+      this.lhs = lhs;
+      this.rhs = rhs;
+      incremental = lhs.isAppendOnly() && rhs.isAppendOnly() && ((Join.Params)op.getParams()).getType() == Join.Type.INNER;
+      if (incremental) {
+        if (op instanceof EquiJoin) {
+          Map<String, String> colNameCorrespondence = ((EquiJoin)op).getParams().getColNameCorrespondence();
+          leftKey = new JoinKey(colNameCorrespondence.keySet());
+          rightKey = new JoinKey(colNameCorrespondence.values());
+          leftTable = new HashMap<>();
+          rightTable = new HashMap<>();
+        }
+        else {
+          leftRows = new ArrayList<>();
+          rightRows = new ArrayList<>();
+        }
+      }
+    }
+
+    @Override
+    boolean isAppendOnly() {
+      return incremental;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    List<Row> update(Node child, List<Row> childDelta) {
+      if (!incremental)
+        return Collections.emptyList();
+      // each new row is joined with all the rows received so far from the other side
+      // (if both sides receive new rows at the same time, e.g. in a self-join, the new LHS rows will be matched
+      // here with the old RHS rows, and then the new RHS rows will be matched with all the LHS rows)
+      boolean fromLeft = child == lhs;
+      List<Row> ret = new ArrayList<>();
+      for (Row row : childDelta) {
+        Iterable<Row> candidates;
+        if (leftTable != null) {
+          List<Object> key = (fromLeft ? leftKey : rightKey).getValues(row);
+          candidates = (fromLeft ? rightTable : leftTable).getOrDefault(key, Collections.emptyList());
+          (fromLeft ? leftTable : rightTable).computeIfAbsent(key, k -> new ArrayList<>(1)).add(row);
+        }
+        else
+          candidates = fromLeft ? rightRows : leftRows;
+        for (Row other : candidates) {
+          Row left = fromLeft ? row : other;
+          Row right = fromLeft ? other : row;
+          if (leftTable != null || op.match(left, right))
+            ret.add(op.call(left, right));
+        }
+        if (leftRows != null)
+          (fromLeft ? leftRows : rightRows).add(row);
+      }
+      return ret;
+    }
+
+    @Override
+    Relation getSnapshot() throws Exception {
+      if (incremental) {
+        if (leftRows == null)
+          throw new IllegalStateException("The rows of this join were not retained (see retainSnapshot)");
+        return evaluate(op,
+            new StreamingRelation(lhs.expr.getOutputSchema(), leftRows.iterator()),
+            new StreamingRelation(rhs.expr.getOutputSchema(), rightRows.iterator()));
+      }
+      return evaluate(op, lhs.getSnapshot(), rhs.getSnapshot());
+    }
+
+    @Override
+    void retainSnapshot() {
+      if (!incremental) {
+        lhs.retainSnapshot();
+        rhs.retainSnapshot();
+      }
+      else if (leftRows == null) {
+        // this is called before any rows are pushed, so the lists will contain all the rows
+        leftRows = new ArrayList<>();
+        rightRows = new ArrayList<>();
+      }
+    }
+  }
+
+  /**
+   * Reads the values of the join columns from a row by their ordinals, which are resolved once per schema.
+   */
+  private static class JoinKey {
+    private final String[] colNames;
+    private RelationSchema schema;
+    private int[] colIndices;
+
+    private JoinKey(Collection<String> colNames) {
+      this.colNames = colNames.toArray(new String[0]);
+    }
+
+    private List<Object> getValues(Row row) {
+      RelationSchema rowSchema = row.getSchema();
+      if (rowSchema != schema) {
+        int[] indices = new int[colNames.length];
+        for (int i = 0; i < colNames.length; i++)
+          indices[i] = rowSchema.getColIndex(colNames[i]);
+        colIndices = indices;
+        schema = rowSchema;
+      }
+      if (colIndices.length == 1)
+        return Collections.singletonList(row.getValue(colIndices[0]));
+      Object[] values = new Object[colIndices.length];
+      for (int i = 0; i < values.length; i++)
+        values[i] = row.getValue(colIndices[i]);
+      return Arrays.asList(values);
+    }
+  }
+}
@@ -21,7 +21,6 @@ import solutions.trsoftware.commons.server.memquery.MaterializedRelation;
 import solutions.trsoftware.commons.server.memquery.Row;
 import solutions.trsoftware.commons.server.memquery.RowFactory;
 import solutions.trsoftware.commons.server.memquery.algebra.Join;
-import solutions.trsoftware.commons.server.util.Duration;
 import solutions.trsoftware.commons.shared.util.iterators.FilteringIterator;
 import solutions.trsoftware.commons.shared.util.iterators.SingletonIterator;
 
@@ -52,11 +51,6 @@ abstract class NestedLoopJoinIterator<J extends Join<? extends Join.Params>> ext
   private Iterator<Row> unmatchedRightIter;
   private boolean reachedEnd;  // NOTE: might want to extract a superclass that handles this logic (could replace solutions.trsoftware.commons.shared.util.iterators.AdvancingIterator with this type of implementation)
 
-  // verbose output support:
-  protected boolean verbose = true;  // TODO: use this in all nontrivial evaluators and provide a way to set its value
-  protected Duration processingDuration;
-  protected int rowCount;
-
   public NestedLoopJoinIterator(J joinOp, Iterator<Row> leftIter, MaterializedRelation rightInputRelation) {
     this.leftIter = leftIter;
     this.joinOp = joinOp;
@@ -103,15 +97,6 @@ abstract class NestedLoopJoinIterator<J extends Join<? extends Join.Params>> ext
     else {
       // keep advancing the LHS cursor until a match is found on the RHS
       while (advanceLeft()) {
-        if (verbose) {
-          if (processingDuration == null)
-            processingDuration = new Duration(getClass().getSimpleName(), "");
-          rowCount++;
-          if (rowCount % 100000 == 0)
-            System.out.printf("      %s: %,d LHS rows processed, time elapsed: %s %n",
-                getClass().getSimpleName(), rowCount, processingDuration.formatAsClockTime(false));
-        }
-
         if (advanceRight()) {
           // found a match
           nextResult = joinOp.call(nextLeft, nextRight);
@@ -16,10 +16,11 @@
 
 package solutions.trsoftware.commons.server.memquery.eval;
 
-import solutions.trsoftware.commons.server.memquery.MaterializedRelation;
-import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.*;
 import solutions.trsoftware.commons.server.memquery.algebra.RelationalExpression;
 
+import java.util.Iterator;
+
 /**
  * @author Alex, 1/15/14
  */
@@ -27,7 +28,14 @@ public abstract class OperationEvaluator<O extends RelationalExpression, R exten
 
   protected final O op;
 
-  protected boolean verbose = true;  // TODO: use this in all nontrivial evaluators and provide a way to set its value
+  /** The runtime metrics of this evaluator, or {@code null} if profiling is disabled */
+  protected EvaluatorStats stats;
+
+  /**
+   * The number of rows per {@link RowBatch} to produce in batch mode, or {@code 0} (the default)
+   * to process the input one row at a time
+   */
+  protected int batchSize;
 
   protected OperationEvaluator(O op) {
     this.op = op;
@@ -37,6 +45,72 @@ public abstract class OperationEvaluator<O extends RelationalExpression, R exten
     return op;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @param batchSize the number of rows per {@link RowBatch} to produce, or {@code 0} to disable batch mode
+   * (in which case the input will be processed one row at a time)
+   * @return this instance, for method chaining
+   * @see BatchedRelation
+   */
+  public OperationEvaluator<O, R> setBatchSize(int batchSize) {
+    if (batchSize < 0)
+      throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * @return the runtime metrics of this evaluator, or {@code null} if profiling is disabled
+   */
+  public EvaluatorStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Enables profiling this evaluator.
+   * @param stats will be updated with the runtime metrics of this evaluator, or {@code null} to disable profiling
+   * @return this instance, for method chaining
+   */
+  public OperationEvaluator<O, R> setStats(EvaluatorStats stats) {
+    this.stats = stats;
+    return this;
+  }
+
+  /**
+   * @return the metrics of the given input evaluator, or {@code null} if it's not being profiled
+   */
+  static EvaluatorStats getStats(RelationalEvaluator<?> evaluator) {
+    return evaluator instanceof OperationEvaluator ? ((OperationEvaluator)evaluator).stats : null;
+  }
+
+  /**
+   * Updates the {@link #stats} after evaluating an input relation, if it wasn't produced by a profiled evaluator.
+   */
+  void profileInput(RelationalEvaluator<?> inputEvaluator, Relation input) {
+    if (getStats(inputEvaluator) == null)
+      stats.addBaseInput(input);
+  }
+
+  /**
+   * @return {@code true} iff this evaluator should produce its output in batches
+   */
+  protected boolean isBatchMode() {
+    return batchSize > 0;
+  }
+
+  /**
+   * Wraps the output rows of an evaluator that produces its output one row at a time.
+   * <p>
+   * The output is not assembled into batches even in {@linkplain #isBatchMode() batch mode}, since that would only
+   * add a layer of iteration (a batch-consuming evaluator downstream will assemble its own batches if needed).
+   */
+  protected StreamingRelation toOutputRelation(RelationSchema outputSchema, Iterator<Row> outputRows) {
+    return new StreamingRelation(outputSchema, outputRows);
+  }
+
   /**
    * Produces a materialized view from a streaming input relation.
    */
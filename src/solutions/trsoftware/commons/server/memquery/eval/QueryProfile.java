@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.MemQuery;
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.Row;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The result of an "EXPLAIN ANALYZE" of a query: the tree of {@link EvaluatorStats} collected while fully
+ * evaluating the query with a profiling pipeline.
+ * <p>
+ * The root of the tree represents the final sorting/limiting step, which consumes the output of the query's plan.
+ * <p>
+ * The getters of this class follow the JMX open type conventions, so the recent profiles can be
+ * inspected over JMX (see {@link QueryProfilerMXBean}).
+ *
+ * @see MemQuery#explainAnalyze(java.util.Map)
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QueryProfile {
+
+  private final String query;
+  private final long startTime;
+  private final EvaluatorStats root;
+
+  private QueryProfile(String query, long startTime, EvaluatorStats root) {
+    this.query = query;
+    this.startTime = startTime;
+    this.root = root;
+  }
+
+  /**
+   * Evaluates a profiling pipeline (see {@link EvalPipelineBuilder#setProfilingEnabled(boolean)}), and consumes all
+   * of its output rows.
+   *
+   * @param query the query being profiled
+   * @param outputOperation a description of the final step that produces the query's results from the output of the pipeline
+   * @param evaluator the root of the pipeline
+   * @param output the final step that produces the query's results from the output of the pipeline
+   * @return the collected metrics
+   */
+  public static QueryProfile run(MemQuery query, String outputOperation, RelationalEvaluator<Relation> evaluator,
+                                 Function<Relation, Iterator<Row>> output) throws Exception {
+    long startTime = System.currentTimeMillis();
+    EvaluatorStats root = new EvaluatorStats(outputOperation);
+    EvaluatorStats pipelineStats = OperationEvaluator.getStats(evaluator);
+    if (pipelineStats != null)
+      root.addInput(pipelineStats);
+    long rowCount = 0;
+    root.start();
+    try {
+      Relation result = evaluator.call();
+      if (pipelineStats == null)
+        root.addBaseInput(result);
+      for (Iterator<Row> it = output.apply(result); it.hasNext(); it.next())
+        rowCount++;
+    }
+    finally {
+      root.stop();
+      root.addRowsOut(rowCount);
+    }
+    return new QueryProfile(query.toString(), startTime, root);
+  }
+
+  /**
+   * @return the string representation of the query
+   */
+  public String getQuery() {
+    return query;
+  }
+
+  /**
+   * @return the time when the query started running, in epoch millis
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return the number of rows in the query's result
+   */
+  public long getRowCount() {
+    return root.getRowsOut();
+  }
+
+  public long getWallTimeNanos() {
+    return root.getWallTimeNanos();
+  }
+
+  public long getCpuTimeNanos() {
+    return root.getCpuTimeNanos();
+  }
+
+  public long getAllocatedBytes() {
+    return root.getAllocatedBytes();
+  }
+
+  /**
+   * @return the metrics of the root of the operator tree (which can be traversed with {@link EvaluatorStats#inputs()})
+   */
+  EvaluatorStats getRoot() {
+    return root;
+  }
+
+  /**
+   * @return the metrics of all the operations, listed in pre-order (i.e. each operation followed by its inputs,
+   * the same order as in {@link #getPlan()})
+   */
+  public List<EvaluatorStats> getOperators() {
+    List<EvaluatorStats> ret = new ArrayList<>();
+    addPreOrder(root, ret);
+    return Collections.unmodifiableList(ret);
+  }
+
+  private static void addPreOrder(EvaluatorStats node, List<EvaluatorStats> list) {
+    list.add(node);
+    for (EvaluatorStats input : node.inputs())
+      addPreOrder(input, list);
+  }
+
+  /**
+   * @return the operator tree annotated with its metrics
+   * @see EvalPipelinePrinter#printProfile(EvaluatorStats)
+   */
+  public String getPlan() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    print(new PrintStream(bytes, true));
+    return bytes.toString();
+  }
+
+  /**
+   * Prints the operator tree annotated with its metrics.
+   */
+  public void print(PrintStream out) {
+    out.printf("Profile of %s%n", query);
+    new EvalPipelinePrinter(1, out).printProfile(root);
+  }
+
+  @Override
+  public String toString() {
+    return getPlan();
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Retains the most recent {@link QueryProfile}s (produced by {@link solutions.trsoftware.commons.server.memquery.MemQuery#explainAnalyze})
+ * and exposes them over JMX (as {@value #OBJECT_NAME}).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QueryProfiler implements QueryProfilerMXBean {
+
+  private static final Logger LOGGER = Logger.getLogger(QueryProfiler.class.getName());
+
+  public static final String OBJECT_NAME = "solutions.trsoftware.commons.server.memquery:type=QueryProfiler";
+  public static final int DEFAULT_MAX_PROFILES = 20;
+
+  private static QueryProfiler instance;
+
+  private final ArrayDeque<QueryProfile> profiles = new ArrayDeque<>();
+  private int maxProfiles = DEFAULT_MAX_PROFILES;
+  private long profileCount;
+
+  /**
+   * @return the singleton instance, which is registered with the platform MBean server when this method is
+   * first invoked
+   */
+  public static synchronized QueryProfiler getInstance() {
+    if (instance == null) {
+      instance = new QueryProfiler();
+      try {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!mBeanServer.isRegistered(name))
+          mBeanServer.registerMBean(instance, name);
+      }
+      catch (JMException e) {
+        // not fatal, but the profiles won't be accessible over JMX
+        LOGGER.log(Level.WARNING, e, () -> "Unable to register " + OBJECT_NAME);
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Records a new profile, evicting the oldest one if the {@linkplain #getMaxProfiles() limit} has been reached.
+   */
+  public synchronized void add(QueryProfile profile) {
+    profiles.addLast(profile);
+    profileCount++;
+    trim();
+  }
+
+  private void trim() {
+    while (profiles.size() > maxProfiles)
+      profiles.removeFirst();
+  }
+
+  /**
+   * @return the most recently recorded profile, or {@code null} if there aren't any
+   */
+  public synchronized QueryProfile getLastProfile() {
+    return profiles.peekLast();
+  }
+
+  @Override
+  public synchronized List<QueryProfile> getRecentProfiles() {
+    return new ArrayList<>(profiles);
+  }
+
+  @Override
+  public synchronized long getProfileCount() {
+    return profileCount;
+  }
+
+  @Override
+  public synchronized int getMaxProfiles() {
+    return maxProfiles;
+  }
+
+  @Override
+  public synchronized void setMaxProfiles(int maxProfiles) {
+    if (maxProfiles < 0)
+      throw new IllegalArgumentException("maxProfiles < 0");
+    this.maxProfiles = maxProfiles;
+    trim();
+  }
+
+  @Override
+  public synchronized void clear() {
+    profiles.clear();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import java.util.List;
+
+/**
+ * Exposes the {@linkplain QueryProfiler recently-profiled queries} over JMX.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public interface QueryProfilerMXBean {
+
+  /**
+   * @return the recently-recorded profiles, starting with the oldest
+   */
+  List<QueryProfile> getRecentProfiles();
+
+  /**
+   * @return the total number of profiles recorded so far (including those that have been evicted)
+   */
+  long getProfileCount();
+
+  /**
+   * @return the maximum number of profiles to retain
+   */
+  int getMaxProfiles();
+
+  void setMaxProfiles(int maxProfiles);
+
+  /**
+   * Discards the recent profiles.
+   */
+  void clear();
+}
@@ -16,10 +16,7 @@
 
 package solutions.trsoftware.commons.server.memquery.eval;
 
-import solutions.trsoftware.commons.server.memquery.ArrayListRelation;
-import solutions.trsoftware.commons.server.memquery.MaterializedRelation;
-import solutions.trsoftware.commons.server.memquery.Relation;
-import solutions.trsoftware.commons.server.memquery.StreamingRelation;
+import solutions.trsoftware.commons.server.memquery.*;
 import solutions.trsoftware.commons.server.memquery.algebra.EquiJoin;
 import solutions.trsoftware.commons.server.memquery.algebra.Join;
 
@@ -38,6 +35,8 @@ import solutions.trsoftware.commons.server.memquery.algebra.Join;
  *    <li> Could make it multi-threaded by partitioning the LHS into T segments, with T threads merging them in parallel.</li>
  *  </ul>
  * TODO: implement these optimizations
+ * <p>
+ * NOTE: {@link EvalPipelineBuilder} uses {@link HashJoinEvaluator} instead of this class for equi-joins.
  *
  * @author Alex, 1/15/14
  */
@@ -58,7 +57,9 @@ public class StreamingJoinEvaluator<J extends Join<? extends Join.Params>> exten
           : new ArrayListRelation(rightInputRelation);
         joinIterator = new NestedLoopJoinIteratorImpl<J>(op, leftInputRelation, materializedRHS);
     }
-    return new StreamingRelation(op.getOutputSchema(), joinIterator);
+    if (stats != null)
+      stats.updatePeakTableSize(joinIterator.rightInputRelation.size());
+    return toOutputRelation(op.getOutputSchema(), joinIterator);
   }
 
 
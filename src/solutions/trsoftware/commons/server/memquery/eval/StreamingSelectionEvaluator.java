@@ -17,30 +17,74 @@
 package solutions.trsoftware.commons.server.memquery.eval;
 
 import com.google.common.base.Predicate;
-import solutions.trsoftware.commons.server.memquery.Relation;
-import solutions.trsoftware.commons.server.memquery.Row;
-import solutions.trsoftware.commons.server.memquery.StreamingRelation;
+import solutions.trsoftware.commons.server.memquery.*;
 import solutions.trsoftware.commons.server.memquery.algebra.Selection;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
 import solutions.trsoftware.commons.shared.util.iterators.PredicatedIterator;
 import solutions.trsoftware.commons.shared.util.iterators.TransformingIterator;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
 /**
  * An evaluator that can be used in a pipeline that doesn't produce any intermediate materialized relations.
+ * <p>
+ * If the input is a {@link ColumnarRelation}, the predicate is evaluated column-wise and the result is a view of the input
+ * (see {@link ColumnarRelation#select}).  Otherwise, the predicate is {@linkplain CompiledRowPredicate compiled}
+ * before being applied to the input rows.
+ * <p>
+ * If the input is an {@link IndexedRelation} with indexes on the columns referenced by the predicate, only the rows
+ * found in those indexes will be scanned.
+ * <p>
+ * In {@linkplain #isBatchMode() batch mode}, the predicate is applied to a {@link RowBatch} at a time,
+ * narrowing down its selection vector, and the output is a {@link BatchedRelation}.
  *
  * @author Alex, 1/15/14
  */
 public class StreamingSelectionEvaluator extends
-    UnaryOperationEvaluator<Selection, Relation, StreamingRelation> {
+    UnaryOperationEvaluator<Selection, Relation, Relation> {
 
   public StreamingSelectionEvaluator(Selection op, RelationalEvaluator<Relation> inputEvaluator) {
     super(op, inputEvaluator);
   }
 
   @Override
-  public StreamingRelation call(Relation input) {
+  public Relation call(Relation input) {
+    if (input instanceof ColumnarRelation)
+      return ((ColumnarRelation)input).select(op.getParams(), op.getOutputSchema());
+    CompiledRowPredicate filter = CompiledRowPredicate.compile(op.getParams());
+    Iterator<Row> inputIter = null;
+    if (input instanceof IndexedRelation) {
+      IndexedRelation indexedInput = (IndexedRelation)input;
+      int[] candidates = findCandidates(indexedInput, op.getParams());
+      if (candidates != null) {
+        // only need to check the rows found in the index
+        List<Row> rows = indexedInput.getRows();
+        inputIter = IntStream.of(candidates).mapToObj(rows::get).iterator();
+      }
+    }
+    if (isBatchMode()) {
+      // filter each batch in place with its selection vector, and transform only the selected rows
+      Iterator<RowBatch> inputBatches = inputIter != null
+          ? RowBatch.batches(inputIter, batchSize)
+          : RowBatch.batches(input, batchSize);  // full scan
+      return new BatchedStreamingRelation(op.getOutputSchema(),
+          new BatchTransformingIterator(inputBatches, batchSize) {
+            @Override
+            protected void transform(RowBatch inputBatch, RowBatch outputBatch) {
+              int n = inputBatch.select(filter::test);
+              for (int i = 0; i < n; i++)
+                outputBatch.add(op.call(inputBatch.get(i)));
+            }
+          });
+    }
+    if (inputIter == null)
+      inputIter = input.iterator();  // full scan
     return new StreamingRelation(op.getOutputSchema(),
         new TransformingIterator<Row, Row>(
-            new PredicatedIterator<>(input.iterator(), (Predicate<Row>)item -> op.getParams().apply(item))) {
+            new PredicatedIterator<>(inputIter, (Predicate<Row>)filter::test)) {
           @Override
           protected Row transform(Row inputRow) {
             return op.call(inputRow);
@@ -48,4 +92,62 @@ public class StreamingSelectionEvaluator extends
         }
     );
   }
+
+  /**
+   * Uses the indexes of the given relation to narrow down the rows that could possibly satisfy the given predicate.
+   * The predicate still has to be evaluated on the returned rows, because they might be a superset of the actual
+   * matches (e.g. when only one side of an {@link And} can be looked up in an index).
+   *
+   * @return the ordinals of the candidate rows (in ascending order),
+   * or {@code null} if the indexes can't be used to evaluate this predicate
+   */
+  static int[] findCandidates(IndexedRelation input, Expression<Row, Boolean> predicate) {
+    Class<?> predicateClass = predicate.getClass();
+    if (predicateClass == ColValueIn.class) {
+      ColValueIn<?> in = (ColValueIn<?>)predicate;
+      RelationIndex index = input.getIndex(in.getColName(), RelationIndex.Type.HASH);
+      if (index != null)
+        return index.findAll(in.getChoices());
+    }
+    else if (predicateClass == ColValueComparison.class) {
+      ColValueComparison<?> comparison = (ColValueComparison<?>)predicate;
+      String colName = comparison.getColName();
+      Object operand = comparison.getOperand();
+      ComparisonOperator op = comparison.getOperator();
+      // NOTE: a comparison with a null value throws an exception, which we have to preserve by doing a full scan
+      if (operand == null || op == ComparisonOperator.NE)
+        return null;
+      RelationIndex.SortedIndex sortedIndex = (RelationIndex.SortedIndex)input.getIndex(colName, RelationIndex.Type.SORTED);
+      if (sortedIndex != null && !sortedIndex.containsNulls()) {
+        switch (op) {
+          case EQ:
+            return sortedIndex.find(operand);
+          case LT:
+            return sortedIndex.findRange(null, false, operand, false);
+          case LE:
+            return sortedIndex.findRange(null, false, operand, true);
+          case GT:
+            return sortedIndex.findRange(operand, false, null, false);
+          case GE:
+            return sortedIndex.findRange(operand, true, null, false);
+        }
+      }
+      RelationIndex hashIndex = input.getIndex(colName, RelationIndex.Type.HASH);
+      if (op == ComparisonOperator.EQ && hashIndex != null && !hashIndex.containsNulls())
+        return hashIndex.find(operand);
+    }
+    else if (predicateClass == CompoundRowPredicate.class || predicateClass == And.class || predicateClass == Or.class) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)predicate;
+      int[] lhs = findCandidates(input, compound.getLHS());
+      int[] rhs = findCandidates(input, compound.getRHS());
+      if (compound.getOperator() == BooleanBinaryOperator.AND) {
+        if (lhs != null && rhs != null)
+          return RelationIndex.intersection(lhs, rhs);
+        return lhs != null ? lhs : rhs;
+      }
+      else if (lhs != null && rhs != null)
+        return RelationIndex.union(lhs, rhs);
+    }
+    return null;
+  }
 }
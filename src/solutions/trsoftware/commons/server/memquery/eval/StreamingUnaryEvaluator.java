@@ -16,26 +16,47 @@
 
 package solutions.trsoftware.commons.server.memquery.eval;
 
-import solutions.trsoftware.commons.server.memquery.Relation;
-import solutions.trsoftware.commons.server.memquery.Row;
-import solutions.trsoftware.commons.server.memquery.StreamingRelation;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.Projection;
+import solutions.trsoftware.commons.server.memquery.algebra.Rename;
 import solutions.trsoftware.commons.server.memquery.algebra.StreamableUnaryOperation;
 import solutions.trsoftware.commons.shared.util.iterators.TransformingIterator;
 
 /**
  * An evaluator that can be used in a pipeline that doesn't produce any intermediate materialized relations.
+ * <p>
+ * A {@link Projection} or {@link Rename} of a {@link ColumnarRelation} is evaluated as a view of the input,
+ * without copying any rows.  Otherwise, in {@linkplain #isBatchMode() batch mode}, the rows are transformed
+ * a {@link RowBatch} at a time, and the output is a {@link BatchedRelation}.
  *
  * @author Alex, 1/15/14
  */
 public class StreamingUnaryEvaluator extends
-    UnaryOperationEvaluator<StreamableUnaryOperation, Relation, StreamingRelation> {
+    UnaryOperationEvaluator<StreamableUnaryOperation, Relation, Relation> {
 
   public StreamingUnaryEvaluator(StreamableUnaryOperation op, RelationalEvaluator<Relation> inputEvaluator) {
     super(op, inputEvaluator);
   }
 
   @Override
-  public StreamingRelation call(Relation input) {
+  public Relation call(Relation input) {
+    if (input instanceof ColumnarRelation) {
+      ColumnarRelation columnarInput = (ColumnarRelation)input;
+      if (op.getClass() == Projection.class)
+        return columnarInput.project(op.getOutputSchema(), ((Projection)op).getParams());
+      if (op instanceof Rename)
+        return columnarInput.withSchema(op.getOutputSchema());
+    }
+    if (isBatchMode()) {
+      return new BatchedStreamingRelation(op.getOutputSchema(),
+          new BatchTransformingIterator(RowBatch.batches(input, batchSize), batchSize) {
+            @Override
+            protected void transform(RowBatch inputBatch, RowBatch outputBatch) {
+              for (int i = 0, n = inputBatch.count(); i < n; i++)
+                outputBatch.add(op.call(inputBatch.get(i)));
+            }
+          });
+    }
     return new StreamingRelation(op.getOutputSchema(),
         new TransformingIterator<Row, Row>(input.iterator()) {
           @Override
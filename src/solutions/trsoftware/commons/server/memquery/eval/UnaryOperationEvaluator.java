@@ -40,8 +40,19 @@ public abstract class UnaryOperationEvaluator<O extends RelationalExpression, I
 
 
   @Override
+  @SuppressWarnings("unchecked")
   public R call() throws Exception {
-    return call(inputEvaluator.call());
+    if (stats == null)
+      return call(inputEvaluator.call());
+    stats.start();
+    try {
+      I input = inputEvaluator.call();
+      profileInput(inputEvaluator, input);
+      return (R)stats.wrapOutput(call(input));
+    }
+    finally {
+      stats.stop();
+    }
   }
 
   @Override
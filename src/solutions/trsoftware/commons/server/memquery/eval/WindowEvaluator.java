@@ -0,0 +1,200 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.AbstractIterator;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.Window;
+import solutions.trsoftware.commons.server.memquery.window.WindowCursor;
+import solutions.trsoftware.commons.server.memquery.window.WindowFunction;
+import solutions.trsoftware.commons.server.memquery.window.WindowSpec;
+import solutions.trsoftware.commons.shared.util.LogicUtils;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Evaluates the {@link Window} operation in a streaming fashion: sorts the input once (with a {@link RowSorter},
+ * by the partitioning columns followed by the window's sort orders), and then scans the sorted rows, updating
+ * an {@link WindowFunction.Accumulator} for each function, which is reset at the start of every partition.
+ * <p>
+ * Aside from the sort, only the rows needed for the largest {@linkplain WindowFunction#getLookahead() lookahead}
+ * are buffered, so the memory usage doesn't depend on the size of the partitions.
+ * If the output relation is abandoned before all its rows have been consumed, it should be
+ * {@linkplain StreamingRelation#close() closed}, to delete the sorted runs that might have been spilled to disk.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class WindowEvaluator extends UnaryOperationEvaluator<Window, Relation, StreamingRelation> {
+
+  private int sortMemoryBudget = RowSorter.DEFAULT_MEMORY_BUDGET;
+
+  public WindowEvaluator(Window op, RelationalEvaluator<Relation> inputEvaluator) {
+    super(op, inputEvaluator);
+  }
+
+  public int getSortMemoryBudget() {
+    return sortMemoryBudget;
+  }
+
+  /**
+   * @param sortMemoryBudget the max number of rows to hold in memory while sorting the input
+   * @return this instance, for method chaining
+   * @see RowSorter#setMemoryBudget(int)
+   */
+  public WindowEvaluator setSortMemoryBudget(int sortMemoryBudget) {
+    this.sortMemoryBudget = sortMemoryBudget;
+    return this;
+  }
+
+  @Override
+  public StreamingRelation call(Relation input) {
+    RelationSchema inputSchema = input.getSchema();
+    List<SortOrder> sortOrders = op.getParams().getWindowSpec().getSortOrders();
+    Iterator<Row> rows = input.iterator();
+    if (!sortOrders.isEmpty())
+      rows = new RowSorter(inputSchema, sortOrders).setMemoryBudget(sortMemoryBudget).sort(rows, Integer.MAX_VALUE);
+    return toOutputRelation(op.getOutputSchema(), new WindowIterator(inputSchema, rows));
+  }
+
+  /**
+   * Emits the sorted input rows, extended with the values of the window functions.
+   */
+  private class WindowIterator extends AbstractIterator<Row> implements WindowCursor, Closeable {
+    private final Iterator<Row> sortedRows;
+    private final RelationSchema outputSchema = op.getOutputSchema();
+    private final int inputWidth;
+    private final int[] partitionColIndices;
+    private final int[] orderColIndices;
+    private final WindowFunction.Accumulator<?>[] accumulators;
+    private final int lookahead;
+    /** The rows following {@link #current} (up to {@link #lookahead} of them) */
+    private final ArrayDeque<Row> buffer;
+
+    // the cursor state:
+    private Row current;
+    private Row previous;
+    private int position;
+    private boolean peer;
+
+    private WindowIterator(RelationSchema inputSchema, Iterator<Row> sortedRows) {
+      this.sortedRows = sortedRows;
+      inputWidth = inputSchema.size();
+      WindowSpec windowSpec = op.getParams().getWindowSpec();
+      partitionColIndices = getColIndices(inputSchema, windowSpec.getPartitionBy());
+      List<SortOrder> orderBy = windowSpec.getOrderBy();
+      orderColIndices = new int[orderBy.size()];
+      for (int i = 0; i < orderColIndices.length; i++)
+        orderColIndices[i] = inputSchema.getColIndex(orderBy.get(i).getName());
+      Collection<WindowFunction<?>> functions = op.getParams().getFunctionsByName().values();
+      accumulators = new WindowFunction.Accumulator<?>[functions.size()];
+      int maxLookahead = 0;
+      int i = 0;
+      for (WindowFunction<?> function : functions) {
+        accumulators[i++] = function.newAccumulator(inputSchema);
+        maxLookahead = Math.max(maxLookahead, function.getLookahead());
+      }
+      lookahead = maxLookahead;
+      buffer = new ArrayDeque<>(lookahead + 1);
+    }
+
+    @Override
+    public void close() {
+      buffer.clear();
+      StreamingRelation.close(sortedRows);
+    }
+
+    private int[] getColIndices(RelationSchema schema, List<String> colNames) {
+      int[] ret = new int[colNames.size()];
+      for (int i = 0; i < ret.length; i++)
+        ret[i] = schema.getColIndex(colNames.get(i));
+      return ret;
+    }
+
+    @Override
+    protected Row computeNext() {
+      while (buffer.size() <= lookahead && sortedRows.hasNext())
+        buffer.addLast(sortedRows.next());
+      if (buffer.isEmpty())
+        return endOfData();
+      previous = current;
+      current = buffer.removeFirst();
+      if (previous == null || !equalValues(previous, current, partitionColIndices)) {
+        // start a new partition
+        position = 0;
+        peer = false;
+        for (WindowFunction.Accumulator<?> accumulator : accumulators)
+          accumulator.reset();
+      }
+      else {
+        position++;
+        peer = equalValues(previous, current, orderColIndices);
+      }
+      MutableRow ret = RowFactory.getInstance().newRow(outputSchema);
+      for (int i = 0; i < inputWidth; i++)
+        ret.setValue(i, current.getValue(i));
+      for (int i = 0; i < accumulators.length; i++)
+        ret.setValue(inputWidth + i, accumulators[i].next(this));
+      return ret;
+    }
+
+    private boolean equalValues(Row a, Row b, int[] colIndices) {
+      for (int idx : colIndices) {
+        if (!LogicUtils.eq(a.getValue(idx), b.getValue(idx)))
+          return false;
+      }
+      return true;
+    }
+
+    // WindowCursor methods:
+
+    @Override
+    public Row current() {
+      return current;
+    }
+
+    @Override
+    public int position() {
+      return position;
+    }
+
+    @Override
+    public boolean isPeer() {
+      return peer;
+    }
+
+    @Override
+    public Row lookahead(int k) {
+      if (k < 1 || k > lookahead)
+        throw new IllegalArgumentException("lookahead: " + k);
+      Iterator<Row> it = buffer.iterator();
+      for (int i = 1; it.hasNext(); i++) {
+        Row row = it.next();
+        if (!equalValues(current, row, partitionColIndices))
+          return null;  // the row belongs to the next partition
+        if (i == k)
+          return row;
+      }
+      return null;
+    }
+  }
+}
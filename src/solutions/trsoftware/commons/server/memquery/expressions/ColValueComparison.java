@@ -37,6 +37,14 @@ public class ColValueComparison<T extends Comparable> extends ColValuePredicate<
     return op.compare(value, operand);
   }
 
+  public ComparisonOperator getOperator() {
+    return op;
+  }
+
+  public T getOperand() {
+    return operand;
+  }
+
   @Override
   public String toString() {
     return colName + ' ' + op + ' ' + operand;
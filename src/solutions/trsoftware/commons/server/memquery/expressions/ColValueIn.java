@@ -17,6 +17,7 @@
 package solutions.trsoftware.commons.server.memquery.expressions;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -39,6 +40,10 @@ public class ColValueIn<T extends Comparable> extends ColValuePredicate<T> {
     return choices.contains(value);
   }
 
+  public Set<T> getChoices() {
+    return Collections.unmodifiableSet(choices);
+  }
+
   @Override
   public String toString() {
     return colName + " IN " + choices;
@@ -36,6 +36,10 @@ public abstract class ColValuePredicate<T> extends RowPredicate {
 
   public abstract boolean eval(T value);
 
+  public String getColName() {
+    return colName;
+  }
+
 
   /** Factory method */
   public static IsNull isNull(String colName) {
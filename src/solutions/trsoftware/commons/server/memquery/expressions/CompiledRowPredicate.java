@@ -0,0 +1,265 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.expressions;
+
+import solutions.trsoftware.commons.server.memquery.ObjectRow;
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.ReflectionAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Compiles a row predicate into a chain of {@link MethodHandle}s, which can be evaluated on each row with a single
+ * {@link MethodHandle#invokeExact invokeExact} call (that the JIT can inline), instead of walking the expression tree
+ * and looking up every column value by name.
+ * <p>
+ * The compilation resolves the column names referenced by the predicate to their ordinals in the schema
+ * of the input rows, and (for {@link ObjectRow}s) binds the accessors of {@link ReflectionAccessorColSpec} columns
+ * directly, comparing primitive values without boxing them.
+ * Since it depends on the schema, the predicate is compiled lazily on the first row, and recompiled if a row
+ * with a different schema comes along.
+ * <p>
+ * The following expressions are compiled: {@link ColValueComparison}, {@link ColValueIn}, {@link IsNull},
+ * {@link IsNotNull}, {@link ConstantPredicate}, and {@link And}/{@link Or}/{@link CompoundRowPredicate} combinations
+ * thereof (which short-circuit, like {@link And}).  Any other {@link ColValuePredicate} is compiled as a call
+ * to its {@link ColValuePredicate#eval(Object) eval} method, and any other expression as a call to its
+ * {@link Expression#apply(Object) apply} method.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class CompiledRowPredicate extends RowPredicate {
+
+  private static final MethodHandle ROW_GET_VALUE;
+  private static final MethodHandle OBJECT_ROW_GET_OBJECT;
+  private static final MethodHandle EXPRESSION_APPLY;
+  private static final MethodHandle COL_VALUE_PREDICATE_EVAL;
+  private static final MethodHandle SET_CONTAINS;
+  private static final MethodHandle IS_NULL;
+  private static final MethodHandle NON_NULL;
+  private static final MethodHandle COMPARE;
+  private static final MethodHandle COMPARE_INT;
+  private static final MethodHandle COMPARE_LONG;
+  private static final MethodHandle COMPARE_DOUBLE;
+
+  static {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      ROW_GET_VALUE = lookup.findVirtual(Row.class, "getValue", methodType(Object.class, int.class));
+      OBJECT_ROW_GET_OBJECT = lookup.findVirtual(ObjectRow.class, "getObject", methodType(Object.class));
+      EXPRESSION_APPLY = lookup.findVirtual(Expression.class, "apply", methodType(Object.class, Object.class));
+      COL_VALUE_PREDICATE_EVAL = lookup.findVirtual(ColValuePredicate.class, "eval", methodType(boolean.class, Object.class));
+      SET_CONTAINS = lookup.findVirtual(Set.class, "contains", methodType(boolean.class, Object.class));
+      IS_NULL = lookup.findStatic(Objects.class, "isNull", methodType(boolean.class, Object.class));
+      NON_NULL = lookup.findStatic(Objects.class, "nonNull", methodType(boolean.class, Object.class));
+      COMPARE = lookup.findStatic(CompiledRowPredicate.class, "compare",
+          methodType(boolean.class, ComparisonOperator.class, Comparable.class, Comparable.class));
+      COMPARE_INT = lookup.findStatic(CompiledRowPredicate.class, "compare",
+          methodType(boolean.class, ComparisonOperator.class, int.class, int.class));
+      COMPARE_LONG = lookup.findStatic(CompiledRowPredicate.class, "compare",
+          methodType(boolean.class, ComparisonOperator.class, long.class, long.class));
+      COMPARE_DOUBLE = lookup.findStatic(CompiledRowPredicate.class, "compare",
+          methodType(boolean.class, ComparisonOperator.class, double.class, double.class));
+    }
+    catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /** The type of the compiled method handles */
+  private static final MethodType PREDICATE_TYPE = methodType(boolean.class, Row.class);
+
+  private final Expression<Row, Boolean> predicate;
+
+  /**
+   * The predicate compiled for the current input schema (this object is immutable, which makes it safe to
+   * replace it when a row with a different schema is encountered).
+   */
+  private Compiled compiled;
+
+  private CompiledRowPredicate(Expression<Row, Boolean> predicate) {
+    this.predicate = predicate;
+  }
+
+  /**
+   * Factory method.
+   * @return a compiled version of the given predicate, or the same instance if it's already compiled
+   */
+  public static CompiledRowPredicate compile(Expression<Row, Boolean> predicate) {
+    if (predicate instanceof CompiledRowPredicate)
+      return (CompiledRowPredicate)predicate;
+    return new CompiledRowPredicate(predicate);
+  }
+
+  /**
+   * @return the original (uncompiled) predicate
+   */
+  public Expression<Row, Boolean> getPredicate() {
+    return predicate;
+  }
+
+  @Override
+  public boolean test(Row row) {
+    Compiled c = compiled;
+    if (c == null || !c.accepts(row))
+      compiled = c = new Compiled(row);
+    try {
+      return (boolean)c.handle.invokeExact(row);
+    }
+    catch (RuntimeException | Error e) {
+      throw e;
+    }
+    catch (Throwable e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public Boolean apply(Row row) {
+    return test(row);
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(predicate);
+  }
+
+  /**
+   * The predicate compiled for the schema and the class of a particular row.
+   */
+  private class Compiled {
+    private final RelationSchema schema;
+    private final Class<? extends Row> rowClass;
+    /** Has the type {@link #PREDICATE_TYPE} */
+    private final MethodHandle handle;
+
+    private Compiled(Row row) {
+      schema = row.getSchema();
+      rowClass = row.getClass();
+      handle = compileExpression(predicate);
+    }
+
+    private boolean accepts(Row row) {
+      return row.getSchema() == schema && row.getClass() == rowClass;
+    }
+
+    private MethodHandle compileExpression(Expression<Row, Boolean> expr) {
+      Class<?> exprClass = expr.getClass();
+      if (expr instanceof ConstantPredicate)
+        return constant(((ConstantPredicate)expr).getValue());
+      if (exprClass == CompoundRowPredicate.class || exprClass == And.class || exprClass == Or.class) {
+        CompoundRowPredicate compound = (CompoundRowPredicate)expr;
+        MethodHandle lhs = compileExpression(compound.getLHS());
+        MethodHandle rhs = compileExpression(compound.getRHS());
+        switch (compound.getOperator()) {
+          case AND:
+            return MethodHandles.guardWithTest(lhs, rhs, constant(false));
+          case OR:
+            return MethodHandles.guardWithTest(lhs, constant(true), rhs);
+        }
+      }
+      if (expr instanceof ColValuePredicate)
+        return compileColValuePredicate((ColValuePredicate)expr);
+      // fall back on invoking the expression itself
+      return EXPRESSION_APPLY.bindTo(expr).asType(PREDICATE_TYPE);
+    }
+
+    private MethodHandle compileColValuePredicate(ColValuePredicate<?> expr) {
+      MethodHandle accessor = compileAccessor(expr.getColName());
+      Class<?> valueType = accessor.type().returnType();
+      Class<?> exprClass = expr.getClass();
+      MethodHandle test;  // has the type (valueType)boolean
+      if (exprClass == IsNull.class)
+        test = IS_NULL;
+      else if (exprClass == IsNotNull.class)
+        test = NON_NULL;
+      else if (exprClass == ColValueIn.class)
+        test = SET_CONTAINS.bindTo(new HashSet<>(((ColValueIn<?>)expr).getChoices()));
+      else if (exprClass == ColValueComparison.class) {
+        ColValueComparison<?> comparison = (ColValueComparison<?>)expr;
+        ComparisonOperator op = comparison.getOperator();
+        Object operand = comparison.getOperand();
+        // compare the primitive values directly if the accessor doesn't box them
+        if (valueType == int.class && operand instanceof Integer)
+          test = MethodHandles.insertArguments(COMPARE_INT, 0, op, operand);
+        else if (valueType == long.class && operand instanceof Long)
+          test = MethodHandles.insertArguments(COMPARE_LONG, 0, op, operand);
+        else if (valueType == double.class && operand instanceof Double)
+          test = MethodHandles.insertArguments(COMPARE_DOUBLE, 0, op, operand);
+        else
+          test = MethodHandles.insertArguments(COMPARE, 0, op, operand);
+      }
+      else
+        test = COL_VALUE_PREDICATE_EVAL.bindTo(expr);
+      test = test.asType(methodType(boolean.class, valueType));
+      return MethodHandles.filterArguments(test, 0, accessor);
+    }
+
+    /**
+     * @return a method handle that returns the value of the given column from a row,
+     * which has the type {@code (Row)T}, where {@code T} could be a primitive type
+     */
+    private MethodHandle compileAccessor(String colName) {
+      int colIndex = schema.getColIndex(colName);
+      ColSpec colSpec = schema.get(colIndex);
+      if (ObjectRow.class.isAssignableFrom(rowClass) && colSpec instanceof ReflectionAccessorColSpec) {
+        // bypass the ColSpec and read the value directly from the underlying object
+        MethodHandle getter = ((ReflectionAccessorColSpec<?>)colSpec).getGetter();
+        return MethodHandles.filterArguments(getter, 0, OBJECT_ROW_GET_OBJECT)
+            .asType(methodType(getter.type().returnType(), Row.class));
+      }
+      return MethodHandles.insertArguments(ROW_GET_VALUE, 1, colIndex);
+    }
+  }
+
+  /**
+   * @return a method handle of type {@link #PREDICATE_TYPE} that always returns the given value
+   */
+  private static MethodHandle constant(boolean value) {
+    return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, value), 0, Row.class);
+  }
+
+  // the following methods are the same as ComparisonOperator.compare (which throws NPE on a null value),
+  // but with the args reordered to be bound with MethodHandles.insertArguments
+
+  @SuppressWarnings("unchecked")
+  private static boolean compare(ComparisonOperator op, Comparable rhs, Comparable lhs) {
+    return op.compare(lhs, rhs);
+  }
+
+  private static boolean compare(ComparisonOperator op, int rhs, int lhs) {
+    return op.test(Integer.compare(lhs, rhs));
+  }
+
+  private static boolean compare(ComparisonOperator op, long rhs, long lhs) {
+    return op.test(Long.compare(lhs, rhs));
+  }
+
+  private static boolean compare(ComparisonOperator op, double rhs, double lhs) {
+    return op.test(Double.compare(lhs, rhs));
+  }
+}
@@ -38,6 +38,18 @@ public class CompoundRowPredicate extends RowPredicate {
     return op.apply(lhs.apply(arg), rhs.apply(arg));
   }
 
+  public RowPredicate getLHS() {
+    return lhs;
+  }
+
+  public RowPredicate getRHS() {
+    return rhs;
+  }
+
+  public BooleanBinaryOperator getOperator() {
+    return op;
+  }
+
   @Override
   public String toString() {
     return String.valueOf(lhs) + ' ' + op.name() + ' ' + rhs;
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.expressions;
+
+import solutions.trsoftware.commons.server.memquery.Row;
+
+/**
+ * A predicate that ignores its argument and always evaluates to the same {@link Constant} value.
+ * <p>
+ * Unlike {@link Constant} (whose argument type is {@link Void}), this class can be used as an operand of
+ * {@link And} / {@link Or} and as a {@link solutions.trsoftware.commons.server.memquery.algebra.Selection} filter,
+ * which allows {@link solutions.trsoftware.commons.server.memquery.algebra.QueryOptimizer} to fold it away.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ConstantPredicate extends RowPredicate {
+
+  public static final ConstantPredicate TRUE = new ConstantPredicate(new Constant<>(true));
+  public static final ConstantPredicate FALSE = new ConstantPredicate(new Constant<>(false));
+
+  private final Constant<Boolean> constant;
+
+  private ConstantPredicate(Constant<Boolean> constant) {
+    this.constant = constant;
+  }
+
+  public static ConstantPredicate valueOf(boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  public boolean getValue() {
+    return constant.getValue();
+  }
+
+  @Override
+  public Boolean apply(Row arg) {
+    return constant.getValue();
+  }
+
+  @Override
+  public String toString() {
+    return getValue() ? "TRUE" : "FALSE";
+  }
+}
@@ -17,7 +17,8 @@
 package solutions.trsoftware.commons.server.memquery.output;
 
 import solutions.trsoftware.commons.server.io.csv.CSVWriter;
-import solutions.trsoftware.commons.server.memquery.ResultSet;
+import solutions.trsoftware.commons.server.memquery.MemQuery;
+import solutions.trsoftware.commons.server.memquery.Relation;
 
 import java.io.PrintStream;
 import java.io.StringWriter;
@@ -29,24 +30,25 @@ public class CsvPrinter extends ResultSetPrinter<CsvPrinter> {
   }
 
   @Override
-  public void print(ResultSet rs, PrintStream out) {
-    new Impl(rs, out).print();
+  protected PrinterImpl createImpl(MemQuery query, Relation results, PrintStream out) {
+    return new Impl(query, results, out);
   }
 
   protected class Impl extends PrinterImpl {
 
     private CSVWriter csvWriter;
+    private final StringBuilder cellBuffer = new StringBuilder();
 
-    protected Impl(ResultSet resultSet, PrintStream out) {
-      super(resultSet, out);
+    protected Impl(MemQuery query, Relation results, PrintStream out) {
+      super(query, results, out);
       csvWriter = new CSVWriter(new StringWriter()); // since we're only using the writeNextElement method of CSVWriter, we can just pass an empty StringWriter
     }
 
     @Override
     protected void printCell(String value, int col) {
-      StringBuilder sb = new StringBuilder();
-      csvWriter.writeNextElement(sb, value, isFirstCol(col));
-      out.print(sb.toString());
+      cellBuffer.setLength(0);
+      csvWriter.writeNextElement(cellBuffer, value, isFirstCol(col));
+      out.append(cellBuffer);
     }
   }
 }
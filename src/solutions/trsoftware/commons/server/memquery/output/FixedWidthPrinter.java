@@ -16,29 +16,46 @@
 
 package solutions.trsoftware.commons.server.memquery.output;
 
-import solutions.trsoftware.commons.server.memquery.RelationSchema;
-import solutions.trsoftware.commons.server.memquery.ResultSet;
+import com.google.common.collect.Iterators;
+import solutions.trsoftware.commons.server.memquery.MaterializedRelation;
+import solutions.trsoftware.commons.server.memquery.MemQuery;
+import solutions.trsoftware.commons.server.memquery.Relation;
 import solutions.trsoftware.commons.server.memquery.Row;
 
 import java.io.PrintStream;
-import java.util.Iterator;
+import java.util.*;
 
 import static solutions.trsoftware.commons.shared.util.StringUtils.*;
 
-/** Uses printf to print the data as fixed-width columns of text */
+/**
+ * Uses printf to print the data as fixed-width columns of text.
+ * <p>
+ * The width of each column is either {@linkplain #setColWidth(int, int) declared} in advance, or computed from the
+ * widest formatted value in that column.  When printing a {@link MaterializedRelation}, all of its rows are scanned
+ * to compute the widths, but for a streaming relation, only the first {@link #getSampleSize()} rows are used
+ * (and any wider values that come later will overflow their columns).
+ */
 public class FixedWidthPrinter extends ResultSetPrinter<FixedWidthPrinter> {
 
+  public static final int DEFAULT_SAMPLE_SIZE = 1000;
+
   private boolean bordersEnabled = false;
   /** The number of extra spaces to offset each column on the left */
   private int cellHorizontalPadding = 1;
   private String verticalBorderSeparator = "|";
+  /**
+   * The number of rows of a streaming relation to buffer for computing the column widths
+   */
+  private int sampleSize = DEFAULT_SAMPLE_SIZE;
+  /** The declared widths, by column number (-1 denotes the ordinal column) */
+  private Map<Integer, Integer> colWidths = new LinkedHashMap<>();
 
   public FixedWidthPrinter() {
   }
 
   @Override
-  public void print(ResultSet rs, PrintStream out) {
-    new Impl(rs, out).print();
+  protected PrinterImpl createImpl(MemQuery query, Relation results, PrintStream out) {
+    return new Impl(query, results, out);
   }
 
   public boolean isBordersEnabled() {
@@ -68,14 +85,51 @@ public class FixedWidthPrinter extends ResultSetPrinter<FixedWidthPrinter> {
     return this;
   }
 
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  /**
+   * @param sampleSize the number of rows of a streaming relation to buffer for computing the column widths
+   * (the rows of a {@link MaterializedRelation} are always scanned in full)
+   */
+  public FixedWidthPrinter setSampleSize(int sampleSize) {
+    if (sampleSize < 0)
+      throw new IllegalArgumentException("sampleSize < 0");
+    this.sampleSize = sampleSize;
+    return this;
+  }
+
+  /**
+   * Declares the width of a column, so that it doesn't have to be computed from the data.
+   * Values wider than this will overflow the column.
+   *
+   * @param col the column number (-1 denotes the ordinal column)
+   * @param width the number of characters
+   */
+  public FixedWidthPrinter setColWidth(int col, int width) {
+    colWidths.put(col, width);
+    return this; // for method chaining
+  }
+
 
   protected class Impl extends PrinterImpl {
 
     private int[] maxColWidths;
     private String[] colFormats;
+    /** The rows of a streaming relation that were consumed for computing the column widths */
+    private List<Row> sample;
+    private Iterator<Row> remainingRows;
+
+    protected Impl(MemQuery query, Relation results, PrintStream out) {
+      super(query, results, out);
+    }
 
-    protected Impl(ResultSet resultSet, PrintStream out) {
-      super(resultSet, out);
+    @Override
+    protected Iterator<Row> rowIterator() {
+      if (sample != null)
+        return Iterators.concat(sample.iterator(), remainingRows);
+      return super.rowIterator();
     }
 
     private int getColWidth(int col) {
@@ -141,8 +195,7 @@ public class FixedWidthPrinter extends ResultSetPrinter<FixedWidthPrinter> {
     @Override
     protected void prepareForPrinting() {
       // 1) calculate the max width of each column
-      // to do so, we must iterate over the result set and get the formatted value of each table cell
-      RelationSchema schema = resultSet.getSchema();
+      // to do so, we must iterate over the rows (or a sample of them) and get the formatted value of each table cell
       int nCols = schema.size();
       int extraCols;
       if (isOrdinalColEnabled()) {
@@ -160,17 +213,41 @@ public class FixedWidthPrinter extends ResultSetPrinter<FixedWidthPrinter> {
           maxColWidths[j] = schema.get(j - extraCols).getName().length();
         }
       }
-      // 1b) compute maxColWidths by iterating over the result set once
-      Iterator<Row> resultSetIterator = resultSet.iterator();
-      for (int i = 0; resultSetIterator.hasNext(); i++) {
-        Row row = resultSetIterator.next();
-        if (isOrdinalColEnabled())
-          maxColWidths[0] = Integer.toString(i).length();
-        for (int j = 0; j < nCols; j++) {
-          int vLen = formatValue(row.getValue(j), j).length();
-          int m = j + extraCols;
-          if (vLen > maxColWidths[m])
-            maxColWidths[m] = vLen;
+      // 1b) compute maxColWidths by iterating over the rows once (unless all the widths have been declared)
+      boolean[] declared = new boolean[maxColWidths.length];
+      int nDeclared = 0;
+      for (int j = 0; j < maxColWidths.length; j++) {
+        Integer width = colWidths.get(j - extraCols);
+        if (width != null) {
+          maxColWidths[j] = width;
+          declared[j] = true;
+          nDeclared++;
+        }
+      }
+      if (nDeclared < maxColWidths.length) {
+        Iterator<Row> rowIterator;
+        if (results instanceof MaterializedRelation)
+          rowIterator = results.iterator();
+        else {
+          // buffer a sample of the rows, which will be printed before the rest
+          remainingRows = results.iterator();
+          sample = new ArrayList<>();
+          while (sample.size() < sampleSize && remainingRows.hasNext())
+            sample.add(remainingRows.next());
+          rowIterator = sample.iterator();
+        }
+        for (int i = 1; rowIterator.hasNext(); i++) {
+          Row row = rowIterator.next();
+          if (isOrdinalColEnabled() && !declared[0])
+            maxColWidths[0] = Math.max(maxColWidths[0], Integer.toString(i).length());
+          for (int j = 0; j < nCols; j++) {
+            int m = j + extraCols;
+            if (!declared[m]) {
+              int vLen = formatValue(row.getValue(j), j).length();
+              if (vLen > maxColWidths[m])
+                maxColWidths[m] = vLen;
+            }
+          }
         }
       }
       // 2) compute the format string for each column, adding 2 extra spaces to each for better readability
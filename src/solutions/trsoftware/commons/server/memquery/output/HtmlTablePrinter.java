@@ -16,7 +16,8 @@
 
 package solutions.trsoftware.commons.server.memquery.output;
 
-import solutions.trsoftware.commons.server.memquery.ResultSet;
+import solutions.trsoftware.commons.server.memquery.MemQuery;
+import solutions.trsoftware.commons.server.memquery.Relation;
 import solutions.trsoftware.commons.shared.util.StringUtils;
 
 import java.io.PrintStream;
@@ -52,14 +53,14 @@ public class HtmlTablePrinter extends ResultSetPrinter<HtmlTablePrinter> {
   }
 
   @Override
-  public void print(ResultSet rs, PrintStream out) {
-    new Impl(rs, out).print();
+  protected PrinterImpl createImpl(MemQuery query, Relation results, PrintStream out) {
+    return new Impl(query, results, out);
   }
 
   protected class Impl extends PrinterImpl {
 
-    protected Impl(ResultSet resultSet, PrintStream out) {
-      super(resultSet, out);
+    protected Impl(MemQuery query, Relation results, PrintStream out) {
+      super(query, results, out);
     }
 
     @Override
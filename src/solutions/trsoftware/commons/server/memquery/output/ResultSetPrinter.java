@@ -16,10 +16,7 @@
 
 package solutions.trsoftware.commons.server.memquery.output;
 
-import solutions.trsoftware.commons.server.memquery.MemQuery;
-import solutions.trsoftware.commons.server.memquery.RelationSchema;
-import solutions.trsoftware.commons.server.memquery.ResultSet;
-import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.memquery.*;
 import solutions.trsoftware.commons.server.memquery.util.Formatters;
 
 import java.io.PrintStream;
@@ -27,7 +24,12 @@ import java.util.Iterator;
 
 import static solutions.trsoftware.commons.shared.util.StringUtils.capitalize;
 
-/** Defines a result set printing configuration.  Instances may be reused to print multiple result sets. */
+/**
+ * Defines a result set printing configuration.  Instances may be reused to print multiple result sets.
+ * <p>
+ * Besides a materialized {@link ResultSet}, any {@link Relation} can be printed with {@link #print(MemQuery, Relation, PrintStream)},
+ * which iterates it only once, without storing its rows (e.g. the output of {@link MemQuery#evalAsStream(java.util.Map)}).
+ */
 public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
 
   private PrintStream out;
@@ -36,6 +38,11 @@ public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
   private String ordinalColName = "#";
   /** Whether to print the name of the query before printing out the results */
   private boolean preambleEnabled = false;
+  /**
+   * The formatters resolved by {@link #formatValue(Object, int)} for the result set currently being printed by
+   * the calling thread (using a {@link ThreadLocal} because instances of this class may be shared by multiple threads)
+   */
+  private final ThreadLocal<ColumnFormatters> columnFormatters = new ThreadLocal<>();
 
   protected ResultSetPrinter() {
   }
@@ -46,15 +53,66 @@ public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
   }
 
   /** Prints the given result set to the given stream */
-  public abstract void print(ResultSet rs, PrintStream out);
+  public void print(ResultSet rs, PrintStream out) {
+    print(rs.getQuery(), rs, out);
+  }
 
-  /** Subclasses may override to provide custom cell formatting logic */
+  /**
+   * Prints the rows of the given relation to the given stream as they're being iterated.
+   * Unlike {@link #print(ResultSet, PrintStream)}, this doesn't require the rows to be stored in memory,
+   * so it can be used for exporting arbitrarily large results.
+   *
+   * @param query the query that produced the results (used for the preamble); may be {@code null}
+   * @param results the rows to print (will be iterated only once)
+   */
+  public void print(MemQuery query, Relation results, PrintStream out) {
+    createImpl(query, results, out).print();
+  }
+
+  /**
+   * @return the object that will print the given relation with this configuration
+   */
+  protected abstract PrinterImpl createImpl(MemQuery query, Relation results, PrintStream out);
+
+  /**
+   * Subclasses may override to provide custom cell formatting logic (used by {@link PrinterImpl} for every cell).
+   * <p>
+   * While a result set is being printed, the default implementation resolves the {@link Formatter} only once for each
+   * column (unless the column contains values of different types).
+   */
   protected String formatValue(Object value, int colIndex) {
     if (value == null)
       return "null";
     if ((value instanceof Integer) && (Integer)value < 10000)  // don't print the thousands grouping char (',') if the value is an integer with 4 digits or less
       return value.toString();
-    return Formatters.getFor(value.getClass()).format(value); // TODO: pre-compute these
+    ColumnFormatters formatters = columnFormatters.get();
+    if (formatters == null)
+      return Formatters.getFor(value.getClass()).format(value);  // not called by PrinterImpl.print
+    return formatters.getFor(value.getClass(), colIndex).format(value);
+  }
+
+  /**
+   * Caches the formatter of each column, resolved from the type of its first non-null value.
+   */
+  private static class ColumnFormatters {
+    private final Formatter[] formatters;
+    /** The value types of {@link #formatters} */
+    private final Class[] types;
+
+    private ColumnFormatters(int nCols) {
+      formatters = new Formatter[nCols];
+      types = new Class[nCols];
+    }
+
+    private Formatter getFor(Class type, int colIndex) {
+      if (colIndex < 0 || colIndex >= types.length)
+        return Formatters.getFor(type);
+      if (types[colIndex] != type) {
+        formatters[colIndex] = Formatters.getFor(type);
+        types[colIndex] = type;
+      }
+      return formatters[colIndex];
+    }
   }
 
   // the following methods define the printing configuration
@@ -106,14 +164,19 @@ public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
     return (T)this;
   }
 
-  /** Implements the printing logic for a specific ResultSet */
+  /** Implements the printing logic for a specific result set */
   protected abstract class PrinterImpl {
 
-    protected final ResultSet resultSet;
+    /** The query that produced the results (may be {@code null}) */
+    protected final MemQuery query;
+    protected final Relation results;
+    protected final RelationSchema schema;
     protected final PrintStream out;
 
-    protected PrinterImpl(ResultSet resultSet, PrintStream out) {
-      this.resultSet = resultSet;
+    protected PrinterImpl(MemQuery query, Relation results, PrintStream out) {
+      this.query = query;
+      this.results = results;
+      this.schema = results.getSchema();
       this.out = out;
     }
 
@@ -122,6 +185,13 @@ public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
     protected void prepareForPrinting() {
     }
 
+    /**
+     * @return the rows to be printed (will be called only once, after {@link #prepareForPrinting()})
+     */
+    protected Iterator<Row> rowIterator() {
+      return results.iterator();
+    }
+
     protected void beginTable() {
     }
 
@@ -172,12 +242,25 @@ public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
 
     // the following method implements the actual printing logic
 
-    /** Prints the encapsulated {@link ResultSet} with fixed-width columns */
+    /** Prints the encapsulated results */
     public final void print() {
+      ColumnFormatters outerFormatters = columnFormatters.get();  // in case this is a nested call
+      columnFormatters.set(new ColumnFormatters(schema.size()));
+      try {
+        printTable();
+      }
+      finally {
+        if (outerFormatters != null)
+          columnFormatters.set(outerFormatters);
+        else
+          columnFormatters.remove();
+      }
+    }
+
+    private void printTable() {
       prepareForPrinting();
-      if (isPreambleEnabled()) {
+      if (isPreambleEnabled() && query != null) {
         // 1) Print the name of the result set
-        MemQuery query = resultSet.getQuery();
         int limit = query.getLimit();
         if (limit != Integer.MAX_VALUE)
           out.printf("Top %d %s%n", limit, query.getDescription());
@@ -187,7 +270,6 @@ public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
 
       // 2) print the data
       beginTable();
-      RelationSchema schema = resultSet.getSchema();
       int nCols = schema.size();
       // 2a) print the header row
       if (isHeaderRowEnabled()) {
@@ -200,10 +282,10 @@ public abstract class ResultSetPrinter<T extends ResultSetPrinter> {
         endRow(-1);
       }
       // 2b) print the data rows
-      Iterator<Row> resultSetIterator = resultSet.iterator();
-      for (int i = 0; resultSetIterator.hasNext(); i++) {
+      Iterator<Row> rowIterator = rowIterator();
+      for (int i = 0; rowIterator.hasNext(); i++) {
         beginRow(i);
-        Row row = resultSetIterator.next();
+        Row row = rowIterator.next();
         if (isOrdinalColEnabled())
           printCell(Integer.toString(i + 1), -1);
         for (int j = 0; j < nCols; j++) {
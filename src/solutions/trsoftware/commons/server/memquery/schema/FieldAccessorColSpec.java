@@ -16,6 +16,8 @@
 
 package solutions.trsoftware.commons.server.memquery.schema;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 
 /**
@@ -28,20 +30,22 @@ public class FieldAccessorColSpec<T> extends ReflectionAccessorColSpec<T> {
   private final Field field;
 
   public FieldAccessorColSpec(Field field) {
-    super(field.getName(), (Class<T>)field.getType());
-    field.setAccessible(true);
+    super(field.getName(), (Class<T>)field.getType(), unreflectGetter(field));
     this.field = field;
   }
 
-  public Field getField() {
-    return field;
+  private static MethodHandle unreflectGetter(Field field) {
+    field.setAccessible(true);
+    try {
+      return MethodHandles.lookup().unreflectGetter(field);
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalArgumentException(e);
+    }
   }
 
-
-  @Override
-  protected T getValueByReflection(Object instance) throws IllegalAccessException {
-    return (T)field.get(instance);
+  public Field getField() {
+    return field;
   }
 
-
 }
@@ -16,8 +16,10 @@
 
 package solutions.trsoftware.commons.server.memquery.schema;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /**
  * A fully-specified ColSpec based on a Method of some class.
@@ -29,18 +31,25 @@ public class MethodAccessorColSpec<T> extends ReflectionAccessorColSpec<T> {
   private final Method method;
 
   public MethodAccessorColSpec(Method method) {
-    super(method.getName(), (Class<T>)method.getReturnType());
-    method.setAccessible(true);
+    super(method.getName(), (Class<T>)method.getReturnType(), unreflect(method));
     this.method = method;
   }
 
-  public Method getMethod() {
-    return method;
+  private static MethodHandle unreflect(Method method) {
+    method.setAccessible(true);
+    try {
+      MethodHandle handle = MethodHandles.lookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers()))
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);  // the instance arg will be ignored
+      return handle;
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalArgumentException(e);
+    }
   }
 
-  @Override
-  protected T getValueByReflection(Object instance) throws InvocationTargetException, IllegalAccessException {
-    return (T)method.invoke(instance);
+  public Method getMethod() {
+    return method;
   }
 
 }
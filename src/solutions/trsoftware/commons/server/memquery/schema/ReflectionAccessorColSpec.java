@@ -19,15 +19,30 @@ package solutions.trsoftware.commons.server.memquery.schema;
 import solutions.trsoftware.commons.server.memquery.ObjectRow;
 import solutions.trsoftware.commons.server.memquery.Row;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 
 /**
+ * Reads the values of a column from the objects wrapped by {@link ObjectRow} instances, using a {@link MethodHandle}
+ * (which is much faster than invoking the underlying {@link java.lang.reflect.Field} or
+ * {@link java.lang.reflect.Method} reflectively).
+ *
  * @author Alex, 1/5/14
  */
 public abstract class ReflectionAccessorColSpec<T> extends NamedTypedColSpec<T> {
 
-  protected ReflectionAccessorColSpec(String name, Class<T> type) {
+  /** The accessor for the value, adapted to the type {@code (Object)T}, with the exact (possibly primitive) type {@code T} */
+  private final MethodHandle getter;
+  /** The same as {@link #getter}, but adapted to {@code (Object)Object} (boxing the value if needed) */
+  private final MethodHandle genericGetter;
+
+  /**
+   * @param getter the accessor for the value; it will be adapted to take an {@code Object} arg
+   */
+  protected ReflectionAccessorColSpec(String name, Class<T> type, MethodHandle getter) {
     super(name, type);
+    this.getter = getter.asType(MethodType.methodType(type, Object.class));
+    this.genericGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
   }
 
   @Override
@@ -42,6 +57,17 @@ public abstract class ReflectionAccessorColSpec<T> extends NamedTypedColSpec<T>
     }
   }
 
-  protected abstract T getValueByReflection(Object instance) throws IllegalAccessException, InvocationTargetException;
+  @SuppressWarnings("unchecked")
+  protected T getValueByReflection(Object instance) throws Throwable {
+    return (T)genericGetter.invokeExact(instance);
+  }
+
+  /**
+   * @return the accessor for the value, which has the type {@code (Object)T}, where {@code T} could be a primitive type
+   * (this can be used to compose other method handles that operate on the unboxed value)
+   */
+  public MethodHandle getGetter() {
+    return getter;
+  }
 
 }
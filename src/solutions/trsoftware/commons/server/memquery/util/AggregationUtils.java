@@ -18,8 +18,9 @@ package solutions.trsoftware.commons.server.memquery.util;
 
 import solutions.trsoftware.commons.server.memquery.aggregations.Aggregation;
 import solutions.trsoftware.commons.server.memquery.aggregations.Avg;
-import solutions.trsoftware.commons.server.memquery.aggregations.ColStats;
-import sun.reflect.generics.reflectiveObjects.ParameterizedTypeImpl;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 
 /**
  * @author Alex, 1/13/14
@@ -35,15 +36,14 @@ public abstract class AggregationUtils {
 //      }
 //    }
 
-    Class<?> superCls = cls.getSuperclass();
-    Class parametrizedCls = cls;
-    if (superCls == ColStats.class)
-      parametrizedCls = superCls;
-    return getAggregationValueTypeHelper(parametrizedCls);
-  }
-
-  private static Class getAggregationValueTypeHelper(Class cls) {
-    return (Class)((ParameterizedTypeImpl)cls.getGenericSuperclass()).getActualTypeArguments()[0];
+    // find the nearest superclass that specifies the type args (e.g. Avg extends ColStats extends ColAggregation<Double, Number>)
+    Class<?> c = cls;
+    Type superType = c.getGenericSuperclass();
+    while (!(superType instanceof ParameterizedType)) {
+      c = c.getSuperclass();
+      superType = c.getGenericSuperclass();
+    }
+    return (Class)((ParameterizedType)superType).getActualTypeArguments()[0];
   }
 
   public static Class<? extends Aggregation> getMeanFor(Class type) {
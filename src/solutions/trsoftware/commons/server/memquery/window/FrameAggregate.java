@@ -0,0 +1,280 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.window;
+
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+import solutions.trsoftware.commons.shared.util.stats.BoundedNumberSampleOfDouble;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Computes an aggregate of a numeric column over a frame of rows that ends with the current row
+ * (i.e. {@code ROWS BETWEEN n PRECEDING AND CURRENT ROW}, or {@code ROWS UNBOUNDED PRECEDING} for a running aggregate).
+ * <p>
+ * The aggregate is updated incrementally for each row, in O(1) amortized time regardless of the frame size:
+ * the values in a bounded frame are held in a {@link BoundedNumberSampleOfDouble}, which subtracts each
+ * evicted value from the running sum, and the min/max is maintained with a monotonic deque of the positions of
+ * the candidate values.
+ * <p>
+ * {@code null} values are ignored (as in SQL), and the aggregate of a frame that has no non-null values is
+ * {@code null} (except for {@link Type#COUNT}, which is {@code 0}).
+ *
+ * @param <T> the value type of the aggregate: {@link Integer} for {@link Type#COUNT} and {@link Double} for the others
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class FrameAggregate<T extends Number> extends WindowFunction<T> {
+
+  /** The frame size that denotes a frame starting with the first row of the partition */
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  public enum Type {
+    SUM(Double.class), AVG(Double.class), COUNT(Integer.class), MIN(Double.class), MAX(Double.class);
+
+    private final Class<? extends Number> valueType;
+
+    Type(Class<? extends Number> valueType) {
+      this.valueType = valueType;
+    }
+  }
+
+  private final Type type;
+  private final String colName;
+  private final int frameSize;
+
+  /**
+   * @param frameSize the max number of rows in the frame (including the current row), or {@link #UNBOUNDED}
+   * for a running aggregate
+   */
+  public FrameAggregate(Type type, String colName, int frameSize) {
+    if (frameSize < 1)
+      throw new IllegalArgumentException("frameSize: " + frameSize);
+    this.type = Objects.requireNonNull(type);
+    this.colName = Objects.requireNonNull(colName);
+    this.frameSize = frameSize;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getColName() {
+    return colName;
+  }
+
+  public int getFrameSize() {
+    return frameSize;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Class<T> getValueType(RelationSchema inputSchema) {
+    return (Class<T>)type.valueType;
+  }
+
+  @Override
+  public Set<String> getInputColNames() {
+    return Collections.singleton(colName);
+  }
+
+  @Override
+  public Accumulator<T> newAccumulator(RelationSchema inputSchema) {
+    int colIndex = inputSchema.getColIndex(colName);
+    if (frameSize == UNBOUNDED)
+      return new RunningAccumulator(colIndex);
+    return new SlidingAccumulator(colIndex);
+  }
+
+  /**
+   * @return the value of the column in the current row, or {@code NaN} if it's {@code null}
+   */
+  private static double getValue(WindowCursor cursor, int colIndex) {
+    Number value = cursor.current().getValue(colIndex);
+    return value != null ? value.doubleValue() : Double.NaN;
+  }
+
+  /**
+   * @return the value of the aggregate, given the sum, count, and min/max of the non-null values in the frame
+   */
+  @SuppressWarnings("unchecked")
+  private T result(double sum, int count, double minOrMax) {
+    if (type == Type.COUNT)
+      return (T)Integer.valueOf(count);
+    if (count == 0)
+      return null;
+    switch (type) {
+      case SUM:
+        return (T)Double.valueOf(sum);
+      case AVG:
+        return (T)Double.valueOf(sum / count);
+      default:
+        return (T)Double.valueOf(minOrMax);
+    }
+  }
+
+  /**
+   * Aggregates all the rows from the start of the partition.
+   */
+  private class RunningAccumulator implements Accumulator<T> {
+    private final int colIndex;
+    private double sum;
+    private int count;
+    private double minOrMax;
+
+    private RunningAccumulator(int colIndex) {
+      this.colIndex = colIndex;
+    }
+
+    @Override
+    public void reset() {
+      sum = 0;
+      count = 0;
+    }
+
+    @Override
+    public T next(WindowCursor cursor) {
+      double x = getValue(cursor, colIndex);
+      if (!Double.isNaN(x)) {
+        if (count == 0)
+          minOrMax = x;
+        else if (type == Type.MIN)
+          minOrMax = Math.min(minOrMax, x);
+        else if (type == Type.MAX)
+          minOrMax = Math.max(minOrMax, x);
+        sum += x;
+        count++;
+      }
+      return result(sum, count, minOrMax);
+    }
+  }
+
+  /**
+   * Aggregates the last {@link #frameSize} rows of the partition.
+   */
+  private class SlidingAccumulator implements Accumulator<T> {
+    private final int colIndex;
+    /** The values in the frame ({@code NaN} for {@code null}) */
+    private final FrameBuffer frame;
+    /**
+     * The positions of the values in the frame that could become the min/max once the values before them are evicted,
+     * ordered by position (so the values are monotonically increasing for {@link Type#MIN}
+     * and decreasing for {@link Type#MAX})
+     */
+    private final ArrayDeque<Integer> candidates;
+
+    private SlidingAccumulator(int colIndex) {
+      this.colIndex = colIndex;
+      frame = new FrameBuffer(frameSize);
+      candidates = type == Type.MIN || type == Type.MAX ? new ArrayDeque<>() : null;
+    }
+
+    @Override
+    public void reset() {
+      frame.clear();
+      frame.sum = 0;
+      frame.count = 0;
+      if (candidates != null)
+        candidates.clear();
+    }
+
+    @Override
+    public T next(WindowCursor cursor) {
+      double x = getValue(cursor, colIndex);
+      frame.add(x);
+      if (candidates == null)
+        return result(frame.sum, frame.count, Double.NaN);
+      int pos = cursor.position();
+      // drop the candidate that slid out of the frame
+      if (!candidates.isEmpty() && candidates.peekFirst() <= pos - frameSize)
+        candidates.removeFirst();
+      if (!Double.isNaN(x)) {
+        // drop the candidates that can no longer be the min/max, because x is better and will stay in the frame longer
+        while (!candidates.isEmpty() && isBetter(x, valueAt(candidates.peekLast(), pos)))
+          candidates.removeLast();
+        candidates.addLast(pos);
+      }
+      return result(frame.sum, frame.count, candidates.isEmpty() ? Double.NaN : valueAt(candidates.peekFirst(), pos));
+    }
+
+    private boolean isBetter(double x, double y) {
+      return type == Type.MIN ? x <= y : x >= y;
+    }
+
+    /**
+     * @return the value at the given position of the partition (which must be within the frame ending at {@code currentPos})
+     */
+    private double valueAt(int pos, int currentPos) {
+      return frame.get(pos - currentPos - 1);  // negative index is an offset from the end
+    }
+  }
+
+  /**
+   * Maintains the sum and count of the non-null values in the frame.
+   */
+  private static class FrameBuffer extends BoundedNumberSampleOfDouble {
+    private double sum;
+    private int count;
+
+    private FrameBuffer(int capacity) {
+      super(capacity);
+    }
+
+    @Override
+    public void add(double x) {
+      super.add(x);  // might evict the oldest value first
+      if (!Double.isNaN(x)) {
+        sum += x;
+        count++;
+      }
+    }
+
+    @Override
+    public void evict(double oldestValue) {
+      if (!Double.isNaN(oldestValue)) {
+        sum -= oldestValue;
+        count--;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    String ret = String.format("%s(%s)", type, colName);
+    if (frameSize != UNBOUNDED)
+      ret += String.format(" ROWS %d PRECEDING", frameSize - 1);
+    return ret;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    FrameAggregate<?> that = (FrameAggregate<?>)o;
+    return frameSize == that.frameSize && type == that.type && colName.equals(that.colName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, colName, frameSize);
+  }
+}
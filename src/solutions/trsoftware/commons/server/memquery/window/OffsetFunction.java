@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.window;
+
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+import solutions.trsoftware.commons.server.memquery.Row;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Implements the {@code LAG} and {@code LEAD} window functions, which return the value of a column in another
+ * row of the partition, at a fixed offset from the current row.
+ * <p>
+ * The values of the preceding rows are remembered in a ring buffer (of size {@code |offset|}), while the following
+ * rows are accessed with {@link WindowCursor#lookahead(int)}.
+ *
+ * @see WindowFunction#lag(String, int)
+ * @see WindowFunction#lead(String, int)
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class OffsetFunction extends WindowFunction<Object> {
+
+  private final String colName;
+  /** A negative offset refers to a preceding row ({@code LAG}) and a positive one to a following row ({@code LEAD}) */
+  private final int offset;
+
+  /**
+   * @param offset the position of the other row relative to the current row: negative for {@code LAG}
+   * and positive for {@code LEAD}
+   */
+  public OffsetFunction(String colName, int offset) {
+    if (offset == 0)
+      throw new IllegalArgumentException("offset must not be 0");
+    this.colName = colName;
+    this.offset = offset;
+  }
+
+  public String getColName() {
+    return colName;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Class<Object> getValueType(RelationSchema inputSchema) {
+    return inputSchema.get(colName).getType();
+  }
+
+  @Override
+  public Set<String> getInputColNames() {
+    return Collections.singleton(colName);
+  }
+
+  @Override
+  public int getLookahead() {
+    return Math.max(0, offset);
+  }
+
+  @Override
+  public Accumulator<Object> newAccumulator(RelationSchema inputSchema) {
+    int colIndex = inputSchema.getColIndex(colName);
+    if (offset > 0) {
+      return new Accumulator<Object>() {
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public Object next(WindowCursor cursor) {
+          Row row = cursor.lookahead(offset);
+          return row != null ? row.getValue(colIndex) : null;
+        }
+      };
+    }
+    int lag = -offset;
+    return new Accumulator<Object>() {
+      /** The values of the last {@code lag} rows, indexed by position (mod {@code lag}) */
+      private final Object[] ring = new Object[lag];
+
+      @Override
+      public void reset() {
+        // nothing to clear: a slot is only read after it has been written for the current partition
+      }
+
+      @Override
+      public Object next(WindowCursor cursor) {
+        int pos = cursor.position();
+        int i = pos % lag;
+        Object ret = pos >= lag ? ring[i] : null;
+        ring[i] = cursor.current().getValue(colIndex);
+        return ret;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s(%s, %d)", offset < 0 ? "LAG" : "LEAD", colName, Math.abs(offset));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    OffsetFunction that = (OffsetFunction)o;
+    return offset == that.offset && colName.equals(that.colName);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * colName.hashCode() + offset;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.window;
+
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+
+/**
+ * Implements the {@code ROW_NUMBER()}, {@code RANK()}, and {@code DENSE_RANK()} window functions, which
+ * number the rows of each partition according to its {@linkplain WindowSpec#getOrderBy() sort order}.
+ *
+ * @see WindowFunction#rowNumber()
+ * @see WindowFunction#rank()
+ * @see WindowFunction#denseRank()
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class RankingFunction extends WindowFunction<Integer> {
+
+  public enum Type {ROW_NUMBER, RANK, DENSE_RANK}
+
+  private final Type type;
+
+  public RankingFunction(Type type) {
+    this.type = type;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  @Override
+  public Class<Integer> getValueType(RelationSchema inputSchema) {
+    return Integer.class;
+  }
+
+  @Override
+  public Accumulator<Integer> newAccumulator(RelationSchema inputSchema) {
+    return new Accumulator<Integer>() {
+      private int rank;
+
+      @Override
+      public void reset() {
+        rank = 0;
+      }
+
+      @Override
+      public Integer next(WindowCursor cursor) {
+        switch (type) {
+          case ROW_NUMBER:
+            return cursor.position() + 1;
+          case RANK:
+            if (!cursor.isPeer())
+              rank = cursor.position() + 1;
+            return rank;
+          case DENSE_RANK:
+            if (!cursor.isPeer())
+              rank++;
+            return rank;
+          default:
+            throw new IllegalStateException(type.name());
+        }
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return type.name() + "()";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    return type == ((RankingFunction)o).type;
+  }
+
+  @Override
+  public int hashCode() {
+    return type.hashCode();
+  }
+}
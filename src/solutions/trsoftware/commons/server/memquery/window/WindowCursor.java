@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.window;
+
+import solutions.trsoftware.commons.server.memquery.Row;
+
+/**
+ * Provides a {@link WindowFunction.Accumulator} with access to the current row of a {@link WindowSpec window}
+ * partition and to the rows that follow it.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public interface WindowCursor {
+
+  /**
+   * @return the current row
+   */
+  Row current();
+
+  /**
+   * @return the position of the current row within its partition (starting from {@code 0})
+   */
+  int position();
+
+  /**
+   * @return {@code true} iff the current row has the same values for the {@linkplain WindowSpec#getOrderBy() ORDER BY}
+   * columns as the previous row in the same partition (which is always {@code false} for the first row of a partition)
+   */
+  boolean isPeer();
+
+  /**
+   * @param k the offset of the row from the current row (must not exceed {@link WindowFunction#getLookahead()})
+   * @return the {@code k}-th row after the current row, or {@code null} if the partition doesn't have that many
+   * more rows
+   */
+  Row lookahead(int k);
+}
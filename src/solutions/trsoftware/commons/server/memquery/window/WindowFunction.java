@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.window;
+
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A function that computes a value for each row of a {@link WindowSpec window} partition, based on the rows of that
+ * partition that precede (and possibly follow) it, such as a rank, a running total, or a moving average.
+ * <p>
+ * Unlike an {@link solutions.trsoftware.commons.server.memquery.aggregations.Aggregation}, which produces
+ * one value per group, a window function produces a value for every input row.  The partition is
+ * scanned once, in order, by an {@link Accumulator}, which updates its state incrementally for each row.
+ * <p>
+ * Instances of this class are immutable specifications; the state is kept in the accumulators.
+ *
+ * @param <T> the type of the values produced by this function
+ * @author Alex
+ * @since 10/16/2026
+ */
+public abstract class WindowFunction<T> {
+
+  /**
+   * @return the type of the values produced by this function for the given input schema
+   */
+  public abstract Class<T> getValueType(RelationSchema inputSchema);
+
+  /**
+   * @return the names of the input columns used by this function
+   */
+  public Set<String> getInputColNames() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * @return the max number of rows that the {@link Accumulator} needs to see ahead of the current row
+   * (see {@link WindowCursor#lookahead(int)})
+   */
+  public int getLookahead() {
+    return 0;
+  }
+
+  /**
+   * @return a new accumulator for computing this function over rows of the given schema
+   */
+  public abstract Accumulator<T> newAccumulator(RelationSchema inputSchema);
+
+  /**
+   * Computes the values of a window function for the consecutive rows of a partition.
+   * @param <T> the type of the values produced by the function
+   */
+  public interface Accumulator<T> {
+
+    /**
+     * Clears the state of this accumulator at the start of a new partition.
+     */
+    void reset();
+
+    /**
+     * Advances this accumulator to the current row of the given cursor.
+     * @return the value of the function for that row
+     */
+    T next(WindowCursor cursor);
+  }
+
+  // factory methods for the built-in functions:
+
+  /**
+   * @return the {@code ROW_NUMBER()} function: the 1-based position of each row within its partition
+   */
+  public static WindowFunction<Integer> rowNumber() {
+    return new RankingFunction(RankingFunction.Type.ROW_NUMBER);
+  }
+
+  /**
+   * @return the {@code RANK()} function: the rank of each row within its partition, with gaps after ties
+   * (i.e. the {@linkplain #rowNumber() row number} of the first of its peers)
+   */
+  public static WindowFunction<Integer> rank() {
+    return new RankingFunction(RankingFunction.Type.RANK);
+  }
+
+  /**
+   * @return the {@code DENSE_RANK()} function: the rank of each row within its partition, without gaps after ties
+   */
+  public static WindowFunction<Integer> denseRank() {
+    return new RankingFunction(RankingFunction.Type.DENSE_RANK);
+  }
+
+  /**
+   * @return the {@code LAG(colName, offset)} function: the value of the column in the row that precedes the
+   * current row by {@code offset} rows in the same partition (or {@code null} if there is no such row)
+   */
+  public static WindowFunction<Object> lag(String colName, int offset) {
+    return new OffsetFunction(colName, -offset);
+  }
+
+  /**
+   * @return the {@code LEAD(colName, offset)} function: the value of the column in the row that follows the
+   * current row by {@code offset} rows in the same partition (or {@code null} if there is no such row)
+   */
+  public static WindowFunction<Object> lead(String colName, int offset) {
+    return new OffsetFunction(colName, offset);
+  }
+
+  /**
+   * @return the running (cumulative) sum of a numeric column, from the start of the partition to the current row
+   */
+  public static WindowFunction<Double> runningSum(String colName) {
+    return new FrameAggregate<>(FrameAggregate.Type.SUM, colName, FrameAggregate.UNBOUNDED);
+  }
+
+  /**
+   * @return the average of a numeric column over a sliding frame of (at most) the given number of rows that ends
+   * with the current row (i.e. {@code ROWS BETWEEN frameSize-1 PRECEDING AND CURRENT ROW})
+   */
+  public static WindowFunction<Double> movingAvg(String colName, int frameSize) {
+    return new FrameAggregate<>(FrameAggregate.Type.AVG, colName, frameSize);
+  }
+
+  /**
+   * @param type the aggregate function
+   * @param frameSize the max number of rows in the frame ending with the current row, or
+   * {@link FrameAggregate#UNBOUNDED} for a frame that starts with the first row of the partition
+   * @return the given aggregate of a numeric column over a sliding frame of rows that ends with the current row
+   */
+  public static WindowFunction<?> frameAggregate(FrameAggregate.Type type, String colName, int frameSize) {
+    return new FrameAggregate<>(type, colName, frameSize);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.window;
+
+import com.google.common.collect.ImmutableList;
+import solutions.trsoftware.commons.server.memquery.SortOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code OVER} clause of a {@link WindowFunction}: specifies how the rows are partitioned and sorted
+ * within each partition.  Instances are immutable, and can be created with a chain of method calls, e.g.
+ * {@code new WindowSpec().partitionBy("uid").orderBy("-score")}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class WindowSpec {
+
+  private final List<String> partitionBy;
+  private final List<SortOrder> orderBy;
+
+  /**
+   * Creates a window that treats the entire input as a single partition, in input order.
+   */
+  public WindowSpec() {
+    this(ImmutableList.of(), ImmutableList.of());
+  }
+
+  public WindowSpec(List<String> partitionBy, List<SortOrder> orderBy) {
+    this.partitionBy = ImmutableList.copyOf(partitionBy);
+    this.orderBy = ImmutableList.copyOf(orderBy);
+  }
+
+  /**
+   * @return a copy of this spec with the given partitioning columns
+   */
+  public WindowSpec partitionBy(String... colNames) {
+    return new WindowSpec(ImmutableList.copyOf(colNames), orderBy);
+  }
+
+  /**
+   * @param sortOrders col-name-based sort orders in shorthand notation (see {@link SortOrder#parse(String)})
+   * @return a copy of this spec with the given sort orders
+   */
+  public WindowSpec orderBy(String... sortOrders) {
+    List<SortOrder> orderBy = new ArrayList<>();
+    for (String sortOrder : sortOrders)
+      orderBy.add(SortOrder.parse(sortOrder));
+    return new WindowSpec(partitionBy, orderBy);
+  }
+
+  public List<String> getPartitionBy() {
+    return partitionBy;
+  }
+
+  public List<SortOrder> getOrderBy() {
+    return orderBy;
+  }
+
+  /**
+   * @return the sort orders that arrange the rows of each partition contiguously and in the right order
+   */
+  public List<SortOrder> getSortOrders() {
+    List<SortOrder> ret = new ArrayList<>();
+    for (String colName : partitionBy)
+      ret.add(new SortOrder(colName));
+    ret.addAll(orderBy);
+    return ret;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder str = new StringBuilder();
+    if (!partitionBy.isEmpty())
+      str.append("PARTITION BY ").append(String.join(", ", partitionBy));
+    if (!orderBy.isEmpty()) {
+      if (str.length() > 0)
+        str.append(' ');
+      str.append("ORDER BY ");
+      for (int i = 0; i < orderBy.size(); i++) {
+        if (i > 0)
+          str.append(", ");
+        str.append(orderBy.get(i));
+      }
+    }
+    return str.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    WindowSpec that = (WindowSpec)o;
+    return partitionBy.equals(that.partitionBy) && orderBy.equals(that.orderBy);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * partitionBy.hashCode() + orderBy.hashCode();
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import solutions.trsoftware.commons.shared.util.JsonBuilder;
+import solutions.trsoftware.commons.shared.util.stats.CollectableStats;
+import solutions.trsoftware.commons.shared.util.stats.HashCounter;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A lock-free alternative to {@link HashCounter}, for counting keys from many threads at once (e.g. counting the
+ * user agents or URIs of incoming requests).
+ * <p>
+ * The counts are stored in a {@link ConcurrentHashMap} of {@link LongAdder} cells, so concurrent updates of the same
+ * key are spread across multiple striped cells instead of contending for a single lock or CAS.  The price is that
+ * reading a count is more expensive than updating it, and that {@link #add(Object, long)} can't return the previous
+ * count (unlike {@link HashCounter#add(Object, int)}).
+ * <p>
+ * All the read methods are weakly consistent: they don't block the writers, and might not reflect the updates
+ * that are made concurrently with them.  Methods like {@link #asMap()} and {@link #topN(int)} return snapshots,
+ * while {@link #keySet()} is a live view.  For the same reason, this class doesn't override {@link #equals(Object)}
+ * (compare the {@link #asMap()} snapshots instead).
+ *
+ * @param <K> type of the objects being counted
+ * @author Alex
+ * @since 10/16/2026
+ * @see ConcurrentHashCounterTable
+ */
+public class ConcurrentHashCounter<K> implements CollectableStats<K, ConcurrentHashCounter<K>> {
+
+  private final ConcurrentHashMap<K, LongAdder> map;
+  private final LongAdder totalSum = new LongAdder();
+
+  public ConcurrentHashCounter() {
+    map = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * @param initialCapacity argument for {@link ConcurrentHashMap#ConcurrentHashMap(int)}
+   */
+  public ConcurrentHashCounter(int initialCapacity) {
+    map = new ConcurrentHashMap<>(initialCapacity);
+  }
+
+  /** Increments the counter for the given key */
+  public void increment(K key) {
+    add(key, 1);
+  }
+
+  /** Adds the given delta to the counter for the given key */
+  public void add(K key, long delta) {
+    LongAdder cell = map.get(key);
+    if (cell == null)
+      cell = map.computeIfAbsent(key, k -> new LongAdder());  // computeIfAbsent locks the bin, so we call it only for new keys
+    cell.add(delta);
+    totalSum.add(delta);
+  }
+
+  /** Returns the count for the given key */
+  public long get(K key) {
+    LongAdder cell = map.get(key);
+    return cell != null ? cell.sum() : 0;
+  }
+
+  /**
+   * @return an unmodifiable live view of the unique keys (its iterator is weakly consistent)
+   */
+  public Set<K> keySet() {
+    return Collections.unmodifiableSet(map.keySet());
+  }
+
+  /**
+   * @return a snapshot of this counter as an immutable map of key-count pairs (in no particular order)
+   */
+  public Map<K, Long> asMap() {
+    ImmutableMap.Builder<K, Long> mapBuilder = ImmutableMap.builderWithExpectedSize(map.size());
+    for (Map.Entry<K, LongAdder> entry : map.entrySet())
+      mapBuilder.put(entry.getKey(), entry.getValue().sum());
+    return mapBuilder.build();
+  }
+
+  /**
+   * @return a snapshot of the entries with the {@code n} largest counts, sorted by count in descending order
+   * (computed in {@code O(size + n*log(n))} time, without sorting all the entries)
+   */
+  public List<Map.Entry<K, Long>> topN(int n) {
+    List<Map.Entry<K, Long>> entries = new ArrayList<>(map.size());
+    for (Map.Entry<K, LongAdder> entry : map.entrySet())
+      entries.add(Maps.immutableEntry(entry.getKey(), entry.getValue().sum()));
+    return Ordering.natural().onResultOf((Map.Entry<K, Long> entry) -> entry.getValue()).greatestOf(entries, n);
+  }
+
+  /**
+   * @return a snapshot of this counter as a {@link HashCounter} (the counts are assumed to fit in an {@code int})
+   */
+  public HashCounter<K> toHashCounter() {
+    HashCounter<K> ret = new HashCounter<>(map.size());
+    for (Map.Entry<K, LongAdder> entry : map.entrySet())
+      ret.add(entry.getKey(), Math.toIntExact(entry.getValue().sum()));
+    return ret;
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * @return the sum of all the counts (which might not be consistent with the individual counts while they're being updated)
+   */
+  public long sumOfAllEntries() {
+    return totalSum.sum();
+  }
+
+  /**
+   * Computes the probability of the given key being selected from a statistical data sample represented by this counter:
+   * <pre>
+   *   P(k) = count(k) / count(*)
+   * </pre>
+   */
+  public double probabilityOf(K key) {
+    return ((double)get(key)) / sumOfAllEntries();
+  }
+
+  /**
+   * Removes all the keys.  Updates made concurrently with this method might or might not be retained.
+   */
+  public void clear() {
+    map.clear();
+    totalSum.reset();
+  }
+
+  @Override
+  public void merge(@Nonnull ConcurrentHashCounter<K> other) {
+    for (Map.Entry<K, LongAdder> entry : other.map.entrySet())
+      add(entry.getKey(), entry.getValue().sum());
+  }
+
+  /**
+   * Adds the counts from the given {@link HashCounter} to this counter.
+   */
+  public void merge(@Nonnull HashCounter<K> other) {
+    for (Map.Entry<K, Integer> entry : other.asMap().entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  @Override
+  public void update(K x) {
+    increment(x);
+  }
+
+  @Override
+  public String toString() {
+    return JsonBuilder.mapToJson(asMap());
+  }
+
+  @Override
+  public java.util.stream.Collector<K, ?, ConcurrentHashCounter<K>> getCollector() {
+    return Collector.getInstance();
+  }
+
+  /**
+   * Provides a cached collector descriptor that can be passed to {@link Stream#collect}
+   * to collect the stream elements into an instance of {@link ConcurrentHashCounter}.
+   *
+   * @param <K> the input element type
+   * @see #getInstance()
+   */
+  public static class Collector<K> extends CollectableStats.Collector<K, ConcurrentHashCounter<K>> {
+
+    private static final Collector INSTANCE = new Collector();
+
+    /**
+     * @param <K> the input element type
+     * @return the cached instance of this {@link Collector}
+     */
+    @SuppressWarnings("unchecked")
+    public static <K> Collector<K> getInstance() {
+      return INSTANCE;
+    }
+
+    @Override
+    public Supplier<ConcurrentHashCounter<K>> supplier() {
+      return ConcurrentHashCounter::new;
+    }
+
+    /**
+     * Since {@link ConcurrentHashCounter} is thread-safe, a parallel stream can accumulate into a single instance.
+     * @see #CH_CONCURRENT_ID
+     */
+    @Override
+    public Set<Characteristics> characteristics() {
+      return CH_CONCURRENT_ID;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import com.google.common.collect.ImmutableMap;
+import solutions.trsoftware.commons.shared.util.stats.HashCounterTable;
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A lock-free alternative to {@link HashCounterTable}: a 2-dimensional version of {@link ConcurrentHashCounter}.
+ * <p>
+ * Each row is a {@link ConcurrentHashCounter}, and the rows are stored in a {@link ConcurrentHashMap}, so
+ * the updates of different cells never block each other.  The same weak consistency caveats apply to the read methods.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ * @see HashCounterTable
+ */
+public class ConcurrentHashCounterTable<R, C> implements Mergeable<ConcurrentHashCounterTable<R, C>> {
+
+  private final ConcurrentHashMap<R, ConcurrentHashCounter<C>> map = new ConcurrentHashMap<>();
+
+  /**
+   * Adds the given delta to the counter indexed by the given row and col keys.
+   */
+  public void add(R rowKey, C colKey, long delta) {
+    getOrCreateRow(rowKey).add(colKey, delta);
+  }
+
+  /**
+   * Increments the counter indexed by the given row and col keys.
+   */
+  public void increment(R rowKey, C colKey) {
+    add(rowKey, colKey, 1);
+  }
+
+  private ConcurrentHashCounter<C> getOrCreateRow(R rowKey) {
+    ConcurrentHashCounter<C> row = map.get(rowKey);
+    if (row == null)
+      row = map.computeIfAbsent(rowKey, r -> new ConcurrentHashCounter<>());
+    return row;
+  }
+
+  /**
+   * @return the value of the counter indexed by the given row and col keys
+   */
+  public long getValue(R rowKey, C colKey) {
+    ConcurrentHashCounter<C> row = map.get(rowKey);
+    return row != null ? row.get(colKey) : 0;
+  }
+
+  /**
+   * @return the sum of all the counts in the given row
+   */
+  public long getValue(R rowKey) {
+    ConcurrentHashCounter<C> row = map.get(rowKey);
+    return row != null ? row.sumOfAllEntries() : 0;
+  }
+
+  /**
+   * @return the live counter for the given row, or {@code null} if the row doesn't exist
+   */
+  public ConcurrentHashCounter<C> getRow(R rowKey) {
+    return map.get(rowKey);
+  }
+
+  /**
+   * @return an unmodifiable live view of the row keys (its iterator is weakly consistent)
+   */
+  public Set<R> rowKeySet() {
+    return Collections.unmodifiableSet(map.keySet());
+  }
+
+  /**
+   * @return a snapshot of this table as an immutable map of {@link ConcurrentHashCounter#asMap() row snapshots}
+   */
+  public Map<R, Map<C, Long>> asMap() {
+    ImmutableMap.Builder<R, Map<C, Long>> mapBuilder = ImmutableMap.builderWithExpectedSize(map.size());
+    for (Map.Entry<R, ConcurrentHashCounter<C>> entry : map.entrySet())
+      mapBuilder.put(entry.getKey(), entry.getValue().asMap());
+    return mapBuilder.build();
+  }
+
+  /**
+   * @return a snapshot of this table as a {@link HashCounterTable} (the counts are assumed to fit in an {@code int})
+   */
+  public HashCounterTable<R, C> toHashCounterTable() {
+    HashCounterTable<R, C> ret = new HashCounterTable<>();
+    for (Map.Entry<R, ConcurrentHashCounter<C>> row : map.entrySet()) {
+      for (Map.Entry<C, Long> cell : row.getValue().asMap().entrySet())
+        ret.add(row.getKey(), cell.getKey(), Math.toIntExact(cell.getValue()));
+    }
+    return ret;
+  }
+
+  @Override
+  public void merge(@Nonnull ConcurrentHashCounterTable<R, C> other) {
+    for (Map.Entry<R, ConcurrentHashCounter<C>> entry : other.map.entrySet())
+      getOrCreateRow(entry.getKey()).merge(entry.getValue());
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import solutions.trsoftware.commons.shared.util.time.Clock;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe alternative to {@link TimeWindowCounter}, designed for counters that are updated by many threads
+ * concurrently (e.g. flood detection for every incoming request).
+ * <p>
+ * The time window is divided into a fixed ring of {@code maxAgeMillis / granularityMillis} buckets, each of which
+ * counts the updates that occurred during one time slice (an "epoch") using a {@link LongAdder}.  The buckets are
+ * rotated lazily: when a slot of the ring is updated during a newer epoch than the one it currently holds, its bucket
+ * is replaced with a fresh one using a CAS operation.  Hence {@link #add(int)} is lock-free, and allocates only when
+ * rotating a bucket (at most once per slot per epoch), and {@link #getCount()} is O(number of buckets) without any
+ * allocation or locking.
+ * <p>
+ * Since the window advances in discrete epochs, an update expires when the epoch that contains it falls out of the
+ * window, i.e. up to {@code granularityMillis} earlier than it would in {@link TimeWindowCounter} (which measures
+ * the age of each bucket from the time of its first update).  Also, unlike {@link TimeWindowCounter}, this class
+ * allocates all the buckets up front, so the granularity must be chosen such that the number of buckets is reasonable.
+ * <p>
+ * The time is obtained from {@link Clock#currentTimeMillis()}, so that it can be controlled in unit tests.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ * @see TimeWindowCounter
+ */
+public class RingBufferTimeWindowCounter extends Counter {
+
+  private final long maxAgeMillis;
+  private final long granularityMillis;
+  /**
+   * The ring of buckets, where the bucket for epoch {@code e} is stored at index {@code e % buckets.length}
+   * (the slots are {@code null} until first used).
+   */
+  private final AtomicReferenceArray<Bucket> buckets;
+
+  /**
+   * The count for one time slice of the window.
+   */
+  private static class Bucket extends LongAdder {
+    /** The index of the time slice counted by this bucket: {@code floor(time / granularityMillis)} */
+    private final long epoch;
+
+    private Bucket(long epoch) {
+      this.epoch = epoch;
+    }
+  }
+
+  /**
+   * @param name Just to facilitate pretty printing, external reporting, and debugging.
+   * @param maxAgeMillis The value of the counter, retrieved using the get method
+   * will be representative of the calls to increment and add over the most recent
+   * time window of this size.
+   * @param granularityMillis The time window will be divided into buckets of this size.
+   * This value should be smaller than maxAgeMillis and maxAgeMillis should be
+   * divisible by this value.  The tradeoff is: higher granularity => less memory
+   * consumption and faster reads; lower granularity => better time window accuracy.
+   */
+  public RingBufferTimeWindowCounter(String name, long maxAgeMillis, long granularityMillis) {
+    super(name);
+    if (granularityMillis < 1 || granularityMillis >= maxAgeMillis || maxAgeMillis % granularityMillis != 0) {
+      throw new IllegalArgumentException("granularityMillis must be in the range [1, maxAgeMillis) and must evenly divide maxAgeMillis.");
+    }
+    long nBuckets = maxAgeMillis / granularityMillis;
+    if (nBuckets > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Too many buckets (" + nBuckets + "); increase granularityMillis.");
+    this.maxAgeMillis = maxAgeMillis;
+    this.granularityMillis = granularityMillis;
+    buckets = new AtomicReferenceArray<>((int)nBuckets);
+  }
+
+  private long currentEpoch() {
+    return Math.floorDiv(Clock.currentTimeMillis(), granularityMillis);
+  }
+
+  private int indexOf(long epoch) {
+    return (int)Math.floorMod(epoch, (long)buckets.length());
+  }
+
+  /** Adds the given value to the counter */
+  @Override
+  public void add(int delta) {
+    long epoch = currentEpoch();
+    int i = indexOf(epoch);
+    Bucket bucket = buckets.get(i);
+    while (bucket == null || bucket.epoch < epoch) {
+      // the slot holds an expired bucket: try to rotate it (if we lose the race, another thread has already done it)
+      Bucket newBucket = new Bucket(epoch);
+      if (buckets.compareAndSet(i, bucket, newBucket))
+        bucket = newBucket;
+      else
+        bucket = buckets.get(i);
+    }
+    // NOTE: if the slot has already been rotated to a newer epoch (which can happen if this thread was delayed
+    // after reading the clock), we simply count this update in the newer epoch
+    bucket.add(delta);
+  }
+
+  /** @return The value of the counter. */
+  @Override
+  public int getCount() {
+    return (int)getLongCount();
+  }
+
+  /** @return The value of the counter, as a {@code long}. */
+  public long getLongCount() {
+    long epoch = currentEpoch();
+    long oldestEpoch = epoch - buckets.length() + 1;
+    long sum = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      Bucket bucket = buckets.get(i);
+      if (bucket != null && bucket.epoch >= oldestEpoch && bucket.epoch <= epoch)
+        sum += bucket.sum();
+    }
+    return sum;
+  }
+
+  /**
+   * Exposed for unit testing.
+   * @return number of buckets that contain updates within the current time window.
+   */
+  int size() {
+    long epoch = currentEpoch();
+    long oldestEpoch = epoch - buckets.length() + 1;
+    int ret = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      Bucket bucket = buckets.get(i);
+      if (bucket != null && bucket.epoch >= oldestEpoch && bucket.epoch <= epoch)
+        ret++;
+    }
+    return ret;
+  }
+
+  public long getMaxAgeMillis() {
+    return maxAgeMillis;
+  }
+
+  public long getGranularityMillis() {
+    return granularityMillis;
+  }
+}
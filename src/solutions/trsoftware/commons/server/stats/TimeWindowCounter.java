@@ -34,9 +34,12 @@ import java.util.function.Supplier;
  * Uses O(T/g) memory, where T is the time window and g is the granularity.
  * Updates are O(m), where m is the number of updates performed in the prior (expiring) window.
  * Reads are O(n), where n is the number of updates performed in the recent time window.
- * 
+ * <p>
+ * All updates and reads are serialized by a single lock, so for counters that are updated by many threads
+ * concurrently, consider using {@link RingBufferTimeWindowCounter} instead.
  *
  * @author Alex
+ * @see RingBufferTimeWindowCounter
  */
 public class TimeWindowCounter extends Counter {
   private final FixedTimeCache<Long, MutableInteger> cache;
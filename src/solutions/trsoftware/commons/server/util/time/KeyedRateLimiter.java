@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.util.time;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import solutions.trsoftware.commons.server.cache.ConcurrentExpiringMap;
+import solutions.trsoftware.commons.shared.util.TimeUnit;
+import solutions.trsoftware.commons.shared.util.time.AbstractRateLimiter.RateLimitException;
+import solutions.trsoftware.commons.shared.util.time.Clock;
+import solutions.trsoftware.commons.shared.util.time.GcraRateLimiter;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Maintains a separate {@link GcraRateLimiter} for each key (e.g. a user id or IP address), all having the same limit.
+ * <p>
+ * Since each limiter uses O(1) memory, this class can be used to track millions of keys.  A limiter is discarded after
+ * its key has been idle long enough that the limiter has been fully replenished, because at that point it's
+ * indistinguishable from a new instance.  To achieve this, the limiters are stored in a {@link ConcurrentExpiringMap}
+ * whose max age is twice the length of the time window, and the entry of any limiter that would expire before becoming
+ * idle is renewed (which happens at most once per time window for each active key).
+ * <p>
+ * <strong>NOTE:</strong> if the number of keys exceeds {@link #getMaxKeys()}, the oldest limiters will be evicted
+ * regardless of their state, which resets the limit for those keys.  Therefore the max number of keys should be chosen
+ * to comfortably exceed the number of keys that can be active within a time window.
+ *
+ * @param <K> the type of keys
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class KeyedRateLimiter<K> {
+
+  private final int max;
+  private final double timeWindowDuration;
+  private final TimeUnit timeWindowUnit;
+  private final Ticker ticker;
+  private final String eventName;
+  private final ConcurrentExpiringMap<K, GcraRateLimiter> limiters;
+
+  /**
+   * @param max The number of events to allow for each key within the specified window of time
+   * @param timeWindowDuration Size of the time window expressed in the given units.
+   * @param timeWindowUnit The unit of time used to specify the window duration
+   * @param maxKeys The max number of limiters to retain (see class javadoc)
+   * @param ticker The time source used to perform the time calculations
+   * @param eventName This name is used in the exception message (can be null)
+   */
+  public KeyedRateLimiter(int max, double timeWindowDuration, TimeUnit timeWindowUnit, int maxKeys, Ticker ticker, String eventName) {
+    if (max < 1 || timeWindowDuration <= 0)
+      throw new IllegalArgumentException();
+    this.max = max;
+    this.timeWindowDuration = timeWindowDuration;
+    this.timeWindowUnit = timeWindowUnit;
+    this.ticker = Preconditions.checkNotNull(ticker);
+    this.eventName = eventName;
+    long idleTimeoutNanos = Math.max(2, 2 * Math.round(timeWindowUnit.toNanos(timeWindowDuration)));
+    limiters = new ConcurrentExpiringMap<>(idleTimeoutNanos, NANOSECONDS, maxKeys, ticker);
+  }
+
+  /**
+   * Uses the {@linkplain Clock#ticker() default ticker}.
+   * @see #KeyedRateLimiter(int, double, TimeUnit, int, Ticker, String)
+   */
+  public KeyedRateLimiter(int max, double timeWindowDuration, TimeUnit timeWindowUnit, int maxKeys, String eventName) {
+    this(max, timeWindowDuration, timeWindowUnit, maxKeys, Clock.ticker(), eventName);
+  }
+
+  /**
+   * @return the limiter for the given key (creating a new one if needed)
+   */
+  public GcraRateLimiter getLimiter(K key) {
+    GcraRateLimiter limiter = limiters.get(key);
+    if (limiter == null) {
+      GcraRateLimiter newLimiter = new GcraRateLimiter(max, timeWindowDuration, timeWindowUnit, ticker, eventName);
+      limiter = limiters.putIfAbsent(key, newLimiter);
+      if (limiter == null)
+        limiter = newLimiter;
+    }
+    return limiter;
+  }
+
+  /**
+   * Records a new event for the given key if it doesn't exceed the rate limit.
+   *
+   * @return {@code true} if the event was allowed, or {@code false} if the limit has been reached for this key
+   * @see GcraRateLimiter#tryAcquire()
+   */
+  public boolean tryAcquire(K key) {
+    GcraRateLimiter limiter = getLimiter(key);
+    boolean ret = limiter.tryAcquire();
+    if (ret)
+      retain(key, limiter);
+    return ret;
+  }
+
+  /**
+   * Records a new event for the given key, throwing an exception if it exceeds the rate limit.
+   *
+   * @throws RateLimitException if the limit has been reached for this key
+   * @see GcraRateLimiter#checkRateLimit()
+   */
+  public void checkRateLimit(K key) throws RateLimitException {
+    GcraRateLimiter limiter = getLimiter(key);
+    limiter.checkRateLimit();
+    retain(key, limiter);
+  }
+
+  /**
+   * @return the time remaining until the given key will have room for one more event, assuming no more events will
+   * come in between now and then.
+   */
+  public double millisUntilCanProceed(K key) {
+    GcraRateLimiter limiter = limiters.get(key);
+    return limiter != null ? limiter.millisUntilCanProceed() : 0;
+  }
+
+  /**
+   * Ensures that the given limiter won't expire from the map before it becomes idle, by
+   * {@linkplain ConcurrentExpiringMap#renew renewing} its entry if necessary.
+   */
+  private void retain(K key, GcraRateLimiter limiter) {
+    if (limiters.getTimeToLive(key, NANOSECONDS) < limiter.nanosUntilIdle())
+      limiters.renew(key, limiter);
+  }
+
+  /**
+   * @return the number of keys currently being tracked
+   */
+  public int size() {
+    return limiters.size();
+  }
+
+  public int getMaxKeys() {
+    return limiters.getMaxCapacity();
+  }
+}
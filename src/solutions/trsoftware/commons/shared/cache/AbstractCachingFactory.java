@@ -33,51 +33,60 @@ import solutions.trsoftware.commons.shared.util.stats.Mean;
 public abstract class AbstractCachingFactory<K, V> {
 
   /** A cache of past results */
-  protected FixedSizeLruCache<K, V> cache;
-  // fields for stats gathering
-  private int hits;
-  private int misses;
+  protected ConcurrentLruCache<K, V> cache;
   /** Mean time taken to compute the result */
   private Mean<Double> meanDuration = new Mean<Double>();
 
   protected AbstractCachingFactory() {
-    cache = new FixedSizeLruCache<K, V>(16);
+    cache = new ConcurrentLruCache<K, V>(16);
   }
 
+  /**
+   * Returns the cached result for the given key, or computes it with {@link #_compute(Object)} if it's not cached.
+   * The result for a given key will not be computed concurrently by multiple threads, and {@link #_compute(Object)}
+   * must not recursively invoke this method.
+   */
   public V compute(K key) {
-    if (cache.containsKey(key)) {
-      hits++;
-      return cache.get(key);
-    }
-    else {
-      misses++;
+    return cache.get(key, k -> {
       Duration duration = BridgeTypeFactory.newDuration();
-      V result = _compute(key);
-      meanDuration.update(duration.elapsedMillis());
-      cache.put(key, result);
+      V result = _compute(k);
+      synchronized (meanDuration) {
+        meanDuration.update(duration.elapsedMillis());
+      }
       return result;
-    }
+    });
   }
 
   protected abstract V _compute(K key);
 
   public String printStats() {
-    int n = getAccessCount();
-    return " access count: " + n + "\n"
-        + " hit rate: " + ((double)hits/n) + "\n"
-        + " mean computation duration: " + meanDuration.getMean() + " ms";
+    CacheStats stats = cache.stats();
+    double meanMillis;
+    synchronized (meanDuration) {
+      meanMillis = meanDuration.getMean();
+    }
+    return " access count: " + stats.requestCount() + "\n"
+        + " hit rate: " + stats.hitRate() + "\n"
+        + " mean computation duration: " + meanMillis + " ms";
   }
 
   public int getAccessCount() {
-    return hits + misses;
+    return (int)cache.stats().requestCount();
   }
 
   public int getHits() {
-    return hits;
+    return (int)cache.stats().hitCount();
   }
 
   public int getMisses() {
-    return misses;
+    return (int)cache.stats().missCount();
+  }
+
+  /**
+   * @return the statistics of the underlying cache
+   */
+  public CacheStats getCacheStats() {
+    return cache.stats();
   }
 
   public int getCacheSize() {
@@ -85,6 +94,6 @@ public abstract class AbstractCachingFactory<K, V> {
   }
 
   public int getSizeLimit() {
-    return cache.getSizeLimit();
+    return (int)cache.getMaximumWeight();
   }
-}
\ No newline at end of file
+}
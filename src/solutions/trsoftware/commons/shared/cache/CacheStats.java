@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.cache;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * An immutable snapshot of the statistics of a {@link ConcurrentLruCache}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ * @see ConcurrentLruCache#stats()
+ * @see com.google.common.cache.CacheStats
+ */
+public class CacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long loadSuccessCount;
+  private final long loadFailureCount;
+  private final long totalLoadTimeNanos;
+  private final long evictionCount;
+  private final long evictionWeight;
+
+  public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+                    long totalLoadTimeNanos, long evictionCount, long evictionWeight) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.loadSuccessCount = loadSuccessCount;
+    this.loadFailureCount = loadFailureCount;
+    this.totalLoadTimeNanos = totalLoadTimeNanos;
+    this.evictionCount = evictionCount;
+    this.evictionWeight = evictionWeight;
+  }
+
+  /**
+   * @return the number of lookups that found a cached value
+   */
+  public long hitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups that didn't find a cached value
+   */
+  public long missCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the total number of lookups
+   */
+  public long requestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * @return the ratio of lookups that found a cached value, or {@code 1} if there haven't been any lookups
+   */
+  public double hitRate() {
+    long requestCount = requestCount();
+    return requestCount == 0 ? 1 : (double)hitCount / requestCount;
+  }
+
+  /**
+   * @return the ratio of lookups that didn't find a cached value, or {@code 0} if there haven't been any lookups
+   */
+  public double missRate() {
+    long requestCount = requestCount();
+    return requestCount == 0 ? 0 : (double)missCount / requestCount;
+  }
+
+  /**
+   * @return the number of values that were successfully loaded
+   */
+  public long loadSuccessCount() {
+    return loadSuccessCount;
+  }
+
+  /**
+   * @return the number of times a loader threw an exception or returned {@code null}
+   */
+  public long loadFailureCount() {
+    return loadFailureCount;
+  }
+
+  /**
+   * @return the total time spent loading values (successfully or not)
+   */
+  public long totalLoadTimeNanos() {
+    return totalLoadTimeNanos;
+  }
+
+  /**
+   * @return the average time spent loading a value, or {@code 0} if there weren't any loads
+   */
+  public double averageLoadPenaltyNanos() {
+    long loadCount = loadSuccessCount + loadFailureCount;
+    return loadCount == 0 ? 0 : (double)totalLoadTimeNanos / loadCount;
+  }
+
+  /**
+   * @return the number of entries that were evicted to keep the cache within its maximum weight
+   * (doesn't include the entries that were removed explicitly)
+   */
+  public long evictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return the sum of the weights of the evicted entries
+   */
+  public long evictionWeight() {
+    return evictionWeight;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hitCount", hitCount)
+        .add("missCount", missCount)
+        .add("loadSuccessCount", loadSuccessCount)
+        .add("loadFailureCount", loadFailureCount)
+        .add("totalLoadTimeNanos", totalLoadTimeNanos)
+        .add("evictionCount", evictionCount)
+        .add("evictionWeight", evictionWeight)
+        .toString();
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.cache;
+
+import com.google.common.base.Preconditions;
+import solutions.trsoftware.commons.shared.util.time.Clock;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A thread-safe bounded cache that evicts the least-recently-used entries when the total weight of its entries
+ * exceeds a maximum.  Unlike {@link FixedSizeLruCache}, it doesn't have to be synchronized externally, and lookups
+ * don't take any locks.
+ * <p>
+ * The entries are stored in a {@link ConcurrentHashMap}, and the LRU order is maintained in a separate linked list
+ * that's guarded by a lock.  To avoid taking this lock on every lookup, the accesses are recorded in a set of striped,
+ * lossy read buffers (one per thread hash), which are drained into the LRU list in batches by whichever thread
+ * manages to acquire the lock (the "read-buffered LRU" technique used by
+ * <a href="https://github.com/ben-manes/caffeine">Caffeine</a>).  Under heavy contention some accesses might
+ * be dropped, which makes the LRU order approximate; in single-threaded use it's exact.
+ * Writes update the LRU list synchronously.
+ * <p>
+ * Values can be loaded with {@link #get(Object, Function)}, which computes a missing value at most once even when
+ * multiple threads request the same key concurrently (the other threads wait for the result instead of
+ * "stampeding" the loader).
+ * <p>
+ * The size of the cache is measured by the sum of the weights of its entries, as given by a {@link Weigher}
+ * (by default, each entry has a weight of 1, so the maximum weight is simply the maximum number of entries).
+ * <p>
+ * The hit, miss, load, and eviction statistics can be obtained with {@link #stats()}.
+ * <p>
+ * <b>GWT:</b> this class has a separate single-threaded implementation in the {@code translatable} source tree,
+ * which is used for client-side code.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Alex
+ * @since 10/16/2026
+ * @see FixedSizeLruCache
+ * @see com.google.common.cache.CacheBuilder
+ */
+public class ConcurrentLruCache<K, V> {
+
+  /**
+   * Computes the weight of a cache entry.
+   * The weight of an entry is computed when it's added or its value is replaced, and must not be negative.
+   */
+  public interface Weigher<K, V> {
+    int weigh(K key, V value);
+  }
+
+  /** The number of accesses that can be recorded in each read buffer before it has to be drained (a power of 2) */
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  /** The number of read buffers (a power of 2) */
+  private static final int NUM_READ_BUFFERS = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+  private final long maximumWeight;
+  private final Weigher<? super K, ? super V> weigher;
+
+  private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+  /**
+   * Guards the LRU list and {@link #weightedSize}, and the draining of the read buffers.
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  /**
+   * The sentinel of the circular LRU list: {@code head.next} is the least-recently-used entry and
+   * {@code head.prev} is the most-recently-used.
+   */
+  private final Node<K, V> head = new Node<>(null, null);
+  private volatile long weightedSize;
+
+  private final ReadBuffer[] readBuffers = new ReadBuffer[NUM_READ_BUFFERS];
+
+  // stats:
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder loadSuccessCount = new LongAdder();
+  private final LongAdder loadFailureCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder evictionWeight = new LongAdder();
+
+  /**
+   * Creates a cache with the given maximum number of entries.
+   */
+  public ConcurrentLruCache(int maximumSize) {
+    this(maximumSize, (key, value) -> 1);
+  }
+
+  /**
+   * Creates a cache with the given maximum total weight of its entries.
+   */
+  public ConcurrentLruCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+    Preconditions.checkArgument(maximumWeight >= 0, "maximumWeight must not be negative, given: %s", maximumWeight);
+    this.maximumWeight = maximumWeight;
+    this.weigher = Preconditions.checkNotNull(weigher);
+    head.prev = head.next = head;
+    for (int i = 0; i < readBuffers.length; i++)
+      readBuffers[i] = new ReadBuffer();
+  }
+
+  /**
+   * A cache entry, which is also a node in the LRU list.
+   */
+  private static class Node<K, V> {
+    private final K key;
+    private volatile V value;
+    // the following fields are guarded by evictionLock:
+    private Node<K, V> prev, next;
+    private int weight;
+    /** Whether this node has been added to the LRU list */
+    private boolean linked;
+    /** Whether this node has been removed from the cache (after which it must not be added to the LRU list) */
+    private boolean removed;
+
+    private Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A lossy ring buffer that records the nodes that were read, so that they can be moved to the tail of the LRU
+   * list when the buffer is drained.
+   */
+  private static class ReadBuffer {
+    private final AtomicLong writeCounter = new AtomicLong();
+    /** Guarded by evictionLock (but read without the lock to check whether the buffer is full) */
+    private volatile long readCounter;
+    private final AtomicReferenceArray<Node<?, ?>> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+    /**
+     * @return {@code false} if the node could not be recorded because the buffer is full
+     */
+    private boolean offer(Node<?, ?> node) {
+      long w = writeCounter.get();
+      if (w - readCounter >= READ_BUFFER_SIZE)
+        return false;
+      if (writeCounter.compareAndSet(w, w + 1))
+        buffer.lazySet((int)(w & READ_BUFFER_MASK), node);
+      // NOTE: if the CAS failed, we just drop this access, since another thread is recording one concurrently
+      return true;
+    }
+  }
+
+  private ReadBuffer getReadBuffer() {
+    long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;  // spread the thread ids
+    return readBuffers[(int)(h >>> 32) & (readBuffers.length - 1)];
+  }
+
+  // the public API:
+
+  /**
+   * @return the value associated with the given key, or {@code null} if it's not cached
+   */
+  @Nullable
+  public V getIfPresent(K key) {
+    Node<K, V> node = data.get(key);
+    if (node == null) {
+      missCount.increment();
+      return null;
+    }
+    hitCount.increment();
+    afterRead(node);
+    return node.value;
+  }
+
+  /**
+   * Returns the value associated with the given key, computing and caching it with the given function if it's not
+   * already cached.  If another thread is already computing the value for this key, this method waits for it to
+   * finish and returns its result, rather than invoking the loader again.
+   * <p>
+   * The loader should be short and must not modify this cache (the same restrictions as
+   * {@link ConcurrentHashMap#computeIfAbsent}).
+   *
+   * @param loader computes the value for a missing key; if it returns {@code null} or throws an exception,
+   * nothing will be cached
+   * @return the cached or computed value, or {@code null} if the loader returned {@code null}
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Node<K, V> node = data.get(key);
+    if (node != null) {
+      hitCount.increment();
+      afterRead(node);
+      return node.value;
+    }
+    missCount.increment();
+    Object[] created = new Object[1];
+    node = data.computeIfAbsent(key, k -> {
+      long start = Clock.nanoTime();
+      V value;
+      try {
+        value = loader.apply(k);
+      }
+      catch (RuntimeException | Error e) {
+        loadFailureCount.increment();
+        throw e;
+      }
+      finally {
+        totalLoadTime.add(Clock.nanoTime() - start);
+      }
+      if (value == null) {
+        loadFailureCount.increment();
+        return null;
+      }
+      loadSuccessCount.increment();
+      return (Node<K, V>)(created[0] = new Node<>(k, value));
+    });
+    if (node == null)
+      return null;
+    if (node == created[0])
+      afterInsert(node);
+    else
+      afterRead(node);  // another thread loaded the value concurrently
+    return node.value;
+  }
+
+  /**
+   * Associates the given value with the given key, replacing the old value (if any).
+   * @return the previous value associated with the key, or {@code null} if there was none
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V put(K key, V value) {
+    Preconditions.checkNotNull(value);
+    Object[] oldValue = new Object[1];
+    Object[] created = new Object[1];
+    Node<K, V> node = data.compute(key, (k, existing) -> {
+      if (existing == null)
+        return (Node<K, V>)(created[0] = new Node<>(k, value));
+      oldValue[0] = existing.value;
+      existing.value = value;
+      return existing;
+    });
+    if (node == created[0])
+      afterInsert(node);
+    else
+      afterUpdate(node);
+    return (V)oldValue[0];
+  }
+
+  /**
+   * Removes the given key from the cache.
+   * @return the value that was removed, or {@code null} if the key wasn't cached
+   */
+  @Nullable
+  public V invalidate(K key) {
+    Node<K, V> node = data.remove(key);
+    if (node == null)
+      return null;
+    afterRemove(node);
+    return node.value;
+  }
+
+  /**
+   * Removes all the entries from the cache.
+   */
+  public void invalidateAll() {
+    for (Node<K, V> node : data.values()) {
+      if (data.remove(node.key, node))
+        afterRemove(node);
+    }
+  }
+
+  /**
+   * @return {@code true} iff the cache contains the given key (this doesn't count as an access of the entry)
+   */
+  public boolean containsKey(K key) {
+    return data.containsKey(key);
+  }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public int size() {
+    return data.size();
+  }
+
+  /**
+   * @return the sum of the weights of the entries in the cache
+   */
+  public long weightedSize() {
+    return weightedSize;
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  /**
+   * @return a snapshot of the statistics of this cache
+   */
+  public CacheStats stats() {
+    return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(),
+        totalLoadTime.sum(), evictionCount.sum(), evictionWeight.sum());
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentLruCache{" + "size=" + size() + ", weightedSize=" + weightedSize + ", maximumWeight=" + maximumWeight + '}';
+  }
+
+  // the eviction policy:
+
+  private void afterRead(Node<K, V> node) {
+    ReadBuffer readBuffer = getReadBuffer();
+    if (!readBuffer.offer(node)) {
+      // the buffer is full: drain it, unless another thread is already doing it
+      if (evictionLock.tryLock()) {
+        try {
+          drainReadBuffers();
+          readBuffer.offer(node);
+        }
+        finally {
+          evictionLock.unlock();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a new node to the tail of the LRU list, and evicts the least-recently-used entries if the cache is overweight.
+   */
+  private void afterInsert(Node<K, V> node) {
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      if (!node.removed) {
+        node.weight = weigh(node);
+        weightedSize += node.weight;
+        linkLast(node);
+        node.linked = true;
+        evict();
+      }
+    }
+    finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Updates the weight and LRU position of a node after its value has been replaced.
+   */
+  private void afterUpdate(Node<K, V> node) {
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      if (node.linked && !node.removed) {
+        int newWeight = weigh(node);
+        weightedSize += newWeight - node.weight;
+        node.weight = newWeight;
+        moveToTail(node);
+        evict();
+      }
+      // NOTE: if the node hasn't been linked yet, its weight will be computed when it is
+    }
+    finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void afterRemove(Node<K, V> node) {
+    evictionLock.lock();
+    try {
+      markRemoved(node);
+    }
+    finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Unlinks a node that has been removed from the map.
+   * @return {@code true} iff the node was still linked
+   */
+  private boolean markRemoved(Node<K, V> node) {
+    assert evictionLock.isHeldByCurrentThread();
+    if (node.removed)
+      return false;
+    node.removed = true;
+    if (node.linked) {
+      unlink(node);
+      node.linked = false;
+      weightedSize -= node.weight;
+      return true;
+    }
+    return false;
+  }
+
+  private int weigh(Node<K, V> node) {
+    int weight = weigher.weigh(node.key, node.value);
+    Preconditions.checkState(weight >= 0, "Negative weight (%s) for key %s", weight, node.key);
+    return weight;
+  }
+
+  /**
+   * Evicts the least-recently-used entries until the total weight doesn't exceed the maximum.
+   */
+  private void evict() {
+    while (weightedSize > maximumWeight && head.next != head) {
+      Node<K, V> lru = head.next;
+      boolean removedFromMap = data.remove(lru.key, lru);
+      int weight = lru.weight;
+      markRemoved(lru);
+      if (removedFromMap) {
+        evictionCount.increment();
+        evictionWeight.add(weight);
+      }
+      // otherwise it was removed concurrently by another thread, which will find it already unlinked
+    }
+  }
+
+  private void drainReadBuffers() {
+    for (ReadBuffer readBuffer : readBuffers) {
+      long w = readBuffer.writeCounter.get();
+      long r = readBuffer.readCounter;
+      for (; r < w; r++) {
+        int i = (int)(r & READ_BUFFER_MASK);
+        @SuppressWarnings("unchecked")
+        Node<K, V> node = (Node<K, V>)readBuffer.buffer.get(i);
+        if (node == null)
+          break;  // the writer hasn't published this element yet
+        readBuffer.buffer.lazySet(i, null);
+        if (node.linked && !node.removed)
+          moveToTail(node);
+      }
+      readBuffer.readCounter = r;
+    }
+  }
+
+  // LRU list operations (guarded by evictionLock):
+
+  private void linkLast(Node<K, V> node) {
+    node.prev = head.prev;
+    node.next = head;
+    head.prev.next = node;
+    head.prev = node;
+  }
+
+  private void unlink(Node<K, V> node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = node.next = null;
+  }
+
+  private void moveToTail(Node<K, V> node) {
+    if (head.prev != node) {
+      unlink(node);
+      linkLast(node);
+    }
+  }
+}
@@ -25,9 +25,11 @@ import java.util.Map;
  * <p>
  * This class extends {@link LinkedHashMap} with fixed-size logic and <strong>must be synchronized externally.</strong>
  * <p>
- * For a concurrent cache implementation, see {@link com.google.common.cache.CacheBuilder}.
+ * For a concurrent cache implementation, see {@link ConcurrentLruCache}
+ * or {@link com.google.common.cache.CacheBuilder}.
  *
  * @author Alex
+ * @see ConcurrentLruCache
  * @see <a href="https://github.com/google/guava/wiki/CachesExplained">Guava Caches</a>
  */
 public class FixedSizeLruCache<K, V> extends LinkedHashMap<K,V> {
@@ -17,15 +17,19 @@
 package solutions.trsoftware.commons.shared.util;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Objects;
+import java.util.Random;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Objects.requireNonNull;
 
@@ -35,6 +39,14 @@ import static java.util.Objects.requireNonNull;
  * synchronously using the provided {@link ValueLoader} the first time it's accessed.  The refreshing can be
  * performed asynchronously, at the discretion of the provided {@link ValueLoader} implementation.
  * <p>
+ * After the value {@linkplain #isExpired() expires}, {@link #get()} keeps returning the stale value without blocking
+ * while a single {@linkplain ValueLoader#reload(Object) reload} operation is pending.  On the server, an
+ * {@link solutions.trsoftware.commons.server.cache.AsyncValueLoader} can be used to perform the reloads in the
+ * background on a given {@link java.util.concurrent.Executor}.
+ * <p>
+ * The expiration time can be randomized with {@link #setExpiryJitter(double)}, to keep a large number of instances
+ * from expiring at the same time, and the runtime metrics of each instance are available from {@link #getMetrics()}.
+ * <p>
  * <em>Note:</em> Although this implementation is thread-safe and designed to provide a high degree of concurrency,
  * the {@link #get()}, {@link #set(Object)}, {@link #remove()}, and {@link #refresh()} operations are potentially blocking.
  *
@@ -49,6 +61,11 @@ public class CachedValue<V> {
   private volatile V value;
   private volatile long lastUpdated;
   private volatile ValueReloader futureValue;
+  /**
+   * The age at which the current value expires: this is {@link #maxAgeMillis}, minus a random
+   * amount of {@linkplain #expiryJitter jitter}
+   */
+  private volatile long expiresAfterMillis;
 
   // config settings:
   /**
@@ -66,7 +83,24 @@ public class CachedValue<V> {
    * {@linkplain ValueLoader#reload(Object) reloading} the cached value
    */
   private final ValueLoader<V> valueLoader;
-
+  /**
+   * The max fraction of {@link #maxAgeMillis} by which the expiration of each new value will be randomly shortened
+   */
+  private volatile double expiryJitter;
+  /** Generates the {@linkplain #expiryJitter jitter} */
+  private volatile Random random;
+
+  // metrics:
+  private final AtomicLong readCount = new AtomicLong();
+  private final AtomicLong staleReadCount = new AtomicLong();
+  private final AtomicLong maxStalenessMillis = new AtomicLong();
+  private final AtomicLong loadCount = new AtomicLong();
+  private final AtomicLong totalLoadTimeMillis = new AtomicLong();
+  private final AtomicLong reloadCount = new AtomicLong();
+  private final AtomicLong reloadSuccessCount = new AtomicLong();
+  private final AtomicLong totalReloadTimeMillis = new AtomicLong();
+  private final AtomicLong reloadFailureCount = new AtomicLong();
+  private final AtomicLong reloadTimeoutCount = new AtomicLong();
 
   /**
    * Creates an empty {@link CachedValue} instance.  The value will be initialized on the first invocation of
@@ -97,6 +131,7 @@ public class CachedValue<V> {
     this.maxAgeMillis = maxAgeMillis;
     this.valueLoader = requireNonNull(valueLoader, "valueLoader");
     this.reloadTimeoutMillis = reloadTimeoutMillis;
+    expiresAfterMillis = maxAgeMillis;
   }
 
   /**
@@ -131,6 +166,44 @@ public class CachedValue<V> {
     this.reloadTimeoutMillis = reloadTimeoutMillis;
     value = Objects.requireNonNull(initialValue, "initialValue");
     lastUpdated = currentTimeMillis();
+    expiresAfterMillis = maxAgeMillis;
+  }
+
+  /**
+   * Randomizes the expiration of the values stored in this instance: each value will expire after
+   * a random age in the range {@code [(1-jitter)*maxAgeMillis, maxAgeMillis]}.  This also applies to the current value
+   * (e.g. the {@code initialValue} passed to the constructor), if any.
+   * <p>
+   * This can be used to spread out the reloads of many {@link CachedValue} instances that were created
+   * at the same time (to avoid overloading the underlying resource with simultaneous reload requests).
+   *
+   * @param expiryJitter a number in the range {@code [0, 1]}
+   * @return this instance, for method chaining
+   * @see #setExpiryJitter(double, Random)
+   */
+  public CachedValue<V> setExpiryJitter(double expiryJitter) {
+    return setExpiryJitter(expiryJitter, random != null ? random : new Random());
+  }
+
+  /**
+   * Same as {@link #setExpiryJitter(double)}, but uses the given random number generator
+   * (e.g. a seeded instance for unit tests, or an instance shared by many {@link CachedValue}s).
+   *
+   * @param expiryJitter a number in the range {@code [0, 1]}
+   * @param random will be used to generate the jitter
+   * @return this instance, for method chaining
+   */
+  public synchronized CachedValue<V> setExpiryJitter(double expiryJitter, @Nonnull Random random) {
+    Preconditions.checkArgument(expiryJitter >= 0 && expiryJitter <= 1, "expiryJitter must be in the range [0, 1], given: %s", expiryJitter);
+    this.random = requireNonNull(random, "random");
+    this.expiryJitter = expiryJitter;
+    if (hasValue())
+      expiresAfterMillis = nextExpiresAfterMillis();
+    return this;
+  }
+
+  public double getExpiryJitter() {
+    return expiryJitter;
   }
 
   /**
@@ -143,7 +216,11 @@ public class CachedValue<V> {
       // if the value hasn't been set yet, retrieve it now, blocking on the result
       synchronized (this) {
         if (!hasValue()) {
-          return set(valueLoader.load());
+          long start = currentTimeMillis();
+          V newValue = valueLoader.load();
+          loadCount.incrementAndGet();
+          totalLoadTimeMillis.addAndGet(currentTimeMillis() - start);
+          return set(newValue);
         }
         // the loader must've been invoked from a competing thread, since we have a value now
         assert value != null;
@@ -153,6 +230,7 @@ public class CachedValue<V> {
     else {  // has value
       V ret = value;
       assert ret != null;
+      readCount.incrementAndGet();
       // see if a fresher value is available
       // TODO: doing this check every time potentially degrades perf; maybe better to use a ListenableFuture?
       if (newValueAvailable()) {
@@ -164,20 +242,36 @@ public class CachedValue<V> {
         }
       }
       // handle reloading the value (if expired)
+      recordStaleness();
       maybeReloadValue();
       return ret;
     }
   }
 
+  /**
+   * Updates the staleness metrics if the current value is expired
+   */
+  private void recordStaleness() {
+    long staleness = getAge() - expiresAfterMillis;
+    if (staleness > 0) {
+      staleReadCount.incrementAndGet();
+      long max;
+      while (staleness > (max = maxStalenessMillis.get()) && !maxStalenessMillis.compareAndSet(max, staleness)) {
+        // retry until updated or a higher value was recorded by another thread
+      }
+    }
+  }
+
   private void maybeReloadValue() {
     // TODO: maybe move the expired future check to the getFuture() method?
     if (isExpired() && (futureValue == null || futureValue.isExpired())) {
       synchronized (this) {
         if (isExpired())
           if (futureValue == null) {
-            futureValue = new ValueReloader(valueLoader.reload(value));
+            startReload();
           }
           else if (futureValue.isExpired()) {
+            reloadTimeoutCount.incrementAndGet();
             handleExpiredFuture();
           }
       }
@@ -195,9 +289,10 @@ public class CachedValue<V> {
 
   /**
    * @return {@code true} iff the currently-cached value has {@linkplain #maxAgeMillis expired}
+   * (taking into account the {@linkplain #setExpiryJitter(double) jitter}, if any)
    */
   public boolean isExpired() {
-    return hasValue() && getAge() > maxAgeMillis;
+    return hasValue() && getAge() > expiresAfterMillis;
   }
 
   /**
@@ -233,13 +328,18 @@ public class CachedValue<V> {
     */
     if (newValueAvailable()) {
       try {
-        V newValue = Futures.getDone(futureValue.future);
+        ValueReloader reloader = futureValue;
+        V newValue = Futures.getDone(reloader.future);
+        Objects.requireNonNull(newValue, () -> "Value returned from future " + reloader.future);
         futureValue = null;
-        Objects.requireNonNull(newValue, () -> "Value returned from future " + futureValue.future);
+        reloadSuccessCount.incrementAndGet();
+        totalReloadTimeMillis.addAndGet(reloader.getCompletionTime() - reloader.getStartTime());
         return set(newValue);
       } catch (ExecutionException e) {
+        reloadFailureCount.incrementAndGet();
         handleFailedFuture(e.getCause());
       } catch (RuntimeException | Error e) {
+        reloadFailureCount.incrementAndGet();
         handleFailedFuture(e);
       }
     }
@@ -263,6 +363,7 @@ public class CachedValue<V> {
       case IGNORE:
         // mark the current value as "fresh" instead of retrying the reload
         lastUpdated = currentTimeMillis();
+        expiresAfterMillis = nextExpiresAfterMillis();
         futureValue = null;
         break;
       case RETRY:
@@ -282,10 +383,21 @@ public class CachedValue<V> {
   public synchronized V set(@Nonnull V newValue) {
     value = Objects.requireNonNull(newValue, "newValue");
     lastUpdated = currentTimeMillis();
+    expiresAfterMillis = nextExpiresAfterMillis();
     clearFuture();
     return newValue;
   }
 
+  /**
+   * @return the age at which a new value should expire, taking into account the {@link #expiryJitter}
+   */
+  private long nextExpiresAfterMillis() {
+    double jitter = expiryJitter;
+    if (jitter == 0)
+      return maxAgeMillis;
+    return maxAgeMillis - (long)(maxAgeMillis * jitter * random.nextDouble());
+  }
+
   private synchronized void clearFuture() {
     if (futureValue != null && !futureValue.isDone()) {
       futureValue.cancel();
@@ -317,7 +429,7 @@ public class CachedValue<V> {
     if (hasValue() && futureValue == null) {
       synchronized (this) {
         if (hasValue() && futureValue == null) {
-          futureValue = new ValueReloader(valueLoader.reload(value));
+          startReload();
           return true;
         }
       }
@@ -325,6 +437,18 @@ public class CachedValue<V> {
     return false;
   }
 
+  private synchronized void startReload() {
+    futureValue = new ValueReloader(valueLoader.reload(value));
+    reloadCount.incrementAndGet();
+  }
+
+  /**
+   * @return a snapshot of the runtime metrics of this instance
+   */
+  public Metrics getMetrics() {
+    return new Metrics(this);
+  }
+
   /**
    * Returns {@link System#currentTimeMillis()}, but unit tests can override to provide a mocked time.
    */
@@ -350,6 +474,11 @@ public class CachedValue<V> {
      * and {@link ValueLoader#onReloadTimeout}
      */
     private volatile int failCount;
+    /**
+     * The clock time (epoch millis) when the current future completed, if it's a {@link ListenableFuture}
+     * (otherwise we don't know when it completed, so we use the time when the result was checked)
+     */
+    private volatile long completionTime;
 
     private ValueReloader(@Nonnull Future<V> future) {
       startTime = currentTimeMillis();
@@ -364,9 +493,20 @@ public class CachedValue<V> {
       return failCount;
     }
 
+    long getCompletionTime() {
+      return completionTime != 0 ? completionTime : currentTimeMillis();
+    }
+
     private void setFuture(@Nonnull Future<V> future) {
       this.future = future;
       futureStarted = currentTimeMillis();
+      completionTime = 0;
+      if (future instanceof ListenableFuture) {
+        ((ListenableFuture<V>)future).addListener(() -> {
+          if (this.future == future)
+            completionTime = currentTimeMillis();
+        }, MoreExecutors.directExecutor());
+      }
     }
 
     boolean isExpired() {
@@ -585,4 +725,127 @@ public class CachedValue<V> {
       return FailedReloadAction.ignore();
     }
   }
+
+  /**
+   * An immutable snapshot of the runtime metrics of a {@link CachedValue}.
+   *
+   * @see #getMetrics()
+   * @author Alex
+   * @since 10/16/2026
+   */
+  public static class Metrics {
+    private final long readCount;
+    private final long staleReadCount;
+    private final long maxStalenessMillis;
+    private final long loadCount;
+    private final long totalLoadTimeMillis;
+    private final long reloadCount;
+    private final long reloadSuccessCount;
+    private final long totalReloadTimeMillis;
+    private final long reloadFailureCount;
+    private final long reloadTimeoutCount;
+
+    private Metrics(CachedValue<?> cachedValue) {
+      readCount = cachedValue.readCount.get();
+      staleReadCount = cachedValue.staleReadCount.get();
+      maxStalenessMillis = cachedValue.maxStalenessMillis.get();
+      loadCount = cachedValue.loadCount.get();
+      totalLoadTimeMillis = cachedValue.totalLoadTimeMillis.get();
+      reloadCount = cachedValue.reloadCount.get();
+      reloadSuccessCount = cachedValue.reloadSuccessCount.get();
+      totalReloadTimeMillis = cachedValue.totalReloadTimeMillis.get();
+      reloadFailureCount = cachedValue.reloadFailureCount.get();
+      reloadTimeoutCount = cachedValue.reloadTimeoutCount.get();
+    }
+
+    /**
+     * @return the number of {@link CachedValue#get()} invocations that returned an existing value
+     * (i.e. didn't have to wait for {@link ValueLoader#load()})
+     */
+    public long getReadCount() {
+      return readCount;
+    }
+
+    /**
+     * @return the number of {@link CachedValue#get()} invocations that returned an expired value (while waiting for a reload)
+     */
+    public long getStaleReadCount() {
+      return staleReadCount;
+    }
+
+    /**
+     * @return the max amount of time (in millis) past its expiration that a value was returned by {@link CachedValue#get()}
+     */
+    public long getMaxStalenessMillis() {
+      return maxStalenessMillis;
+    }
+
+    /**
+     * @return the number of synchronous invocations of {@link ValueLoader#load()}
+     */
+    public long getLoadCount() {
+      return loadCount;
+    }
+
+    /**
+     * @return the average duration (in millis) of the synchronous invocations of {@link ValueLoader#load()}
+     */
+    public double getAverageLoadTimeMillis() {
+      return loadCount == 0 ? 0 : (double)totalLoadTimeMillis / loadCount;
+    }
+
+    /**
+     * @return the number of {@linkplain ValueLoader#reload(Object) reload} operations that were started
+     * (not counting any retries)
+     */
+    public long getReloadCount() {
+      return reloadCount;
+    }
+
+    /**
+     * @return the number of {@linkplain ValueLoader#reload(Object) reload} operations that produced a new value
+     */
+    public long getReloadSuccessCount() {
+      return reloadSuccessCount;
+    }
+
+    /**
+     * @return the average duration (in millis) of the successful {@linkplain ValueLoader#reload(Object) reload}
+     * operations, from the start of the original attempt to the completion of the last retry
+     */
+    public double getAverageReloadTimeMillis() {
+      return reloadSuccessCount == 0 ? 0 : (double)totalReloadTimeMillis / reloadSuccessCount;
+    }
+
+    /**
+     * @return the number of times a future returned by the {@link ValueLoader} threw an exception
+     */
+    public long getReloadFailureCount() {
+      return reloadFailureCount;
+    }
+
+    /**
+     * @return the number of times a future returned by the {@link ValueLoader} didn't finish
+     * within the {@linkplain #getReloadTimeoutMillis() reload timeout}
+     */
+    public long getReloadTimeoutCount() {
+      return reloadTimeoutCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Metrics{" +
+          "readCount=" + readCount +
+          ", staleReadCount=" + staleReadCount +
+          ", maxStalenessMillis=" + maxStalenessMillis +
+          ", loadCount=" + loadCount +
+          ", averageLoadTimeMillis=" + getAverageLoadTimeMillis() +
+          ", reloadCount=" + reloadCount +
+          ", reloadSuccessCount=" + reloadSuccessCount +
+          ", averageReloadTimeMillis=" + getAverageReloadTimeMillis() +
+          ", reloadFailureCount=" + reloadFailureCount +
+          ", reloadTimeoutCount=" + reloadTimeoutCount +
+          '}';
+    }
+  }
 }
@@ -105,6 +105,14 @@ public class BoundedNumberSampleOfInt {
     // subclasses may override (e.g. to promote to a larger buffer)
   }
 
+  /**
+   * Removes all the values from this buffer (without {@linkplain #evict(int) evicting} them).
+   */
+  public void clear() {
+    cursor = 0;
+    size = 0;
+  }
+
   /**
    * Returns the <i>i</i>-th element, s.t. the element at {@code index 0} is the eldest and {@link #size}{@code -1}
    * is the most-recently added. The {@code index} can also be negative, which indicates an offset from the end,
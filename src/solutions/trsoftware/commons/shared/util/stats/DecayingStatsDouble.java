@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import solutions.trsoftware.commons.shared.util.time.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the mean and variance of a stream of numbers, with each value weighted by its age, such that its weight
+ * decays exponentially with the given half-life.  This gives an estimate of the "recent" mean and variance
+ * using O(1) time per update and O(1) memory, and the estimate adapts smoothly when the distribution changes.
+ * <p>
+ * The weight of a value added at time {@code t} is {@code 2^(-(now-t)/halfLife)}, and the statistics are computed
+ * with the weighted variant of Welford's online algorithm (see {@link MeanAndVariance}), where the accumulated weight
+ * and squared deltas are decayed lazily (on each update or query) by the time elapsed since the previous one.
+ * <p>
+ * The time is read from the given {@link Ticker} (which is {@link Clock#ticker()} by default), so that it can be
+ * controlled in unit tests.
+ * <p>
+ * Since the values are not retained, the {@link #min()}, {@link #max()}, and {@link #median()} methods are
+ * not supported.  To get those statistics over a recent time interval, use {@link SlidingWindowStatsDouble}.
+ * <p>
+ * NOTE: this implementation is fully {@code synchronized}.
+ *
+ * @see SlidingWindowStatsDouble
+ * @see <a href="https://en.wikipedia.org/wiki/Exponential_smoothing">Exponential smoothing</a>
+ * @see <a href="https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Weighted_incremental_algorithm">
+ *   Weighted incremental algorithm for calculating variance</a>
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class DecayingStatsDouble implements SampleStatisticsDouble, UpdatableDouble {
+
+  private final Ticker ticker;
+  /**
+   * The mean lifetime of a value (in nanoseconds): the weights decay by a factor of {@code e} over this interval
+   * (which is equal to {@code halfLife / ln(2)}).
+   */
+  private final double meanLifetimeNanos;
+
+  /** The total number of inputs processed (not weighted) */
+  private int n;
+  /** The sum of the decayed weights of the inputs */
+  private double weight;
+  private double mean;
+  /** Sum of the weighted squares of deltas */
+  private double m2;
+  /** The ticker value at which {@link #weight} and {@link #m2} were last decayed */
+  private long lastTick;
+
+  /**
+   * @param halfLife the time it takes for the weight of a value to decay to {@code 1/2}
+   * @param unit the unit of {@code halfLife}
+   */
+  public DecayingStatsDouble(long halfLife, TimeUnit unit) {
+    this(halfLife, unit, Clock.ticker());
+  }
+
+  /**
+   * @param halfLife the time it takes for the weight of a value to decay to {@code 1/2}
+   * @param unit the unit of {@code halfLife}
+   * @param ticker the time source
+   */
+  public DecayingStatsDouble(long halfLife, TimeUnit unit, Ticker ticker) {
+    Preconditions.checkArgument(halfLife > 0, "halfLife must be positive, given: %s", halfLife);
+    this.ticker = Preconditions.checkNotNull(ticker);
+    meanLifetimeNanos = unit.toNanos(halfLife) / Math.log(2);
+  }
+
+  /**
+   * Decays the accumulated weights by the time elapsed since the last update.
+   */
+  private void decay() {
+    long now = ticker.read();
+    long elapsed = now - lastTick;
+    if (elapsed > 0) {
+      double factor = Math.exp(-elapsed / meanLifetimeNanos);
+      weight *= factor;
+      m2 *= factor;
+      lastTick = now;
+    }
+  }
+
+  /**
+   * Adds a new number to the sample with a weight of 1.
+   */
+  @Override
+  public synchronized void update(double x) {
+    if (Double.isFinite(x)) {
+      // allow only finite values, otherwise a single bad input can destroy what we have (e.g. make everything NaN)
+      if (n++ == 0)
+        lastTick = ticker.read();
+      else
+        decay();
+      weight += 1;
+      double delta = x - mean;
+      mean += delta / weight;
+      m2 += delta * (x - mean);
+    }
+    else {
+      System.err.println("WARNING: " + getClass().getSimpleName() + " ignoring bad input: " + x);
+    }
+  }
+
+  /**
+   * @return the total number of inputs processed (regardless of their current weights)
+   * @see #getWeight()
+   */
+  @Override
+  public synchronized int size() {
+    return n;
+  }
+
+  /**
+   * @return the sum of the current (decayed) weights of the inputs, which can be interpreted as the effective number
+   * of values that make up the current statistics
+   */
+  public synchronized double getWeight() {
+    decay();
+    return weight;
+  }
+
+  @Override
+  public double min() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public double max() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public double median() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return the weighted mean of the inputs, or {@code 0} if empty
+   */
+  @Override
+  public synchronized double mean() {
+    return mean;
+  }
+
+  /**
+   * @return the weighted sum of the inputs
+   */
+  @Override
+  public synchronized double sum() {
+    return mean * getWeight();
+  }
+
+  /**
+   * Returns the weighted <a href="http://en.wikipedia.org/wiki/Variance#Population_variance">population variance</a> of the values.
+   * @return the population variance, or {@code 0} if empty
+   */
+  @Override
+  public synchronized double variance() {
+    double w = getWeight();
+    if (w == 0) return 0;  // avoid divide-by-zero
+    return m2 / w;
+  }
+
+  /**
+   * Returns the weighted <a href="http://en.wikipedia.org/wiki/Variance#Sample_variance">sample variance</a> of the values,
+   * treating the weights as frequencies.
+   * @return the sample variance, or {@code 0} if the {@linkplain #getWeight() total weight} is not greater than 1
+   */
+  @Override
+  public synchronized double sampleVariance() {
+    double w = getWeight();
+    if (w <= 1) return 0;  // avoid divide-by-zero
+    return m2 / (w - 1);
+  }
+
+  @Override
+  public synchronized ImmutableStats<Double> summarize() {
+    return new ImmutableStats<>(size(), null, null, null, sum(), mean(), variance());
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "DecayingStatsDouble{" + "n=" + n + ", weight=" + getWeight() + ", mean=" + mean + ", variance=" + variance() + '}';
+  }
+}
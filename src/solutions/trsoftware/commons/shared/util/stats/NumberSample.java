@@ -41,6 +41,9 @@ import java.util.stream.Stream;
  * @author Alex
  * @see NumberSampleOnline
  * @see NumberSampleOnlineDouble
+ * @see NumberSampleOfInt
+ * @see NumberSampleOfLong
+ * @see NumberSampleOfDouble
  * @see com.google.common.math.Stats
  */
 public class NumberSample<N extends Number & Comparable<N>> implements SampleStatistics<N>, CollectableStats<N, NumberSample<N>>, Serializable {
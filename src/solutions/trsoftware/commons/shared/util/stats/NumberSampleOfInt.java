@@ -0,0 +1,397 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import solutions.trsoftware.commons.shared.util.NumberRange;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * A primitive specialization of {@link NumberSample} for {@code int} values, which stores the sample in a
+ * growable {@code int[]} (4 bytes per value) instead of a list of boxed {@link Integer} objects
+ * (which take about 20 bytes each, including the reference in the list).
+ * <p>
+ * The array is sorted in place on demand (whenever an order statistic is requested after new values were added),
+ * so the insertion order of the values is not preserved.
+ * <p>
+ * Unlike {@link NumberSample}, this class is not thread-safe.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ * @see NumberSampleOfInt
+ * @see NumberSampleOfLong
+ * @see NumberSampleOnlineDouble
+ */
+public class NumberSampleOfInt implements SampleStatisticsInt, UpdatableInt, CollectableStats<Integer, NumberSampleOfInt>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+  /**
+   * The values in the sample: only the first {@link #size} elements are used.
+   */
+  private int[] values;
+
+  private int size;
+
+  /**
+   * Flag to indicate whether values were added since the last time the array was sorted.
+   */
+  private boolean modified;
+
+  public NumberSampleOfInt() {
+    this(DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param initialCapacity the expected number of values (the array will grow as needed)
+   */
+  public NumberSampleOfInt(int initialCapacity) {
+    Preconditions.checkArgument(initialCapacity >= 0, "Negative capacity: %s", initialCapacity);
+    values = new int[initialCapacity];
+  }
+
+  /**
+   * Creates a new instance containing the given values.
+   */
+  public NumberSampleOfInt(int... values) {
+    this(values.length);
+    addAll(values);
+  }
+
+  @Override
+  public void update(int x) {
+    ensureCapacity(size + 1);
+    values[size++] = x;
+    modified = true;
+  }
+
+  /**
+   * Adds all the given values to the sample, growing the array at most once.
+   */
+  public void addAll(int... values) {
+    ensureCapacity(size + values.length);
+    System.arraycopy(values, 0, this.values, size, values.length);
+    size += values.length;
+    modified = true;
+  }
+
+  @Override
+  public void updateAll(int... candidates) {
+    addAll(candidates);
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity > values.length) {
+      // grow by 50%, like ArrayList
+      int newCapacity = Math.max(minCapacity, values.length + (values.length >> 1));
+      values = Arrays.copyOf(values, newCapacity);
+    }
+  }
+
+  /**
+   * Trims the capacity of the backing array to the current size of the sample.
+   * This is useful for reclaiming the unused memory after all the values have been collected.
+   */
+  public void trimToSize() {
+    if (values.length > size)
+      values = Arrays.copyOf(values, size);
+  }
+
+  /**
+   * Removes all the values from the sample (but retains the capacity of the backing array).
+   */
+  public void clear() {
+    size = 0;
+    modified = false;
+  }
+
+  /**
+   * Sorts the values in place, unless they're already sorted.
+   * @return the {@link #values} array after it's been sorted
+   */
+  private int[] sort() {
+    if (modified) {
+      Arrays.sort(values, 0, size);
+      modified = false;
+    }
+    return values;
+  }
+
+  private void checkNotEmpty() {
+    Preconditions.checkState(size > 0, "Empty sample");
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @throws IllegalStateException if the sample is empty
+   */
+  @Override
+  public int min() {
+    checkNotEmpty();
+    if (!modified)
+      return values[0];
+    int min = values[0];
+    for (int i = 1; i < size; i++)
+      min = Math.min(min, values[i]);
+    return min;
+  }
+
+  /**
+   * @throws IllegalStateException if the sample is empty
+   */
+  @Override
+  public int max() {
+    checkNotEmpty();
+    if (!modified)
+      return values[size - 1];
+    int max = values[0];
+    for (int i = 1; i < size; i++)
+      max = Math.max(max, values[i]);
+    return max;
+  }
+
+  @Override
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < size; i++)
+      sum += values[i];
+    return sum;
+  }
+
+  /**
+   * @return the arithmetic mean of the values, or {@code 0} if empty
+   */
+  @Override
+  public double mean() {
+    if (size == 0) return 0;  // avoid divide-by-zero
+    return (double)sum() / size;
+  }
+
+  /**
+   * @return the upper median of the sample (if there are 2 medians)
+   * @throws IllegalStateException if the sample is empty
+   * @see #getMedian()
+   */
+  @Override
+  public int median() {
+    checkNotEmpty();
+    return sort()[size / 2];
+  }
+
+  /**
+   * @return the lower and upper medians of the sample (which will be the same value if the sample size is odd),
+   * or {@code null} if the sample is empty
+   * @see NumberSample#getMedian()
+   */
+  @Nullable
+  public Median<Integer> getMedian() {
+    if (size == 0)
+      return null;
+    int[] sorted = sort();
+    int mid = size / 2;
+    if (size % 2 == 1)
+      return new Median<>(sorted[mid]);
+    else
+      return new Median<>(sorted[mid - 1], sorted[mid]);
+  }
+
+  @Override
+  public double variance() {
+    if (size == 0) return 0;  // avoid divide-by-zero
+    return sumSquaredDiffs() / size;
+  }
+
+  @Override
+  public double sampleVariance() {
+    if (size < 2) return 0;
+    return sumSquaredDiffs() / (size - 1);
+  }
+
+  /**
+   * @return the sum of squared deviations from the mean (computed in a second pass over the values,
+   * which is more accurate than accumulating the sum of squares)
+   */
+  private double sumSquaredDiffs() {
+    double mean = mean();
+    double ret = 0;
+    for (int i = 0; i < size; i++) {
+      double diff = values[i] - mean;
+      ret += diff * diff;
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the <i>k</i>th smallest value in the sample.
+   *
+   * @param k a positive ordinal between 1 and {@link #size()} (inclusive), or a negative ordinal
+   *   between -1 and -{@link #size()} to count from the end (e.g. -1 gives the largest value)
+   * @throws IllegalArgumentException if {@code k} is out of range
+   * @see NumberSample#orderStatistic(int)
+   */
+  public int orderStatistic(int k) {
+    int n = size;
+    // map k to an index in the sorted array:
+    int i;
+    if (NumberRange.inRange(1, n, k))
+      i = k - 1;
+    else if (NumberRange.inRange(-n, -1, k))
+      i = n + k;
+    else
+      throw new IllegalArgumentException(
+          Strings.lenientFormat("k (%s) should be a positive or negative ordinal between 1 and %s", k, n));
+    return sort()[i];
+  }
+
+  /**
+   * Returns the element at index {@code floor(kPct * N)} of the sorted sample.
+   *
+   * @param kPct a fraction of the total number of elements that are &le; the desired element
+   *   (expressed as a unit fraction in the range [0,1])
+   * @throws IllegalArgumentException if the argument is not a finite value in the range 0..1
+   * @throws IllegalStateException if the sample is empty
+   * @see NumberSample#orderStatistic(double)
+   */
+  public int orderStatistic(double kPct) {
+    Preconditions.checkArgument(Double.isFinite(kPct) && NumberRange.inRange(0d, 1d, kPct),
+        "Percentage must be a finite value in the range 0..1, given: %s", kPct
+    );
+    checkNotEmpty();
+    int i = (int)Math.floor(size * kPct);
+    // special case: if pct = 1, we get i = size, which is out of bounds
+    if (i >= size)
+      i = size - 1;
+    return sort()[i];
+  }
+
+  /**
+   * Computes the given percentile using the nearest-rank method.
+   *
+   * @param p the desired percentile (0..100)
+   * @return the smallest element in the sample that is greater than {@code p} percent of the elements
+   * @throws IllegalArgumentException if the argument is not in the range 0..100
+   * @throws IllegalStateException if the sample is empty
+   * @see NumberSample#percentile(int)
+   */
+  public int percentile(int p) {
+    Preconditions.checkArgument(NumberRange.inRange(0, 100, p),
+        "Percentile must be an integer in the range 0..100, given: %s", p
+    );
+    checkNotEmpty();
+    // NOTE: since the ordinal rank is 1-indexed, we have to subtract 1 to map it to an array index
+    int resultIndex = p > 0 ? (int)Math.ceil(p / 100d * size) - 1 : 0;
+    return sort()[resultIndex];
+  }
+
+  /**
+   * @return a copy of the values in this sample, sorted in their natural order
+   */
+  public int[] toArray() {
+    return Arrays.copyOf(sort(), size);
+  }
+
+  /**
+   * @return a stream of the values in this sample, sorted in their natural order
+   */
+  public IntStream stream() {
+    return Arrays.stream(sort(), 0, size);
+  }
+
+  /**
+   * @return a summary of the sample, which contains all the statistics without retaining the values;
+   * if the sample is empty, the min, max, and median of the summary will be {@code null}
+   */
+  @Override
+  public ImmutableStats<Integer> summarize() {
+    if (size == 0)
+      return new ImmutableStats<>(0, null, null, null, 0, 0, 0);
+    return new ImmutableStats<>(size, min(), max(), median(), sum(), mean(), variance());
+  }
+
+  @Override
+  public void merge(NumberSampleOfInt other) {
+    ensureCapacity(size + other.size);
+    System.arraycopy(other.values, 0, values, size, other.size);
+    size += other.size;
+    modified = true;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    NumberSampleOfInt that = (NumberSampleOfInt)o;
+    // NOTE: we sort the samples prior to performing the comparison because the order is not important
+    return size == that.size && Arrays.equals(toArray(), that.toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(toArray());
+  }
+
+  @Override
+  public String toString() {
+    return "NumberSampleOfInt{" + "size=" + size + ", values=" + Arrays.toString(toArray()) + '}';
+  }
+
+  @Override
+  public java.util.stream.Collector<Integer, ?, NumberSampleOfInt> getCollector() {
+    return Collector.getInstance();
+  }
+
+  /**
+   * Provides a cached collector descriptor that can be passed to {@link java.util.stream.Stream#collect}
+   * to collect the stream elements into an instance of {@link NumberSampleOfInt}.
+   *
+   * @see #getInstance()
+   */
+  public static class Collector extends CollectableStats.Collector<Integer, NumberSampleOfInt> {
+
+    /**
+     * NOTE: static fields are automatically lazy-init for singletons and safer to use than double-checked locking.
+     * @see <a href="https://en.wikipedia.org/wiki/Initialization-on-demand_holder_idiom">Initialization-on-demand holder idiom</a>
+     */
+    private static final Collector INSTANCE = new Collector();
+
+    /**
+     * @return the cached instance of this {@link Collector}
+     */
+    public static Collector getInstance() {
+      return INSTANCE;
+    }
+
+    @Override
+    public Supplier<NumberSampleOfInt> supplier() {
+      return NumberSampleOfInt::new;
+    }
+  }
+
+}
@@ -45,6 +45,7 @@ import java.util.stream.Stream;
  *   Welford's online algorithm for calculating variance</a>
  * @see DoubleStream#summaryStatistics()
  * @see Collectors#summarizingDouble
+ * @see QuantileSketchDouble
  * @author Alex
  */
 public class NumberSampleOnlineDouble implements Serializable, SampleStatisticsDouble, UpdatableDouble, CollectableStats<Double, NumberSampleOnlineDouble> {
@@ -45,6 +45,7 @@ import java.util.stream.Stream;
  *   Welford's online algorithm for calculating variance</a>
  * @see IntStream#summaryStatistics()
  * @see Collectors#summarizingInt
+ * @see QuantileSketchInt
  * @author Alex
  */
 public class NumberSampleOnlineInt implements Serializable, SampleStatisticsInt, UpdatableInt, CollectableStats<Integer, NumberSampleOnlineInt> {
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A bounded-memory version of {@link NumberSample} for {@code int} values, which estimates the median and any
+ * other quantile of the sample using a {@link TDigest}, in addition to computing the exact sum, min, max, mean, and
+ * variance (like {@link NumberSampleOnlineInt}).
+ * <p>
+ * The memory usage depends only on the {@linkplain TDigest#getCompression() compression} of the digest (a few KB by
+ * default), so this class can summarize an unbounded stream of values, e.g. the latencies observed over many hours.
+ * The extreme quantiles (e.g. p99 or p999) are estimated with much smaller error than the median.
+ * <p>
+ * Instances can be {@linkplain #merge(QuantileSketchInt) merged} and serialized, so a sample can be collected in
+ * separate threads (or on separate nodes) and combined later.  All the methods are {@code synchronized}.
+ *
+ * @see QuantileSketchDouble
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QuantileSketchInt implements Serializable, SampleStatisticsInt, UpdatableInt, CollectableStats<Integer, QuantileSketchInt> {
+
+  private final NumberSampleOnlineInt moments;
+  private final TDigest digest;
+
+  public QuantileSketchInt() {
+    this(TDigest.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param compression the accuracy parameter of the digest (see {@link TDigest#TDigest(double)})
+   */
+  public QuantileSketchInt(double compression) {
+    this(new NumberSampleOnlineInt(), new TDigest(compression));
+  }
+
+  private QuantileSketchInt(NumberSampleOnlineInt moments, TDigest digest) {
+    this.moments = moments;
+    this.digest = digest;
+  }
+
+  @Override
+  public synchronized void update(int x) {
+    moments.update(x);
+    digest.update(x);
+  }
+
+  @Override
+  public void merge(@Nonnull QuantileSketchInt other) {
+    QuantileSketchInt snapshot = other.copy();  // avoids holding both locks at once
+    synchronized (this) {
+      moments.merge(snapshot.moments);
+      digest.merge(snapshot.digest);
+    }
+  }
+
+  /**
+   * @return an independent copy of this instance
+   */
+  public synchronized QuantileSketchInt copy() {
+    NumberSampleOnlineInt momentsCopy = new NumberSampleOnlineInt();
+    momentsCopy.merge(moments);
+    return new QuantileSketchInt(momentsCopy, new TDigest(digest));
+  }
+
+  @Override
+  public synchronized int size() {
+    return moments.size();
+  }
+
+  @Override
+  public synchronized int min() {
+    return moments.min();
+  }
+
+  @Override
+  public synchronized int max() {
+    return moments.max();
+  }
+
+  @Override
+  public synchronized long sum() {
+    return moments.sum();
+  }
+
+  @Override
+  public synchronized double mean() {
+    return moments.mean();
+  }
+
+  /**
+   * @return the estimated median (rounded to the nearest {@code int}), or {@code 0} if the sample is empty
+   */
+  @Override
+  public int median() {
+    return (int)Math.round(quantile(.5));
+  }
+
+  /**
+   * Estimates the value at the given quantile of the sample.
+   *
+   * @param q the quantile, in the range {@code [0, 1]} (e.g. {@code .99} for the 99th percentile)
+   * @return the estimated value, or {@link Double#NaN} if the sample is empty
+   * @see TDigest#quantile(double)
+   */
+  public synchronized double quantile(double q) {
+    return digest.quantile(q);
+  }
+
+  /**
+   * @param p the percentile, in the range {@code [0, 100]}
+   * @return the estimated value at the given percentile of the sample, or {@link Double#NaN} if the sample is empty
+   */
+  public double percentile(double p) {
+    return quantile(p / 100);
+  }
+
+  @Override
+  public synchronized double variance() {
+    return moments.variance();
+  }
+
+  @Override
+  public synchronized double sampleVariance() {
+    return moments.sampleVariance();
+  }
+
+  @Override
+  public synchronized ImmutableStats<Integer> summarize() {
+    return new ImmutableStats<>(size(), min(), max(), median(), sum(), mean(), variance());
+  }
+
+  @Override
+  public synchronized String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("size", size())
+        .add("min", min())
+        .add("max", max())
+        .add("mean", mean())
+        .add("stdev", stdev())
+        .add("median", median())
+        .add("p99", percentile(99))
+        .toString();
+  }
+
+  @Override
+  public java.util.stream.Collector<Integer, ?, QuantileSketchInt> getCollector() {
+    return Collector.getInstance();
+  }
+
+  /**
+   * Collects an {@link IntStream} into an instance of this class.
+   */
+  public static QuantileSketchInt collectIntStream(IntStream intStream) {
+    return intStream.collect(QuantileSketchInt::new,
+        QuantileSketchInt::update,
+        QuantileSketchInt::merge);
+  }
+
+  /**
+   * Provides a cached collector descriptor that can be passed to {@link Stream#collect}
+   * to collect the stream elements into an instance of {@link QuantileSketchInt}.
+   *
+   * @see #getInstance()
+   */
+  public static class Collector extends CollectableStats.Collector<Integer, QuantileSketchInt> {
+
+    private static final Collector INSTANCE = new Collector();
+
+    /**
+     * @return the cached instance of this {@link Collector}
+     */
+    public static Collector getInstance() {
+      return INSTANCE;
+    }
+
+    @Override
+    public Supplier<QuantileSketchInt> supplier() {
+      return QuantileSketchInt::new;
+    }
+
+    /**
+     * Since all the methods in {@link QuantileSketchInt} are synchronized, we can include
+     * {@link java.util.stream.Collector.Characteristics#CONCURRENT CONCURRENT} characteristic.
+     * @see #CH_CONCURRENT_ID
+     */
+    @Override
+    public Set<Characteristics> characteristics() {
+      return CH_CONCURRENT_ID;
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import solutions.trsoftware.commons.shared.util.time.Clock;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the size, min, max, mean, and variance of the values added during a recent time window
+ * (e.g. "the last 5 minutes"), using O(1) time per update and memory proportional to the number of buckets.
+ * <p>
+ * The window is divided into a ring of equal-sized buckets, and each bucket accumulates the statistics of the
+ * values added during its time slice (using Welford's algorithm, like {@link MeanAndVariance}).
+ * When the time advances past the end of the window, the oldest bucket is reused for the newest slice.
+ * Queries merge the statistics of all the buckets that are still within the window, and therefore take
+ * O(number of buckets) time.
+ * <p>
+ * Since the window advances in discrete steps, the statistics cover the values added between
+ * {@code window - window/buckets} and {@code window} ago (i.e. the oldest bucket can be partially expired).
+ * More buckets give a more precise window at the cost of memory and query time.
+ * <p>
+ * The time is read from the given {@link Ticker} (which is {@link Clock#ticker()} by default), so that it can be
+ * controlled in unit tests.
+ * <p>
+ * The {@link #median()} is not supported, because the individual values are not retained.
+ * <p>
+ * NOTE: this implementation is fully {@code synchronized}.
+ *
+ * @see DecayingStatsDouble
+ * @see BoundedNumberSampleOfDouble
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class SlidingWindowStatsDouble implements SampleStatisticsDouble, UpdatableDouble {
+
+  private final Ticker ticker;
+  /** The duration of each bucket's time slice, in nanoseconds */
+  private final long bucketNanos;
+
+  // the bucket ring (all arrays are indexed by the bucket's slot):
+  /**
+   * The index of the time slice currently stored in each slot, i.e. {@code floor(time / bucketNanos)}
+   * ({@link Long#MIN_VALUE} if the slot has never been used)
+   */
+  private final long[] sliceIds;
+  private final int[] counts;
+  private final double[] means;
+  /** Sums of squares of deltas */
+  private final double[] m2s;
+  private final double[] mins;
+  private final double[] maxs;
+
+  /**
+   * @param window the duration of the time window
+   * @param unit the unit of {@code window}
+   * @param buckets the number of buckets to divide the window into
+   */
+  public SlidingWindowStatsDouble(long window, TimeUnit unit, int buckets) {
+    this(window, unit, buckets, Clock.ticker());
+  }
+
+  /**
+   * @param window the duration of the time window
+   * @param unit the unit of {@code window}
+   * @param buckets the number of buckets to divide the window into
+   * @param ticker the time source
+   */
+  public SlidingWindowStatsDouble(long window, TimeUnit unit, int buckets, Ticker ticker) {
+    Preconditions.checkArgument(buckets > 0, "buckets must be positive, given: %s", buckets);
+    this.ticker = Preconditions.checkNotNull(ticker);
+    bucketNanos = unit.toNanos(window) / buckets;
+    Preconditions.checkArgument(bucketNanos > 0, "The window (%s %s) is too short for %s buckets", window, unit, buckets);
+    sliceIds = new long[buckets];
+    Arrays.fill(sliceIds, Long.MIN_VALUE);
+    counts = new int[buckets];
+    means = new double[buckets];
+    m2s = new double[buckets];
+    mins = new double[buckets];
+    maxs = new double[buckets];
+  }
+
+  /**
+   * @return the index of the current time slice
+   */
+  private long currentSliceId() {
+    return Math.floorDiv(ticker.read(), bucketNanos);
+  }
+
+  private int slotOf(long sliceId) {
+    return (int)Math.floorMod(sliceId, (long)sliceIds.length);
+  }
+
+  /**
+   * Adds a new number to the current bucket.
+   */
+  @Override
+  public synchronized void update(double x) {
+    if (Double.isFinite(x)) {
+      // allow only finite values, otherwise a single bad input can destroy what we have (e.g. make everything NaN)
+      long sliceId = currentSliceId();
+      int i = slotOf(sliceId);
+      if (sliceIds[i] != sliceId) {
+        // the slot contains an expired time slice: reuse it for the current one
+        sliceIds[i] = sliceId;
+        counts[i] = 0;
+        means[i] = m2s[i] = 0;
+        mins[i] = Double.POSITIVE_INFINITY;
+        maxs[i] = Double.NEGATIVE_INFINITY;
+      }
+      int n = ++counts[i];
+      double delta = x - means[i];
+      means[i] += delta / n;
+      m2s[i] += delta * (x - means[i]);
+      mins[i] = Math.min(mins[i], x);
+      maxs[i] = Math.max(maxs[i], x);
+    }
+    else {
+      System.err.println("WARNING: " + getClass().getSimpleName() + " ignoring bad input: " + x);
+    }
+  }
+
+  /**
+   * Merges the statistics of all the buckets within the current window.
+   * <p>
+   * NOTE: the {@linkplain ImmutableStats#min() min} and {@linkplain ImmutableStats#max() max} of the result will be
+   * {@link Double#POSITIVE_INFINITY} and {@link Double#NEGATIVE_INFINITY} (respectively) if the window is empty.
+   */
+  @Override
+  public synchronized ImmutableStats<Double> summarize() {
+    long oldestSliceId = currentSliceId() - sliceIds.length + 1;
+    int n = 0;
+    double mean = 0, m2 = 0;
+    double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < sliceIds.length; i++) {
+      if (sliceIds[i] >= oldestSliceId && counts[i] > 0) {
+        // merge the bucket using the parallel variance algorithm (Chan et al.)
+        int newN = n + counts[i];
+        double delta = means[i] - mean;
+        mean += delta * counts[i] / newN;
+        m2 += m2s[i] + delta * delta * ((double)n * counts[i] / newN);
+        n = newN;
+        min = Math.min(min, mins[i]);
+        max = Math.max(max, maxs[i]);
+      }
+    }
+    return new ImmutableStats<>(n, min, max, null, mean * n, mean, n == 0 ? 0 : m2 / n);
+  }
+
+  /**
+   * @return the number of values in the current window
+   */
+  @Override
+  public int size() {
+    return summarize().size();
+  }
+
+  /**
+   * @return the smallest value in the current window, or {@link Double#POSITIVE_INFINITY} if empty
+   */
+  @Override
+  public double min() {
+    return summarize().min();
+  }
+
+  /**
+   * @return the largest value in the current window, or {@link Double#NEGATIVE_INFINITY} if empty
+   */
+  @Override
+  public double max() {
+    return summarize().max();
+  }
+
+  @Override
+  public double sum() {
+    return summarize().sum();
+  }
+
+  /**
+   * @return the mean of the values in the current window, or {@code 0} if empty
+   */
+  @Override
+  public double mean() {
+    return summarize().mean();
+  }
+
+  @Override
+  public double median() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return the population variance of the values in the current window, or {@code 0} if empty
+   */
+  @Override
+  public double variance() {
+    return summarize().variance();
+  }
+
+  /**
+   * @return the sample variance of the values in the current window, or {@code 0} if it contains fewer than 2 values
+   */
+  @Override
+  public double sampleVariance() {
+    ImmutableStats<Double> stats = summarize();
+    int n = stats.size();
+    if (n <= 1) return 0;  // avoid divide-by-zero
+    return stats.variance() * n / (n - 1);
+  }
+
+  /**
+   * Removes all the values from the window.
+   */
+  public synchronized void clear() {
+    Arrays.fill(sliceIds, Long.MIN_VALUE);
+  }
+
+  @Override
+  public String toString() {
+    return "SlidingWindowStatsDouble{" + "stats=" + summarize() + '}';
+  }
+}
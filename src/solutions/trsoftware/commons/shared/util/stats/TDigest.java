@@ -0,0 +1,282 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Estimates quantiles of a stream of numbers in bounded memory, using Ted Dunning's
+ * <a href="https://github.com/tdunning/t-digest">t-digest</a> (the "merging" variant).
+ * <p>
+ * The values are clustered into weighted centroids, whose maximum size is determined by a scale function that keeps
+ * the clusters small near the tails of the distribution (so the extreme quantiles like p99 are estimated with much
+ * better relative accuracy than the median).  The number of centroids never exceeds about {@link #getCompression()},
+ * regardless of the number of inputs, and samples smaller than that are represented exactly.
+ * <p>
+ * Incoming values are collected into a buffer, which is sorted and merged with the centroids when it fills up
+ * (or when a quantile is requested).  Instances can be {@linkplain #merge(TDigest) merged}, so a digest can be built
+ * in parallel from partitions of the data.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see <a href="https://arxiv.org/abs/1902.04023">Dunning &amp; Ertl, "Computing Extremely Accurate Quantiles Using t-Digests"</a>
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class TDigest implements UpdatableDouble, Mergeable<TDigest>, Serializable {
+
+  public static final double DEFAULT_COMPRESSION = 100;
+
+  private final double compression;
+
+  // the centroids, sorted by mean:
+  private double[] means;
+  private double[] weights;
+  private int nCentroids;
+
+  /** The values that haven't been merged into the centroids yet */
+  private double[] buffer;
+  private int bufferSize;
+  private final int maxBufferSize;
+
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public TDigest() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param compression controls the tradeoff between accuracy and size: a larger value allows more centroids
+   * (the default is {@value #DEFAULT_COMPRESSION}, which keeps the error of the extreme quantiles well under 1%)
+   */
+  public TDigest(double compression) {
+    if (!(compression >= 10))
+      throw new IllegalArgumentException("compression < 10");
+    this.compression = compression;
+    int maxCentroids = (int)Math.ceil(compression) + 2;
+    maxBufferSize = 4 * maxCentroids;
+    // the arrays grow as needed (up to these limits), to save memory for small samples
+    means = new double[8];
+    weights = new double[8];
+    buffer = new double[8];
+  }
+
+  /**
+   * Copy constructor.
+   * @param other instance to be copied
+   */
+  public TDigest(TDigest other) {
+    compression = other.compression;
+    maxBufferSize = other.maxBufferSize;
+    means = Arrays.copyOf(other.means, other.means.length);
+    weights = Arrays.copyOf(other.weights, other.weights.length);
+    nCentroids = other.nCentroids;
+    buffer = Arrays.copyOf(other.buffer, other.buffer.length);
+    bufferSize = other.bufferSize;
+    count = other.count;
+    min = other.min;
+    max = other.max;
+  }
+
+  public double getCompression() {
+    return compression;
+  }
+
+  /**
+   * Adds a value to the sample (NaN values are ignored).
+   */
+  @Override
+  public void update(double x) {
+    if (Double.isNaN(x))
+      return;
+    if (bufferSize == buffer.length) {
+      if (bufferSize >= maxBufferSize)
+        compress();
+      else
+        buffer = Arrays.copyOf(buffer, Math.min(maxBufferSize, bufferSize * 2));
+    }
+    buffer[bufferSize++] = x;
+    count++;
+    if (x < min)
+      min = x;
+    if (x > max)
+      max = x;
+  }
+
+  @Override
+  public void merge(@Nonnull TDigest other) {
+    if (other.count == 0)
+      return;
+    other.compress();
+    compress();
+    mergeCentroids(other.means, other.weights, other.nCentroids);
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @return the number of values in the sample
+   */
+  public long size() {
+    return count;
+  }
+
+  public double min() {
+    return count > 0 ? min : Double.NaN;
+  }
+
+  public double max() {
+    return count > 0 ? max : Double.NaN;
+  }
+
+  /**
+   * @return the current number of centroids (not counting the buffered values)
+   */
+  public int centroidCount() {
+    return nCentroids;
+  }
+
+  /**
+   * Estimates the value at the given quantile of the sample, by interpolating between the centroids around it.
+   *
+   * @param q the quantile, in the range {@code [0, 1]} (e.g. {@code .99} for the 99th percentile)
+   * @return the estimated value, or {@link Double#NaN} if the sample is empty
+   */
+  public double quantile(double q) {
+    if (q < 0 || q > 1)
+      throw new IllegalArgumentException("q must be in the range [0, 1]: " + q);
+    if (count == 0)
+      return Double.NaN;
+    compress();
+    if (nCentroids == 1 || q == 0)
+      return q == 1 ? max : (nCentroids == 1 ? means[0] : min);
+    if (q == 1)
+      return max;
+    double index = q * count;
+    // each centroid is assumed to be centered at the midpoint of its cumulative weight range
+    double left = weights[0] / 2;
+    if (index < left) {
+      // between the min value and the first centroid
+      if (weights[0] == 1)
+        return min;
+      return min + (means[0] - min) * (index / left);
+    }
+    for (int i = 0; i < nCentroids - 1; i++) {
+      double right = left + (weights[i] + weights[i + 1]) / 2;
+      if (index <= right) {
+        // interpolate between the two centroids (singletons are exact points, so they're not interpolated)
+        if (weights[i] == 1 && index - left < .5)
+          return means[i];
+        if (weights[i + 1] == 1 && right - index <= .5)
+          return means[i + 1];
+        return means[i] + (means[i + 1] - means[i]) * ((index - left) / (right - left));
+      }
+      left = right;
+    }
+    // between the last centroid and the max value
+    int last = nCentroids - 1;
+    if (weights[last] == 1)
+      return max;
+    return means[last] + (max - means[last]) * ((index - left) / (count - left));
+  }
+
+  /**
+   * Merges the buffered values into the centroids.
+   */
+  private void compress() {
+    if (bufferSize == 0)
+      return;
+    Arrays.sort(buffer, 0, bufferSize);
+    double[] bufferWeights = new double[bufferSize];
+    Arrays.fill(bufferWeights, 1);
+    int n = bufferSize;
+    bufferSize = 0;
+    mergeCentroids(buffer, bufferWeights, n);
+  }
+
+  /**
+   * Merges the given centroids (sorted by mean) with the existing ones, combining adjacent centroids as long as
+   * the result doesn't exceed the size limit of the scale function at that quantile.
+   */
+  private void mergeCentroids(double[] otherMeans, double[] otherWeights, int nOther) {
+    // 1) merge the two sorted lists
+    int n = nCentroids + nOther;
+    double[] allMeans = new double[n];
+    double[] allWeights = new double[n];
+    double totalWeight = 0;
+    for (int i = 0, a = 0, b = 0; i < n; i++) {
+      if (b >= nOther || (a < nCentroids && means[a] <= otherMeans[b])) {
+        allMeans[i] = means[a];
+        allWeights[i] = weights[a++];
+      }
+      else {
+        allMeans[i] = otherMeans[b];
+        allWeights[i] = otherWeights[b++];
+      }
+      totalWeight += allWeights[i];
+    }
+    // 2) combine the adjacent centroids (in place)
+    int out = 0;
+    double weightSoFar = 0;
+    double weightLimit = totalWeight * maxQuantile(0);
+    for (int i = 1; i < n; i++) {
+      double proposedWeight = allWeights[out] + allWeights[i];
+      if (weightSoFar + proposedWeight <= weightLimit) {
+        allMeans[out] += (allMeans[i] - allMeans[out]) * allWeights[i] / proposedWeight;
+        allWeights[out] = proposedWeight;
+      }
+      else {
+        weightSoFar += allWeights[out];
+        weightLimit = totalWeight * maxQuantile(weightSoFar / totalWeight);
+        out++;
+        allMeans[out] = allMeans[i];
+        allWeights[out] = allWeights[i];
+      }
+    }
+    nCentroids = n > 0 ? out + 1 : 0;
+    if (means.length < nCentroids) {
+      means = new double[nCentroids];
+      weights = new double[nCentroids];
+    }
+    System.arraycopy(allMeans, 0, means, 0, nCentroids);
+    System.arraycopy(allWeights, 0, weights, 0, nCentroids);
+  }
+
+  /**
+   * Uses the {@code k1} scale function, {@code k(q) = δ/(2π)·asin(2q-1)}, to find the maximum quantile that can be
+   * covered by a centroid starting at the given quantile (the centroid can span at most 1 unit of {@code k}).
+   */
+  private double maxQuantile(double q) {
+    double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    double kLimit = Math.min(k + 1, compression / 4);  // k(1) = δ/4
+    return (Math.sin(kLimit * (2 * Math.PI) / compression) + 1) / 2;
+  }
+
+  @Override
+  public String toString() {
+    return "TDigest{" +
+        "count=" + count +
+        ", centroids=" + nCentroids +
+        ", compression=" + compression +
+        '}';
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Indicates that an instance can update itself from a value of type long.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public interface UpdatableLong extends Updatable<Long>, LongConsumer {
+  /**
+   * Updates itself with the given value.
+   */
+  void update(long x);
+
+  @Override
+  default void accept(long value) {
+    update(value);
+  }
+
+  @Override
+  default void update(Long x) {
+    update(x.longValue());
+  }
+
+  default void updateAll(long... candidates) {
+    for (long x : candidates) {
+      update(x);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.time;
+
+import solutions.trsoftware.commons.shared.util.StringUtils;
+import solutions.trsoftware.commons.shared.util.TimeUnit;
+
+/**
+ * Base class for objects that limit the number of operations performed during a specified window of time.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ * @see RateLimiter
+ * @see GcraRateLimiter
+ */
+public abstract class AbstractRateLimiter {
+
+  /** The number of events to allow within the specified window of time */
+  protected final int max;
+  /** Length of the time window expressed in {@link #timeWindowUnit} units. */
+  protected final double timeWindowDuration;
+  /** The unit of time used to specify {@link #timeWindowDuration} */
+  protected final TimeUnit timeWindowUnit;
+  /** Length of the time window expressed in milliseconds */
+  protected final double timeWindowMillis;
+  /** This optional name is used in the exception message. */
+  protected final String eventName;
+
+  /**
+   * @param max The number of events to allow within the specified window of time
+   * @param timeWindowDuration Size of the time window expressed in the given units.
+   * @param timeWindowUnit The unit of time used to specify the window duration
+   * @param eventName This name is used in the exception message (can be null)
+   */
+  protected AbstractRateLimiter(int max, double timeWindowDuration, TimeUnit timeWindowUnit, String eventName) {
+    if (max < 1 || timeWindowDuration <= 0)
+      throw new IllegalArgumentException();
+    this.max = max;
+    this.timeWindowDuration = timeWindowDuration;
+    this.timeWindowUnit = timeWindowUnit;
+    this.eventName = StringUtils.isBlank(eventName) ? "event" : eventName;
+    timeWindowMillis = timeWindowUnit.toMillis(timeWindowDuration);
+  }
+
+  /**
+   * Records a new event, throwing an exception if it exceeds the rate limit.
+   * The event will only be recorded if it's not exceeding the limit (which means
+   * no exception will be thrown).  It is expected that throwing the exception will cause the event to be aborted
+   * by the caller.
+   *
+   * @throws RateLimitException if the limit has been reached
+   */
+  public abstract void checkRateLimit() throws RateLimitException;
+
+  /**
+   * @return the time remaining until there will be room for one more event, assuming no more events will come
+   * in between now and then.
+   */
+  public abstract double millisUntilCanProceed();
+
+  public int getMax() {
+    return max;
+  }
+
+  public double getTimeWindowMillis() {
+    return timeWindowMillis;
+  }
+
+  /**
+   * Thrown when the rate limit has been exceeded.
+   */
+  public class RateLimitException extends Exception {
+    public RateLimitException() {
+      super(new StringBuilder("Exceeded the maximum rate of ")
+          .append(max).append(" ").append(StringUtils.pluralize(eventName, max))
+          .append(" per").append(timeWindowDuration == 1 ? "" : " " + timeWindowDuration).append(" ").append(timeWindowUnit.getPrettyName(timeWindowDuration))
+          .toString());
+    }
+  }
+}
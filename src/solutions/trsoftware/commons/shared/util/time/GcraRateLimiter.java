@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.time;
+
+import com.google.common.base.Ticker;
+import solutions.trsoftware.commons.shared.util.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free rate limiter based on the Generic Cell Rate Algorithm (GCRA), which is equivalent to a token bucket
+ * with a capacity of {@link #max} tokens that refills at the rate of {@link #max} tokens per time window.
+ * <p>
+ * Unlike {@link RateLimiter}, which remembers the time of every event in the current window, this implementation
+ * keeps its entire state in a single {@code long} (the "theoretical arrival time" of the next event), so it uses
+ * O(1) memory and can be updated with a single CAS operation.  This makes it suitable for maintaining large numbers
+ * of limiters (e.g. one per user or IP address).
+ * <p>
+ * The only behavioral difference from {@link RateLimiter} is that capacity is replenished gradually (one event
+ * every {@code window/max}) rather than all at once when the oldest event leaves the window.  Therefore a burst of
+ * {@link #max} events is still allowed after an idle period, but a sustained rate will never exceed {@link #max}
+ * events per window.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class GcraRateLimiter extends AbstractRateLimiter {
+
+  private final Ticker ticker;
+  /** The emission interval: the amount of time that each event "costs" (i.e. {@code window/max}), in nanoseconds */
+  private final long emissionIntervalNanos;
+  /**
+   * The burst tolerance: how far into the future the {@link #tat} is allowed to advance
+   * before we start rejecting events (i.e. the cost of {@code max-1} events), in nanoseconds
+   */
+  private final long toleranceNanos;
+  /**
+   * The "theoretical arrival time" of the next event, according to the {@link #ticker}: the bucket is full when this
+   * value is in the past, and each event pushes it forward by {@link #emissionIntervalNanos}.
+   */
+  private final AtomicLong tat;
+
+  /**
+   * @param max The number of events to allow within the specified window of time
+   * @param timeWindowDuration Size of the time window expressed in the given units.
+   * @param timeWindowUnit The unit of time used to specify the window duration
+   * @param ticker The time source used to perform the time calculations
+   * @param eventName This name is used in the exception message (can be null)
+   */
+  public GcraRateLimiter(int max, double timeWindowDuration, TimeUnit timeWindowUnit, Ticker ticker, String eventName) {
+    super(max, timeWindowDuration, timeWindowUnit, eventName);
+    this.ticker = ticker;
+    emissionIntervalNanos = Math.max(1, Math.round(timeWindowUnit.toNanos(timeWindowDuration) / max));
+    toleranceNanos = emissionIntervalNanos * (max - 1);
+    tat = new AtomicLong(ticker.read());
+  }
+
+  /**
+   * Uses the {@linkplain Clock#ticker() default ticker}.
+   * @see #GcraRateLimiter(int, double, TimeUnit, Ticker, String)
+   */
+  public GcraRateLimiter(int max, double timeWindowDuration, TimeUnit timeWindowUnit, String eventName) {
+    this(max, timeWindowDuration, timeWindowUnit, Clock.ticker(), eventName);
+  }
+
+  /**
+   * Records a new event if it doesn't exceed the rate limit.
+   *
+   * @return {@code true} if the event was allowed, or {@code false} if the limit has been reached
+   * (in which case the event is not recorded)
+   */
+  public boolean tryAcquire() {
+    long now = ticker.read();
+    while (true) {
+      long oldTat = tat.get();
+      long start = Math.max(oldTat, now);
+      if (start - now > toleranceNanos)
+        return false;
+      if (tat.compareAndSet(oldTat, start + emissionIntervalNanos))
+        return true;
+    }
+  }
+
+  /**
+   * Records a new event, throwing an exception if it exceeds the rate limit.
+   * The event will only be recorded if it's not exceeding the limit (which means
+   * no exception will be thrown).
+   *
+   * @throws RateLimitException if the limit has been reached
+   * @see #tryAcquire()
+   */
+  @Override
+  public void checkRateLimit() throws RateLimitException {
+    if (!tryAcquire())
+      throw new RateLimitException();
+  }
+
+  @Override
+  public double millisUntilCanProceed() {
+    long wait = tat.get() - toleranceNanos - ticker.read();
+    return wait > 0 ? wait / 1_000_000d : 0;
+  }
+
+  /**
+   * @return {@code true} iff no events have been recorded recently enough to have any effect on future events
+   * (i.e. this limiter is in the same state as a newly-created instance)
+   */
+  public boolean isIdle() {
+    return tat.get() <= ticker.read();
+  }
+
+  /**
+   * @return the amount of time (in nanoseconds) until this limiter will become {@linkplain #isIdle() idle},
+   * assuming no more events will come in between now and then.
+   */
+  public long nanosUntilIdle() {
+    return Math.max(0, tat.get() - ticker.read());
+  }
+}
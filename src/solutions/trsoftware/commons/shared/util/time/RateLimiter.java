@@ -17,7 +17,6 @@
 package solutions.trsoftware.commons.shared.util.time;
 
 import solutions.trsoftware.commons.client.util.time.ClientTime;
-import solutions.trsoftware.commons.shared.util.StringUtils;
 import solutions.trsoftware.commons.shared.util.TimeUnit;
 
 import java.util.LinkedList;
@@ -28,23 +27,16 @@ import java.util.LinkedList;
  * For example, this can be used to avoid an accidental self-inflicted DDoS attack, by limiting the rate of
  * outgoing requests.
  *
+ * This implementation remembers the time of every event in the current window, so it uses O({@link #max}) memory.
+ * For an O(1) memory alternative, see {@link GcraRateLimiter}.
+ *
  * Sep 12, 2010
  * @author Alex
  */
-public class RateLimiter {
+public class RateLimiter extends AbstractRateLimiter {
 
-  /** The number of events to allow within the specified window of time */
-  private final int max;
-  /** Length of the time window expressed in {@link #timeWindowUnit} units. */
-  private final double timeWindowDuration;
-  /** The unit of time used to specify {@link #timeWindowDuration} */
-  private final TimeUnit timeWindowUnit;
-  /** Length of the time window expressed in milliseconds */
-  private final double timeWindowMillis;
   /** Clock used to perform the time calculations */
   private final Time clock;
-  /** This optional name is used in the exception message. */
-  private final String eventName;
 
   private final LinkedList<Double> eventTimes = new LinkedList<Double>();
 
@@ -53,14 +45,8 @@ public class RateLimiter {
    * @see #RateLimiter(int, double, TimeUnit, String)
    */
   public RateLimiter(int max, double timeWindowDuration, TimeUnit timeWindowUnit, Time clock, String eventName) {
-    if (max < 1 || timeWindowDuration <= 0)
-      throw new IllegalArgumentException();
-    this.max = max;
-    this.timeWindowDuration = timeWindowDuration;
-    this.timeWindowUnit = timeWindowUnit;
+    super(max, timeWindowDuration, timeWindowUnit, eventName);
     this.clock = clock;
-    this.eventName = StringUtils.isBlank(eventName) ? "event" : eventName;
-    timeWindowMillis = timeWindowUnit.toMillis(timeWindowDuration);
   }
 
   /**
@@ -81,6 +67,7 @@ public class RateLimiter {
    *
    * @throws RateLimitException if the latest window already contains at least {@link #max} event times.
    */
+  @Override
   public synchronized void checkRateLimit() throws RateLimitException {
     // 1) clear all the events past the horizon
     while (!eventTimes.isEmpty() && clock.getMillisSince(eventTimes.peek()) >= timeWindowMillis)
@@ -96,22 +83,11 @@ public class RateLimiter {
    * @return the time remaining until the window will have room for one more event, assuming no more events will come
    * in between now and then.
    */
+  @Override
   public synchronized double millisUntilCanProceed() {
     if (eventTimes.size() < max)
       return 0;  // the window is not full yet, can proceed immediately
     // count off max events from the back of the queue
     return clock.getMillisUntil(eventTimes.get(eventTimes.size()-max) + timeWindowMillis);
   }
-
-  /**
-   * Thrown when the rate limit has been exceeded.
-   */
-  public class RateLimitException extends Exception {
-    public RateLimitException() {
-      super(new StringBuilder("Exceeded the maximum rate of ")
-          .append(max).append(" ").append(StringUtils.pluralize(eventName, max))
-          .append(" per").append(timeWindowDuration == 1 ? "" : " " + timeWindowDuration).append(" ").append(timeWindowUnit.getPrettyName(timeWindowDuration))
-          .toString());
-    }
-  }
 }
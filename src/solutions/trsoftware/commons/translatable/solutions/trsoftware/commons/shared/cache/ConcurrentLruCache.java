@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.cache;
+
+import com.google.common.base.Preconditions;
+import solutions.trsoftware.commons.shared.util.time.Clock;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * GWT Version -- GWT Version -- GWT Version -- GWT Version -- GWT Version
+ *
+ * IMPORTANT: This is the "emulated" GWT (non-Java) version of this class.
+ * The Java version is located in the standard directory for this package.
+ * <p>
+ * Since client-side code is single-threaded, this version simply stores the entries in an access-ordered
+ * {@link LinkedHashMap}, but otherwise has the same API and behavior as the Java version.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ConcurrentLruCache<K, V> {
+
+  // GWT Version -- GWT Version -- GWT Version -- GWT Version -- GWT Version
+
+  public interface Weigher<K, V> {
+    int weigh(K key, V value);
+  }
+
+  private final long maximumWeight;
+  private final Weigher<? super K, ? super V> weigher;
+
+  /** The entries in LRU order (the third constructor arg makes the LinkedHashMap access-ordered) */
+  private final LinkedHashMap<K, Node<V>> data = new LinkedHashMap<K, Node<V>>(16, .75f, true);
+  private long weightedSize;
+
+  // stats:
+  private long hitCount;
+  private long missCount;
+  private long loadSuccessCount;
+  private long loadFailureCount;
+  private long totalLoadTime;
+  private long evictionCount;
+  private long evictionWeight;
+
+  public ConcurrentLruCache(int maximumSize) {
+    this(maximumSize, (key, value) -> 1);
+  }
+
+  public ConcurrentLruCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+    Preconditions.checkArgument(maximumWeight >= 0, "maximumWeight must not be negative, given: %s", maximumWeight);
+    this.maximumWeight = maximumWeight;
+    this.weigher = Preconditions.checkNotNull(weigher);
+  }
+
+  private static class Node<V> {
+    private V value;
+    private int weight;
+
+    private Node(V value, int weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  @Nullable
+  public V getIfPresent(K key) {
+    Node<V> node = data.get(key);
+    if (node == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return node.value;
+  }
+
+  @Nullable
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Node<V> node = data.get(key);
+    if (node != null) {
+      hitCount++;
+      return node.value;
+    }
+    missCount++;
+    long start = Clock.nanoTime();
+    V value;
+    try {
+      value = loader.apply(key);
+    }
+    catch (RuntimeException | Error e) {
+      loadFailureCount++;
+      throw e;
+    }
+    finally {
+      totalLoadTime += Clock.nanoTime() - start;
+    }
+    if (value == null) {
+      loadFailureCount++;
+      return null;
+    }
+    loadSuccessCount++;
+    put(key, value);
+    return value;
+  }
+
+  @Nullable
+  public V put(K key, V value) {
+    Preconditions.checkNotNull(value);
+    int weight = weigh(key, value);
+    Node<V> old = data.put(key, new Node<V>(value, weight));
+    weightedSize += weight;
+    V ret = null;
+    if (old != null) {
+      weightedSize -= old.weight;
+      ret = old.value;
+    }
+    evict();
+    return ret;
+  }
+
+  @Nullable
+  public V invalidate(K key) {
+    Node<V> node = data.remove(key);
+    if (node == null)
+      return null;
+    weightedSize -= node.weight;
+    return node.value;
+  }
+
+  public void invalidateAll() {
+    data.clear();
+    weightedSize = 0;
+  }
+
+  public boolean containsKey(K key) {
+    return data.containsKey(key);
+  }
+
+  public int size() {
+    return data.size();
+  }
+
+  public long weightedSize() {
+    return weightedSize;
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  public CacheStats stats() {
+    return new CacheStats(hitCount, missCount, loadSuccessCount, loadFailureCount,
+        totalLoadTime, evictionCount, evictionWeight);
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentLruCache{" + "size=" + size() + ", weightedSize=" + weightedSize + ", maximumWeight=" + maximumWeight + '}';
+  }
+
+  private int weigh(K key, V value) {
+    int weight = weigher.weigh(key, value);
+    Preconditions.checkState(weight >= 0, "Negative weight (%s) for key %s", weight, key);
+    return weight;
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<K, Node<V>>> it = data.entrySet().iterator();
+    while (weightedSize > maximumWeight && it.hasNext()) {
+      Node<V> lru = it.next().getValue();
+      it.remove();
+      weightedSize -= lru.weight;
+      evictionCount++;
+      evictionWeight += lru.weight;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.cache;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.util.CachedValue;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class AsyncValueLoaderTest extends TestCase {
+
+  private final int maxAgeMillis = 100;
+  private long currentTimeMillis;
+
+  public void setUp() throws Exception {
+    super.setUp();
+    currentTimeMillis = System.currentTimeMillis();
+  }
+
+  public void testReload() throws Exception {
+    Deque<Runnable> tasks = new ArrayDeque<>();
+    int[] loadCount = new int[1];
+    CachedValue<Integer> cachedValue = new CachedValue<Integer>(maxAgeMillis, new AsyncValueLoader<Integer>(tasks::add) {
+      @Nonnull
+      @Override
+      public Integer load() {
+        return ++loadCount[0];
+      }
+    }) {
+      @Override
+      protected long currentTimeMillis() {
+        return currentTimeMillis;
+      }
+    };
+    assertEquals(1, (int)cachedValue.get());
+    assertTrue(tasks.isEmpty());  // the initial value should've been loaded synchronously
+    // after expiring, the stale value should be returned while a single reload task is pending
+    currentTimeMillis += maxAgeMillis + 10;
+    for (int i = 0; i < 3; i++)
+      assertEquals(1, (int)cachedValue.get());
+    assertEquals(1, tasks.size());
+    currentTimeMillis += 5;
+    tasks.poll().run();
+    assertEquals(2, (int)cachedValue.get());
+    CachedValue.Metrics metrics = cachedValue.getMetrics();
+    assertEquals(4, metrics.getReadCount());
+    assertEquals(3, metrics.getStaleReadCount());
+    assertEquals(10, metrics.getMaxStalenessMillis());
+    assertEquals(1, metrics.getLoadCount());
+    assertEquals(1, metrics.getReloadCount());
+    assertEquals(1, metrics.getReloadSuccessCount());
+    assertEquals(5d, metrics.getAverageReloadTimeMillis());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class CachedValueGroupTest extends TestCase {
+
+  private final int maxAgeMillis = 100;
+  private long currentTimeMillis;
+  /** Tasks submitted to the executor, which will be run manually by the test */
+  private Deque<Runnable> tasks;
+  /** The args of all the loadAll invocations */
+  private List<Collection<String>> batches;
+  private int version;
+  private boolean failBatches;
+  /** The simulated duration of each batch */
+  private int batchTimeMillis;
+  private CachedValueGroup<String, String> group;
+
+  public void setUp() throws Exception {
+    super.setUp();
+    currentTimeMillis = System.currentTimeMillis();
+    tasks = new ArrayDeque<>();
+    batches = new ArrayList<>();
+    group = new CachedValueGroup<String, String>(maxAgeMillis, maxAgeMillis, 0, tasks::add, keys -> {
+      batches.add(new ArrayList<>(keys));
+      currentTimeMillis += batchTimeMillis;
+      if (failBatches)
+        throw new IllegalStateException("Simulated exception");
+      Map<String, String> ret = new HashMap<>();
+      for (String key : keys) {
+        if (!key.equals("missing"))
+          ret.put(key, key + version);
+      }
+      return ret;
+    }) {
+      @Override
+      protected long currentTimeMillis() {
+        return currentTimeMillis;
+      }
+    };
+  }
+
+  public void tearDown() throws Exception {
+    group = null;
+    tasks = null;
+    batches = null;
+    super.tearDown();
+  }
+
+  public void testBatchReload() throws Exception {
+    // the initial values should be loaded synchronously
+    assertEquals("a0", group.get("a"));
+    assertEquals(Collections.singletonList(Collections.singletonList("a")), batches);
+    Map<String, String> expected = new LinkedHashMap<>();
+    expected.put("a", "a0");
+    expected.put("b", "b0");
+    expected.put("c", "c0");
+    assertEquals(expected, group.getAll(Arrays.asList("a", "b", "c")));
+    assertEquals(Arrays.asList("b", "c"), batches.get(1));
+    assertEquals(3, group.size());
+    try {
+      group.get("missing");
+      fail("Should have thrown NoSuchElementException");
+    }
+    catch (NoSuchElementException expectedEx) {
+    }
+    group.invalidate("missing");
+    batches.clear();
+    assertEquals(0d, group.getAverageBatchTimeMillis());
+
+    // after expiring, the stale values should be returned while the keys are queued up for a single batch
+    version = 1;
+    batchTimeMillis = 20;
+    currentTimeMillis += maxAgeMillis + 1;
+    for (String key : Arrays.asList("a", "b", "c"))
+      assertEquals(key + "0", group.get(key));
+    assertTrue(batches.isEmpty());
+    assertEquals(1, tasks.size());
+    tasks.poll().run();
+    assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), batches);
+    assertTrue(tasks.isEmpty());
+    for (String key : Arrays.asList("a", "b", "c"))
+      assertEquals(key + "1", group.get(key));
+    assertEquals(1, group.getCachedValue("a").getMetrics().getReloadSuccessCount());
+    assertEquals(1, group.getCachedValue("a").getMetrics().getStaleReadCount());
+    assertEquals(4, group.getBatchCount());  // {a}, {b, c}, {missing}, {a, b, c}
+    assertEquals(7 / 4d, group.getAverageBatchSize());
+    assertEquals(20 / 4d, group.getAverageBatchTimeMillis());
+
+    // a failed batch should keep the stale values until they expire again
+    version = 2;
+    failBatches = true;
+    currentTimeMillis += maxAgeMillis + 1;
+    assertEquals("a1", group.get("a"));
+    tasks.poll().run();
+    assertEquals("a1", group.get("a"));
+    assertFalse(group.getCachedValue("a").isExpired());
+    assertEquals(1, group.getCachedValue("a").getMetrics().getReloadFailureCount());
+    assertEquals(1, group.getBatchFailureCount());
+    failBatches = false;
+    currentTimeMillis += maxAgeMillis + 1;
+    assertEquals("a1", group.get("a"));
+    tasks.poll().run();
+    assertEquals("a2", group.get("a"));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.shared.util.time.FakeTicker;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ConcurrentExpiringMapTest extends TestCase {
+
+  private FakeTicker ticker;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    ticker = new FakeTicker();
+  }
+
+  public void testFixedSizeBehavior() throws Exception {
+    ConcurrentExpiringMap<Integer, String> map = new ConcurrentExpiringMap<>(1, TimeUnit.MINUTES, 2, ticker);
+    map.put(11, "1_1");
+    assertEquals(1, map.size());
+    map.put(12, "1_2");
+    assertEquals(2, map.size());
+    // the map is now at full capacity, the next put should evict the oldest entry
+    map.put(13, "1_3");
+    assertEquals(2, map.size());
+    assertFalse(map.containsKey(11));
+    assertEquals("1_2", map.get(12));
+    assertEquals("1_3", map.get(13));
+    ticker.advance(1, TimeUnit.MINUTES);
+    // now everything should have expired
+    assertNull(map.get(12));
+    assertEquals(0, map.size());
+    assertTrue(map.isEmpty());
+  }
+
+  public void testFixedTimeBehavior() throws Exception {
+    ConcurrentExpiringMap<Integer, String> map = new ConcurrentExpiringMap<>(60, TimeUnit.SECONDS, Integer.MAX_VALUE, ticker);
+    map.put(11, "1_1");
+    map.put(12, "1_2");
+    ticker.advance(30, TimeUnit.SECONDS);
+    map.put(13, "1_3");
+    assertEquals(3, map.size());
+    assertEquals(30, map.getTimeToLive(11, TimeUnit.SECONDS));
+    assertEquals(60, map.getTimeToLive(13, TimeUnit.SECONDS));
+    assertEquals(-1, map.getTimeToLive(14, TimeUnit.SECONDS));
+    // replacing a value should retain the original expiration time
+    assertEquals("1_1", map.put(11, "1_1b"));
+    assertEquals(30, map.getTimeToLive(11, TimeUnit.SECONDS));
+    assertEquals("1_2", map.putIfAbsent(12, "foo"));
+    assertEquals("1_2", map.get(12));
+    assertTrue(map.replace(12, "1_2", "1_2b"));
+    assertFalse(map.replace(12, "1_2", "1_2c"));
+    assertEquals("1_2b", map.get(12));
+    assertEquals(new HashSet<>(Arrays.asList(11, 12, 13)), map.keySet());
+    assertTrue(map.containsValue("1_3"));
+
+    ticker.advance(30, TimeUnit.SECONDS);
+    // the first 2 entries have now expired
+    assertFalse(map.containsKey(11));
+    assertNull(map.get(12));
+    assertNull(map.remove(12));
+    assertEquals(Collections.singletonMap(13, "1_3"), new HashMap<>(map));
+    assertEquals(1, map.size());
+    // an expired key can be re-added with a new expiration time
+    assertNull(map.putIfAbsent(11, "new"));
+    assertEquals(60, map.getTimeToLive(11, TimeUnit.SECONDS));
+    assertTrue(map.remove(11, "new"));
+    assertFalse(map.containsKey(11));
+
+    // test removal with the iterator
+    for (Iterator<Map.Entry<Integer, String>> it = map.entrySet().iterator(); it.hasNext(); ) {
+      if (it.next().getKey() == 13)
+        it.remove();
+    }
+    assertTrue(map.isEmpty());
+  }
+
+  public void testRenew() throws Exception {
+    ConcurrentExpiringMap<Integer, String> map = new ConcurrentExpiringMap<>(60, TimeUnit.SECONDS, 2, ticker);
+    map.put(11, "1_1");
+    map.put(12, "1_2");
+    ticker.advance(40, TimeUnit.SECONDS);
+    // renewing an entry should reset its expiration time, unlike put
+    assertFalse(map.renew(11, "foo"));
+    assertFalse(map.renew(13, "1_3"));
+    assertEquals(20, map.getTimeToLive(11, TimeUnit.SECONDS));
+    assertTrue(map.renew(11, "1_1"));
+    assertEquals(60, map.getTimeToLive(11, TimeUnit.SECONDS));
+    assertEquals(2, map.size());
+    // the renewed entry is now the newest one, so it should outlive the other one
+    ticker.advance(20, TimeUnit.SECONDS);
+    assertEquals(Collections.singletonMap(11, "1_1"), new HashMap<>(map));
+    assertEquals(1, map.size());
+    // and it should be evicted after the newer entries when the map exceeds its capacity
+    map.put(12, "1_2");
+    map.put(13, "1_3");
+    assertEquals(2, map.size());
+    assertFalse(map.containsKey(11));
+    ticker.advance(60, TimeUnit.SECONDS);
+    assertFalse(map.renew(12, "1_2"));  // expired
+    assertTrue(map.isEmpty());
+  }
+
+  /**
+   * Entries that are removed before they expire should not accumulate in the expiry queue.
+   */
+  public void testQueueCompaction() throws Exception {
+    ConcurrentExpiringMap<Integer, String> map = new ConcurrentExpiringMap<>(1, TimeUnit.MINUTES, Integer.MAX_VALUE, ticker);
+    map.put(0, "first");  // will remain at the head of the queue
+    for (int i = 1; i <= 1000; i++) {
+      map.put(i, String.valueOf(i));
+      if (i % 2 == 0)
+        assertEquals(String.valueOf(i), map.remove(i));
+      else
+        assertTrue(map.remove(i, String.valueOf(i)));
+      assertTrue(map.getQueueSize() <= 2 * map.size() + 16 + 1);
+    }
+    assertEquals(Collections.singletonMap(0, "first"), new HashMap<>(map));
+    ticker.advance(1, TimeUnit.MINUTES);
+    assertTrue(map.isEmpty());
+    assertEquals(0, map.getQueueSize());
+  }
+
+  /**
+   * Adds and removes random keys concurrently, with the clock advancing periodically, and checks
+   * that the invariants hold.
+   */
+  public void testConcurrency() throws Exception {
+    int maxCapacity = 100;
+    ConcurrentExpiringMap<Integer, Integer> map = new ConcurrentExpiringMap<>(100, TimeUnit.MILLISECONDS, maxCapacity, ticker);
+    new MultithreadedTestHarness(() -> {
+      ThreadLocalRandom rnd = ThreadLocalRandom.current();
+      int key = rnd.nextInt(500);
+      switch (rnd.nextInt(4)) {
+        case 0:
+          map.remove(key);
+          break;
+        case 1:
+          ticker.advance(1, TimeUnit.MILLISECONDS);
+          break;
+        default:
+          map.put(key, key);
+          Integer value = map.get(key);
+          if (value != null)
+            assertEquals(key, value.intValue());
+      }
+    }).run(8, 10_000);
+    assertTrue(map.size() <= maxCapacity);
+    ticker.advance(100, TimeUnit.MILLISECONDS);
+    assertEquals(0, map.size());
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.io.StringPrintStream;
+import solutions.trsoftware.commons.server.memquery.aggregations.Avg;
+import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueComparison;
+import solutions.trsoftware.commons.server.memquery.output.CsvPrinter;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Checks that a {@link ContinuousQuery} always has the same results as evaluating its query from scratch
+ * over the rows that have been appended to its inputs so far.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ContinuousQueryTest extends MemQueryTestCase {
+
+  private AppendOnlyRelation scores;
+  private AppendOnlyRelation users;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    scores = new AppendOnlyRelation(scoreRelation.getSchema());
+    users = new AppendOnlyRelation(userRelation.getSchema());
+  }
+
+  public void testSelection() throws Exception {
+    checkQuery((scores, users) -> new QueryBuilder().from(scores).select("uid", "gameNumber", "score")
+        .where(new ColValueComparison<>("gameNumber", ComparisonOperator.GE, 2)));
+  }
+
+  /**
+   * The results of a sorted and/or limited query over an append-only pipeline are kept in their final order,
+   * and limited as they arrive.
+   */
+  public void testSortAndLimit() throws Exception {
+    // sorted and limited (top-K)
+    checkQuery((scores, users) -> new QueryBuilder().from(scores).select("uid", "gameNumber", "score")
+        .sortBy("-score", "uid", "gameNumber").setLimit(5));
+    checkQuery((scores, users) -> new QueryBuilder().from(scores).naturalJoin().from(users)
+        .select("uid", "name", "score").sortBy("name", "score").setLimit(4));
+    // limited only
+    checkQuery((scores, users) -> new QueryBuilder().from(scores).select("uid", "gameNumber", "score").setLimit(6));
+    checkQuery((scores, users) -> new QueryBuilder().from(scores).select("uid", "score").setLimit(0));
+    // sorted only
+    checkQuery((scores, users) -> new QueryBuilder().from(scores).select("uid", "gameNumber", "score")
+        .sortBy("score"));
+  }
+
+  public void testAggregation() throws Exception {
+    checkQuery((scores, users) -> new QueryBuilder().from(scores)
+        .select("uid", "modelId").selectAggregatedCol(Count.class, "*").selectAggregatedCol(Avg.class, "score")
+        .where(new ColValueComparison<>("score", ComparisonOperator.GT, 35.0))
+        .groupBy("uid", "modelId").sortBy("-Avg(score)").setLimit(3));
+  }
+
+  public void testInnerJoin() throws Exception {
+    checkQuery((scores, users) -> new QueryBuilder().from(scores).naturalJoin().from(users)
+        .select("uid", "name", "modelId", "score").sortBy("score"));
+    // aggregation of a join
+    checkQuery((scores, users) -> new QueryBuilder().from(users).naturalJoin().from(scores)
+        .select("name").selectAggregatedCol(Count.class, "*").groupBy("name").sortBy("name"));
+  }
+
+  public void testOuterJoin() throws Exception {
+    for (Join.Type type : new Join.Type[]{Join.Type.LEFT_OUTER, Join.Type.FULL_OUTER}) {
+      checkQuery((scores, users) -> new QueryBuilder().from(users).naturalJoin(type).from(scores)
+          .select("uid", "name", "modelId", "score").sortBy("uid", "score"));
+    }
+  }
+
+  /**
+   * A static (not appendable) input should be consumed only once, when the query is subscribed.
+   */
+  public void testStaticInput() throws Exception {
+    ContinuousQuery query = new QueryBuilder().from(scores).naturalJoin().from(userRelation)
+        .select("name").selectAggregatedCol(Count.class, "*").groupBy("name").sortBy("name")
+        .boundQuery().subscribe();
+    assertEquals(0, query.getResults().getRows().size());
+    scores.appendAll(scoreRelation.getRows());
+    assertEquals(toCsv(new QueryBuilder().from(scoreRelation).naturalJoin().from(userRelation)
+            .select("name").selectAggregatedCol(Count.class, "*").groupBy("name").sortBy("name").boundQuery().eval()),
+        toCsv(query.getResults()));
+    long version = query.getVersion();
+    query.close();
+    scores.append(scoreRelation.getRows().get(0));
+    assertEquals(version, query.getVersion());  // no longer subscribed
+  }
+
+  /**
+   * Appends the rows of {@link #scoreRelation} and {@link #userRelation} to their appendable counterparts in a few
+   * chunks, and asserts that after each chunk the results of the continuous query match those of the same query
+   * evaluated from scratch.
+   *
+   * @param queryFactory creates the query for the given {@code Score} and {@code User} relations
+   */
+  private void checkQuery(BiFunction<Relation, Relation, QueryBuilder> queryFactory) {
+    scores = new AppendOnlyRelation(scoreRelation.getSchema());
+    users = new AppendOnlyRelation(userRelation.getSchema());
+    // start with some rows already present, to make sure they're picked up on subscription
+    scores.appendAll(scoreRelation.getRows().subList(0, 3));
+    ContinuousQuery continuousQuery = queryFactory.apply(scores, users).boundQuery().subscribe();
+    System.out.println(continuousQuery);
+    List<Row> allScores = scoreRelation.getRows();
+    List<Row> allUsers = userRelation.getRows();
+    int nScores = 3, nUsers = 0;
+    while (nScores < allScores.size() || nUsers < allUsers.size()) {
+      int nextScores = Math.min(allScores.size(), nScores + 4);
+      scores.appendAll(allScores.subList(nScores, nextScores));
+      nScores = nextScores;
+      if (nUsers < allUsers.size())
+        users.append(allUsers.get(nUsers++));
+      ArrayListRelation expectedScores = new ArrayListRelation(scores.getSchema(), allScores.subList(0, nScores).iterator());
+      ArrayListRelation expectedUsers = new ArrayListRelation(users.getSchema(), allUsers.subList(0, nUsers).iterator());
+      String expected = toCsv(queryFactory.apply(expectedScores, expectedUsers).boundQuery().eval());
+      ResultSet actual = continuousQuery.getResults();
+      resultPrinter.print(actual);
+      assertEquals(expected, toCsv(actual));
+    }
+    continuousQuery.close();
+  }
+
+  private static String toCsv(ResultSet resultSet) {
+    CsvPrinter csvPrinter = new CsvPrinter().setOrdinalColEnabled(false).setPreambleEnabled(false);
+    StringPrintStream out = new StringPrintStream();
+    csvPrinter.print(resultSet, out);
+    return out.toString();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import com.google.gwt.core.shared.GwtIncompatible;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import solutions.trsoftware.commons.server.memquery.aggregations.Avg;
+import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+import solutions.trsoftware.commons.server.memquery.aggregations.Max;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueComparison;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * End-to-end benchmarks of the memquery engine, covering the main relational operations
+ * over synthetic relations of different {@linkplain RelationSize sizes}, with both row implementations
+ * ({@link RowImpl} and the classes generated by {@link DynamicRowImplGenerator}).
+ * <p>
+ * The row implementation is selected by the {@value RowFactory#SYS_PROP_USE_DYNAMIC_CLASSES} system property,
+ * which is set (and the {@link RowFactory} singleton re-initialized) according to {@link BenchmarkConfig#useDynamicClasses}.
+ * <p>
+ * Run {@link #main} to write the results to {@code benchmarks/MemQueryBenchmark.csv} (in the same format as
+ * the other files in that directory).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+@GwtIncompatible
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1)
+@Fork(value = 1, warmups = 1)
+@Measurement(time = 3)
+public class MemQueryBenchmark {
+
+  public enum RelationSize {
+    SMALL(1_000),
+    MEDIUM(50_000),
+    LARGE(500_000);
+
+    /** The number of rows in the "fact" relation */
+    final int nRows;
+
+    RelationSize(int nRows) {
+      this.nRows = nRows;
+    }
+
+    /**
+     * @return the number of rows in the "dimension" relation
+     */
+    int getNumUsers() {
+      return Math.max(10, nRows / 100);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkConfig {
+
+    @Param
+    public RelationSize size;
+
+    @Param({"false", "true"})
+    public boolean useDynamicClasses;
+
+    /** The "fact" relation: {@code Score(uid, modelId, gameNumber, score)} */
+    MaterializedRelation scores;
+    /** The "dimension" relation: {@code User(uid, name)} */
+    MaterializedRelation users;
+
+    public BenchmarkConfig() {
+    }
+
+    public BenchmarkConfig(RelationSize size, boolean useDynamicClasses) {
+      this.size = size;
+      this.useDynamicClasses = useDynamicClasses;
+    }
+
+    @Setup
+    public void setUp() {
+      System.setProperty(RowFactory.SYS_PROP_USE_DYNAMIC_CLASSES, String.valueOf(useDynamicClasses));
+      RowFactory.setInstance(null);  // will be re-initialized from the above system property
+      Random rnd = new Random(1);
+      int nUsers = size.getNumUsers();
+      // offset the range of user ids by 10% in each relation, so that the outer joins have some unmatched rows on both sides
+      int uidOffset = nUsers / 10;
+      String[] models = {"foo", "bar", "baz"};
+      RelationSchema scoreSchema = new RelationSchema("Score", Arrays.asList(
+          new NameAccessorColSpec<>("uid", String.class),
+          new NameAccessorColSpec<>("modelId", String.class),
+          new NameAccessorColSpec<>("gameNumber", int.class),
+          new NameAccessorColSpec<>("score", double.class)));
+      List<Row> scoreRows = new ArrayList<>(size.nRows);
+      for (int i = 0; i < size.nRows; i++) {
+        scoreRows.add(newRow(scoreSchema,
+            "u" + rnd.nextInt(nUsers), models[rnd.nextInt(models.length)], rnd.nextInt(20), rnd.nextDouble() * 100));
+      }
+      RelationSchema userSchema = new RelationSchema("User", Arrays.asList(
+          new NameAccessorColSpec<>("uid", String.class),
+          new NameAccessorColSpec<>("name", String.class)));
+      List<Row> userRows = new ArrayList<>(nUsers);
+      for (int i = uidOffset; i < nUsers + uidOffset; i++)
+        userRows.add(newRow(userSchema, "u" + i, "User" + i));
+      scores = new ArrayListRelation(scoreSchema, scoreRows.iterator());
+      users = new ArrayListRelation(userSchema, userRows.iterator());
+    }
+
+    private static Row newRow(RelationSchema schema, Object... values) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      for (int i = 0; i < values.length; i++)
+        row.setValue(i, values[i]);
+      return row;
+    }
+
+    QueryBuilder fromScores() {
+      return new QueryBuilder().from(scores);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class JoinConfig {
+    @Param
+    public Join.Type joinType;
+  }
+
+  @Benchmark
+  public void selection(BenchmarkConfig config, Blackhole blackhole) {
+    run(config.fromScores().selectAll()
+        .where(new ColValueComparison<>("score", ComparisonOperator.LT, 50.0)), blackhole);
+  }
+
+  @Benchmark
+  public void projection(BenchmarkConfig config, Blackhole blackhole) {
+    run(config.fromScores().select("uid", "score"), blackhole);
+  }
+
+  /**
+   * Natural join on {@code uid} (evaluated with a hash join), for each {@link Join.Type}.
+   */
+  @Benchmark
+  public void equiJoin(BenchmarkConfig config, JoinConfig joinConfig, Blackhole blackhole) {
+    run(config.fromScores().naturalJoin(joinConfig.joinType).from(config.users)
+        .select("name", "modelId", "score"), blackhole);
+  }
+
+  @Benchmark
+  public void groupedAggregation(BenchmarkConfig config, Blackhole blackhole) {
+    run(config.fromScores().select("uid", "modelId")
+        .selectAggregatedCol(Count.class, "*")
+        .selectAggregatedCol(Avg.class, "score")
+        .selectAggregatedCol(Max.class, "gameNumber")
+        .groupBy("uid", "modelId"), blackhole);
+  }
+
+  @Benchmark
+  public void sort(BenchmarkConfig config, Blackhole blackhole) {
+    run(config.fromScores().select("uid", "gameNumber", "score").sortBy("uid", "-score"), blackhole);
+  }
+
+  /**
+   * Evaluates the given query, including its sort orders, and consumes the result rows without materializing them.
+   */
+  private static void run(QueryBuilder queryBuilder, Blackhole blackhole) {
+    BoundQuery query = queryBuilder.boundQuery();
+    for (Row row : query.getQuery().evalAsStream(query.getInputBindings()))
+      blackhole.consume(row);
+  }
+
+  /**
+   * Runs all the benchmarks in this class and writes the results to {@code benchmarks/MemQueryBenchmark.csv}
+   * (the working directory should be the project root).
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(MemQueryBenchmark.class.getName())
+        .resultFormat(ResultFormatType.CSV)
+        .result("benchmarks/" + MemQueryBenchmark.class.getSimpleName() + ".csv")
+        .build()).run();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import com.google.gwt.core.shared.GwtIncompatible;
+import junit.framework.TestCase;
+import org.openjdk.jmh.infra.Blackhole;
+import solutions.trsoftware.commons.server.memquery.MemQueryBenchmark.BenchmarkConfig;
+import solutions.trsoftware.commons.server.memquery.MemQueryBenchmark.JoinConfig;
+import solutions.trsoftware.commons.server.memquery.MemQueryBenchmark.RelationSize;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+import solutions.trsoftware.commons.shared.annotations.ExcludeFromSuite;
+import solutions.trsoftware.commons.shared.annotations.Slow;
+
+/**
+ * Checks that all the {@link MemQueryBenchmark} methods can be invoked with the {@link RelationSize#SMALL} config.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+@GwtIncompatible
+@ExcludeFromSuite
+@Slow
+public class MemQueryBenchmarkTest extends TestCase {
+
+  private RowFactory defaultRowFactory;
+  private String defaultSysPropValue;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    // back up the original settings, which will be modified by BenchmarkConfig.setUp
+    defaultRowFactory = RowFactory.getInstance();
+    defaultSysPropValue = System.getProperty(RowFactory.SYS_PROP_USE_DYNAMIC_CLASSES);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    if (defaultSysPropValue != null)
+      System.setProperty(RowFactory.SYS_PROP_USE_DYNAMIC_CLASSES, defaultSysPropValue);
+    else
+      System.clearProperty(RowFactory.SYS_PROP_USE_DYNAMIC_CLASSES);
+    RowFactory.setInstance(defaultRowFactory);
+    super.tearDown();
+  }
+
+  public void testBenchmarkConfig() throws Exception {
+    MemQueryBenchmark benchmark = new MemQueryBenchmark();
+    Blackhole blackhole = new Blackhole("Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+    for (boolean useDynamicClasses : new boolean[]{false, true}) {
+      BenchmarkConfig config = new BenchmarkConfig(RelationSize.SMALL, useDynamicClasses);
+      config.setUp();
+      assertEquals(useDynamicClasses, RowFactory.getInstance().isUseDynamicClasses());
+      assertEquals(RelationSize.SMALL.nRows, config.scores.size());
+      benchmark.selection(config, blackhole);
+      benchmark.projection(config, blackhole);
+      for (Join.Type joinType : Join.Type.values()) {
+        JoinConfig joinConfig = new JoinConfig();
+        joinConfig.joinType = joinType;
+        benchmark.equiJoin(config, joinConfig, blackhole);
+      }
+      benchmark.groupedAggregation(config, blackhole);
+      benchmark.sort(config, blackhole);
+    }
+  }
+}
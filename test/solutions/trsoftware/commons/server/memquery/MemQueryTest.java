@@ -17,8 +17,7 @@
 
 package solutions.trsoftware.commons.server.memquery;
 
-import solutions.trsoftware.commons.server.memquery.aggregations.Avg;
-import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+import solutions.trsoftware.commons.server.memquery.aggregations.*;
 import solutions.trsoftware.commons.server.memquery.algebra.Join;
 import solutions.trsoftware.commons.server.memquery.expressions.BooleanBinaryOperator;
 import solutions.trsoftware.commons.server.memquery.expressions.ColValueComparison;
@@ -260,6 +259,29 @@ public class MemQueryTest extends MemQueryTestCase {
         ));
   }
 
+  public void testApproxAggregations() throws Exception {
+    // the sketches should give exact results for such small groups
+    assertResultSetEquals(runAndPrint(fromScore()
+            .select("uid")
+            .selectAggregatedCol(P50.class, "score")
+            .selectAggregatedCol(P95.class, "score")
+            .selectAggregatedCol(ApproxCountDistinct.class, "modelId")
+            .groupBy("uid")),
+        joinCsvRows(
+            "a,38,60,2",
+            "b,72,75,2",
+            "c,82,83,3"
+        ));
+    assertResultSetEquals(runAndPrint(fromScore()
+            .selectAggregatedCol(P50.class, "score")
+            .selectAggregatedCol(P99.class, "score")
+            .selectAggregatedCol(ApproxCountDistinct.class, "gameNumber")
+            .groupBy()),
+        joinCsvRows(
+            "71,83,5"
+        ));
+  }
+
   public void testCrossJoin() throws Exception {
     // cross product of 2 relations
     ResultSet scoresGroupedByUid = runAndPrint(fromScore().select("uid").selectAggregatedCol(Count.class, "*").selectAggregatedCol(Avg.class, "score").groupBy("uid"));
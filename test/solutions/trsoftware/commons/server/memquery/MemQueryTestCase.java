@@ -98,11 +98,11 @@ public abstract class MemQueryTestCase extends TestCase {
     Thread.sleep(10);  // do a short sleep to allow all the System.out stream writes to complete so that the test runner properly groups the output by test case
   }
 
-  static String joinCsvRows(String...rows) {
+  protected static String joinCsvRows(String...rows) {
     return StringUtils.join(ServerIOUtils.LINE_SEPARATOR, rows) + ServerIOUtils.LINE_SEPARATOR;
   }
 
-  static void assertResultSetEquals(ResultSet resultSet, String expectedCsv) {
+  protected static void assertResultSetEquals(ResultSet resultSet, String expectedCsv) {
     CsvPrinter csvPrinter = new CsvPrinter().setHeaderRowEnabled(false).setOrdinalColEnabled(false).setPreambleEnabled(false);
     StringPrintStream resultSetOutput = new StringPrintStream();
     csvPrinter.print(resultSet, resultSetOutput);
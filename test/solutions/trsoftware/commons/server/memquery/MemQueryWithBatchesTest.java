@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import com.google.common.collect.Lists;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.testutil.AssertUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Runs all the tests in {@link MemQueryTest} with batch mode enabled (see {@link BatchedRelation}),
+ * and tests {@link RowBatch}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class MemQueryWithBatchesTest extends MemQueryTest {
+
+  @Override
+  protected QueryBuilder fromUser() {
+    return super.fromUser().setBatchSize(RowBatch.DEFAULT_SIZE);
+  }
+
+  @Override
+  protected QueryBuilder fromScore() {
+    return super.fromScore().setBatchSize(RowBatch.DEFAULT_SIZE);
+  }
+
+  public void testRowBatch() throws Exception {
+    RelationSchema schema = new RelationSchema("Foo", singletonList(new NameAccessorColSpec<>("x", Integer.class)));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, i);
+      rows.add(row);
+    }
+    RowBatch batch = new RowBatch(4);
+    assertEquals(4, batch.fill(rows, 2, rows.size()));
+    assertTrue(batch.isFull());
+    assertEquals(4, batch.count());
+    assertEquals(2, (int)batch.get(0).getValue(0));
+    // filtering should narrow down the selection vector without changing the size
+    assertEquals(2, batch.select(row -> (int)row.getValue(0) % 2 == 0));
+    assertEquals(4, batch.size());
+    assertEquals(2, batch.count());
+    assertEquals(2, (int)batch.get(0).getValue(0));
+    assertEquals(4, (int)batch.get(1).getValue(0));
+    // applying another filter should narrow down the existing selection
+    assertEquals(1, batch.select(row -> (int)row.getValue(0) > 2));
+    assertEquals(4, (int)batch.get(0).getValue(0));
+    batch.clear();
+    assertTrue(batch.isEmpty());
+
+    // the batch iterators should produce the same rows, regardless of the source
+    assertEquals(rows, Lists.newArrayList(RowBatch.rows(RowBatch.batches(rows, 3))));
+    assertEquals(rows, Lists.newArrayList(RowBatch.rows(RowBatch.batches(rows.iterator(), 3))));
+    Iterator<RowBatch> batches = RowBatch.batches(new ArrayListRelation(schema, rows.iterator()), 4);
+    int[] expectedSizes = {4, 4, 2};
+    for (int expectedSize : expectedSizes) {
+      assertTrue(batches.hasNext());
+      assertEquals(expectedSize, batches.next().count());
+    }
+    assertFalse(batches.hasNext());
+    // empty batches should be skipped when flattening
+    Iterator<RowBatch> filteredBatches = RowBatch.batches(rows, 3);
+    Iterator<Row> filteredRows = RowBatch.rows(new Iterator<RowBatch>() {
+      @Override
+      public boolean hasNext() {
+        return filteredBatches.hasNext();
+      }
+
+      @Override
+      public RowBatch next() {
+        RowBatch next = filteredBatches.next();
+        next.select(row -> (int)row.getValue(0) >= 7);
+        return next;
+      }
+    });
+    assertEquals(rows.subList(7, 10), Lists.newArrayList(filteredRows));
+  }
+
+  public void testBatchedStreamingRelationHasSingleConsumer() throws Exception {
+    RelationSchema schema = new RelationSchema("Foo", singletonList(new NameAccessorColSpec<>("x", Integer.class)));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, i);
+      rows.add(row);
+    }
+    BatchedStreamingRelation rowConsumed = new BatchedStreamingRelation(schema, RowBatch.batches(rows, 2));
+    assertEquals(rows, Lists.newArrayList(rowConsumed.iterator()));
+    assertSame(rowConsumed.iterator(), rowConsumed.iterator());  // can use the same view repeatedly
+    AssertUtils.assertThrows(IllegalStateException.class, (Runnable)rowConsumed::batchIterator);
+
+    BatchedStreamingRelation batchConsumed = new BatchedStreamingRelation(schema, RowBatch.batches(rows, 2));
+    assertEquals(rows, Lists.newArrayList(RowBatch.rows(batchConsumed.batchIterator())));
+    AssertUtils.assertThrows(IllegalStateException.class, (Runnable)batchConsumed::iterator);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation.*;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueIn;
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs all the tests in {@link MemQueryTest} with the input relations stored in a {@link ColumnarFile}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class MemQueryWithColumnarFileTest extends MemQueryTest {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    scoreRelation = writeAndRead(scoreRelation);
+    userRelation = writeAndRead(userRelation);
+  }
+
+  private static ColumnarRelation writeAndRead(Relation relation) throws IOException {
+    Path path = Files.createTempFile(relation.getSchema().getName(), ".mqcf");
+    path.toFile().deleteOnExit();
+    ColumnarFile.write(relation, path);
+    return ColumnarFile.read(path);
+  }
+
+  public void testColumnTypes() throws Exception {
+    ColumnarRelation scores = (ColumnarRelation)scoreRelation;
+    assertEquals(15, scores.size());
+    assertEquals(Arrays.asList("uid", "modelId", "gameNumber", "score"), scores.getSchema().getColNames());
+    assertTrue(scores.getColumn("uid") instanceof StringColumn);
+    assertTrue(scores.getColumn("gameNumber") instanceof NumericColumn);
+    assertTrue(scores.getColumn("score") instanceof NumericColumn);
+    StringColumn modelIds = (StringColumn)scores.getColumn("modelId");
+    assertEquals(Arrays.asList("foo", "bar", "baz"), modelIds.getDictionary());
+    assertEquals(1, modelIds.getCode(3));
+    assertEquals("bar", modelIds.get(3));
+    assertEquals(3, scores.getColumn("gameNumber").get(9));
+    assertEquals(73.0, ((NumericColumn)scores.getColumn("score")).getDouble(9));
+  }
+
+  public void testAllTypes() throws Exception {
+    Class[] types = {int.class, Long.class, double.class, Float.class, short.class, Byte.class, char.class,
+        Boolean.class, String.class, TimeUnit.class};
+    List<ColSpec> colSpecs = new ArrayList<>();
+    for (Class type : types)
+      colSpecs.add(new NameAccessorColSpec<>(type.getSimpleName(), type));
+    RelationSchema schema = new RelationSchema("AllTypes", colSpecs);
+    List<Object[]> values = Arrays.asList(
+        new Object[]{1, 2L, 3.5, 4.5f, (short)5, (byte)6, 'x', true, "foo", TimeUnit.SECONDS},
+        new Object[]{-1, Long.MIN_VALUE, Double.NaN, -0f, Short.MIN_VALUE, Byte.MAX_VALUE, 'é', false, "été", TimeUnit.DAYS},
+        new Object[]{0, null, null, null, null, null, null, null, null, null}
+    );
+    List<Row> rows = new ArrayList<>();
+    for (Object[] rowValues : values) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      for (int i = 0; i < rowValues.length; i++)
+        row.setValue(i, rowValues[i]);
+      rows.add(row);
+    }
+    ColumnarRelation relation = writeAndRead(new ColumnarRelation(schema, rows.iterator()));
+    assertEquals(schema.getColNames(), relation.getSchema().getColNames());
+    for (int i = 0; i < types.length; i++)
+      assertEquals(types[i], relation.getSchema().get(i).getType());
+    assertEquals(values.size(), relation.size());
+    for (int r = 0; r < values.size(); r++)
+      assertEquals(Arrays.asList(values.get(r)), relation.getRow(r).getValues(schema.getColNames()));
+    // the null values should be handled correctly by the column-wise predicate evaluation
+    assertEquals(Arrays.asList(0, 1), selectPositions(relation, "String", "foo", "été"));
+
+    // writing a view should only write the rows that are in the view
+    ColumnarRelation selected = relation.select(new ColValueIn<>("String", Collections.singleton("foo")), schema);
+    ColumnarRelation selectedCopy = writeAndRead(selected);
+    assertEquals(1, selectedCopy.size());
+    assertEquals(Arrays.asList(values.get(0)), selectedCopy.getRow(0).getValues(schema.getColNames()));
+
+    // empty relation
+    assertEquals(0, writeAndRead(new ColumnarRelation(schema, Collections.<Row>emptyIterator())).size());
+  }
+
+  public void testUnsupportedType() throws Exception {
+    RelationSchema schema = new RelationSchema("Unsupported", Collections.singletonList(
+        new NameAccessorColSpec<>("list", List.class)));
+    try {
+      writeAndRead(new ColumnarRelation(schema, Collections.<Row>emptyIterator()));
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private static List<Integer> selectPositions(ColumnarRelation relation, String colName, String... values) {
+    ColumnarRelation selected = relation.select(
+        new ColValueIn<>(colName, new HashSet<>(Arrays.asList(values))),
+        relation.getSchema());
+    List<Integer> ret = new ArrayList<>();
+    for (int i = 0; i < selected.size(); i++)
+      ret.add(selected.getPosition(i));
+    return ret;
+  }
+}
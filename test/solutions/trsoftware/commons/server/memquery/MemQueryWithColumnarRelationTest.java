@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation.*;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueIn;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs all the tests in {@link MemQueryTest} with the input relations stored in a {@link ColumnarRelation}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class MemQueryWithColumnarRelationTest extends MemQueryTest {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    scoreRelation = new ColumnarRelation(scoreRelation);
+    userRelation = new ColumnarRelation(userRelation);
+  }
+
+  public void testColumnTypes() throws Exception {
+    ColumnarRelation scores = (ColumnarRelation)scoreRelation;
+    assertEquals(15, scores.size());
+    assertTrue(scores.getColumn("uid") instanceof StringColumn);
+    assertTrue(scores.getColumn("gameNumber") instanceof IntColumn);
+    assertTrue(scores.getColumn("score") instanceof DoubleColumn);
+    StringColumn modelIds = (StringColumn)scores.getColumn("modelId");
+    // each distinct string is stored only once
+    assertEquals(Arrays.asList("foo", "bar", "baz"), modelIds.getDictionary());
+    assertEquals(1, modelIds.getCode(3));
+    assertEquals("bar", modelIds.get(3));
+    assertEquals(3, ((IntColumn)scores.getColumn("gameNumber")).getInt(9));
+    assertEquals(73.0, ((DoubleColumn)scores.getColumn("score")).getDouble(9));
+  }
+
+  public void testNulls() throws Exception {
+    RelationSchema schema = new RelationSchema("Nulls", Arrays.asList(
+        new NameAccessorColSpec<>("name", String.class), new NameAccessorColSpec<>("count", Integer.class)));
+    List<Row> rows = Arrays.asList(
+        newRow(schema, "x", 1),
+        newRow(schema, null, 2),
+        newRow(schema, "y", null),
+        newRow(schema, null, null)
+    );
+    ColumnarRelation relation = new ColumnarRelation(schema, rows.iterator());
+    Column names = relation.getColumn("name");
+    Column counts = relation.getColumn("count");
+    assertEquals(Arrays.asList(false, true, false, true), isNull(names));
+    assertEquals(Arrays.asList(false, false, true, true), isNull(counts));
+    assertEquals(-1, ((StringColumn)names).getCode(1));
+    assertNull(names.get(1));
+    assertNull(counts.get(2));
+    for (int i = 0; i < rows.size(); i++)
+      assertEquals(rows.get(i).getValues(schema.getColNames()), relation.getRow(i).getValues(schema.getColNames()));
+    // the null values should be handled correctly by the column-wise predicate evaluation
+    ColumnarRelation selected = relation.select(
+        new ColValueIn<>("name", Collections.singleton("y")), schema);
+    assertEquals(1, selected.size());
+    assertEquals(2, selected.getPosition(0));
+    assertEquals(Arrays.asList("y", null), selected.getRow(0).getValues(schema.getColNames()));
+    // the views should share the column arrays with their source relation
+    ColumnarRelation projected = selected.project(
+        new RelationSchema("Counts", Collections.singletonList(new NameAccessorColSpec<>("count", Integer.class))),
+        Collections.singletonList("count"));
+    assertSame(counts, projected.getColumn(0));
+    assertEquals(1, projected.size());
+  }
+
+  private static Row newRow(RelationSchema schema, Object... values) {
+    MutableRow row = RowFactory.getInstance().newRow(schema);
+    for (int i = 0; i < values.length; i++)
+      row.setValue(i, values[i]);
+    return row;
+  }
+
+  private static List<Boolean> isNull(Column col) {
+    Boolean[] ret = new Boolean[col.size()];
+    for (int i = 0; i < ret.length; i++)
+      ret[i] = col.isNull(i);
+    return Arrays.asList(ret);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueComparison;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueIn;
+import solutions.trsoftware.commons.server.memquery.expressions.RowPredicate;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static solutions.trsoftware.commons.server.memquery.RelationIndex.Type.HASH;
+import static solutions.trsoftware.commons.server.memquery.RelationIndex.Type.SORTED;
+
+/**
+ * Runs all the tests in {@link MemQueryTest} with secondary indexes on every column of the input relations,
+ * and tests the indexes themselves.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class MemQueryWithIndexesTest extends MemQueryTest {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    for (ArrayListRelation relation : Arrays.asList((ArrayListRelation)scoreRelation, (ArrayListRelation)userRelation)) {
+      for (String colName : relation.getSchema().getColNames()) {
+        relation.createIndex(colName, HASH).createIndex(colName, SORTED);
+      }
+    }
+  }
+
+  public void testIndexLookups() throws Exception {
+    ArrayListRelation scores = (ArrayListRelation)scoreRelation;
+    RelationIndex.HashIndex uidIndex = (RelationIndex.HashIndex)scores.getIndex("uid", HASH);
+    assertEquals(3, uidIndex.getCardinality());
+    assertEqualsArray(new int[]{5, 6, 7, 8, 9, 10, 11}, uidIndex.find("b"));
+    assertEqualsArray(new int[0], uidIndex.find("x"));
+    assertEqualsArray(new int[]{0, 1, 2, 3, 4, 12, 13, 14}, uidIndex.findAll(Arrays.asList("c", "a", "c")));
+    RelationIndex.SortedIndex scoreIndex = (RelationIndex.SortedIndex)scores.getIndex("score", SORTED);
+    assertEqualsArray(new int[]{4, 6}, scoreIndex.find(60.0));
+    assertEqualsArray(new int[]{0, 1, 2, 3}, scoreIndex.findRange(null, false, 40.0, true));
+    assertEqualsArray(new int[]{0, 1, 2}, scoreIndex.findRange(null, false, 40.0, false));
+    assertEqualsArray(new int[]{4, 6, 7, 8, 9, 10, 11}, scoreIndex.findRange(60.0, true, 75.0, true));
+    assertEqualsArray(new int[]{12, 13, 14}, scoreIndex.findRange(75.0, false, null, false));
+    assertEqualsArray(new int[0], scoreIndex.findRange(90.0, false, 10.0, false));
+    assertEquals(Arrays.asList("Ben"), getValues(((ArrayListRelation)userRelation).findRows("uid", "b"), "name"));
+  }
+
+  /**
+   * The indexes should be rebuilt after the relation is modified.
+   */
+  public void testModification() throws Exception {
+    RelationSchema schema = new RelationSchema("Foo", Arrays.asList(new NameAccessorColSpec<>("x", Integer.class)));
+    ArrayListRelation relation = new ArrayListRelation(schema, newRows(schema, 1, 2, 3, 2).iterator())
+        .createIndex("x", HASH).createIndex("x", SORTED);
+    assertEqualsArray(new int[]{1, 3}, relation.getIndex("x", HASH).find(2));
+    relation.getRows().add(newRows(schema, 2).get(0));
+    assertEqualsArray(new int[]{1, 3, 4}, relation.getIndex("x", HASH).find(2));
+    relation.getRows().set(1, newRows(schema, 5).get(0));
+    assertEqualsArray(new int[]{3, 4}, relation.getIndex("x", HASH).find(2));
+    assertEqualsArray(new int[]{1}, relation.getIndex("x", SORTED).find(5));
+    relation.getRows().remove(0);
+    assertEqualsArray(new int[]{2, 3}, ((RelationIndex.SortedIndex)relation.getIndex("x", SORTED)).findRange(1, false, 2, true));
+    // modifying the value of a row requires explicitly rebuilding the indexes
+    ((MutableRow)relation.getRows().get(0)).setValue(0, 2);
+    relation.rebuildIndexes();
+    assertEqualsArray(new int[]{0, 2, 3}, relation.getIndex("x", HASH).find(2));
+    // null values
+    relation.getRows().add(newRows(schema, (Object)null).get(0));
+    assertTrue(relation.getIndex("x", SORTED).containsNulls());
+    assertEqualsArray(new int[]{4}, relation.getIndex("x", HASH).find(null));
+    assertEqualsArray(new int[]{4}, relation.getIndex("x", SORTED).find(null));
+    assertTrue(relation.dropIndex("x", HASH));
+    assertFalse(relation.dropIndex("x", HASH));
+    assertNull(relation.getIndex("x", HASH));
+    assertEquals(3, relation.findRows("x", 2).size());
+  }
+
+  /**
+   * Checks that the selections evaluated with indexes return the same rows as a full scan.
+   */
+  public void testSelectionWithIndexes() throws Exception {
+    List<RowPredicate> predicates = Arrays.asList(
+        new ColValueComparison<>("score", ComparisonOperator.LE, 60.0),
+        new ColValueComparison<>("gameNumber", ComparisonOperator.EQ, 2),
+        new ColValueIn<>("modelId", Arrays.asList("bar", "baz")),
+        RowPredicate.and(new ColValueComparison<>("uid", ComparisonOperator.NE, "b"), new ColValueComparison<>("score", ComparisonOperator.GT, 30.0)),
+        RowPredicate.or(new ColValueIn<>("uid", Arrays.asList("c")), new ColValueComparison<>("gameNumber", ComparisonOperator.GE, 4))
+    );
+    ArrayListRelation unindexed = new ArrayListRelation(scoreRelation);
+    for (RowPredicate predicate : predicates) {
+      String expected = csv(new QueryBuilder().from(unindexed).selectAll().where(predicate));
+      String actual = csv(fromScore().selectAll().where(predicate));
+      System.out.println(predicate + ":");
+      System.out.println(actual);
+      assertEquals(expected, actual);
+    }
+  }
+
+  private static String csv(QueryBuilder qb) {
+    ResultSet resultSet = qb.boundQuery().eval();
+    StringBuilder ret = new StringBuilder();
+    for (Row row : resultSet)
+      ret.append(row.getValues(resultSet.getSchema().getColNames())).append('\n');
+    return ret.toString();
+  }
+
+  private static List<Row> newRows(RelationSchema schema, Object... values) {
+    List<Row> ret = new ArrayList<>();
+    for (Object value : values) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, value);
+      ret.add(row);
+    }
+    return ret;
+  }
+
+  private static List<Object> getValues(List<Row> rows, String colName) {
+    List<Object> ret = new ArrayList<>();
+    for (Row row : rows)
+      ret.add(row.getValue(colName));
+    return ret;
+  }
+
+  private static void assertEqualsArray(int[] expected, int[] actual) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.io.file.TempFileRegistry;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.iterators.CountingIterator;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.util.Arrays.asList;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class RowSorterTest extends MemQueryTestCase {
+
+  private RelationSchema schema;
+  private List<Row> rows;
+  private List<SortOrder> sortOrders;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    schema = new RelationSchema("Foo", asList(
+        new NameAccessorColSpec<>("id", Integer.class),
+        new NameAccessorColSpec<>("x", Integer.class),
+        new NameAccessorColSpec<>("y", String.class)));
+    Random rnd = new Random(1);
+    rows = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, i);
+      row.setValue(1, rnd.nextInt(50));  // lots of duplicates, to test the stability of the sort
+      row.setValue(2, rnd.nextInt(10) == 0 ? null : String.valueOf((char)('a' + rnd.nextInt(5))));
+      rows.add(row);
+    }
+    sortOrders = asList(new SortOrder("y"), new SortOrder("x", true));
+  }
+
+  public void testTopK() throws Exception {
+    List<Row> expected = sortedInMemory();
+    RowSorter sorter = new RowSorter(schema, sortOrders);
+    for (int k : new int[]{0, 1, 2, 10, 100, 2499, 2500, 3000}) {
+      List<Row> topK = RowSorter.topK(rows.iterator(), sorter.getComparator(), k);
+      assertEquals(getIds(expected.subList(0, Math.min(k, expected.size()))), getIds(topK));
+      assertEquals(getIds(topK), getIds(toList(sorter.sort(rows.iterator(), k))));
+    }
+  }
+
+  public void testExternalSort() throws Exception {
+    // the input is never spilled to disk unless a memory budget is specified
+    assertEquals(Integer.MAX_VALUE, new RowSorter(schema, sortOrders).getMemoryBudget());
+    Set<Path> tempFilesBefore = listRunFiles();
+    List<Row> expected = sortedInMemory();
+    for (int memoryBudget : new int[]{1, 7, 100, 2499, 2500, 10_000}) {
+      RowSorter sorter = new RowSorter(schema, sortOrders).setMemoryBudget(memoryBudget);
+      List<Row> sorted = toList(sorter.sort(rows.iterator(), Integer.MAX_VALUE));
+      assertEquals(getIds(expected), getIds(sorted));
+      // the rows read back from disk should have the same values as the originals
+      for (int i = 0; i < sorted.size(); i++)
+        assertEquals(expected.get(i).getValues(schema.getColNames()), sorted.get(i).getValues(schema.getColNames()));
+      // with a limit larger than the memory budget
+      if (memoryBudget < 1000)
+        assertEquals(getIds(expected.subList(0, 1000)), getIds(toList(sorter.sort(rows.iterator(), 1000))));
+    }
+    // the spilled runs should be deleted after they're merged
+    assertEquals(tempFilesBefore, listRunFiles());
+  }
+
+  /**
+   * Checks that closing an iterator that was abandoned before being exhausted deletes its runs.
+   */
+  public void testClose() throws Exception {
+    Set<Path> tempFilesBefore = listRunFiles();
+    TempFileRegistry tempFileRegistry = TempFileRegistry.getInstance();
+    int registrySizeBefore = tempFileRegistry.size();
+    RowSorter.SortedIterator it = new RowSorter(schema, sortOrders).setMemoryBudget(100).sort(rows.iterator(), Integer.MAX_VALUE);
+    assertEquals(getIds(sortedInMemory().subList(0, 10)), getIds(toList(new CountingIterator<>(it, 10))));
+    // the runs should be registered for deletion on exit until they're deleted
+    Set<Path> runs = listRunFiles();
+    runs.removeAll(tempFilesBefore);
+    assertFalse(runs.isEmpty());
+    for (Path run : runs)
+      assertTrue(tempFileRegistry.contains(run));
+    it.close();
+    assertEquals(tempFilesBefore, listRunFiles());
+    assertEquals(registrySizeBefore, tempFileRegistry.size());
+  }
+
+  /**
+   * Checks that the sort memory budget and the limit specified for a query produce the same results.
+   */
+  public void testQuery() throws Exception {
+    for (int limit : new int[]{3, 10, Integer.MAX_VALUE}) {
+      List<List<Object>> expected = null;
+      for (int memoryBudget : new int[]{RowSorter.DEFAULT_MEMORY_BUDGET, 5, 2}) {
+        QueryBuilder qb = fromScore().selectAll().sortBy("modelId", "-score").setLimit(limit).setSortMemoryBudget(memoryBudget);
+        List<List<Object>> results = new ArrayList<>();
+        ResultSet resultSet = runAndPrint(qb);
+        for (Row row : resultSet)
+          results.add(row.getValues(resultSet.getSchema().getColNames()));
+        assertEquals(Math.min(limit, scoreRelation.size()), results.size());
+        if (expected == null)
+          expected = results;
+        else
+          assertEquals(expected, results);
+      }
+    }
+  }
+
+  private List<Row> sortedInMemory() {
+    List<Row> ret = new ArrayList<>(rows);
+    ret.sort(MemQuery.makeComparator(sortOrders, schema));
+    return ret;
+  }
+
+  private static List<Row> toList(Iterator<Row> it) {
+    List<Row> ret = new ArrayList<>();
+    it.forEachRemaining(ret::add);
+    return ret;
+  }
+
+  private static List<Integer> getIds(List<Row> rows) {
+    List<Integer> ret = new ArrayList<>();
+    for (Row row : rows)
+      ret.add(row.getValue("id"));
+    return ret;
+  }
+
+  private static Set<Path> listRunFiles() throws Exception {
+    Set<Path> ret = new HashSet<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(TempFileRegistry.SYSTEM_TEMP_DIR, RowSorter.class.getSimpleName() + "*.run")) {
+      for (Path file : files)
+        ret.add(file);
+    }
+    return ret;
+  }
+}
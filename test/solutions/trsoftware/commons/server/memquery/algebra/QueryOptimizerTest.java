@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.algebra;
+
+import com.google.common.collect.ImmutableBiMap;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+import solutions.trsoftware.commons.server.memquery.eval.EvalPipelineBuilder;
+import solutions.trsoftware.commons.server.memquery.eval.EvalPipelinePrinter;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.*;
+
+import static solutions.trsoftware.commons.server.memquery.util.NameUtils.mapByName;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QueryOptimizerTest extends MemQueryTestCase {
+
+  private Map<String, Relation> inputs;
+
+  public void setUp() throws Exception {
+    super.setUp();
+    inputs = mapByName(Arrays.<Relation>asList(scoreRelation, userRelation));
+  }
+
+  public void testFoldConstants() throws Exception {
+    IsNull isNull = new IsNull("foo");
+    assertSame(isNull, QueryOptimizer.foldConstants(new And(isNull, ConstantPredicate.TRUE)));
+    assertSame(isNull, QueryOptimizer.foldConstants(new Or(ConstantPredicate.FALSE, isNull)));
+    assertSame(ConstantPredicate.FALSE, QueryOptimizer.foldConstants(new And(ConstantPredicate.FALSE, isNull)));
+    assertSame(ConstantPredicate.TRUE, QueryOptimizer.foldConstants(new Or(isNull, ConstantPredicate.TRUE)));
+    assertSame(ConstantPredicate.FALSE, QueryOptimizer.foldConstants(new ColValueIn<>("foo", Collections.<String>emptySet())));
+    // nested
+    assertSame(isNull, QueryOptimizer.foldConstants(
+        new Or(new And(ConstantPredicate.TRUE, ConstantPredicate.FALSE), new And(isNull, new Or(ConstantPredicate.FALSE, ConstantPredicate.TRUE)))));
+    // a selection that's always true should be removed from the expression
+    RelationalValue users = new RelationalValue(userRelation.getSchema());
+    assertSame(users, new QueryOptimizer().foldConstants(new Selection(users, new Or(isNull, ConstantPredicate.TRUE))));
+  }
+
+  public void testPushDownSelections() throws Exception {
+    RowPredicate nameFilter = new ColValueComparison<>("name", ComparisonOperator.EQ, "Amy");
+    RowPredicate modelIdFilter = new ColValueComparison<>("modelId", ComparisonOperator.EQ, "foo");
+    RowPredicate uidFilter = new ColValueIn<>("uid", Arrays.asList("a", "c"));
+    RowPredicate crossFilter = new Or(nameFilter, modelIdFilter);
+    MemQuery query = new QueryBuilder()
+        .from(scoreRelation).naturalJoin().from(userRelation)
+        .selectAll()
+        .where(new And(new And(nameFilter, uidFilter), new And(modelIdFilter, crossFilter)))
+        .query();
+    // the conjuncts of the filter should be pushed down to the inputs they reference
+    ExtendedProjection projection = (ExtendedProjection)query.getPlan(inputs);
+    Rename rename = (Rename)projection.getInput();
+    Selection crossSelection = (Selection)rename.getInput();
+    assertSame(crossFilter, crossSelection.getParams());
+    NaturalJoin join = (NaturalJoin)crossSelection.getInput();
+    assertEquals(new And(uidFilter, modelIdFilter).toString(), ((Selection)join.getLHS()).getParams().toString());
+    assertEquals(new And(nameFilter, uidFilter).toString(), ((Selection)join.getRHS()).getParams().toString());
+    assertEquivalent(query);
+
+    // for outer joins, the predicates can't be pushed to the side whose rows are preserved by the join
+    nameFilter = new ColValueIn<>("name", Collections.singleton("Amy"));  // unlike ColValueComparison, this can handle nulls
+    modelIdFilter = new ColValueIn<>("modelId", Collections.singleton("foo"));
+    for (Join.Type type : Join.Type.values()) {
+      query = new QueryBuilder()
+          .from(scoreRelation).naturalJoin(type).from(userRelation)
+          .selectAll()
+          .where(new And(new And(nameFilter, uidFilter), modelIdFilter))
+          .query();
+      RelationalExpression expr = ((UnaryOperation)((UnaryOperation)query.getPlan(inputs)).getInput()).getInput();
+      while (expr instanceof Selection)
+        expr = ((Selection)expr).getInput();  // the predicates that couldn't be pushed down
+      join = (NaturalJoin)expr;
+      boolean expectLeft = type == Join.Type.INNER || type == Join.Type.LEFT_OUTER;
+      boolean expectRight = type == Join.Type.INNER || type == Join.Type.RIGHT_OUTER;
+      assertEquals(expectLeft, join.getLHS() instanceof Selection);
+      assertEquals(expectRight, join.getRHS() instanceof Selection);
+      assertEquivalent(query);
+    }
+  }
+
+  public void testReorderJoins() throws Exception {
+    // the User relation is smaller, so it should become the RHS of the join
+    MemQuery query = new QueryBuilder()
+        .from(userRelation).naturalJoin().from(scoreRelation)
+        .select("uid", "name", "score")
+        .query();
+    NaturalJoin join = (NaturalJoin)((UnaryOperation)((UnaryOperation)query.getPlan(inputs)).getInput()).getInput();
+    assertEquals("Score", join.getLHSchema().getName());
+    assertEquals("User", join.getRHSchema().getName());
+    assertEquivalent(query);
+    // but this can't be done if the order of the join's columns is reflected in the result
+    query = new QueryBuilder()
+        .from(userRelation).naturalJoin().from(scoreRelation)
+        .selectAll()
+        .query();
+    join = (NaturalJoin)((UnaryOperation)((UnaryOperation)query.getPlan(inputs)).getInput()).getInput();
+    assertEquals("User", join.getLHSchema().getName());
+    assertEquivalent(query);
+
+    // an equi-join can be reordered if the only column names shared by its inputs are matched to themselves
+    QueryOptimizer optimizer = new QueryOptimizer(inputs);
+    RelationalValue users = new RelationalValue(userRelation.getSchema());
+    RelationalValue scores = new RelationalValue(scoreRelation.getSchema());
+    EquiJoin.Params params = new EquiJoin.Params(Join.Type.INNER, ImmutableBiMap.of("uid", "uid"));
+    Projection projection = (Projection)optimizer.reorderJoins(
+        new Projection(new EquiJoin(users, scores, params), Arrays.asList("uid", "name", "score")), true);
+    assertEquals("Score", ((EquiJoin)projection.getInput()).getLHSchema().getName());
+    // but not if they share a non-key column, whose output value is taken from the LHS
+    Rename renamedScores = new Rename(scores, "Score", Collections.singletonMap("modelId", "name"));
+    EquiJoin equiJoin = new EquiJoin(users, renamedScores, params);
+    projection = (Projection)optimizer.reorderJoins(new Projection(equiJoin, Arrays.asList("uid", "name", "score")), true);
+    assertSame(equiJoin, projection.getInput());
+    assertEquals("User", ((EquiJoin)projection.getInput()).getLHSchema().getName());
+  }
+
+  public void testPruneColumns() throws Exception {
+    // the Score relation has more unused columns than used ones
+    MemQuery query = new QueryBuilder()
+        .from(scoreRelation).naturalJoin(Join.Type.LEFT_OUTER).from(userRelation)
+        .select("name")
+        .query();
+    Join join = (Join)((UnaryOperation)((UnaryOperation)query.getPlan(inputs)).getInput()).getInput();
+    assertEquals(Arrays.asList("uid"), ((Projection)join.getLHS()).getParams());
+    assertTrue(join.getRHS() instanceof RelationalValue);  // every column of User is used
+    assertEquivalent(query);
+  }
+
+  public void testEstimateGroupCount() throws Exception {
+    QueryBuilder qb = new QueryBuilder()
+        .from(scoreRelation).naturalJoin().from(userRelation)
+        .select("uid", "modelId").selectAggregatedCol(Count.class, "*")
+        .groupBy("uid", "modelId");
+    RelationalExpression expr = qb.query().getPlan(inputs);
+    while (!(expr instanceof AggregationOperation))
+      expr = ((UnaryOperation)expr).getInput();
+    // the grouping columns come from the Score relation, which has 7 distinct (uid, modelId) pairs
+    assertEquals(7, new QueryOptimizer(inputs).estimateGroupCount((AggregationOperation)expr));
+    assertEquals(QueryOptimizer.UNKNOWN_SIZE, new QueryOptimizer().estimateGroupCount((AggregationOperation)expr));
+
+    // the planner should choose the sort-based grouping when the number of groups exceeds the sort memory budget,
+    // in which case the groups will be sorted by their keys (and the input rows will be spilled to disk)
+    assertResultSetEquals(runAndPrint(qb.setSortMemoryBudget(5)), joinCsvRows(
+        "a,bar,2",
+        "a,foo,3",
+        "b,bar,5",
+        "b,foo,2"
+    ));
+
+    // estimates derived from a sample of a larger relation
+    RelationSchema schema = new RelationSchema("Values", Collections.singletonList(new NameAccessorColSpec<>("x", Integer.class)));
+    for (int nDistinct : new int[]{500, 100_000}) {
+      List<Row> rows = new ArrayList<>();
+      Random rnd = new Random(1);
+      for (int i = 0; i < 100_000; i++) {
+        MutableRow row = RowFactory.getInstance().newRow(schema);
+        row.setValue(0, nDistinct == 100_000 ? i : rnd.nextInt(nDistinct));
+        rows.add(row);
+      }
+      MaterializedRelation relation = new ArrayListRelation(schema, rows.iterator());
+      long estimate = QueryOptimizer.estimateDistinct(relation, Collections.singleton("x"));
+      assertEquals(nDistinct, estimate, nDistinct * .2);
+    }
+  }
+
+  /**
+   * Asserts that the optimized plan of the given query produces the same result as the unoptimized expression.
+   */
+  private void assertEquivalent(MemQuery query) throws Exception {
+    ByteArrayOutputStream planOut = new ByteArrayOutputStream();
+    EvalPipelinePrinter.printPlans(query, inputs, new PrintStream(planOut, true, "UTF-8"));
+    String plans = planOut.toString("UTF-8");
+    assertTrue(plans, plans.contains("Before optimization:") && plans.contains("After optimization:"));
+    RelationalExpression plan = query.getPlan(inputs);
+    assertEquals(query.getExpression().getOutputSchema().getColNames(), plan.getOutputSchema().getColNames());
+    List<String> expected = evalToSortedStrings(query, query.getExpression());
+    List<String> actual = evalToSortedStrings(query, plan);
+    assertEquals(expected, actual);
+  }
+
+  private List<String> evalToSortedStrings(MemQuery query, RelationalExpression expr) throws Exception {
+    Relation result = (Relation)new EvalPipelineBuilder(query, inputs).visit(expr).call();
+    List<String> colNames = result.getSchema().getColNames();
+    List<String> ret = new ArrayList<>();
+    for (Row row : result)
+      ret.add(row.getValues(colNames).toString());
+    Collections.sort(ret);
+    return ret;
+  }
+}
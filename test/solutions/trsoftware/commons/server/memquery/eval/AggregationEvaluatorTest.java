@@ -0,0 +1,257 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.ImmutableSet;
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.io.file.TempFileRegistry;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.aggregations.*;
+import solutions.trsoftware.commons.server.memquery.algebra.AggregationOperation;
+import solutions.trsoftware.commons.server.memquery.algebra.RelationalValue;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.Arrays.asList;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class AggregationEvaluatorTest extends TestCase {
+
+  /** A dummy data model class for testing */
+  private static class Sale {
+    private final String region;
+    private final int product;
+    private final int quantity;
+    private final double price;
+
+    private Sale(String region, int product, int quantity, double price) {
+      this.region = region;
+      this.product = product;
+      this.quantity = quantity;
+      this.price = price;
+    }
+  }
+
+  /** A value that's not {@link java.io.Serializable} */
+  private static class Tag {
+    private final int id;
+
+    private Tag(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Tag && ((Tag)o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+  }
+
+  /** A dummy data model class with a non-serializable column */
+  private static class TaggedSale {
+    private final String region;
+    private final int quantity;
+    private final Tag tag;
+
+    private TaggedSale(String region, int quantity, Tag tag) {
+      this.region = region;
+      this.quantity = quantity;
+      this.tag = tag;
+    }
+  }
+
+  private MaterializedRelation sales;
+  private ForkJoinPool pool;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    Random rnd = new Random(1);
+    String[] regions = {"north", "south", "east", "west"};
+    List<Sale> list = new ArrayList<>();
+    for (int i = 0; i < 250_000; i++)
+      list.add(new Sale(regions[rnd.nextInt(regions.length)], rnd.nextInt(100), 1 + rnd.nextInt(10), rnd.nextInt(10_000) / 100d));
+    sales = QueryBuilder.createORM(Sale.class, list);
+    pool = new ForkJoinPool(4);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    pool.shutdown();
+    pool = null;
+    sales = null;
+    super.tearDown();
+  }
+
+  public void testParallelAggregation() throws Exception {
+    AggregationOperation op = new AggregationOperation(new RelationalValue(sales.getSchema()),
+        new AggregationOperation.Params(ImmutableSet.of("region", "product"), asList(
+            new AggregationSpec(Count.class, "*"),
+            new AggregationSpec(Sum.class, "quantity"),
+            new AggregationSpec(Avg.class, "price"),
+            new AggregationSpec(Min.class, "price"),
+            new AggregationSpec(MaxInteger.class, "quantity")
+        )));
+    List<List<Object>> expected = eval(op, sales, Integer.MAX_VALUE);
+    assertEquals(400, expected.size());
+    // materialized input (split recursively)
+    assertEquals(expected, eval(op, sales, 1000));
+    // streaming input (split into batches)
+    assertEquals(expected, eval(op, new StreamingRelation(sales.getSchema(), sales.iterator()), 1000));
+    // streaming input smaller than the threshold
+    assertEquals(expected, eval(op, new StreamingRelation(sales.getSchema(), sales.iterator()), sales.size() + 1));
+    // columnar input
+    ColumnarRelation columnarSales = new ColumnarRelation(sales);
+    assertEquals(expected, eval(op, columnarSales, Integer.MAX_VALUE));
+    assertEquals(expected, eval(op, columnarSales, 1000));
+    // parallel evaluation is disabled by default, but can be enabled for a query
+    assertEquals(Integer.MAX_VALUE, new AggregationEvaluator(op, new ValueEvaluator<>(sales)).getParallelThreshold());
+    QueryBuilder qb = new QueryBuilder().from(sales).select("region", "product")
+        .selectAggregatedCol(Count.class, "*").selectAggregatedCol(Sum.class, "quantity").groupBy("region", "product")
+        .sortBy("region", "product");
+    assertEquals(Integer.MAX_VALUE, qb.query().getParallelThreshold());
+    assertEquals(getValues(qb.query().eval(sales)), getValues(qb.setParallelThreshold(1000).query().eval(sales)));
+  }
+
+  /**
+   * Tests grouping a {@link ColumnarRelation} by a single string column, which looks up the groups by dictionary code.
+   */
+  public void testColumnarAggregationByStringColumn() throws Exception {
+    AggregationOperation op = new AggregationOperation(new RelationalValue(sales.getSchema()),
+        new AggregationOperation.Params(ImmutableSet.of("region"), asList(
+            new AggregationSpec(Count.class, "*"),
+            new AggregationSpec(Avg.class, "price"),
+            new AggregationSpec(Max.class, "quantity"))));
+    List<List<Object>> expected = eval(op, sales, Integer.MAX_VALUE);
+    assertEquals(4, expected.size());
+    ColumnarRelation columnarSales = new ColumnarRelation(sales);
+    assertEquals(expected, eval(op, columnarSales, Integer.MAX_VALUE));
+    assertEquals(expected, eval(op, columnarSales, 1000));
+  }
+
+  /**
+   * The {@link AggregationEvaluator.GroupingStrategy#SORT} strategy should produce the same groups as the default
+   * strategy, but ordered by their grouping keys.
+   */
+  public void testSortGrouping() throws Exception {
+    AggregationOperation op = new AggregationOperation(new RelationalValue(sales.getSchema()),
+        new AggregationOperation.Params(ImmutableSet.of("region", "product"), asList(
+            new AggregationSpec(Count.class, "*"),
+            new AggregationSpec(Sum.class, "quantity"),
+            new AggregationSpec(Avg.class, "price"))));
+    List<List<Object>> expected = eval(op, sales, Integer.MAX_VALUE);
+    assertEquals(400, expected.size());
+    expected.sort(Comparator.comparing((List<Object> group) -> (String)group.get(0))
+        .thenComparing(group -> (Integer)group.get(1)));
+    // the input fits within the memory budget
+    assertEquals(expected, evalSorted(op, sales, RowSorter.DEFAULT_MEMORY_BUDGET));
+    // the sorted runs will be spilled to disk
+    assertEquals(expected, evalSorted(op, sales, 10_000));
+    assertEquals(expected, evalSorted(op, new StreamingRelation(sales.getSchema(), sales.iterator()), 10_000));
+  }
+
+  /**
+   * Closing the output of the {@link AggregationEvaluator.GroupingStrategy#SORT} strategy before it's exhausted
+   * should delete the sorted runs that were spilled to disk.
+   */
+  public void testSortGroupingClose() throws Exception {
+    AggregationOperation op = new AggregationOperation(new RelationalValue(sales.getSchema()),
+        new AggregationOperation.Params(ImmutableSet.of("region", "product"), asList(
+            new AggregationSpec(Count.class, "*"),
+            new AggregationSpec(Sum.class, "quantity"))));
+    TempFileRegistry tempFileRegistry = TempFileRegistry.getInstance();
+    int registrySizeBefore = tempFileRegistry.size();
+    StreamingRelation result = new AggregationEvaluator(op, new ValueEvaluator<>(sales))
+        .setGroupingStrategy(AggregationEvaluator.GroupingStrategy.SORT).setSortMemoryBudget(10_000).call();
+    assertTrue(result.iterator().hasNext());
+    assertTrue(tempFileRegistry.size() > registrySizeBefore);  // the runs haven't been deleted yet
+    result.close();
+    assertEquals(registrySizeBefore, tempFileRegistry.size());
+  }
+
+  /**
+   * The {@link AggregationEvaluator.GroupingStrategy#SORT} strategy should spill only the columns used by the
+   * aggregation, and fall back to {@link AggregationEvaluator.GroupingStrategy#HASH} if any of them are not serializable.
+   */
+  public void testSortGroupingWithNonSerializableColumn() throws Exception {
+    List<TaggedSale> list = new ArrayList<>();
+    for (Row row : sales)
+      list.add(new TaggedSale((String)row.getValue("region"), (Integer)row.getValue("quantity"), new Tag(list.size() % 7)));
+    MaterializedRelation taggedSales = QueryBuilder.createORM(TaggedSale.class, list);
+    // the tag column is not used by this aggregation, so it won't be spilled
+    AggregationOperation op = new AggregationOperation(new RelationalValue(taggedSales.getSchema()),
+        new AggregationOperation.Params(ImmutableSet.of("region"), asList(
+            new AggregationSpec(Count.class, "*"),
+            new AggregationSpec(Sum.class, "quantity"))));
+    List<List<Object>> expected = eval(op, taggedSales, Integer.MAX_VALUE);
+    assertEquals(4, expected.size());
+    expected.sort(Comparator.comparing((List<Object> group) -> (String)group.get(0)));
+    assertEquals(expected, evalSorted(op, taggedSales, 10_000));
+    // but this one uses the tag column, so the groups should be computed with a hash table (in the order of their first occurrence)
+    op = new AggregationOperation(new RelationalValue(taggedSales.getSchema()),
+        new AggregationOperation.Params(ImmutableSet.of("region"), asList(
+            new AggregationSpec(Sum.class, "quantity"),
+            new AggregationSpec(ApproxCountDistinct.class, "tag"))));
+    expected = eval(op, taggedSales, Integer.MAX_VALUE);
+    assertEquals(4, expected.size());
+    assertEquals(expected, evalSorted(op, taggedSales, 10_000));
+  }
+
+  public void testGlobalAggregation() throws Exception {
+    // without any grouping attrs
+    AggregationOperation op = new AggregationOperation(new RelationalValue(sales.getSchema()),
+        new AggregationOperation.Params(Collections.<String>emptySet(), asList(
+            new AggregationSpec(Count.class, "*"),
+            new AggregationSpec(Sum.class, "quantity"))));
+    List<List<Object>> expected = eval(op, sales, Integer.MAX_VALUE);
+    assertEquals(1, expected.size());
+    assertEquals(sales.size(), expected.get(0).get(0));
+    assertEquals(expected, eval(op, sales, 1000));
+  }
+
+  private List<List<Object>> eval(AggregationOperation op, Relation input, int parallelThreshold) throws Exception {
+    return getValues(new AggregationEvaluator(op, new ValueEvaluator<>(input))
+        .setPool(pool).setParallelThreshold(parallelThreshold).call());
+  }
+
+  private List<List<Object>> evalSorted(AggregationOperation op, Relation input, int memoryBudget) throws Exception {
+    return getValues(new AggregationEvaluator(op, new ValueEvaluator<>(input))
+        .setGroupingStrategy(AggregationEvaluator.GroupingStrategy.SORT).setSortMemoryBudget(memoryBudget).call());
+  }
+
+  private static List<List<Object>> getValues(Relation result) {
+    List<String> colNames = result.getSchema().getColNames();
+    List<List<Object>> ret = new ArrayList<>();
+    for (Row row : result) {
+      List<Object> values = new ArrayList<>(row.getValues(colNames));
+      for (int i = 0; i < values.size(); i++) {
+        if (values.get(i) instanceof Double)  // the floating-point results can differ slightly depending on the order of summation
+          values.set(i, Math.round((Double)values.get(i) * 1000) / 1000d);
+      }
+      ret.add(values);
+    }
+    return ret;
+  }
+}
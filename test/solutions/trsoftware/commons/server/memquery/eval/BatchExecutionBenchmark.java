@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.gwt.core.shared.GwtIncompatible;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.aggregations.Avg;
+import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+import solutions.trsoftware.commons.server.memquery.expressions.BooleanBinaryOperator;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueComparison;
+import solutions.trsoftware.commons.server.memquery.expressions.CompoundRowPredicate;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the throughput of evaluating the same query pipelines one row at a time ({@code batchSize = 0})
+ * and in batches of rows (see {@link BatchedRelation}).
+ * <p>
+ * Only the selections, projections, and the input side of a sequential aggregation process whole batches;
+ * joins and aggregations emit their output one row at a time in either mode.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+@GwtIncompatible
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1)
+@Fork(value = 1, warmups = 1)
+@Measurement(time = 3)
+public class BatchExecutionBenchmark {
+
+  /** Dummy data model class for the "fact" relation */
+  public static class Score {
+    private String uid;
+    private String modelId;
+    private int gameNumber;
+    private double score;
+
+    Score(String uid, String modelId, int gameNumber, double score) {
+      this.uid = uid;
+      this.modelId = modelId;
+      this.gameNumber = gameNumber;
+      this.score = score;
+    }
+  }
+
+  /** Dummy data model class for the "dimension" relation */
+  public static class User {
+    private String uid;
+    private String name;
+
+    User(String uid, String name) {
+      this.uid = uid;
+      this.name = name;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkConfig {
+
+    @Param({"0", "1024"})
+    public int batchSize;
+
+    @Param({"100000"})
+    public int nRows;
+
+    MaterializedRelation scores;
+    MaterializedRelation users;
+
+    @Setup
+    public void setUp() {
+      Random rnd = new Random(1);
+      int nUsers = 1000;
+      String[] models = {"foo", "bar", "baz"};
+      List<Score> scoreList = new ArrayList<>(nRows);
+      for (int i = 0; i < nRows; i++) {
+        scoreList.add(new Score("u" + rnd.nextInt(nUsers), models[rnd.nextInt(models.length)],
+            rnd.nextInt(20), rnd.nextDouble() * 100));
+      }
+      List<User> userList = new ArrayList<>(nUsers);
+      for (int i = 0; i < nUsers; i++)
+        userList.add(new User("u" + i, "User" + i));
+      scores = QueryBuilder.createORM(Score.class, scoreList);
+      users = QueryBuilder.createORM(User.class, userList);
+    }
+
+    QueryBuilder fromScores() {
+      return new QueryBuilder().from(scores).setBatchSize(batchSize);
+    }
+  }
+
+  /**
+   * Rename &rarr; Selection &rarr; Projection
+   */
+  @Benchmark
+  public void filterProject(BenchmarkConfig config, Blackhole blackhole) {
+    run(config.fromScores().select("uid", "modelId", "score")
+        .where(new CompoundRowPredicate(
+            new ColValueComparison<>("gameNumber", ComparisonOperator.GE, 5),
+            BooleanBinaryOperator.AND,
+            new ColValueComparison<>("score", ComparisonOperator.LT, 90.0))), blackhole);
+  }
+
+  /**
+   * Join &rarr; Rename &rarr; Selection &rarr; Projection
+   */
+  @Benchmark
+  public void joinFilterProject(BenchmarkConfig config, Blackhole blackhole) {
+    run(config.fromScores().naturalJoin().from(config.users)
+        .select("name", "modelId", "score")
+        .where(new ColValueComparison<>("gameNumber", ComparisonOperator.GE, 5)), blackhole);
+  }
+
+  /**
+   * Rename &rarr; Selection &rarr; Aggregation &rarr; Projection
+   */
+  @Benchmark
+  public void filterAggregate(BenchmarkConfig config, Blackhole blackhole) {
+    run(config.fromScores().select("uid", "modelId")
+        .selectAggregatedCol(Count.class, "*")
+        .selectAggregatedCol(Avg.class, "score")
+        .where(new ColValueComparison<>("gameNumber", ComparisonOperator.GE, 5))
+        .groupBy("uid", "modelId"), blackhole);
+  }
+
+  /**
+   * Evaluates the given query without sorting or materializing its results.
+   */
+  private static void run(QueryBuilder queryBuilder, Blackhole blackhole) {
+    Relation result = queryBuilder.boundQuery().evalAsUnsortedStream();
+    if (result instanceof BatchedRelation) {
+      Iterator<RowBatch> batches = ((BatchedRelation)result).batchIterator();
+      while (batches.hasNext()) {
+        RowBatch batch = batches.next();
+        for (int i = 0, n = batch.count(); i < n; i++)
+          blackhole.consume(batch.get(i));
+      }
+    }
+    else {
+      for (Row row : result)
+        blackhole.consume(row);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that {@link HashJoinEvaluator} produces the same results as the nested loop join algorithm
+ * implemented by {@link StreamingJoinEvaluator}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class HashJoinEvaluatorTest extends MemQueryTestCase {
+
+  public void testNaturalJoin() throws Exception {
+    RelationalValue scores = new RelationalValue(scoreRelation.getSchema());
+    RelationalValue users = new RelationalValue(userRelation.getSchema());
+    for (Join.Type type : Join.Type.values()) {
+      checkJoin(new NaturalJoin(scores, users, type), new ValueEvaluator<>(scoreRelation), new ValueEvaluator<>(userRelation));
+      checkJoin(new NaturalJoin(users, scores, type), new ValueEvaluator<>(userRelation), new ValueEvaluator<>(scoreRelation));
+    }
+  }
+
+  /**
+   * Tests a self-join on multiple columns
+   */
+  public void testMultiColumnEquiJoin() throws Exception {
+    RelationalValue scores = new RelationalValue(scoreRelation.getSchema());
+    Rename scores2 = new Rename(scores, "Score2", ImmutableMap.of("gameNumber", "gameNumber2", "score", "score2"));
+    for (Join.Type type : Join.Type.values()) {
+      EquiJoin join = new EquiJoin(scores, scores2,
+          new EquiJoin.Params(type, ImmutableBiMap.of("uid", "uid", "modelId", "modelId")));
+      List<List<Object>> rows = checkJoin(join,
+          new ValueEvaluator<>(scoreRelation), (RelationalEvaluator)new StreamingUnaryEvaluator(scores2, new ValueEvaluator<>(scoreRelation)));
+      // each (uid, modelId) group of size k contributes k^2 rows to the result
+      assertEquals(3*3 + 2*2 + 2*2 + 5*5 + 1 + 1 + 1, rows.size());
+    }
+  }
+
+  /**
+   * The unmatched RHS rows of an outer join should be emitted in the order of their join columns,
+   * like with {@link StreamingJoinEvaluator}, which sorts the RHS.
+   */
+  public void testUnmatchedRightRowsOrder() throws Exception {
+    RelationSchema userSchema = userRelation.getSchema();
+    List<Row> userRows = new ArrayList<>();
+    for (String uid : new String[]{"f", "b", "e", "d", "a", "e"}) {
+      MutableRow row = RowFactory.getInstance().newRow(userSchema);
+      row.setValue("uid", uid);
+      row.setValue("name", uid + userRows.size());
+      userRows.add(row);
+    }
+    ArrayListRelation unsortedUsers = new ArrayListRelation(userSchema, userRows.iterator());
+    RelationalValue scores = new RelationalValue(scoreRelation.getSchema());
+    RelationalValue users = new RelationalValue(userSchema);
+    for (Join.Type type : new Join.Type[]{Join.Type.RIGHT_OUTER, Join.Type.FULL_OUTER}) {
+      List<List<Object>> rows = checkJoin(new NaturalJoin(scores, users, type),
+          new ValueEvaluator<>(scoreRelation), new ValueEvaluator<>(unsortedUsers));
+      List<Object> unmatchedNames = new ArrayList<>();
+      for (List<Object> row : rows.subList(rows.size() - 4, rows.size()))
+        unmatchedNames.add(row.get(row.size() - 1));
+      assertEquals(Arrays.asList("d3", "e2", "e5", "f0"), unmatchedNames);
+    }
+  }
+
+  /**
+   * Asserts that the given join evaluates to the same result with both {@link HashJoinEvaluator}
+   * and {@link StreamingJoinEvaluator}.
+   * @return the values of the result rows
+   */
+  private static List<List<Object>> checkJoin(EquiJoin join, RelationalEvaluator<Relation> lhs, RelationalEvaluator<Relation> rhs) throws Exception {
+    List<List<Object>> expected = getValues(new StreamingJoinEvaluator<>(join, lhs, rhs).call());
+    List<List<Object>> actual = getValues(new HashJoinEvaluator(join, lhs, rhs).call());
+    assertEquals(expected, actual);
+    return actual;
+  }
+
+  private static List<List<Object>> getValues(Relation relation) {
+    List<String> colNames = relation.getSchema().getColNames();
+    List<List<Object>> ret = new ArrayList<>();
+    for (Row row : relation) {
+      ret.add(row.getValues(colNames));
+    }
+    return ret;
+  }
+}
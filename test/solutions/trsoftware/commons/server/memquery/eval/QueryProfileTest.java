@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.MemQueryTestCase;
+import solutions.trsoftware.commons.server.memquery.QueryBuilder;
+import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QueryProfileTest extends MemQueryTestCase {
+
+  public void testExplainAnalyze() throws Exception {
+    QueryProfile profile = new QueryBuilder()
+        .from(scoreRelation).naturalJoin().from(userRelation)
+        .select("name").selectAggregatedCol(Count.class, "*").groupBy("name").sortBy("name")
+        .boundQuery().explainAnalyze();
+    profile.print(System.out);
+    assertEquals(2, profile.getRowCount());  // only Amy and Ben have scores
+    List<EvaluatorStats> operators = profile.getOperators();
+    // the root is the final sort step
+    EvaluatorStats root = operators.get(0);
+    assertTrue(root.getOperation(), root.getOperation().startsWith("Sort"));
+    assertEquals(2, root.getRowsOut());
+    EvaluatorStats join = null, aggregation = null;
+    for (EvaluatorStats op : operators) {
+      assertTrue(op.getWallTimeNanos() >= op.getSelfWallTimeNanos());
+      if (op.getOperation().contains("Join"))
+        join = op;
+      else if (op.getOperation().startsWith("Aggregation"))
+        aggregation = op;
+    }
+    assertNotNull(join);
+    assertEquals(scoreRelation.size() + userRelation.size(), join.getRowsIn());
+    assertEquals(12, join.getRowsOut());
+    assertTrue(join.getPeakTableSize() > 0);
+    assertNotNull(aggregation);
+    assertEquals(12, aggregation.getRowsIn());
+    assertEquals(2, aggregation.getRowsOut());
+    assertEquals(2, aggregation.getPeakTableSize());
+    assertTrue(profile.getPlan().contains("peak table size: 2"));
+
+    // the profile should be accessible over JMX
+    QueryProfiler profiler = QueryProfiler.getInstance();
+    assertSame(profile, profiler.getLastProfile());
+    Object recentProfiles = ManagementFactory.getPlatformMBeanServer().getAttribute(
+        new ObjectName(QueryProfiler.OBJECT_NAME), "RecentProfiles");
+    assertEquals(profiler.getRecentProfiles().size(), ((Object[])recentProfiles).length);
+  }
+}
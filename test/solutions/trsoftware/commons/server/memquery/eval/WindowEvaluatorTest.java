@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.window.FrameAggregate;
+import solutions.trsoftware.commons.server.memquery.window.WindowSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static solutions.trsoftware.commons.server.memquery.window.WindowFunction.*;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class WindowEvaluatorTest extends TestCase {
+
+  /** A dummy data model class for testing */
+  private static class Reading {
+    private final String sensor;
+    private final int t;
+    private final Double value;
+    private final int level;
+
+    private Reading(String sensor, int t, Double value, int level) {
+      this.sensor = sensor;
+      this.t = t;
+      this.value = value;
+      this.level = level;
+    }
+  }
+
+  private MaterializedRelation readings;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // the input is not ordered by sensor or time
+    readings = QueryBuilder.createORM(Reading.class, Arrays.asList(
+        new Reading("b", 2, null, 1),
+        new Reading("a", 3, 30d, 2),
+        new Reading("a", 1, 10d, 1),
+        new Reading("b", 1, 5d, 1),
+        new Reading("a", 4, 40d, 3),
+        new Reading("b", 3, 15d, 2),
+        new Reading("a", 2, 20d, 2)
+    ));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    readings = null;
+    super.tearDown();
+  }
+
+  public void testRanking() throws Exception {
+    WindowSpec byLevel = new WindowSpec().partitionBy("sensor").orderBy("-level");
+    QueryBuilder qb = new QueryBuilder().from(readings).select("sensor", "t")
+        .selectWindowFunctionAs(rank(), byLevel, "rank")
+        .selectWindowFunctionAs(denseRank(), byLevel, "denseRank")
+        .selectWindowFunctionAs(rowNumber(), new WindowSpec().partitionBy("sensor").orderBy("t"), "rowNum")
+        .sortBy("sensor", "t");
+    assertEquals(asList(
+        asList("a", 1, 4, 3, 1),
+        asList("a", 2, 2, 2, 2),
+        asList("a", 3, 2, 2, 3),
+        asList("a", 4, 1, 1, 4),
+        asList("b", 1, 2, 2, 1),
+        asList("b", 2, 2, 2, 2),
+        asList("b", 3, 1, 1, 3)
+    ), eval(qb));
+    // without partitioning, the entire input is a single partition
+    qb = new QueryBuilder().from(readings).select("sensor", "t")
+        .selectWindowFunctionAs(rank(), new WindowSpec().orderBy("level"), "rank")
+        .sortBy("sensor", "t");
+    assertEquals(asList(
+        asList("a", 1, 1),
+        asList("a", 2, 4),
+        asList("a", 3, 4),
+        asList("a", 4, 7),
+        asList("b", 1, 1),
+        asList("b", 2, 1),
+        asList("b", 3, 4)
+    ), eval(qb));
+  }
+
+  public void testFrameAggregates() throws Exception {
+    WindowSpec byTime = new WindowSpec().partitionBy("sensor").orderBy("t");
+    QueryBuilder qb = new QueryBuilder().from(readings).select("sensor", "t")
+        .selectWindowFunctionAs(runningSum("value"), byTime, "sum")
+        .selectWindowFunctionAs(movingAvg("value", 2), byTime, "avg2")
+        .selectWindowFunctionAs(frameAggregate(FrameAggregate.Type.MIN, "value", 2), byTime, "min2")
+        .selectWindowFunctionAs(frameAggregate(FrameAggregate.Type.MAX, "value", 2), byTime, "max2")
+        .selectWindowFunctionAs(frameAggregate(FrameAggregate.Type.COUNT, "value", 2), byTime, "count2")
+        .sortBy("sensor", "t");
+    assertEquals(asList(
+        asList("a", 1, 10d, 10d, 10d, 10d, 1),
+        asList("a", 2, 30d, 15d, 10d, 20d, 2),
+        asList("a", 3, 60d, 25d, 20d, 30d, 2),
+        asList("a", 4, 100d, 35d, 30d, 40d, 2),
+        asList("b", 1, 5d, 5d, 5d, 5d, 1),
+        asList("b", 2, 5d, 5d, 5d, 5d, 1),  // null values are ignored
+        asList("b", 3, 20d, 15d, 15d, 15d, 1)
+    ), eval(qb));
+  }
+
+  public void testSlidingMinMax() throws Exception {
+    FrameAggregate<Double> min = new FrameAggregate<>(FrameAggregate.Type.MIN, "value", 3);
+    FrameAggregate<Double> max = new FrameAggregate<>(FrameAggregate.Type.MAX, "value", 3);
+    double[] values = {5, 3, 4, 8, 1, 1, 7, 2, 9, 6};
+    List<Reading> list = new ArrayList<>();
+    for (int i = 0; i < values.length; i++)
+      list.add(new Reading("a", i, values[i], 0));
+    QueryBuilder qb = new QueryBuilder().from(QueryBuilder.createORM(Reading.class, list)).select("t")
+        .selectWindowFunctionAs(min, new WindowSpec().orderBy("t"), "min")
+        .selectWindowFunctionAs(max, new WindowSpec().orderBy("t"), "max")
+        .sortBy("t");
+    List<List<Object>> result = eval(qb);
+    for (int i = 0; i < values.length; i++) {
+      double expectedMin = Double.MAX_VALUE, expectedMax = -Double.MAX_VALUE;
+      for (int j = Math.max(0, i - 2); j <= i; j++) {
+        expectedMin = Math.min(expectedMin, values[j]);
+        expectedMax = Math.max(expectedMax, values[j]);
+      }
+      assertEquals(asList(i, expectedMin, expectedMax), result.get(i));
+    }
+  }
+
+  public void testLagAndLead() throws Exception {
+    WindowSpec byTime = new WindowSpec().partitionBy("sensor").orderBy("t");
+    QueryBuilder qb = new QueryBuilder().from(readings).select("sensor", "t")
+        .selectWindowFunctionAs(lag("value", 1), byTime, "prev")
+        .selectWindowFunctionAs(lead("value", 1), byTime, "next")
+        .selectWindowFunctionAs(lag("t", 2), byTime, "prevT2")
+        .selectWindowFunctionAs(lead("t", 3), byTime, "nextT3")
+        .sortBy("sensor", "t");
+    assertEquals(asList(
+        asList("a", 1, null, 20d, null, 4),
+        asList("a", 2, 10d, 30d, null, null),
+        asList("a", 3, 20d, 40d, 1, null),
+        asList("a", 4, 30d, null, 2, null),
+        asList("b", 1, null, null, null, null),
+        asList("b", 2, 5d, 15d, null, null),
+        asList("b", 3, null, null, 1, null)
+    ), eval(qb));
+  }
+
+  public void testToString() throws Exception {
+    WindowSpec spec = new WindowSpec().partitionBy("sensor").orderBy("-t");
+    assertEquals("PARTITION BY sensor ORDER BY t DESC", spec.toString());
+    assertEquals(spec, new WindowSpec().orderBy("-t").partitionBy("sensor"));
+    MemQuery query = new QueryBuilder().from(readings).select("t").selectWindowFunction(runningSum("value"), spec).query();
+    assertTrue(query.toString(), query.toString().contains("SUM(value) OVER (PARTITION BY sensor ORDER BY t DESC) AS 'SUM(value)'"));
+  }
+
+  private List<List<Object>> eval(QueryBuilder qb) {
+    BoundQuery query = qb.boundQuery();
+    ResultSet resultSet = query.eval();
+    List<String> colNames = resultSet.getSchema().getColNames();
+    List<List<Object>> ret = new ArrayList<>();
+    for (Row row : resultSet)
+      ret.add(row.getValues(colNames));
+    return ret;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.expressions;
+
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static solutions.trsoftware.commons.server.memquery.expressions.RowPredicate.and;
+import static solutions.trsoftware.commons.server.memquery.expressions.RowPredicate.or;
+import static solutions.trsoftware.commons.shared.util.compare.ComparisonOperator.*;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class CompiledRowPredicateTest extends MemQueryTestCase {
+
+  private final List<RowPredicate> predicates = Arrays.asList(
+      new ColValueComparison<>("uid", EQ, "b"),
+      new ColValueComparison<>("gameNumber", GE, 2),  // compared as an int
+      new ColValueComparison<>("score", LT, 60.0),  // compared as a double
+      new ColValueIn<>("modelId", Arrays.asList("bar", "baz")),
+      new IsNull("uid"),
+      new IsNotNull("score"),
+      ConstantPredicate.TRUE,
+      ConstantPredicate.FALSE,
+      and(new ColValueComparison<>("uid", NE, "a"), or(new ColValueComparison<>("gameNumber", EQ, 1), new ColValueIn<>("modelId", Arrays.asList("foo")))),
+      new CompoundRowPredicate(new ColValueComparison<>("score", GT, 70.0), BooleanBinaryOperator.OR, new ColValueComparison<>("score", LE, 30.0)),
+      // an expression that can't be compiled into a method handle chain
+      new RowPredicate() {
+        @Override
+        public Boolean apply(Row row) {
+          return row.<Integer>getValue("gameNumber") % 2 == 0;
+        }
+      }
+  );
+
+  public void testObjectRows() throws Exception {
+    checkPredicates(scoreRelation);
+  }
+
+  public void testRowImpl() throws Exception {
+    checkPredicates(copy(scoreRelation));
+  }
+
+  /**
+   * Checks that the same predicate instance can be applied to rows with different schemas.
+   */
+  public void testSchemaChange() throws Exception {
+    MaterializedRelation copy = copy(scoreRelation);
+    for (RowPredicate predicate : predicates) {
+      CompiledRowPredicate compiled = CompiledRowPredicate.compile(predicate);
+      for (int i = 0; i < copy.size(); i++) {
+        Row objectRow = scoreRelation.getRows().get(i);
+        Row row = copy.getRows().get(i);
+        assertEquals(predicate.toString(), predicate.apply(objectRow).booleanValue(), compiled.test(objectRow));
+        assertEquals(predicate.toString(), predicate.apply(row).booleanValue(), compiled.test(row));
+      }
+    }
+  }
+
+  public void testNullValues() throws Exception {
+    RelationSchema schema = new RelationSchema("Nulls", Arrays.asList(new NameAccessorColSpec<>("x", String.class)));
+    MutableRow row = RowFactory.getInstance().newRow(schema);
+    assertTrue(CompiledRowPredicate.compile(new IsNull("x")).test(row));
+    assertFalse(CompiledRowPredicate.compile(new IsNotNull("x")).test(row));
+    assertFalse(CompiledRowPredicate.compile(new ColValueIn<>("x", Arrays.asList("a"))).test(row));
+    // a comparison with a null value should throw an exception just like the original predicate
+    try {
+      CompiledRowPredicate.compile(new ColValueComparison<>("x", EQ, "a")).test(row);
+      fail("Expected NPE");
+    }
+    catch (NullPointerException expected) {
+    }
+    row.setValue(0, "a");
+    assertTrue(CompiledRowPredicate.compile(new ColValueComparison<>("x", EQ, "a")).test(row));
+  }
+
+  private void checkPredicates(MaterializedRelation relation) {
+    for (RowPredicate predicate : predicates) {
+      CompiledRowPredicate compiled = CompiledRowPredicate.compile(predicate);
+      assertSame(compiled, CompiledRowPredicate.compile(compiled));
+      assertSame(predicate, compiled.getPredicate());
+      int nMatches = 0;
+      for (Row row : relation) {
+        boolean expected = predicate.apply(row);
+        assertEquals(predicate.toString(), expected, compiled.test(row));
+        assertEquals(predicate.toString(), Boolean.valueOf(expected), compiled.apply(row));
+        if (expected)
+          nMatches++;
+      }
+      System.out.printf("%s: %d matches%n", compiled, nMatches);
+    }
+  }
+
+  /**
+   * @return a copy of the given relation, containing {@link RowImpl} instances instead of {@link ObjectRow}
+   */
+  private static MaterializedRelation copy(MaterializedRelation relation) {
+    List<ColSpec> colSpecs = new ArrayList<>();
+    for (ColSpec colSpec : relation.getSchema())
+      colSpecs.add(new NameAccessorColSpec<>(colSpec));
+    RelationSchema schema = new RelationSchema(relation.getSchema().getName(), colSpecs);
+    List<Row> rows = new ArrayList<>();
+    for (Row row : relation)
+      rows.add(RowFactory.getInstance().transformRow(schema, row));
+    return new ArrayListRelation(schema, rows.iterator());
+  }
+}
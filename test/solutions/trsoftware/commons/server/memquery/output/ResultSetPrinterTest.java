@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.output;
+
+import solutions.trsoftware.commons.server.io.ServerIOUtils;
+import solutions.trsoftware.commons.server.io.StringPrintStream;
+import solutions.trsoftware.commons.shared.util.StringUtils;
+import solutions.trsoftware.commons.server.memquery.*;
+
+/**
+ * Checks that printing a streaming relation produces the same output as printing the materialized {@link ResultSet}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ResultSetPrinterTest extends MemQueryTestCase {
+
+  public void testStreamingPrint() throws Exception {
+    BoundQuery boundQuery = fromScore().select("uid", "modelId", "score").sortBy("-score").boundQuery();
+    MemQuery query = boundQuery.getQuery();
+    ResultSet resultSet = boundQuery.eval();
+    for (ResultSetPrinter printer : new ResultSetPrinter[]{
+        new CsvPrinter(),
+        new HtmlTablePrinter(),
+        new FixedWidthPrinter().setBordersEnabled(true),
+        new FixedWidthPrinter().setPreambleEnabled(true)}) {
+      String expected = print(printer, query, resultSet);
+      String actual = print(printer, query, query.evalAsStream(boundQuery.getInputBindings()));
+      System.out.println(actual);
+      assertEquals(expected, actual);
+    }
+  }
+
+  public void testFixedWidthSample() throws Exception {
+    MemQuery query = fromUser().select("name").query();
+    // the width of the column will be computed from the first 2 rows
+    FixedWidthPrinter printer = new FixedWidthPrinter().setSampleSize(2)
+        .setHeaderRowEnabled(false).setOrdinalColEnabled(false).setCellHorizontalPadding(0);
+    String output = print(printer, query, query.evalAsStream(userRelation));
+    System.out.println(output);
+    // the last row has a value wider than the sample, which overflows its column
+    assertEquals(joinLines("Amy ", "Ben ", "Dick "), output);
+    // a MaterializedRelation is always scanned in full
+    assertEquals(joinLines(" Amy ", " Ben ", "Dick "), print(printer, query, query.eval(userRelation)));
+    // declared widths don't require a sample
+    query = fromScore().select("uid", "score").sortBy("score").query();
+    printer = new FixedWidthPrinter().setSampleSize(0).setOrdinalColEnabled(false).setCellHorizontalPadding(0)
+        .setColWidth(0, 4).setColWidth(1, 6);
+    String[] lines = print(printer, query, query.evalAsStream(scoreRelation)).split("\\R");
+    assertEquals(16, lines.length);
+    assertEquals(" uid  score ", lines[0]);
+    assertEquals("   a     20 ", lines[1]);
+  }
+
+  /**
+   * Checks that the {@link ResultSetPrinter#formatValue(Object, int)} method can be overridden by subclasses.
+   */
+  public void testFormatValueOverride() throws Exception {
+    MemQuery query = fromScore().select("uid", "score").sortBy("score").setLimit(2).query();
+    CsvPrinter printer = new CsvPrinter() {
+      @Override
+      protected String formatValue(Object value, int colIndex) {
+        return colIndex == 1 ? "<" + super.formatValue(value, colIndex) + ">" : super.formatValue(value, colIndex);
+      }
+    }.setHeaderRowEnabled(false).setOrdinalColEnabled(false);
+    assertEquals(joinLines("a,<20>", "a,<30>"), print(printer, query, query.evalAsStream(scoreRelation)));
+  }
+
+  private static String joinLines(String... rows) {
+    return StringUtils.join(ServerIOUtils.LINE_SEPARATOR, rows) + ServerIOUtils.LINE_SEPARATOR;
+  }
+
+  private static String print(ResultSetPrinter printer, MemQuery query, Relation results) {
+    StringPrintStream out = new StringPrintStream();
+    printer.print(query, results, out);
+    return out.toString();
+  }
+}
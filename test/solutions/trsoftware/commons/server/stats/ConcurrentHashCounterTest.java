@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.shared.annotations.Slow;
+import solutions.trsoftware.commons.shared.util.stats.HashCounter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ConcurrentHashCounterTest extends TestCase {
+
+  public void testCounter() throws Exception {
+    ConcurrentHashCounter<String> counter = new ConcurrentHashCounter<>();
+    assertEquals(0, counter.sumOfAllEntries());
+    counter.increment("a");
+    counter.increment("a");
+    counter.add("b", 5);
+    counter.add("c", 3);
+    counter.add("a", -1);
+    assertEquals(1, counter.get("a"));
+    assertEquals(5, counter.get("b"));
+    assertEquals(3, counter.get("c"));
+    assertEquals(0, counter.get("x"));
+    assertEquals(3, counter.size());
+    assertEquals(9, counter.sumOfAllEntries());
+    assertEquals(ImmutableMap.of("a", 1L, "b", 5L, "c", 3L), counter.asMap());
+    assertEquals(5. / 9, counter.probabilityOf("b"), .001);
+    assertEquals(Arrays.asList(Maps.immutableEntry("b", 5L), Maps.immutableEntry("c", 3L)), counter.topN(2));
+    assertEquals(3, counter.topN(10).size());
+
+    // merging
+    ConcurrentHashCounter<String> other = new ConcurrentHashCounter<>();
+    other.add("a", 10);
+    other.increment("d");
+    counter.merge(other);
+    assertEquals(ImmutableMap.of("a", 11L, "b", 5L, "c", 3L, "d", 1L), counter.asMap());
+    assertEquals(20, counter.sumOfAllEntries());
+    HashCounter<String> hashCounter = counter.toHashCounter();
+    assertEquals(20, hashCounter.sumOfAllEntries());
+    assertEquals(11, hashCounter.get("a"));
+    counter.merge(hashCounter);
+    assertEquals(40, counter.sumOfAllEntries());
+    assertEquals(22, counter.get("a"));
+
+    counter.clear();
+    assertEquals(0, counter.size());
+    assertEquals(0, counter.sumOfAllEntries());
+  }
+
+  public void testCollector() throws Exception {
+    ConcurrentHashCounter<Integer> counter = Stream.of(1, 2, 2, 3, 3, 3).parallel().collect(new ConcurrentHashCounter<Integer>().getCollector());
+    assertEquals(ImmutableMap.of(1, 1L, 2, 2L, 3, 3L), counter.asMap());
+  }
+
+  public void testTable() throws Exception {
+    ConcurrentHashCounterTable<String, Integer> table = new ConcurrentHashCounterTable<>();
+    table.increment("a", 1);
+    table.add("a", 2, 4);
+    table.add("b", 1, 2);
+    assertEquals(1, table.getValue("a", 1));
+    assertEquals(4, table.getValue("a", 2));
+    assertEquals(0, table.getValue("b", 2));
+    assertEquals(0, table.getValue("c", 1));
+    assertEquals(5, table.getValue("a"));
+    assertEquals(0, table.getValue("c"));
+    ConcurrentHashCounterTable<String, Integer> other = new ConcurrentHashCounterTable<>();
+    other.add("b", 1, 3);
+    other.increment("c", 5);
+    table.merge(other);
+    assertEquals(ImmutableMap.of(
+        "a", ImmutableMap.of(1, 1L, 2, 4L),
+        "b", ImmutableMap.of(1, 5L),
+        "c", ImmutableMap.of(5, 1L)
+    ), table.asMap());
+    assertEquals(table.asMap().get("b"), table.toHashCounterTable().asMap().get("b").entrySet().stream()
+        .collect(ImmutableMap.toImmutableMap(e -> e.getKey(), e -> (long)e.getValue())));
+  }
+
+  @Slow
+  public void testMultithreaded() throws Exception {
+    ConcurrentHashCounter<String> counter = new ConcurrentHashCounter<>();
+    ConcurrentHashCounterTable<String, String> table = new ConcurrentHashCounterTable<>();
+    String[] keys = {"a", "b", "c", "d", "e"};
+    AtomicInteger[] expected = new AtomicInteger[keys.length];
+    for (int i = 0; i < keys.length; i++)
+      expected[i] = new AtomicInteger();
+    Collection<Throwable> errors = new MultithreadedTestHarness(() -> {
+      int i = ThreadLocalRandom.current().nextInt(keys.length);
+      counter.increment(keys[i]);
+      table.increment(keys[i], keys[(i + 1) % keys.length]);
+      expected[i].incrementAndGet();
+    }).run(50, 20_000);
+    assertTrue(errors.toString(), errors.isEmpty());
+    long total = 0;
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(expected[i].get(), counter.get(keys[i]));
+      assertEquals(expected[i].get(), table.getValue(keys[i], keys[(i + 1) % keys.length]));
+      total += expected[i].get();
+    }
+    assertEquals(total, counter.sumOfAllEntries());
+    assertEquals(50 * 20_000, total);
+  }
+}
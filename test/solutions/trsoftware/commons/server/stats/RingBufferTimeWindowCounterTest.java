@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.shared.util.time.Clock;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class RingBufferTimeWindowCounterTest extends TestCase {
+  private long maxAgeMillis = TimeUnit.HOURS.toMillis(1);
+
+  @Override
+  protected void tearDown() throws Exception {
+    Clock.resetToNormal(); // make sure to leave the clock in an un-tampered state
+    super.tearDown();
+  }
+
+  public void testGranularity() throws Exception {
+    doGranularityTest(TimeUnit.SECONDS.toMillis(1));
+    doGranularityTest(TimeUnit.MINUTES.toMillis(1));
+    doGranularityTest(TimeUnit.MINUTES.toMillis(2));
+    doGranularityTest(15);
+    assertInvalidGranularity(11); // 11 ms doesn't evenly divide 1 hour
+    assertInvalidGranularity(-1); // negative and zero values not allowed
+    assertInvalidGranularity(0);
+    assertInvalidGranularity(maxAgeMillis); // granularity must be smaller than maxAgeMillis
+  }
+
+  private void assertInvalidGranularity(long granularity) {
+    try {
+      new RingBufferTimeWindowCounter("Test", maxAgeMillis, granularity);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  private void doGranularityTest(long granularity) throws Exception {
+    Clock.resetToNormal();
+    Clock.stop();
+    RingBufferTimeWindowCounter counter = new RingBufferTimeWindowCounter("Test", maxAgeMillis, granularity);
+    // align the clock to the next granularity boundary
+    Clock.advance(granularity - Clock.currentTimeMillis() % granularity, TimeUnit.MILLISECONDS);
+    long startTime = Clock.currentTimeMillis();
+
+    // count a few things
+    counter.incr();
+    counter.incr();
+    assertEquals(2, counter.getCount());
+    Clock.advance(granularity / 5, TimeUnit.MILLISECONDS);
+    counter.add(5);
+    assertEquals(7, counter.getCount());
+    Clock.advance(granularity / 2, TimeUnit.MILLISECONDS);
+    counter.add(-3);
+    final int sum1 = counter.getCount();
+    assertEquals(4, sum1);  // during this time interval, we have net value 4
+    assertEquals(1, counter.size());  // they're all contained in one bucket
+
+    // add some values later in time
+    Clock.set(startTime + granularity + 1, 0);
+    counter.incr();
+    Clock.advance(granularity / 3, TimeUnit.MILLISECONDS);
+    counter.add(-2);
+    final int sum2 = -1;  // net -1 during this interval
+    assertEquals(sum1+sum2, counter.getCount());
+    assertEquals(2, counter.size());
+
+    // advance the clock so that the first bucket expires
+    Clock.set(startTime + maxAgeMillis, 0);
+    assertEquals(sum2, counter.getCount());  // only the value from the second batch should remain
+    assertEquals(1, counter.size());
+
+    // now advance the clock so that everything expires
+    Clock.advance(granularity, TimeUnit.MILLISECONDS);
+    assertEquals(0, counter.getCount());
+    assertEquals(0, counter.size());
+
+    // the buckets should be reused after they expire
+    counter.add(3);
+    assertEquals(3, counter.getCount());
+    assertEquals(1, counter.size());
+  }
+
+  public void testGetters() throws Exception {
+    RingBufferTimeWindowCounter counter = new RingBufferTimeWindowCounter("TestCounter", 100, 20);
+    assertEquals("TestCounter", counter.getName());
+    assertEquals(100, counter.getMaxAgeMillis());
+    assertEquals(20, counter.getGranularityMillis());
+    assertEquals("{\"TestCounter\": 0}", counter.toString());
+  }
+
+  public void testMultithreaded() throws Exception {
+    doMultithreadedTest(1000);
+    doMultithreadedTest(TimeUnit.MINUTES.toMillis(1));
+  }
+
+  private void doMultithreadedTest(long granularity) throws Exception {
+    final RingBufferTimeWindowCounter counter = new RingBufferTimeWindowCounter("Test", maxAgeMillis, granularity);
+    final AtomicInteger ourCounter = new AtomicInteger();
+    Collection<Throwable> errors = new MultithreadedTestHarness(() -> {
+      ourCounter.incrementAndGet();
+      counter.incr();
+    }).run(20, 10000);
+    // verify that our reference counter matches the counter value
+    assertEquals(ourCounter.get(), counter.getCount());
+    assertTrue(errors.isEmpty());
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.util.time;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.util.TimeUnit;
+import solutions.trsoftware.commons.shared.util.time.FakeTicker;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class KeyedRateLimiterTest extends TestCase {
+
+  public void testLimitsEachKeySeparately() throws Exception {
+    FakeTicker ticker = new FakeTicker();
+    KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(2, 1, TimeUnit.SECONDS, 100, ticker, "request");
+    assertTrue(limiter.tryAcquire("a"));
+    assertTrue(limiter.tryAcquire("a"));
+    assertFalse(limiter.tryAcquire("a"));
+    assertEquals(500d, limiter.millisUntilCanProceed("a"));
+    // key "b" should not be affected
+    assertEquals(0d, limiter.millisUntilCanProceed("b"));
+    assertTrue(limiter.tryAcquire("b"));
+    assertEquals(2, limiter.size());
+  }
+
+  public void testIdleEviction() throws Exception {
+    FakeTicker ticker = new FakeTicker();
+    KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(2, 1, TimeUnit.SECONDS, 100, ticker, "request");
+    assertTrue(limiter.tryAcquire("a"));
+    assertTrue(limiter.tryAcquire("a"));
+    assertTrue(limiter.tryAcquire("b"));
+    // keep key "a" saturated for much longer than the idle timeout (2 seconds): its limiter should never be
+    // discarded (which would allow a second event in each step)
+    for (int i = 0; i < 30; i++) {
+      ticker.advance(500, MILLISECONDS);
+      assertTrue(limiter.tryAcquire("a"));
+      assertFalse(limiter.tryAcquire("a"));
+    }
+    assertEquals(1, limiter.size());  // "b" should have been discarded after becoming idle
+    // "a" should be discarded only after becoming idle
+    ticker.advance(1, java.util.concurrent.TimeUnit.SECONDS);
+    assertEquals(0d, limiter.millisUntilCanProceed("a"));
+    ticker.advance(1, java.util.concurrent.TimeUnit.SECONDS);
+    assertEquals(0, limiter.size());
+  }
+}
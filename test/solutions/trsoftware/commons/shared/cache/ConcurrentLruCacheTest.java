@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.cache;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ConcurrentLruCacheTest extends TestCase {
+
+  public void testLruEviction() throws Exception {
+    ConcurrentLruCache<String, Integer> cache = new ConcurrentLruCache<>(3);
+    cache.put("a", 1);
+    cache.put("b", 2);
+    cache.put("c", 3);
+    assertEquals(3, cache.size());
+    // access "a", so that "b" becomes the least-recently-used entry
+    assertEquals(1, (int)cache.getIfPresent("a"));
+    cache.put("d", 4);
+    assertEquals(3, cache.size());
+    assertFalse(cache.containsKey("b"));
+    assertTrue(cache.containsKey("a"));
+    // replacing a value also counts as an access
+    assertEquals(3, (int)cache.put("c", 30));
+    cache.put("e", 5);
+    assertFalse(cache.containsKey("a"));
+    assertEquals(30, (int)cache.getIfPresent("c"));
+    assertNull(cache.getIfPresent("b"));
+    assertEquals(4, (int)cache.invalidate("d"));
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.weightedSize());
+
+    CacheStats stats = cache.stats();
+    assertEquals(2, stats.hitCount());
+    assertEquals(1, stats.missCount());
+    assertEquals(2, stats.evictionCount());
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.weightedSize());
+  }
+
+  public void testWeights() throws Exception {
+    // the weight of each entry is the length of its value
+    ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(10, (key, value) -> value.length());
+    cache.put(1, "aaaa");
+    cache.put(2, "bbbb");
+    assertEquals(8, cache.weightedSize());
+    cache.put(3, "cc");
+    assertEquals(10, cache.weightedSize());
+    assertEquals(3, cache.size());
+    // this should evict the first 2 entries
+    cache.put(4, "ddddd");
+    assertEquals(7, cache.weightedSize());
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.stats().evictionCount());
+    assertEquals(8, cache.stats().evictionWeight());
+    // growing the weight of an existing entry can also trigger eviction
+    cache.put(4, "dddddddddd");
+    assertEquals(10, cache.weightedSize());
+    assertEquals(1, cache.size());
+    // an entry heavier than the maximum is evicted immediately
+    cache.put(5, "eeeeeeeeeeeeeeeeeeee");
+    assertFalse(cache.containsKey(5));
+  }
+
+  public void testLoader() throws Exception {
+    ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(10);
+    AtomicInteger loadCount = new AtomicInteger();
+    assertEquals("1", cache.get(1, key -> {
+      loadCount.incrementAndGet();
+      return key.toString();
+    }));
+    assertEquals("1", cache.get(1, key -> {
+      throw new AssertionError("should not be invoked for a cached key");
+    }));
+    assertEquals(1, loadCount.get());
+    // a null result should not be cached
+    assertNull(cache.get(2, key -> null));
+    assertFalse(cache.containsKey(2));
+    // an exception thrown by the loader should propagate to the caller
+    try {
+      cache.get(3, key -> {
+        throw new IllegalStateException();
+      });
+      fail("Expected IllegalStateException");
+    }
+    catch (IllegalStateException expected) {
+      // expected
+    }
+    CacheStats stats = cache.stats();
+    assertEquals(1, stats.hitCount());
+    assertEquals(3, stats.missCount());
+    assertEquals(1, stats.loadSuccessCount());
+    assertEquals(2, stats.loadFailureCount());
+  }
+
+  /**
+   * Checks that concurrent lookups of the same missing key invoke the loader only once, and that the size limit
+   * is maintained under contention.
+   */
+  public void testConcurrency() throws Exception {
+    int maxSize = 100;
+    int nKeys = 1000;
+    ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(maxSize);
+    AtomicInteger[] loadCounts = new AtomicInteger[nKeys];
+    for (int i = 0; i < nKeys; i++)
+      loadCounts[i] = new AtomicInteger();
+    ConcurrentLruCache<Integer, Integer> stampedeCache = new ConcurrentLruCache<>(maxSize);
+    AtomicInteger stampedeLoadCount = new AtomicInteger();
+    assertTrue(new MultithreadedTestHarness(() -> {
+      int key = ThreadLocalRandom.current().nextInt(nKeys);
+      assertEquals(key, (int)cache.get(key, k -> {
+        loadCounts[k].incrementAndGet();
+        return k;
+      }));
+      assertEquals(-1, (int)stampedeCache.get(-1, k -> {
+        stampedeLoadCount.incrementAndGet();
+        return k;
+      }));
+    }).run(16, 5000).isEmpty());
+    assertEquals(1, stampedeLoadCount.get());
+    assertEquals(maxSize, cache.size());
+    assertEquals(maxSize, cache.weightedSize());
+    CacheStats stats = cache.stats();
+    assertEquals(16 * 5000, stats.requestCount());
+    int totalLoads = 0;
+    for (AtomicInteger loadCount : loadCounts)
+      totalLoads += loadCount.get();
+    assertEquals(stats.loadSuccessCount(), totalLoads);
+    assertEquals(totalLoads - maxSize, stats.evictionCount());
+  }
+}
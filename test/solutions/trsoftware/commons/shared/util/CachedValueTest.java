@@ -23,6 +23,9 @@ import solutions.trsoftware.commons.shared.testutil.InvocationRecorder;
 import solutions.trsoftware.commons.shared.util.CachedValue.ValueLoader;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
@@ -324,6 +327,54 @@ public class CachedValueTest extends TestCase {
     assertEquals(1, cachedValue.getAge());
   }
 
+  public void testExpiryJitter() throws Exception {
+    cachedValue.set(0);
+    assertFalse(cachedValue.isExpired());
+    currentTimeMillis += maxAgeMillis;
+    assertFalse(cachedValue.isExpired());
+    currentTimeMillis++;
+    assertTrue(cachedValue.isExpired());
+    // with jitter, every new value should expire somewhere between (1-jitter)*maxAge and maxAge
+    cachedValue.setExpiryJitter(.5, new Random(1));
+    for (int i = 0; i < 10; i++) {
+      cachedValue.set(i);
+      currentTimeMillis += maxAgeMillis / 2;
+      assertFalse(cachedValue.isExpired());
+      currentTimeMillis += maxAgeMillis / 2 + 1;
+      assertTrue(cachedValue.isExpired());
+    }
+    AssertUtils.assertThrows(IllegalArgumentException.class, () -> cachedValue.setExpiryJitter(1.5));
+
+    // the jitter should also apply to the initial values of instances created at the same time
+    Random random = new Random(1);
+    List<CachedValue<Integer>> instances = new ArrayList<>();
+    long startTime = currentTimeMillis;
+    for (int i = 0; i < 20; i++) {
+      instances.add(new CachedValue<Integer>(Integer.valueOf(i), maxAgeMillis, loader) {  // boxed to avoid calling the (long, long, ValueLoader) constructor
+        @Override
+        protected long currentTimeMillis() {
+          return currentTimeMillis;
+        }
+      }.setExpiryJitter(.5, random));
+    }
+    currentTimeMillis = startTime + maxAgeMillis / 2;
+    assertEquals(0, countExpired(instances));
+    currentTimeMillis = startTime + maxAgeMillis * 3 / 4;
+    int nExpired = countExpired(instances);
+    assertTrue(String.valueOf(nExpired), nExpired > 0 && nExpired < instances.size());
+    currentTimeMillis = startTime + maxAgeMillis + 1;
+    assertEquals(instances.size(), countExpired(instances));
+  }
+
+  private static int countExpired(List<CachedValue<Integer>> instances) {
+    int ret = 0;
+    for (CachedValue<Integer> instance : instances) {
+      if (instance.isExpired())
+        ret++;
+    }
+    return ret;
+  }
+
   private void assertValueNotSet() {
     assertFalse(cachedValue.hasValue());
     assertNull(cachedValue.remove());
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.util.time.FakeTicker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class DecayingStatsDoubleTest extends TestCase {
+
+  public void testDecay() throws Exception {
+    FakeTicker ticker = new FakeTicker();
+    DecayingStatsDouble stats = new DecayingStatsDouble(1, TimeUnit.MINUTES, ticker);
+    assertEquals(0, stats.size());
+    assertEquals(0d, stats.mean());
+    assertEquals(0d, stats.variance());
+
+    // without the passage of time, the results should be the same as the unweighted stats
+    MeanAndVariance expected = new MeanAndVariance();
+    for (double x : new double[]{1, 2, 3, 4, 5}) {
+      stats.update(x);
+      expected.update(x);
+    }
+    assertEquals(5, stats.size());
+    assertEquals(5d, stats.getWeight(), 1e-9);
+    assertEquals(expected.mean(), stats.mean(), 1e-9);
+    assertEquals(expected.variance(), stats.variance(), 1e-9);
+    assertEquals(expected.sampleVariance(), stats.sampleVariance(), 1e-9);
+    assertEquals(expected.sum(), stats.sum(), 1e-9);
+
+    // after one half-life, the weight of each value should be halved, but the mean and variance remain the same
+    ticker.advance(1, TimeUnit.MINUTES);
+    assertEquals(2.5, stats.getWeight(), 1e-9);
+    assertEquals(expected.mean(), stats.mean(), 1e-9);
+    assertEquals(expected.variance(), stats.variance(), 1e-9);
+
+    // a new value now has twice the weight of each of the old values
+    stats.update(10);
+    assertEquals(3.5, stats.getWeight(), 1e-9);
+    assertEquals((2.5 * 3 + 10) / 3.5, stats.mean(), 1e-9);
+
+    // after a long time, the stats should be dominated by the new values
+    ticker.advance(1, TimeUnit.HOURS);
+    stats.update(100);
+    assertEquals(100, stats.mean(), 1e-6);
+    assertEquals(0, stats.variance(), 1e-3);
+    assertEquals(7, stats.size());
+  }
+}
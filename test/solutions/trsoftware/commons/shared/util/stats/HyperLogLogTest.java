@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class HyperLogLogTest extends TestCase {
+
+  public void testCardinality() throws Exception {
+    HyperLogLog hll = new HyperLogLog();
+    assertEquals(0, hll.cardinality());
+    hll.update(null);
+    assertEquals(0, hll.cardinality());
+    // small cardinalities should be nearly exact (and repeated values should not count)
+    for (int i = 0; i < 3; i++) {
+      for (String s : new String[]{"foo", "bar", "baz"})
+        hll.update(s);
+    }
+    assertEquals(3, hll.cardinality());
+    Random rnd = new Random(1);
+    for (int n : new int[]{1000, 10_000, 100_000, 1_000_000}) {
+      hll = new HyperLogLog();
+      for (int i = 0; i < n; i++) {
+        hll.update(rnd.nextLong());
+        if (i % 2 == 0)
+          hll.update(String.valueOf(i));
+      }
+      int expected = n + n / 2;
+      double error = Math.abs(hll.cardinality() - expected) / (double)expected;
+      System.out.printf("%d distinct values: estimate=%d, error=%.4f%n", expected, hll.cardinality(), error);
+      assertTrue(error < .03);  // about 4 standard errors
+    }
+  }
+
+  public void testMerge() throws Exception {
+    HyperLogLog a = new HyperLogLog(12);
+    HyperLogLog b = new HyperLogLog(12);
+    for (int i = 0; i < 20_000; i++) {
+      a.update(i);
+      b.update(i + 10_000);  // half the values overlap
+    }
+    a.merge(b);
+    assertEquals(30_000, a.cardinality(), 30_000 * .06);
+    try {
+      a.merge(new HyperLogLog(10));
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException expected) {
+    }
+  }
+}
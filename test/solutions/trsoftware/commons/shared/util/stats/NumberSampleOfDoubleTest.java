@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.Random;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class NumberSampleOfDoubleTest extends CollectableStatsTestCase {
+
+  /**
+   * Checks that all the statistics match those computed by {@link NumberSample}.
+   */
+  public void testMatchesNumberSample() throws Exception {
+    Random rnd = new Random(1);
+    for (int n : new int[]{1, 2, 3, 10, 101, 1000}) {
+      NumberSampleOfDouble sample = new NumberSampleOfDouble();
+      NumberSample<Double> expected = new NumberSample<>();
+      for (int i = 0; i < n; i++) {
+        double x = rnd.nextGaussian() * 100;
+        sample.update(x);
+        expected.update(x);
+        if (i % 7 == 0) {
+          // interleave updates with queries, to make sure the array is re-sorted as needed
+          assertEquals(expected.min(), sample.min());
+          assertEquals(expected.max(), sample.max());
+          assertEquals(expected.median(), sample.median());
+        }
+      }
+      assertEquals(n, sample.size());
+      assertEquals(expected.min(), sample.min());
+      assertEquals(expected.max(), sample.max());
+      assertEquals(expected.sum(), sample.sum(), 1e-9);
+      assertEquals(expected.mean(), sample.mean(), 1e-9);
+      assertEquals(expected.median(), sample.median());
+      assertEquals(expected.getMedian().getLower(), sample.getMedian().getLower());
+      assertEquals(expected.getMedian().getUpper(), sample.getMedian().getUpper());
+      assertEquals(expected.variance(), sample.variance(), 1e-9);
+      for (int p = 0; p <= 100; p += 5)
+        assertEquals(expected.percentile(p), sample.percentile(p));
+      for (double kPct = 0; kPct <= 1; kPct += .125)
+        assertEquals(expected.orderStatistic(kPct), sample.orderStatistic(kPct));
+      assertEquals(expected.orderStatistic(1), sample.orderStatistic(1));
+      assertEquals(expected.orderStatistic(-1), sample.orderStatistic(-1));
+      ImmutableStats<Double> summary = sample.summarize();
+      assertEquals(n, summary.size());
+      assertEquals(expected.median(), summary.median());
+    }
+  }
+
+  public void testEmpty() throws Exception {
+    NumberSampleOfDouble sample = new NumberSampleOfDouble(0);
+    assertEquals(0, sample.size());
+    assertEquals(0d, sample.mean());
+    assertEquals(0d, sample.variance());
+    assertNull(sample.getMedian());
+    assertNull(sample.summarize().median());
+    try {
+      sample.median();
+      fail("Expected IllegalStateException");
+    }
+    catch (IllegalStateException expected) {
+      // expected
+    }
+    try {
+      sample.orderStatistic(1);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  public void testGrowAndTrim() throws Exception {
+    NumberSampleOfDouble sample = new NumberSampleOfDouble(1);
+    sample.addAll(3, 1, 2);
+    for (int i = 0; i < 100; i++)
+      sample.update(i);
+    assertEquals(103, sample.size());
+    sample.trimToSize();
+    assertEquals(103, sample.toArray().length);
+    assertEquals(0d, sample.min());
+    assertEquals(99d, sample.max());
+    NumberSampleOfDouble other = new NumberSampleOfDouble(-5, 200);
+    sample.merge(other);
+    assertEquals(105, sample.size());
+    assertEquals(-5d, sample.orderStatistic(1));
+    assertEquals(200d, sample.orderStatistic(-1));
+    assertEquals(new NumberSampleOfDouble(1, 2, 3), new NumberSampleOfDouble(3, 2, 1));
+    sample.clear();
+    assertEquals(0, sample.size());
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    NumberSampleOfDouble result = doTestAsDoubleStreamCollector(new NumberSampleOfDouble(),
+        stream -> stream.collect(NumberSampleOfDouble::new, NumberSampleOfDouble::update, NumberSampleOfDouble::merge),
+        (expected, actual) -> assertEquals(expected, actual),
+        5, 1, 4, 2, 3, 7, 6);
+    assertEquals(4d, result.median());
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.Random;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class NumberSampleOfIntTest extends CollectableStatsTestCase {
+
+  /**
+   * Checks that all the statistics match those computed by {@link NumberSample}.
+   */
+  public void testMatchesNumberSample() throws Exception {
+    Random rnd = new Random(1);
+    for (int n : new int[]{1, 2, 3, 10, 101, 1000}) {
+      NumberSampleOfInt sample = new NumberSampleOfInt();
+      NumberSample<Integer> expected = new NumberSample<>();
+      for (int i = 0; i < n; i++) {
+        int x = rnd.nextInt(1000) - 500;
+        sample.update(x);
+        expected.update(x);
+      }
+      assertEquals(n, sample.size());
+      assertEquals((int)expected.min(), sample.min());
+      assertEquals((int)expected.max(), sample.max());
+      assertEquals((long)expected.sum(), sample.sum());
+      assertEquals(expected.mean(), sample.mean(), 1e-9);
+      assertEquals((int)expected.median(), sample.median());
+      assertEquals(expected.variance(), sample.variance(), 1e-9);
+      for (int p = 0; p <= 100; p += 5)
+        assertEquals((int)expected.percentile(p), sample.percentile(p));
+      assertEquals(expected.summarize().toString(), sample.summarize().toString());
+    }
+  }
+
+  public void testSumDoesNotOverflow() throws Exception {
+    NumberSampleOfInt sample = new NumberSampleOfInt(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    assertEquals(2L * Integer.MAX_VALUE, sample.sum());
+    assertEquals((double)Integer.MAX_VALUE, sample.mean());
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    NumberSampleOfInt result = doTestAsCollector(new NumberSampleOfInt(),
+        (expected, actual) -> assertEquals(expected, actual),
+        5, 1, 4, 2, 3, 7, 6);
+    assertEquals(4, result.median());
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import solutions.trsoftware.commons.shared.testutil.AssertUtils;
+
+import java.util.Random;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class NumberSampleOfLongTest extends CollectableStatsTestCase {
+
+  /**
+   * Checks that all the statistics match those computed by {@link NumberSample}.
+   */
+  public void testMatchesNumberSample() throws Exception {
+    Random rnd = new Random(1);
+    for (int n : new int[]{1, 2, 3, 10, 101, 1000}) {
+      NumberSampleOfLong sample = new NumberSampleOfLong();
+      NumberSample<Long> expected = new NumberSample<>();
+      for (int i = 0; i < n; i++) {
+        // values outside the int range
+        long x = (rnd.nextInt(1000) - 500) * 1_000_000_000L;
+        sample.update(x);
+        expected.update(x);
+        if (i % 7 == 0) {
+          // interleave updates with queries, to make sure the array is re-sorted as needed
+          assertEquals((long)expected.min(), sample.min());
+          assertEquals((long)expected.max(), sample.max());
+          assertEquals((long)expected.median(), sample.median());
+        }
+      }
+      assertEquals(n, sample.size());
+      assertEquals((long)expected.min(), sample.min());
+      assertEquals((long)expected.max(), sample.max());
+      assertEquals((long)expected.sum(), sample.sum());
+      assertEquals(expected.mean(), sample.mean(), 1e-3);
+      assertEquals((long)expected.median(), sample.median());
+      assertEquals(expected.getMedian().getLower(), sample.getMedian().getLower());
+      assertEquals(expected.getMedian().getUpper(), sample.getMedian().getUpper());
+      assertEquals(expected.variance(), sample.variance(), expected.variance() * 1e-9);
+      for (int p = 0; p <= 100; p += 5)
+        assertEquals((long)expected.percentile(p), sample.percentile(p));
+      for (double kPct = 0; kPct <= 1; kPct += .125)
+        assertEquals((long)expected.orderStatistic(kPct), sample.orderStatistic(kPct));
+      assertEquals((long)expected.orderStatistic(1), sample.orderStatistic(1));
+      assertEquals((long)expected.orderStatistic(-1), sample.orderStatistic(-1));
+      assertEquals(expected.summarize().toString(), sample.summarize().toString());
+    }
+  }
+
+  public void testOrderStatistics() throws Exception {
+    NumberSampleOfLong sample = new NumberSampleOfLong(50, 10, 40, 20, 30);
+    assertEquals(10, sample.orderStatistic(1));
+    assertEquals(20, sample.orderStatistic(2));
+    assertEquals(50, sample.orderStatistic(-1));
+    assertEquals(40, sample.orderStatistic(-2));
+    assertEquals(10, sample.orderStatistic(0d));
+    assertEquals(30, sample.orderStatistic(.5));
+    assertEquals(50, sample.orderStatistic(1d));
+    assertEquals(10, sample.percentile(0));
+    assertEquals(10, sample.percentile(20));
+    assertEquals(20, sample.percentile(21));
+    assertEquals(50, sample.percentile(100));
+    AssertUtils.assertThrows(IllegalArgumentException.class, () -> sample.orderStatistic(0));
+    AssertUtils.assertThrows(IllegalArgumentException.class, () -> sample.orderStatistic(6));
+    AssertUtils.assertThrows(IllegalArgumentException.class, () -> sample.orderStatistic(-6));
+    AssertUtils.assertThrows(IllegalArgumentException.class, () -> sample.orderStatistic(1.5));
+    AssertUtils.assertThrows(IllegalArgumentException.class, () -> sample.percentile(101));
+  }
+
+  public void testEmpty() throws Exception {
+    NumberSampleOfLong sample = new NumberSampleOfLong(0);
+    assertEquals(0, sample.size());
+    assertEquals(0, sample.sum());
+    assertEquals(0d, sample.mean());
+    assertEquals(0d, sample.variance());
+    assertNull(sample.getMedian());
+    ImmutableStats<Long> summary = sample.summarize();
+    assertEquals(0, summary.size());
+    assertNull(summary.min());
+    assertNull(summary.median());
+    AssertUtils.assertThrows(IllegalStateException.class, () -> sample.median());
+    AssertUtils.assertThrows(IllegalStateException.class, () -> sample.percentile(50));
+  }
+
+  public void testMerge() throws Exception {
+    NumberSampleOfLong sample = new NumberSampleOfLong(1);
+    sample.addAll(3, 1, 2);
+    assertEquals(2, sample.median());  // sorts the array
+    NumberSampleOfLong other = new NumberSampleOfLong(-5, 200, 4);
+    sample.merge(other);
+    assertEquals(6, sample.size());
+    assertEquals(3, other.size());  // the other sample should be unchanged
+    assertEquals(-5, sample.orderStatistic(1));
+    assertEquals(200, sample.orderStatistic(-1));
+    assertEquals(new NumberSampleOfLong(-5, 1, 2, 3, 4, 200), sample);
+    assertEquals(205, sample.sum());
+    sample.clear();
+    assertEquals(0, sample.size());
+    sample.merge(other);
+    assertEquals(other, sample);
+  }
+
+  /**
+   * {@link NumberSampleOfLong#sum()} should fail rather than overflow, but the other statistics should still be
+   * computed correctly.
+   */
+  public void testSumOverflow() throws Exception {
+    NumberSampleOfLong sample = new NumberSampleOfLong(Long.MAX_VALUE, Long.MAX_VALUE);
+    AssertUtils.assertThrows(ArithmeticException.class, () -> sample.sum());
+    assertEquals((double)Long.MAX_VALUE, sample.mean());
+    assertEquals(0d, sample.variance());
+    ImmutableStats<Long> summary = sample.summarize();
+    assertEquals(2d * Long.MAX_VALUE, summary.sum());
+    assertEquals((double)Long.MAX_VALUE, summary.mean());
+    assertEquals(Long.MAX_VALUE, (long)summary.median());
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    NumberSampleOfLong result = doTestAsCollector(new NumberSampleOfLong(),
+        (expected, actual) -> assertEquals(expected, actual),
+        5L, 1L, 4L, 2L, 3L, 7L, 6L);
+    assertEquals(4, result.median());
+  }
+}
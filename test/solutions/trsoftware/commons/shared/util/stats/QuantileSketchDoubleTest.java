@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QuantileSketchDoubleTest extends CollectableStatsTestCase {
+
+  public void testQuantiles() throws Exception {
+    Random rnd = new Random(1);
+    int n = 100_000;
+    double[] values = new double[n];
+    QuantileSketchDouble sketch = new QuantileSketchDouble();
+    NumberSampleOnlineDouble control = new NumberSampleOnlineDouble();
+    for (int i = 0; i < n; i++) {
+      // a long-tailed distribution, like request latencies
+      values[i] = Math.exp(rnd.nextGaussian());
+      sketch.update(values[i]);
+      control.update(values[i]);
+    }
+    Arrays.sort(values);
+    assertEquals(n, sketch.size());
+    assertEquals(values[0], sketch.min());
+    assertEquals(values[n - 1], sketch.max());
+    assertEquals(control.mean(), sketch.mean(), 1e-9);
+    assertEquals(control.variance(), sketch.variance(), 1e-9);
+    assertEquals(values[n / 2], sketch.median(), values[n / 2] * .02);
+    for (double p : new double[]{.1, 1, 10, 25, 75, 90, 99, 99.9}) {
+      // the rank error should be small everywhere, and much smaller near the tails
+      double q = p / 100;
+      int rank = Arrays.binarySearch(values, sketch.percentile(p));
+      if (rank < 0)
+        rank = -rank - 1;
+      assertEquals(String.valueOf(p), q, (double)rank / n, .01 * Math.min(q, 1 - q) + .0005);
+    }
+    assertEquals(sketch.median(), (double)sketch.summarize().median());
+  }
+
+  public void testMerge() throws Exception {
+    QuantileSketchDouble a = new QuantileSketchDouble();
+    QuantileSketchDouble b = new QuantileSketchDouble();
+    QuantileSketchDouble all = new QuantileSketchDouble();
+    for (int i = 1; i <= 10_000; i++) {
+      (i % 3 == 0 ? a : b).update(i);
+      all.update(i);
+    }
+    QuantileSketchDouble merged = a.copy();
+    merged.merge(b);
+    assertEquals(all.size(), merged.size());
+    assertEquals(all.min(), merged.min());
+    assertEquals(all.max(), merged.max());
+    assertEquals(all.mean(), merged.mean(), 1e-9);
+    assertEquals(all.median(), merged.median(), 100);
+    assertEquals(all.percentile(99), merged.percentile(99), 20);
+    // the copy should not have modified the original
+    assertEquals(3333, a.size());
+  }
+
+  public void testInvalidInputs() throws Exception {
+    QuantileSketchDouble sketch = new QuantileSketchDouble();
+    assertTrue(Double.isNaN(sketch.median()));
+    sketch.updateAll(new double[]{1, Double.NaN, Double.POSITIVE_INFINITY, 3});
+    assertEquals(2, sketch.size());
+    assertEquals(3d, sketch.max());
+    assertEquals(3d, sketch.percentile(100));
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    QuantileSketchDouble result = doTestAsCollector(new QuantileSketchDouble(), (expected, actual) -> {
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected.mean(), actual.mean(), 1e-9);
+      assertEquals(expected.median(), actual.median());
+    }, 1d, 2d, 3d, 4d, 5d, 6d, 7d);
+    assertEquals(4d, result.median());
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.stream.IntStream;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QuantileSketchIntTest extends CollectableStatsTestCase {
+
+  public void testQuantiles() throws Exception {
+    QuantileSketchInt sketch = QuantileSketchInt.collectIntStream(IntStream.rangeClosed(1, 100_000).parallel());
+    assertEquals(100_000, sketch.size());
+    assertEquals(1, sketch.min());
+    assertEquals(100_000, sketch.max());
+    assertEquals(5_000_050_000L, sketch.sum());
+    assertEquals(50_000.5, sketch.mean(), 1e-9);
+    assertEquals(50_000, sketch.median(), 500);
+    assertEquals(99_000, sketch.percentile(99), 100);
+    assertEquals(99_900, sketch.percentile(99.9), 20);
+    assertEquals(sketch.median(), (int)sketch.summarize().median());
+  }
+
+  public void testEmpty() throws Exception {
+    QuantileSketchInt sketch = new QuantileSketchInt();
+    assertEquals(0, sketch.size());
+    assertEquals(0, sketch.median());
+    assertTrue(Double.isNaN(sketch.quantile(.99)));
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    QuantileSketchInt result = doTestAsCollector(new QuantileSketchInt(), (expected, actual) -> {
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected.sum(), actual.sum());
+      assertEquals(expected.median(), actual.median());
+    }, 5, 1, 4, 2, 3, 7, 6);
+    assertEquals(4, result.median());
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.util.time.FakeTicker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class SlidingWindowStatsDoubleTest extends TestCase {
+
+  public void testSlidingWindow() throws Exception {
+    FakeTicker ticker = new FakeTicker();
+    // a 5-minute window with 1-minute buckets
+    SlidingWindowStatsDouble stats = new SlidingWindowStatsDouble(5, TimeUnit.MINUTES, 5, ticker);
+    assertEquals(0, stats.size());
+    assertEquals(0d, stats.mean());
+    assertEquals(Double.NEGATIVE_INFINITY, stats.max());
+
+    // add the values 1..10 over the first 10 minutes (one value per minute)
+    NumberSample<Double> expected = new NumberSample<>();
+    for (int i = 1; i <= 10; i++) {
+      stats.update(i);
+      ticker.advance(1, TimeUnit.MINUTES);
+    }
+    // now the window should contain only the last 4 values (since the current bucket is empty)
+    for (int i = 7; i <= 10; i++)
+      expected.update((double)i);
+    assertStatsEqual(expected, stats);
+
+    // add a few more values to the current bucket
+    stats.updateAll(new double[]{20, -3});
+    expected.update(20d);
+    expected.update(-3d);
+    assertStatsEqual(expected, stats);
+
+    // advance past the end of the window
+    ticker.advance(5, TimeUnit.MINUTES);
+    assertEquals(0, stats.size());
+    stats.update(42);
+    assertEquals(1, stats.size());
+    assertEquals(42d, stats.mean());
+    stats.clear();
+    assertEquals(0, stats.size());
+  }
+
+  private static void assertStatsEqual(NumberSample<Double> expected, SlidingWindowStatsDouble actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.min(), actual.min());
+    assertEquals(expected.max(), actual.max());
+    assertEquals(expected.sum(), actual.sum(), 1e-9);
+    assertEquals(expected.mean(), actual.mean(), 1e-9);
+    assertEquals(expected.variance(), actual.variance(), 1e-9);
+    assertEquals(expected.stdev(), actual.stdev(), 1e-9);
+  }
+}
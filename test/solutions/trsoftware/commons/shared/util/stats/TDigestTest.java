@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class TDigestTest extends TestCase {
+
+  private static final double[] QUANTILES = {.001, .01, .1, .25, .5, .75, .9, .95, .99, .999};
+
+  public void testSmallSample() throws Exception {
+    // a sample smaller than the compression factor should be represented exactly
+    double[] inputs = {2, 3, 65, 123, 435, 123, 69, 34, 23, 42, 123, 12, 3, -123, 34};
+    TDigest digest = new TDigest();
+    for (double x : inputs)
+      digest.update(x);
+    double[] sorted = inputs.clone();
+    Arrays.sort(sorted);
+    assertEquals(inputs.length, digest.size());
+    assertEquals(-123.0, digest.quantile(0));
+    assertEquals(435.0, digest.quantile(1));
+    assertEquals(34.0, digest.quantile(.5));
+    for (int i = 0; i < sorted.length; i++) {
+      // the midpoint of each element's rank range should give that element
+      assertEquals(sorted[i], digest.quantile((i + .5) / sorted.length));
+    }
+    // the upper median of an even-sized sample (same as Median.getValue)
+    digest.update(1000);
+    assertEquals(new NumberSample<Double>() {{
+      for (double x : inputs) update(x);
+      update(1000.0);
+    }}.getMedian().getValue(), digest.quantile(.5));
+  }
+
+  public void testEmpty() throws Exception {
+    TDigest digest = new TDigest();
+    assertTrue(Double.isNaN(digest.quantile(.5)));
+    digest.merge(new TDigest());
+    assertEquals(0, digest.size());
+  }
+
+  public void testAccuracy() throws Exception {
+    Random rnd = new Random(1);
+    int n = 200_000;
+    double[] uniform = new double[n];
+    double[] exponential = new double[n];
+    for (int i = 0; i < n; i++) {
+      uniform[i] = rnd.nextDouble();
+      exponential[i] = -Math.log(rnd.nextDouble());
+    }
+    checkAccuracy(uniform);
+    checkAccuracy(exponential);
+  }
+
+  public void testMerge() throws Exception {
+    Random rnd = new Random(2);
+    int n = 100_000;
+    double[] inputs = new double[n];
+    TDigest[] parts = new TDigest[10];
+    for (int i = 0; i < parts.length; i++)
+      parts[i] = new TDigest();
+    for (int i = 0; i < n; i++) {
+      inputs[i] = rnd.nextGaussian();
+      parts[i % parts.length].update(inputs[i]);
+    }
+    TDigest merged = new TDigest();
+    for (TDigest part : parts)
+      merged.merge(part);
+    assertEquals(n, merged.size());
+    checkAccuracy(inputs, merged);
+  }
+
+  private static void checkAccuracy(double[] inputs) {
+    TDigest digest = new TDigest();
+    for (double x : inputs)
+      digest.update(x);
+    checkAccuracy(inputs, digest);
+  }
+
+  /**
+   * Checks that the rank of each estimated quantile is close to the actual rank, with a smaller tolerance at the tails.
+   */
+  private static void checkAccuracy(double[] inputs, TDigest digest) {
+    double[] sorted = inputs.clone();
+    Arrays.sort(sorted);
+    int n = sorted.length;
+    assertTrue(digest.toString(), digest.centroidCount() <= digest.getCompression() + 2);
+    assertEquals(sorted[0], digest.min());
+    assertEquals(sorted[n - 1], digest.max());
+    for (double q : QUANTILES) {
+      double estimate = digest.quantile(q);
+      int rank = Arrays.binarySearch(sorted, estimate);
+      if (rank < 0)
+        rank = -rank - 1;
+      double rankError = Math.abs((double)rank / n - q);
+      assertTrue(String.format("q=%.3f: estimate=%.5f, actual=%.5f, rank error=%.5f", q, estimate, sorted[(int)(q * n)], rankError),
+          rankError <= .001 + .01 * Math.min(q, 1 - q));
+    }
+  }
+}
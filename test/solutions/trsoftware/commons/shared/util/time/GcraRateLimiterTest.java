@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.time;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.util.TimeUnit;
+import solutions.trsoftware.commons.shared.util.time.AbstractRateLimiter.RateLimitException;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class GcraRateLimiterTest extends TestCase {
+
+  public void testCheckRateLimit() throws Exception {
+    FakeTicker ticker = new FakeTicker(123456789);
+    GcraRateLimiter limiter = new GcraRateLimiter(4, 1, TimeUnit.SECONDS, ticker, "foo");
+    assertTrue(limiter.isIdle());
+    // should allow a burst of 4 events
+    for (int i = 0; i < 4; i++) {
+      assertEquals(0d, limiter.millisUntilCanProceed());
+      limiter.checkRateLimit();
+    }
+    assertFalse(limiter.isIdle());
+    assertEquals(250d, limiter.millisUntilCanProceed());
+    try {
+      limiter.checkRateLimit();
+      fail("Should have thrown RateLimitException");
+    }
+    catch (RateLimitException e) {
+      assertEquals("Exceeded the maximum rate of 4 foos per second", e.getMessage());
+    }
+    assertFalse(limiter.tryAcquire());  // the rejected events should not have been recorded
+    // capacity is replenished at the rate of 1 event every 250 ms
+    ticker.advance(100, MILLISECONDS);
+    assertEquals(150d, limiter.millisUntilCanProceed());
+    assertFalse(limiter.tryAcquire());
+    ticker.advance(150, MILLISECONDS);
+    assertEquals(0d, limiter.millisUntilCanProceed());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+    // after a full window, should be back to the initial state
+    assertEquals(1000L, MILLISECONDS.convert(limiter.nanosUntilIdle(), java.util.concurrent.TimeUnit.NANOSECONDS));
+    ticker.advance(1, java.util.concurrent.TimeUnit.SECONDS);
+    assertTrue(limiter.isIdle());
+    for (int i = 0; i < 4; i++)
+      assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+  }
+
+  public void testSustainedRate() throws Exception {
+    FakeTicker ticker = new FakeTicker();
+    GcraRateLimiter limiter = new GcraRateLimiter(10, 1, TimeUnit.SECONDS, ticker, null);
+    // attempt 1 event every 10 ms for 10 seconds: after the initial burst, only 1 in 10 should be allowed
+    int allowed = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (limiter.tryAcquire())
+        allowed++;
+      ticker.advance(10, MILLISECONDS);
+    }
+    assertEquals(10 + 99, allowed);
+  }
+
+  public void testIllegalArguments() throws Exception {
+    try {
+      new GcraRateLimiter(0, 1, TimeUnit.SECONDS, null);
+      fail("Should have thrown IllegalArgumentException");
+    }
+    catch (IllegalArgumentException expected) {
+    }
+    try {
+      new GcraRateLimiter(1, 0, TimeUnit.SECONDS, null);
+      fail("Should have thrown IllegalArgumentException");
+    }
+    catch (IllegalArgumentException expected) {
+    }
+  }
+}